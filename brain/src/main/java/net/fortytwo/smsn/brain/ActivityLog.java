@@ -1,65 +1,452 @@
 package net.fortytwo.smsn.brain;
 
+import net.fortytwo.smsn.SemanticSynchrony;
 import net.fortytwo.smsn.brain.model.entities.Note;
 
-import java.io.FileWriter;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.logging.Level;
 
+/**
+ * An append-only record of view and edit operations.
+ * Entries are handed off to a background thread through a lock-free buffer, so that logging does not block requests.
+ * The background thread writes entries in batches, both as tab-separated text and, to a second file with the suffix
+ * {@value #BINARY_SUFFIX}, in a compact binary format which can be scanned with {@link #scan(File, Consumer)}.
+ * The files are forced to disk at most once per sync interval, and are rotated when they exceed a maximum size
+ * or have been open longer than a rotation interval; rotated files are given a timestamp suffix.
+ */
 public class ActivityLog {
-    private final OutputStreamWriter out;
 
-    public ActivityLog(FileWriter out) {
-        this.out = out;
+    public static final String BINARY_SUFFIX = ".bin";
+
+    private static final byte[] BINARY_HEADER = "SMSNACT1".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int BUFFER_CAPACITY = 1 << 14;
+    private static final int MAX_BATCH_SIZE = 1 << 12;
+
+    // the longest the writer waits for new entries before checking again
+    private static final long MAX_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    public enum Action {
+        CREATE("create"), VIEW("view"), SET_PROPERTIES("set-props"), LINK("link"), UNLINK("unlink");
+
+        private final String name;
+
+        Action(final String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    public static class Entry {
+        private final long timestamp;
+        private final Action action;
+        private final String[] noteIds;
+
+        public Entry(final long timestamp, final Action action, final String... noteIds) {
+            this.timestamp = timestamp;
+            this.action = action;
+            this.noteIds = noteIds;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public Action getAction() {
+            return action;
+        }
+
+        public String[] getNoteIds() {
+            return noteIds;
+        }
+
+        @Override
+        public String toString() {
+            return timestamp + " " + action.getName() + " " + Arrays.toString(noteIds);
+        }
+    }
+
+    private final File file;
+    private final File binaryFile;
+    private final long syncInterval;
+    private final long maxSize;
+    private final long rotationInterval;
+
+    private final MpscRingBuffer<Entry> buffer = new MpscRingBuffer<>(BUFFER_CAPACITY);
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    // the number of threads currently in the middle of logging an entry
+    private final AtomicInteger producers = new AtomicInteger(0);
+    private final Object syncLock = new Object();
+
+    private volatile Thread writer;
+    // set when the log stops accepting entries
+    private volatile boolean closed;
+    // set once every accepted entry is in the buffer, so that the writer may drain it for the last time
+    private volatile boolean stopping;
+    private volatile long syncRequested;
+
+    // the number of entries which have been written and forced to disk; guarded by syncLock
+    private long synced;
+
+    // the following are used only by the writer thread
+    private FileChannel textChannel;
+    private FileChannel binaryChannel;
+    private long openedAt;
+    private long lastSync;
+    private long unsynced;
+    private final StringBuilder text = new StringBuilder();
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream binary = new DataOutputStream(bytes);
+
+    /**
+     * @param file             the text log. The binary log is written alongside it
+     * @param syncInterval     the longest time, in milliseconds, for which written entries may go unforced to disk
+     * @param maxSize          the size, in bytes, beyond which the text log is rotated, or 0 for no limit
+     * @param rotationInterval the time, in milliseconds, after which the logs are rotated, or 0 for no limit
+     */
+    public ActivityLog(final File file,
+                       final long syncInterval,
+                       final long maxSize,
+                       final long rotationInterval) {
+        this.file = file;
+        this.binaryFile = getBinaryFile(file);
+        this.syncInterval = syncInterval;
+        this.maxSize = maxSize;
+        this.rotationInterval = rotationInterval;
+    }
+
+    public static File getBinaryFile(final File file) {
+        return new File(file.getPath() + BINARY_SUFFIX);
     }
 
     public void logCreate(final Note a) {
-        log("create", a);
+        log(Action.CREATE, a);
     }
 
     public void logView(final Note a) {
-        log("view", a);
+        log(Action.VIEW, a);
     }
 
     public void logSetProperties(final Note a) {
-        log("set-props", a);
+        log(Action.SET_PROPERTIES, a);
     }
 
     public void logLink(final Note tail,
                         final Note head) {
-        log("link", tail, head);
+        log(Action.LINK, tail, head);
     }
 
     public void logUnlink(final Note tail,
                           final Note head) {
-        log("unlink", tail, head);
+        log(Action.UNLINK, tail, head);
     }
 
+    /**
+     * Asks the background thread to write any pending entries now, without waiting for it to do so
+     */
     public void flush() {
-        try {
-            out.flush();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        Thread w = writer;
+        if (null != w) {
+            LockSupport.unpark(w);
         }
     }
 
+    /**
+     * Waits until all entries logged so far have been written and forced to disk
+     */
+    public void sync() throws IOException {
+        long target = buffer.getClaimed();
+        if (0 == target) {
+            return;
+        }
+
+        synchronized (syncLock) {
+            syncRequested = target;
+            flush();
+            while (synced < target) {
+                if (null == writer) {
+                    throw new IOException("activity log has been shut down");
+                }
+                try {
+                    syncLock.wait(MAX_WAIT_NANOS / 1000000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("interrupted while waiting for activity log", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes and forces any pending entries, then closes the log files.
+     * Entries logged afterwards are rejected with an {@link IllegalStateException}.
+     * Calling this method more than once has no further effect.
+     */
     public void shutDown() throws IOException {
-        out.close();
+        closed = true;
+
+        // wait for entries which were accepted before the log was closed, so that none of them is left in the buffer
+        while (producers.get() > 0) {
+            flush();
+            Thread.yield();
+        }
+        stopping = true;
+
+        Thread w = writer;
+        if (null != w) {
+            LockSupport.unpark(w);
+            try {
+                w.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while shutting down activity log", e);
+            }
+        }
+    }
+
+    /**
+     * Reads a binary log, passing each entry to a consumer in the order in which it was written.
+     * An incomplete entry at the end of the file, as may be left by a crash, is ignored.
+     */
+    public static void scan(final File binaryFile, final Consumer<Entry> consumer) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(binaryFile), 1 << 16)) {
+            DataInputStream data = new DataInputStream(in);
+
+            byte[] header = new byte[BINARY_HEADER.length];
+            try {
+                data.readFully(header);
+            } catch (EOFException e) {
+                return;
+            }
+            if (!Arrays.equals(BINARY_HEADER, header)) {
+                throw new IOException("not a binary activity log: " + binaryFile);
+            }
+
+            Action[] actions = Action.values();
+            byte[] idBytes = new byte[255];
+            while (true) {
+                Entry entry;
+                try {
+                    long timestamp = data.readLong();
+                    int action = data.readUnsignedByte();
+                    if (action >= actions.length) {
+                        throw new IOException("unknown action " + action + " in " + binaryFile);
+                    }
+                    String[] ids = new String[data.readUnsignedByte()];
+                    for (int i = 0; i < ids.length; i++) {
+                        int length = data.readUnsignedByte();
+                        data.readFully(idBytes, 0, length);
+                        ids[i] = new String(idBytes, 0, length, StandardCharsets.UTF_8);
+                    }
+                    entry = new Entry(timestamp, actions[action], ids);
+                } catch (EOFException e) {
+                    return;
+                }
+                consumer.accept(entry);
+            }
+        }
+    }
+
+    private void log(final Action action, final Note... notes) {
+        String[] ids = new String[notes.length];
+        for (int i = 0; i < notes.length; i++) {
+            ids[i] = Note.getId(notes[i]).value;
+        }
+        Entry entry = new Entry(System.currentTimeMillis(), action, ids);
+
+        // a producer announces itself before checking whether the log is closed, while shutDown() closes the log
+        // before counting producers, so that every entry is either rejected or written before the writer stops
+        producers.incrementAndGet();
+        try {
+            if (closed) {
+                throw new IllegalStateException("activity log has been shut down");
+            }
+
+            if (!started.get() && started.compareAndSet(false, true)) {
+                startWriter();
+            }
+
+            // if the writer falls behind, producers wait for it rather than dropping entries
+            while (!buffer.offer(entry)) {
+                flush();
+                Thread.yield();
+            }
+        } finally {
+            producers.decrementAndGet();
+        }
+    }
+
+    private void startWriter() {
+        Thread w = new Thread(this::writeEntries, "smsn-activity-log");
+        w.setDaemon(true);
+        writer = w;
+        w.start();
+    }
+
+    private void writeEntries() {
+        try {
+            while (true) {
+                boolean done = stopping;
+                int count;
+                while ((count = buffer.drain(this::append, MAX_BATCH_SIZE)) > 0) {
+                    writeBatch(count);
+                }
+
+                long now = System.currentTimeMillis();
+                if (unsynced > 0 && (done || now - lastSync >= syncInterval || syncRequested > synced)) {
+                    force(now);
+                }
+
+                if (done) {
+                    break;
+                }
+
+                long wait = unsynced > 0
+                        ? Math.min(MAX_WAIT_NANOS, TimeUnit.MILLISECONDS.toNanos(lastSync + syncInterval - now))
+                        : MAX_WAIT_NANOS;
+                LockSupport.parkNanos(this, Math.max(1, wait));
+            }
+        } finally {
+            closeFiles();
+            writer = null;
+            synchronized (syncLock) {
+                syncLock.notifyAll();
+            }
+        }
     }
 
-    private void log(final String action, final Note... notes) {
+    private void append(final Entry entry) {
+        text.append(entry.timestamp).append('\t').append(entry.action.getName());
+        for (String id : entry.noteIds) {
+            text.append('\t').append(id);
+        }
+        text.append('\n');
+
         try {
-            out.append("")
-                    .append("").append(String.valueOf(System.currentTimeMillis()))
-                    .append("\t").append(action);
+            binary.writeLong(entry.timestamp);
+            binary.writeByte(entry.action.ordinal());
+            binary.writeByte(entry.noteIds.length);
+            for (String id : entry.noteIds) {
+                byte[] b = id.getBytes(StandardCharsets.UTF_8);
+                binary.writeByte(b.length);
+                binary.write(b);
+            }
+        } catch (IOException e) {
+            // not thrown by a ByteArrayOutputStream
+            throw new IllegalStateException(e);
+        }
+    }
 
-            for (Note note : notes) {
-                out.append("\t").append(Note.getId(note).value);
+    private void writeBatch(final int count) {
+        try {
+            long now = System.currentTimeMillis();
+            if (null == textChannel) {
+                open(now);
+            } else if ((maxSize > 0 && textChannel.size() >= maxSize)
+                    || (rotationInterval > 0 && now - openedAt >= rotationInterval)) {
+                rotate(now);
             }
 
-            out.append("\n");
+            writeFully(textChannel, StandardCharsets.UTF_8.encode(text.toString()));
+            writeFully(binaryChannel, ByteBuffer.wrap(bytes.toByteArray()));
+        } catch (IOException e) {
+            SemanticSynchrony.getLogger().log(Level.SEVERE, "failed to write " + count + " activity log entries", e);
+            closeFiles();
+        } finally {
+            text.setLength(0);
+            bytes.reset();
+            // entries which could not be written are counted anyway, so that sync() does not wait for them forever
+            unsynced += count;
+        }
+    }
+
+    private void open(final long now) throws IOException {
+        textChannel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        binaryChannel = FileChannel.open(binaryFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (0 == binaryChannel.size()) {
+            writeFully(binaryChannel, ByteBuffer.wrap(BINARY_HEADER));
+        }
+        openedAt = now;
+        lastSync = now;
+    }
+
+    private void rotate(final long now) throws IOException {
+        textChannel.force(false);
+        binaryChannel.force(false);
+        closeFiles();
+
+        String name = file.getPath() + "." + new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date(now));
+        File rotated = new File(name);
+        for (int i = 1; rotated.exists() || getBinaryFile(rotated).exists(); i++) {
+            rotated = new File(name + "-" + i);
+        }
+        if (!file.renameTo(rotated) || !binaryFile.renameTo(getBinaryFile(rotated))) {
+            throw new IOException("could not rotate activity log " + file);
+        }
+
+        open(now);
+    }
+
+    private void force(final long now) {
+        try {
+            if (null != textChannel) {
+                textChannel.force(false);
+                binaryChannel.force(false);
+            }
         } catch (IOException e) {
-            throw new RuntimeException(e);
+            SemanticSynchrony.getLogger().log(Level.SEVERE, "failed to force activity log to disk", e);
+        }
+
+        lastSync = now;
+        synchronized (syncLock) {
+            synced += unsynced;
+            syncLock.notifyAll();
+        }
+        unsynced = 0;
+    }
+
+    private void closeFiles() {
+        for (FileChannel channel : new FileChannel[]{textChannel, binaryChannel}) {
+            if (null != channel) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    SemanticSynchrony.getLogger().log(Level.WARNING, "failed to close activity log", e);
+                }
+            }
+        }
+        textChannel = null;
+        binaryChannel = null;
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            channel.write(data);
         }
     }
 }
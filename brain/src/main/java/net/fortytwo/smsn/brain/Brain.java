@@ -2,11 +2,15 @@ package net.fortytwo.smsn.brain;
 
 import net.fortytwo.smsn.SemanticSynchrony;
 import net.fortytwo.smsn.brain.model.TopicGraph;
+import net.fortytwo.smsn.brain.query.ViewCache;
 import net.fortytwo.smsn.brain.rdf.KnowledgeBase;
+import net.fortytwo.smsn.config.Configuration;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class Brain {
 
@@ -32,10 +36,18 @@ public class Brain {
 
     private final ActivityLog activityLog;
 
+    private final History history;
+
     private final Priorities priorities;
 
     private final EventStack eventStack;
 
+    private final ViewCache viewCache;
+
+    // readers share the graph, while writers take turns with exclusive access.
+    // The lock is fair, so that a steady stream of reads cannot starve a waiting write
+    private final ReadWriteLock lanes = new ReentrantReadWriteLock(true);
+
     public Brain(final TopicGraph topicGraph) throws BrainException {
         this.topicGraph = topicGraph;
 
@@ -47,25 +59,39 @@ public class Brain {
             throw new BrainException(e);
         }
 
-        String filePath = SemanticSynchrony.getConfiguration().getActivityLog();
+        Configuration config = SemanticSynchrony.getConfiguration();
+        String filePath = config.getActivityLog();
 
         if (null == filePath) {
             SemanticSynchrony.getLogger().warning("no activity log specified");
             activityLog = null;
         } else {
             SemanticSynchrony.getLogger().fine("using activity log at " + filePath);
+            File logFile = new File(filePath);
+            createDirectories(logFile);
+            activityLog = new ActivityLog(logFile, config.getActivityLogSyncInterval(),
+                    config.getActivityLogMaxSize(), config.getActivityLogRotationInterval());
+        }
+
+        String historyPath = config.getHistoryFile();
+        if (null == historyPath) {
+            history = new History(topicGraph);
+        } else {
+            SemanticSynchrony.getLogger().fine("using history at " + historyPath);
+            File historyFile = new File(historyPath);
+            createDirectories(historyFile);
             try {
-                File logFile = new File(filePath);
-                createDirectories(logFile);
-                activityLog = new ActivityLog(new FileWriter(logFile, true));
+                history = new History(topicGraph, historyFile);
             } catch (IOException e) {
                 throw new BrainException(e);
             }
         }
 
-        priorities = new Priorities();
+        priorities = new Priorities(topicGraph);
 
         eventStack = new EventStack(EVENT_STACK_CAPACITY);
+
+        viewCache = new ViewCache(topicGraph, config.getViewCacheSize());
     }
 
     public void startBackgroundTasks() {
@@ -76,6 +102,21 @@ public class Brain {
         knowledgeBase.inferAutomatically(INFERENCE_INITIAL_WAIT, INFERENCE_PERIOD);
     }
 
+    /**
+     * Writes out any pending state of the brain, such as activity log entries and visits which have not yet been
+     * forced to disk, and releases the history file. The graph itself is not closed,
+     * and the brain should not be used afterwards
+     */
+    public void close() throws IOException {
+        try {
+            if (null != activityLog) {
+                activityLog.shutDown();
+            }
+        } finally {
+            history.close();
+        }
+    }
+
     public TopicGraph getTopicGraph() {
         return topicGraph;
     }
@@ -88,6 +129,10 @@ public class Brain {
         return activityLog;
     }
 
+    public History getHistory() {
+        return history;
+    }
+
     public Priorities getPriorities() {
         return priorities;
     }
@@ -96,6 +141,26 @@ public class Brain {
         return eventStack;
     }
 
+    public ViewCache getViewCache() {
+        return viewCache;
+    }
+
+    /**
+     * @return a lock to be held by operations which only read the graph.
+     * Any number of readers may hold it at once, but not while a writer holds the write lane
+     */
+    public Lock getReadLane() {
+        return lanes.readLock();
+    }
+
+    /**
+     * @return a lock to be held by operations which modify the graph, so that writes are applied one at a time
+     * and are never observed half-finished by readers
+     */
+    public Lock getWriteLane() {
+        return lanes.writeLock();
+    }
+
     public class BrainException extends Exception {
         public BrainException(final Throwable cause) {
             super(cause);
@@ -4,57 +4,500 @@ import net.fortytwo.smsn.brain.model.entities.Note;
 import net.fortytwo.smsn.brain.model.TopicGraph;
 import net.fortytwo.smsn.brain.model.Filter;
 
-import java.util.Collection;
-import java.util.LinkedList;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+/**
+ * A record of visited notes, ranked either by recency or by frecency, and safe for concurrent use.
+ * Each distinct note has a single entry, kept in a list ordered by most recent visit, so that recent visits are read
+ * without sorting; entries beyond a fixed capacity are dropped, least recent first.
+ * Frecency combines the number of visits with their age: each visit counts for one,
+ * halved for each {@link #FRECENCY_HALF_LIFE} milliseconds which have passed since.
+ * <p>
+ * Optionally, visits are also appended to a file, which is memory-mapped one chunk at a time and replayed when the
+ * history is reopened. The file begins with a header, followed by a sequence of records: a timestamp, a number of
+ * visits, a frecency as of the timestamp, the length of the note id, and the id itself, in UTF-8.
+ * A record is complete once its length has been written, and a zero length marks the end of the history.
+ * Each visit appends a record of one visit. Once the file holds many more records than the history holds entries,
+ * it is compacted: a new file with a single record per entry replaces it, so that the file does not grow without
+ * bound, while the number of visits and the frecency of each entry are kept.
+ * <p>
+ * Entries hold only note ids; notes are resolved from the graph when the history is read,
+ * and are dropped from the history when they are removed from the graph.
+ */
 public class History {
-    private static final int CAPACITY = 1000;
+    public enum Ranking {Recency, Frecency}
 
-    private final AtomId[] visited;
-    private int totalVisits;
+    public static final int CAPACITY = 1000;
 
-    public History() {
-        this.visited = new AtomId[CAPACITY];
-        totalVisits = 0;
+    public static final long FRECENCY_HALF_LIFE = 1000L * 60 * 60 * 24 * 7;
+
+    static final byte[] MAGIC = "SmSnHist".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 2;
+
+    // the number of records which the file may hold, beyond which it is compacted
+    static final int COMPACTION_THRESHOLD = 10 * CAPACITY;
+
+    private static final int HEADER_SIZE = MAGIC.length + 4;
+    // time, visits, score and id length
+    private static final int RECORD_HEADER_SIZE = 8 + 4 + 8 + 2;
+    private static final int LENGTH_OFFSET = 8 + 4 + 8;
+    private static final int CHUNK_SIZE = 1024 * 1024;
+    private static final int MAX_ID_LENGTH = 0xFFFF;
+
+    private final TopicGraph graph;
+    private final Map<AtomId, Entry> entriesById = new HashMap<>();
+    // the most and least recently visited entries
+    private Entry head;
+    private Entry tail;
+
+    private File file;
+    private FileChannel channel;
+    private FileLock lock;
+    private MappedByteBuffer chunk;
+    private long chunkStart;
+    // the number of records in the file
+    private int records;
+
+    private static class Entry {
+        private final AtomId id;
+        private Entry previous;
+        private Entry next;
+        private int visits;
+        private long lastVisit;
+        // the frecency of the entry as of its last visit
+        private double score;
+
+        private Entry(final AtomId id) {
+            this.id = id;
+        }
+
+        private double getFrecency(final long now) {
+            return score * Math.pow(0.5, (double) (now - lastVisit) / FRECENCY_HALF_LIFE);
+        }
     }
 
+    /**
+     * Creates a history which is kept in memory only
+     *
+     * @param graph the graph of the visited notes
+     */
+    public History(final TopicGraph graph) {
+        this.graph = graph;
+
+        graph.addChangeListener(new TopicGraph.ChangeListener() {
+            @Override
+            public void noteChanged(final Note note) {
+                // visits do not depend on titles or children
+            }
+
+            @Override
+            public void noteRemoved(final Note note) {
+                remove(Note.getId(note));
+            }
+        });
+    }
+
+    /**
+     * Creates a history which is kept in a file, restoring any visits already recorded there
+     *
+     * @param graph the graph of the visited notes
+     * @param file  the history file, which is created if it does not exist.
+     *              A file may be used by only one history at a time
+     */
+    public History(final TopicGraph graph, final File file) throws IOException {
+        this(graph);
+
+        this.file = file;
+        channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (null == lock) {
+            channel.close();
+            throw new IOException("history file is in use: " + file.getAbsolutePath());
+        }
+
+        try {
+            load();
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Records a visit to a note. Repeated actions upon the same note count as a single visit.
+     */
     public void visit(final AtomId noteId) {
-        // repeated actions upon the same note count as a single visit
-        if (totalVisits == 0 || !noteId.equals(getLastVisit())) {
-            appendVisit(noteId);
+        visit(noteId, System.currentTimeMillis());
+    }
+
+    synchronized void visit(final AtomId noteId, final long time) {
+        if (null != head && head.id.equals(noteId)) {
+            return;
+        }
+
+        if (null != channel) {
+            try {
+                append(noteId, time, 1, 1);
+            } catch (IOException e) {
+                throw new IllegalStateException("failed to append to history", e);
+            }
+        }
+
+        addVisits(noteId, time, 1, 1);
+
+        if (null != channel && ++records > COMPACTION_THRESHOLD) {
+            try {
+                compact();
+            } catch (IOException e) {
+                throw new IllegalStateException("failed to compact history", e);
+            }
         }
     }
 
+    /**
+     * Finds the most recently visited notes
+     *
+     * @param maxlen the maximum number of notes to find
+     * @param filter a filter for the notes
+     * @return each visible note at most once, most recently visited first
+     */
     public Iterable<Note> getHistory(final int maxlen,
-                                     final TopicGraph graph,
                                      final Filter filter) {
-        Collection<Note> notes = new LinkedList<>();
+        return getHistory(maxlen, filter, Ranking.Recency);
+    }
 
-        int low = Math.max(totalVisits - CAPACITY, 0);
+    /**
+     * Finds visited notes in order of recency or frecency
+     *
+     * @param maxlen  the maximum number of notes to find
+     * @param filter  a filter for the notes
+     * @param ranking the order of the notes
+     * @return each visible note at most once, highest ranked first
+     */
+    public Iterable<Note> getHistory(final int maxlen,
+                                     final Filter filter,
+                                     final Ranking ranking) {
+        List<Note> notes = new ArrayList<>(Math.min(maxlen, CAPACITY));
 
-        for (int i = totalVisits - 1; i >= low; i--) {
+        for (Entry entry : getEntries(ranking, System.currentTimeMillis())) {
             if (notes.size() >= maxlen) {
                 break;
             }
 
-            AtomId id = visited[i % CAPACITY];
-
-            Optional<Note> a = graph.getNoteById(id);
-            if (a.isPresent() && filter.test(a.get())) {
-                notes.add(a.get());
+            Optional<Note> note = graph.getNoteById(entry.id);
+            if (note.isPresent() && filter.test(note.get())) {
+                notes.add(note.get());
             }
         }
 
         return notes;
     }
 
-    private AtomId getLastVisit() {
-        return visited[(totalVisits - 1) % CAPACITY];
+    /**
+     * @return the ids of the most recently visited notes, most recent first
+     */
+    public synchronized List<AtomId> getRecentVisits(final int maxlen) {
+        List<AtomId> ids = new ArrayList<>(Math.min(maxlen, entriesById.size()));
+        for (Entry cur = head; null != cur && ids.size() < maxlen; cur = cur.next) {
+            ids.add(cur.id);
+        }
+        return ids;
+    }
+
+    /**
+     * @param noteId the id of a note
+     * @return the number of times the note has been visited, or 0 if it is not in the history
+     */
+    public synchronized int getNumberOfVisits(final AtomId noteId) {
+        Entry entry = entriesById.get(noteId);
+        return null == entry ? 0 : entry.visits;
+    }
+
+    /**
+     * Forces any recorded visits to disk and releases the history file
+     */
+    public synchronized void close() throws IOException {
+        if (null != channel) {
+            if (null != chunk) {
+                chunk.force();
+                chunk = null;
+            }
+            lock.release();
+            channel.close();
+            channel = null;
+        }
+    }
+
+    // a copy of the entries taken under the lock, so that the graph is read without holding it
+    private synchronized Entry[] getEntries(final Ranking ranking, final long now) {
+        Entry[] entries = new Entry[entriesById.size()];
+        int i = 0;
+        for (Entry cur = head; null != cur; cur = cur.next) {
+            entries[i++] = cur;
+        }
+
+        if (Ranking.Frecency == ranking) {
+            double[] frecencies = new double[entries.length];
+            Integer[] order = new Integer[entries.length];
+            for (int j = 0; j < entries.length; j++) {
+                frecencies[j] = entries[j].getFrecency(now);
+                order[j] = j;
+            }
+            // ties go to the more recent visit
+            Arrays.sort(order, (a, b) -> 0 == Double.compare(frecencies[b], frecencies[a])
+                    ? Integer.compare(a, b) : Double.compare(frecencies[b], frecencies[a]));
+            Entry[] ranked = new Entry[entries.length];
+            for (int j = 0; j < entries.length; j++) {
+                ranked[j] = entries[order[j]];
+            }
+            entries = ranked;
+        }
+
+        return entries;
+    }
+
+    private synchronized void remove(final AtomId noteId) {
+        Entry entry = entriesById.remove(noteId);
+        if (null != entry) {
+            unlink(entry);
+        }
+    }
+
+    private void addVisits(final AtomId noteId, final long time, final int visits, final double score) {
+        Entry entry = entriesById.get(noteId);
+        if (null == entry) {
+            entry = new Entry(noteId);
+            entriesById.put(noteId, entry);
+            if (entriesById.size() > CAPACITY) {
+                entriesById.remove(tail.id);
+                unlink(tail);
+            }
+        } else {
+            unlink(entry);
+        }
+
+        entry.score = entry.getFrecency(time) + score;
+        entry.visits += visits;
+        entry.lastVisit = time;
+
+        entry.next = head;
+        if (null != head) {
+            head.previous = entry;
+        }
+        head = entry;
+        if (null == tail) {
+            tail = entry;
+        }
+    }
+
+    private void unlink(final Entry entry) {
+        if (null == entry.previous) {
+            head = entry.next;
+        } else {
+            entry.previous.next = entry.next;
+        }
+        if (null == entry.next) {
+            tail = entry.previous;
+        } else {
+            entry.next.previous = entry.previous;
+        }
+        entry.previous = null;
+        entry.next = null;
+    }
+
+    // reads the file through a buffer rather than mapping it whole, so that its size is not limited
+    private void load() throws IOException {
+        long size = channel.size();
+        if (0 == size) {
+            writeHeader(channel);
+            mapChunk(HEADER_SIZE);
+            return;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+        long read = fill(buffer, 0);
+        buffer.flip();
+        byte[] magic = new byte[MAGIC.length];
+        try {
+            buffer.get(magic);
+            if (!Arrays.equals(MAGIC, magic)) {
+                throw new IOException("not a history file");
+            }
+            int version = buffer.getInt();
+            if (VERSION != version) {
+                throw new IOException("unsupported history version: " + version);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("not a history file");
+        }
+
+        // an incomplete record at the end of the file is ignored, and later overwritten
+        long end = HEADER_SIZE;
+        byte[] id = new byte[MAX_ID_LENGTH];
+        while (true) {
+            if (buffer.remaining() < RECORD_HEADER_SIZE + MAX_ID_LENGTH && read < size) {
+                buffer.compact();
+                read += fill(buffer, read);
+                buffer.flip();
+            }
+            if (buffer.remaining() < RECORD_HEADER_SIZE) {
+                break;
+            }
+
+            long time = buffer.getLong();
+            int visits = buffer.getInt();
+            double score = buffer.getDouble();
+            int length = buffer.getShort() & 0xFFFF;
+            if (0 == length || buffer.remaining() < length) {
+                break;
+            }
+            buffer.get(id, 0, length);
+            addVisits(new AtomId(new String(id, 0, length, StandardCharsets.UTF_8)), time, visits, score);
+            records++;
+            end += RECORD_HEADER_SIZE + length;
+        }
+
+        if (records > COMPACTION_THRESHOLD) {
+            compact();
+        } else {
+            mapChunk(end);
+        }
+    }
+
+    // reads from the given position in the file until the buffer is full or the file is exhausted
+    private long fill(final ByteBuffer buffer, final long position) throws IOException {
+        long total = 0;
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + total);
+            if (n < 0) {
+                break;
+            }
+            total += n;
+        }
+        return total;
+    }
+
+    private void append(final AtomId noteId, final long time, final int visits, final double score)
+            throws IOException {
+        byte[] id = noteId.value.getBytes(StandardCharsets.UTF_8);
+        if (0 == id.length || id.length > MAX_ID_LENGTH) {
+            throw new IllegalArgumentException("invalid id for history: " + noteId);
+        }
+
+        if (chunk.remaining() < RECORD_HEADER_SIZE + id.length) {
+            mapChunk(chunkStart + chunk.position());
+        }
+
+        int position = chunk.position();
+        chunk.putLong(position, time);
+        chunk.putInt(position + 8, visits);
+        chunk.putDouble(position + 12, score);
+        for (int i = 0; i < id.length; i++) {
+            chunk.put(position + RECORD_HEADER_SIZE + i, id[i]);
+        }
+        // the length is written last, completing the record
+        chunk.putShort(position + LENGTH_OFFSET, (short) id.length);
+        chunk.position(position + RECORD_HEADER_SIZE + id.length);
     }
 
-    private void appendVisit(final AtomId noteId) {
-        visited[totalVisits % CAPACITY] = noteId;
-        totalVisits++;
+    /*
+    Replaces the file with one which holds a single record per entry, least recent first, so that replaying it
+    restores the same entries in the same order. The new file is written and locked under a temporary name,
+    then moved into place, so that the history survives a failure at any point.
+     */
+    private void compact() throws IOException {
+        Path path = file.toPath();
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        FileChannel newChannel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileLock newLock;
+        long end;
+        try {
+            newLock = newChannel.tryLock();
+            if (null == newLock) {
+                throw new IOException("history file is in use: " + temp);
+            }
+
+            writeHeader(newChannel);
+            end = HEADER_SIZE;
+            ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+            for (Entry cur = tail; null != cur; cur = cur.previous) {
+                byte[] id = cur.id.value.getBytes(StandardCharsets.UTF_8);
+                if (buffer.remaining() < RECORD_HEADER_SIZE + id.length) {
+                    end += flush(buffer, newChannel, end);
+                }
+                buffer.putLong(cur.lastVisit).putInt(cur.visits).putDouble(cur.score)
+                        .putShort((short) id.length).put(id);
+            }
+            end += flush(buffer, newChannel, end);
+            newChannel.force(true);
+
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            newChannel.close();
+            throw e;
+        }
+
+        // the chunk belongs to the old file, which has been replaced
+        chunk = null;
+        lock.release();
+        channel.close();
+        channel = newChannel;
+        lock = newLock;
+        records = entriesById.size();
+        mapChunk(end);
+    }
+
+    private static long flush(final ByteBuffer buffer, final FileChannel channel, final long position)
+            throws IOException {
+        buffer.flip();
+        long total = 0;
+        while (buffer.hasRemaining()) {
+            total += channel.write(buffer, position + total);
+        }
+        buffer.clear();
+        return total;
+    }
+
+    private static void writeHeader(final FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.put(MAGIC).putInt(VERSION);
+        flush(header, channel, 0);
+    }
+
+    // maps the part of the file beginning at the given position, extending the file if necessary
+    private void mapChunk(final long start) throws IOException {
+        if (null != chunk) {
+            chunk.force();
+        }
+        // the file is extended with zeros, so that the end of the history is always marked
+        chunk = channel.map(FileChannel.MapMode.READ_WRITE, start,
+                Math.max(CHUNK_SIZE, RECORD_HEADER_SIZE + MAX_ID_LENGTH));
+        chunkStart = start;
+        // clear the end of any incomplete record
+        chunk.putShort(LENGTH_OFFSET, (short) 0);
     }
 }
@@ -0,0 +1,78 @@
+package net.fortytwo.smsn.brain;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * A bounded, lock-free queue for many producer threads and a single consumer thread.
+ * Producers claim a slot by advancing a shared counter, then publish their item into it;
+ * the consumer takes items in the order in which slots were claimed.
+ */
+class MpscRingBuffer<T> {
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+
+    // the number of slots ever claimed by producers
+    private final AtomicLong claimed = new AtomicLong();
+    // the number of items ever taken by the consumer; written only by the consumer
+    private volatile long taken;
+
+    /**
+     * @param capacity the maximum number of items in the buffer, rounded up to a power of two
+     */
+    MpscRingBuffer(final int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        slots = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+    /**
+     * Adds an item, unless the buffer is full
+     *
+     * @param item a non-null item
+     * @return whether the item was added
+     */
+    boolean offer(final T item) {
+        while (true) {
+            long c = claimed.get();
+            if (c - taken > mask) {
+                return false;
+            }
+            if (claimed.compareAndSet(c, c + 1)) {
+                slots.lazySet((int) c & mask, item);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Passes available items to a consumer, in order. To be called only from the consumer thread.
+     *
+     * @return the number of items taken
+     */
+    int drain(final Consumer<T> consumer, final int limit) {
+        int count = 0;
+        long t = taken;
+        while (count < limit) {
+            int index = (int) t & mask;
+            // a slot may be claimed but not yet published, in which case it is picked up on the next call
+            T item = slots.get(index);
+            if (null == item) {
+                break;
+            }
+            slots.lazySet(index, null);
+            taken = ++t;
+            consumer.accept(item);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of items ever added, including those not yet taken
+     */
+    long getClaimed() {
+        return claimed.get();
+    }
+}
@@ -4,6 +4,7 @@ public interface Params {
     enum Format{json, wiki}
 
     String
+            CHANGES = "changes",
             CONFIGURATION = "configuration",
             DEFAULT_SOURCE = "defaultSource",
             DEFAULT_WEIGHT = "defaultWeight",
@@ -12,11 +13,13 @@ public interface Params {
             ID = "id",
             INCLUDE_TYPES = "includeTypes",
             MAX_RESULTS = "maxResults",
+            METRICS = "metrics",
             MIN_SOURCE = "minSource",
             MIN_WEIGHT = "minWeight",
             NAME = "name",
             QUERY = "query",
             QUERY_TYPE = "queryType",
+            RANKING = "ranking",
             REQUEST = "request",
             ROOT = "root",
             STYLE = "style",
@@ -1,68 +1,248 @@
 package net.fortytwo.smsn.brain;
 
 import net.fortytwo.smsn.SemanticSynchrony;
-import net.fortytwo.smsn.brain.model.entities.Note;
 import net.fortytwo.smsn.brain.model.TopicGraph;
+import net.fortytwo.smsn.brain.model.entities.Note;
 
+import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.PriorityQueue;
-import java.util.Queue;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
 
 /**
- * A dynamically updated list of notes ordered by their priority value
+ * A dynamically updated list of notes ordered by their priority value.
+ * Only notes with a positive priority are listed. Each entry caches the id, priority and weight by which it is
+ * ordered, and is kept up to date by listening for changes to the graph, so that updates take logarithmic time
+ * and reads touch the graph only to resolve and filter results.
+ * The list is rebuilt from the graph whenever a transaction is rolled back, as the changes of that transaction
+ * have already been applied to it.
  */
 public class Priorities {
-    private final PriorityQueue<Note> queue;
 
-    public Priorities() {
-        queue = new PriorityQueue<>(1, new NotePriorityComparator());
+    // order primarily by descending priority, secondarily by descending weight, and finally by id
+    private static final Comparator<Entry> ENTRY_COMPARATOR = (a, b) -> {
+        int c = Float.compare(b.priority, a.priority);
+        if (0 == c) {
+            c = Float.compare(b.weight, a.weight);
+        }
+        return 0 == c ? a.id.value.compareTo(b.id.value) : c;
+    };
+
+    private final TopicGraph graph;
+    private final TreeSet<Entry> ordered = new TreeSet<>(ENTRY_COMPARATOR);
+    private final Map<AtomId, Entry> entriesById = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // the notes updated or removed since the current load began, which the loader must not overwrite
+    // with what it read earlier; null when no load is in progress
+    private Set<AtomId> changedDuringLoad;
+    // the number of loads begun so far, so that a superseded loader gives up
+    private long loads;
+
+    public Priorities(final TopicGraph graph) {
+        this.graph = graph;
+
+        graph.addChangeListener(new TopicGraph.ChangeListener() {
+            @Override
+            public void noteChanged(final Note note) {
+                // titles and children do not affect priority
+            }
+
+            @Override
+            public void noteRemoved(final Note note) {
+                remove(Note.getId(note));
+            }
+
+            @Override
+            public void priorityChanged(final Note note) {
+                updatePriority(note);
+            }
+
+            @Override
+            public void rolledBack() {
+                refreshQueue(graph);
+            }
+        });
     }
 
-    public Queue<Note> getQueue() {
-        return queue;
+    /**
+     * Finds the notes of highest priority. The result is consistent with a single point in time,
+     * even if priorities are concurrently updated.
+     *
+     * @param maxResults the maximum number of notes to return
+     * @param filter     a criterion for the notes to return. Notes which do not meet it are skipped
+     * @return up to maxResults notes, in order of descending priority
+     */
+    public List<Note> getTopNotes(final int maxResults, final Predicate<Note> filter) {
+        List<Note> top = new ArrayList<>(Math.min(maxResults, 100));
+        lock.readLock().lock();
+        try {
+            for (Entry e : ordered) {
+                if (top.size() >= maxResults) {
+                    break;
+                }
+                Optional<Note> note = graph.getNoteById(e.id);
+                if (note.isPresent() && filter.test(note.get())) {
+                    top.add(note.get());
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return top;
     }
 
+    /**
+     * @return the number of notes with a positive priority
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entriesById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the list from all notes in a graph, in the background.
+     * This is needed when the list is first created, and after a rollback;
+     * otherwise, it is kept up to date by changes to notes.
+     * Changes made while the list is rebuilt take precedence over whatever the rebuild read before them.
+     */
     public void refreshQueue(final TopicGraph graph) {
-        queue.clear();
+        long load;
+        lock.writeLock().lock();
+        try {
+            ordered.clear();
+            entriesById.clear();
+            changedDuringLoad = new HashSet<>();
+            load = ++loads;
+        } finally {
+            lock.writeLock().unlock();
+        }
 
-        new Thread(() -> {
+        Thread loader = new Thread(() -> {
             SemanticSynchrony.getLogger().info("generating priority queue");
             long startTime = System.currentTimeMillis();
 
-            for (Note a : graph.getAllNotes()) {
-                if (null != Note.getPriority(a)) {
-                    updatePriority(a);
+            // transactions are bound to threads, so the loader reads within a transaction of its own
+            graph.begin();
+            try {
+                for (Note a : graph.getNotesWithPriority()) {
+                    if (!load(a, load)) {
+                        return;
+                    }
                 }
+            } finally {
+                graph.endReadTransaction();
+            }
+
+            lock.writeLock().lock();
+            try {
+                if (loads == load) {
+                    changedDuringLoad = null;
+                }
+            } finally {
+                lock.writeLock().unlock();
             }
 
             long endTime = System.currentTimeMillis();
             SemanticSynchrony.getLogger().info("\tfinished generating priority queue in " + (endTime - startTime) + "ms");
-        }).start();
+        }, "smsn-priorities");
+        loader.setDaemon(true);
+        loader.start();
     }
 
+    /**
+     * Adds, moves or removes a note according to its current priority and weight
+     */
     public void updatePriority(final Note a) {
-        queue.remove(a);
-        if (null != Note.getPriority(a)) {
-            queue.add(a);
+        AtomId id = Note.getId(a);
+        Entry entry = createEntry(a, id);
+        lock.writeLock().lock();
+        try {
+            if (null != changedDuringLoad) {
+                changedDuringLoad.add(id);
+            }
+            if (null == entry) {
+                removeEntry(id);
+            } else {
+                putEntry(entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
-    // order primarily by descending priority, secondarily by descending weight
-    private static class NotePriorityComparator implements Comparator<Note> {
-        public int compare(final Note a, final Note b) {
-            Float pa = Note.getPriority(a);
-            Float pb = Note.getPriority(b);
+    private void remove(final AtomId id) {
+        lock.writeLock().lock();
+        try {
+            if (null != changedDuringLoad) {
+                changedDuringLoad.add(id);
+            }
+            removeEntry(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
 
-            if (null == pa) {
-                return null == pb || 0 == pb ? 0 : -1;
-            } else if (null == pb) {
-                return 1;
-            } else {
-                int c = pa.compareTo(pb);
-                return 0 == c
-                        ? Note.getWeight(b).compareTo(Note.getWeight(a))
-                        : c;
+    // adds a note read by the loader, unless it has changed since the load began.
+    // Returns false if the load has been superseded by another
+    private boolean load(final Note a, final long load) {
+        AtomId id = Note.getId(a);
+        Entry entry = createEntry(a, id);
+        lock.writeLock().lock();
+        try {
+            if (loads != load) {
+                return false;
             }
+            if (null != entry && !changedDuringLoad.contains(id)) {
+                putEntry(entry);
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Entry createEntry(final Note a, final AtomId id) {
+        Float priority = Note.getPriority(a);
+        return null == priority || priority <= 0 ? null : new Entry(id, priority, Note.getWeight(a));
+    }
+
+    private void putEntry(final Entry entry) {
+        Entry previous = entriesById.put(entry.id, entry);
+        if (null != previous) {
+            ordered.remove(previous);
+        }
+        ordered.add(entry);
+    }
+
+    private void removeEntry(final AtomId id) {
+        Entry previous = entriesById.remove(id);
+        if (null != previous) {
+            ordered.remove(previous);
+        }
+    }
+
+    private static class Entry {
+        private final AtomId id;
+        private final float priority;
+        private final float weight;
+
+        private Entry(final AtomId id, final float priority, final float weight) {
+            this.id = id;
+            this.priority = priority;
+            this.weight = weight;
         }
     }
 }
@@ -19,6 +19,14 @@ public abstract class NoteWriter {
 
     public abstract void doWrite(Context context) throws IOException;
 
+    /**
+     * @return whether this writer can divide its output among several files in the destination directory,
+     * in place of writing to the destination stream
+     */
+    public boolean isPartitionable() {
+        return false;
+    }
+
     public static class Context {
         private TopicGraph topicGraph;
         private KnowledgeBase knowledgeBase;
@@ -27,6 +35,7 @@ public abstract class NoteWriter {
         private File destDirectory;
         private OutputStream destStream;
         private Format format;
+        private int partitions = 1;
 
         public KnowledgeBase getKnowledgeBase() {
             return knowledgeBase;
@@ -83,6 +92,15 @@ public abstract class NoteWriter {
         public void setFormat(Format format) {
             this.format = format;
         }
+
+        public int getPartitions() {
+            return partitions;
+        }
+
+        // the number of files among which to divide output, for partitionable writers
+        public void setPartitions(int partitions) {
+            this.partitions = partitions;
+        }
     }
 
     protected static void createDirectoryIfNotExists(final File dir) throws IOException {
@@ -6,11 +6,12 @@ import net.fortytwo.smsn.brain.model.entities.Link;
 import net.fortytwo.smsn.brain.model.entities.ListNode;
 import net.fortytwo.smsn.brain.model.entities.TreeNode;
 import net.fortytwo.smsn.brain.query.TreeViews;
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.List;
 
 public class JsonPrinter {
@@ -25,94 +26,126 @@ public class JsonPrinter {
         this.titleLengthCutoff = titleLengthCutoff;
     }
 
+    /**
+     * Prints a view as a JSONObject, for clients which manipulate the result before sending it.
+     * The object is parsed from the output of {@link #write(TreeNode, Writer)}
+     */
     public JSONObject toJson(final TreeNode<Link> node) throws IOException {
+        StringWriter writer = new StringWriter();
+        write(node, writer);
         try {
-            return toJsonInternal(node);
+            return new JSONObject(writer.toString());
         } catch (JSONException e) {
             throw new IOException(e);
         }
     }
 
-    private void putPriority(final TreeNode<Link> node, final JSONObject json) throws JSONException {
-        Float priority = TreeViews.getPriority(node);
-        if (null != priority && priority > 0) {
-            json.put(SemanticSynchrony.PropertyKeys.PRIORITY, priority);
-        }
+    /**
+     * Prints a view in a single pass, without building a JSONObject for each node.
+     * The result is embedded as-is when the containing JSONObject is serialized.
+     */
+    public JsonText toJsonText(final TreeNode<Link> node) throws IOException {
+        StringWriter writer = new StringWriter();
+        write(node, writer);
+        return new JsonText(writer.toString());
     }
 
-    private void putTitle(final TreeNode<Link> node, final JSONObject json) throws JSONException {
-        String title = TreeViews.getTitle(node);
-        if (title != null && titleLengthCutoff > 0 && title.length() > titleLengthCutoff) {
-            title = title.substring(0, titleLengthCutoff) + JsonFormat.TITLE_TRUNCATOR;
-        }
-        json.put(SemanticSynchrony.PropertyKeys.TITLE, title);
-    }
+    /**
+     * Writes a view as JSON, node by node
+     */
+    public void write(final TreeNode<Link> node, final Writer out) throws IOException {
+        ObjectWriter json = new ObjectWriter(out);
 
-    private void putText(final TreeNode<Link> node, final JSONObject json) throws JSONException {
-        String text = TreeViews.getText(node);
-        if (null != text) {
-            json.put(SemanticSynchrony.PropertyKeys.TEXT, text);
-        }
-    }
-
-    private void putAlias(final TreeNode<Link> node, final JSONObject json) throws JSONException {
-        String alias = TreeViews.getAlias(node);
-        if (null != alias) {
-            json.put(SemanticSynchrony.PropertyKeys.ALIAS, alias);
-        }
-    }
+        AtomId id = TreeViews.getId(node);
+        json.put(JsonFormat.Keys.ID, id == null ? null : id.value);
+        json.put(SemanticSynchrony.PropertyKeys.WEIGHT, TreeViews.getWeight(node));
+        json.put(SemanticSynchrony.PropertyKeys.SOURCE, TreeViews.getSource(node));
+        json.put(SemanticSynchrony.PropertyKeys.CREATED, TreeViews.getCreated(node));
+        json.put(JsonFormat.Keys.NUMBER_OF_CHILDREN, node.getNumberOfChildren());
+        json.put(JsonFormat.Keys.NUMBER_OF_PARENTS, node.getNumberOfParents());
 
-    private void putShortcut(final TreeNode<Link> node, final JSONObject json) throws JSONException {
-        String shortcut = TreeViews.getShortcut(node);
-        if (null != shortcut) {
-            json.put(SemanticSynchrony.PropertyKeys.SHORTCUT, shortcut);
+        Float priority = TreeViews.getPriority(node);
+        if (null != priority && priority > 0) {
+            json.put(SemanticSynchrony.PropertyKeys.PRIORITY, priority);
         }
-    }
+        json.put(SemanticSynchrony.PropertyKeys.TITLE, truncateTitle(TreeViews.getTitle(node)));
+        json.put(SemanticSynchrony.PropertyKeys.TEXT, TreeViews.getText(node));
+        json.put(SemanticSynchrony.PropertyKeys.ALIAS, TreeViews.getAlias(node));
+        json.put(SemanticSynchrony.PropertyKeys.SHORTCUT, TreeViews.getShortcut(node));
 
-    private void putMeta(final TreeNode<Link> node, final JSONObject json) throws JSONException {
         List<String> meta = TreeViews.getMeta(node);
         if (null != meta && 0 != meta.size()) {
-            JSONArray c = new JSONArray();
-            json.put(JsonFormat.Keys.META, c);
-            int i = 0;
+            json.key(JsonFormat.Keys.META);
+            out.write('[');
+            boolean first = true;
             for (String s : meta) {
-                c.put(i++, s);
+                if (!first) {
+                    out.write(',');
+                }
+                first = false;
+                writeValue(s, out);
             }
+            out.write(']');
         }
-    }
 
-    private void putChildren(final TreeNode<Link> node, final JSONObject json) throws JSONException {
         if (null != node.getChildren()) {
-            JSONArray c = new JSONArray();
-            json.put(JsonFormat.Keys.CHILDREN, c);
-            int i = 0;
-            // TODO: put
-            for (TreeNode<Link> child : ListNode.toJavaList(node.getChildren())) {
-                c.put(i, toJsonInternal(child));
-                i++;
+            json.key(JsonFormat.Keys.CHILDREN);
+            out.write('[');
+            ListNode<TreeNode<Link>> cur = node.getChildren();
+            while (null != cur) {
+                write(cur.getFirst(), out);
+                cur = cur.getRest();
+                if (null != cur) {
+                    out.write(',');
+                }
             }
+            out.write(']');
         }
+
+        json.close();
     }
 
-    public JSONObject toJsonInternal(final TreeNode<Link> node) throws JSONException {
-        JSONObject json = new JSONObject();
+    private String truncateTitle(final String title) {
+        return title != null && titleLengthCutoff > 0 && title.length() > titleLengthCutoff
+                ? title.substring(0, titleLengthCutoff) + JsonFormat.TITLE_TRUNCATOR
+                : title;
+    }
 
-        AtomId id = TreeViews.getId(node);
-        json.put(JsonFormat.Keys.ID, id == null ? null : id.value);
-        json.put(SemanticSynchrony.PropertyKeys.WEIGHT, TreeViews.getWeight(node));
-        json.put(SemanticSynchrony.PropertyKeys.SOURCE, TreeViews.getSource(node));
-        json.put(SemanticSynchrony.PropertyKeys.CREATED, TreeViews.getCreated(node));
-        json.put(JsonFormat.Keys.NUMBER_OF_CHILDREN, node.getNumberOfChildren());
-        json.put(JsonFormat.Keys.NUMBER_OF_PARENTS, node.getNumberOfParents());
+    private static void writeValue(final Object value, final Writer out) throws IOException {
+        if (value instanceof String) {
+            JSONObject.quote((String) value, out);
+        } else {
+            // numbers are formatted exactly as JSONObject formats them
+            out.write(JSONObject.valueToString(value));
+        }
+    }
+
+    // writes the fields of a single object, omitting null values as JSONObject does
+    private static class ObjectWriter {
+        private final Writer out;
+        private boolean empty = true;
+
+        private ObjectWriter(final Writer out) throws IOException {
+            this.out = out;
+            out.write('{');
+        }
 
-        putPriority(node, json);
-        putTitle(node, json);
-        putText(node, json);
-        putAlias(node, json);
-        putShortcut(node, json);
-            putMeta(node, json);
-            putChildren(node, json);
+        private void key(final String key) throws IOException {
+            out.write(empty ? "\"" : ",\"");
+            out.write(key);
+            out.write("\":");
+            empty = false;
+        }
 
-        return json;
+        private void put(final String key, final Object value) throws IOException {
+            if (null != value) {
+                key(key);
+                writeValue(value, out);
+            }
+        }
+
+        private void close() throws IOException {
+            out.write('}');
+        }
     }
 }
@@ -0,0 +1,25 @@
+package net.fortytwo.smsn.brain.io.json;
+
+import org.json.JSONString;
+
+/**
+ * A fragment of JSON which has already been printed.
+ * It is copied verbatim into the output when a JSONObject containing it is serialized.
+ */
+public class JsonText implements JSONString {
+    private final String text;
+
+    public JsonText(final String text) {
+        this.text = text;
+    }
+
+    @Override
+    public String toJSONString() {
+        return text;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
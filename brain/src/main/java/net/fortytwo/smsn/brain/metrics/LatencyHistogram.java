@@ -0,0 +1,114 @@
+package net.fortytwo.smsn.brain.metrics;
+
+import org.json.JSONObject;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of durations, in the style of an HDR histogram.
+ * Each power of two is divided into 32 linear sub-buckets, so that recorded values are resolved to within about 3%
+ * across the whole range of a long, in a fixed amount of memory.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param nanos a duration in nanoseconds. Negative values are recorded as zero
+     */
+    public void record(final long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(indexOf(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = count.get();
+        return 0 == n ? 0 : ((double) sum.get()) / n;
+    }
+
+    /**
+     * @param quantile a number between 0 and 1, e.g. 0.99 for the 99th percentile
+     * @return an estimate of the given quantile of the recorded values, in nanoseconds, or 0 if there are none
+     */
+    public long getValueAtQuantile(final double quantile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (0 == total) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(midpointOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * @return a summary of the histogram, with durations in microseconds
+     */
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        json.put("count", getCount());
+        json.put("mean", getMean() / 1000);
+        json.put("max", getMax() / 1000.0);
+        json.put("p50", getValueAtQuantile(0.5) / 1000.0);
+        json.put("p90", getValueAtQuantile(0.9) / 1000.0);
+        json.put("p99", getValueAtQuantile(0.99) / 1000.0);
+        json.put("p999", getValueAtQuantile(0.999) / 1000.0);
+        return json;
+    }
+
+    static int indexOf(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long lowestValueOf(final int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        return (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    private static long midpointOf(final int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        return lowestValueOf(index) + (1L << (exponent - SUB_BUCKET_BITS)) / 2;
+    }
+}
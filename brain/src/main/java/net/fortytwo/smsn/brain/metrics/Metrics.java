@@ -0,0 +1,130 @@
+package net.fortytwo.smsn.brain.metrics;
+
+import net.fortytwo.smsn.SemanticSynchrony;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * A process-wide registry of named latency histograms and counters.
+ * Graph traversals are also counted per thread, so that the vertices and edges touched by a single request
+ * can be found by comparing the counts before and after it.
+ */
+public class Metrics {
+
+    private static final Metrics instance = new Metrics();
+
+    // vertices and edges touched by the current thread, since it started
+    private static final ThreadLocal<long[]> traversals = ThreadLocal.withInitial(() -> new long[2]);
+
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService dumper;
+
+    public static Metrics getInstance() {
+        return instance;
+    }
+
+    public static void countVertices(final int n) {
+        traversals.get()[0] += n;
+    }
+
+    public static void countEdges(final int n) {
+        traversals.get()[1] += n;
+    }
+
+    /**
+     * @return the number of vertices touched by the current thread, since it started
+     */
+    public static long getVerticesTouched() {
+        return traversals.get()[0];
+    }
+
+    /**
+     * @return the number of edges touched by the current thread, since it started
+     */
+    public static long getEdgesTouched() {
+        return traversals.get()[1];
+    }
+
+    public LatencyHistogram getHistogram(final String name) {
+        LatencyHistogram h = histograms.get(name);
+        return null == h ? histograms.computeIfAbsent(name, n -> new LatencyHistogram()) : h;
+    }
+
+    public void increment(final String name) {
+        add(name, 1);
+    }
+
+    public void add(final String name, final long delta) {
+        LongAdder counter = counters.get(name);
+        if (null == counter) {
+            counter = counters.computeIfAbsent(name, n -> new LongAdder());
+        }
+        counter.add(delta);
+    }
+
+    public long getCount(final String name) {
+        LongAdder counter = counters.get(name);
+        return null == counter ? 0 : counter.sum();
+    }
+
+    /**
+     * @return all histograms and counters, sorted by name, with durations in microseconds
+     */
+    public JSONObject toJson() {
+        JSONObject h = new JSONObject();
+        new TreeMap<>(histograms).forEach((name, histogram) -> h.put(name, histogram.toJson()));
+
+        JSONObject c = new JSONObject();
+        new TreeMap<>(counters).forEach((name, counter) -> c.put(name, counter.sum()));
+
+        JSONObject json = new JSONObject();
+        json.put("timestamp", System.currentTimeMillis());
+        json.put("histograms", h);
+        json.put("counters", c);
+        return json;
+    }
+
+    /**
+     * Appends all metrics to a file as a line of JSON, periodically, until the process exits.
+     * Has no effect if a periodic dump has already been started.
+     *
+     * @param file   the file to append to
+     * @param period the time between dumps, in milliseconds
+     */
+    public synchronized void startDumping(final File file, final long period) {
+        if (null != dumper) {
+            return;
+        }
+
+        dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "smsn-metrics");
+            t.setDaemon(true);
+            return t;
+        });
+        dumper.scheduleAtFixedRate(() -> dump(file), period, period, TimeUnit.MILLISECONDS);
+    }
+
+    private void dump(final File file) {
+        byte[] line = (toJson().toString() + "\n").getBytes(StandardCharsets.UTF_8);
+        try (OutputStream out = new FileOutputStream(file, true)) {
+            out.write(line);
+        } catch (IOException e) {
+            SemanticSynchrony.getLogger().log(Level.WARNING, "failed to write metrics to " + file, e);
+        }
+    }
+}
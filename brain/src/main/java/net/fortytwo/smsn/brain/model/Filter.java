@@ -6,6 +6,7 @@ import net.fortytwo.smsn.brain.model.entities.Note;
 import net.fortytwo.smsn.config.DataSource;
 
 import java.io.Serializable;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -13,6 +14,11 @@ import java.util.function.Predicate;
 
 public class Filter implements Predicate<Note>, Serializable {
 
+    /**
+     * The source index of a note which has no source
+     */
+    public static final int NO_SOURCE = -1;
+
     private static final Map<String, Integer> sourceToIndex;
 
     static {
@@ -31,7 +37,7 @@ public class Filter implements Predicate<Note>, Serializable {
     private String minSource;
     private String defaultSource;
 
-    private Integer minSourceIndex;
+    private int minSourceIndex;
 
     private static final Filter NO_FILTER = new Filter();
 
@@ -87,6 +93,15 @@ public class Filter implements Predicate<Note>, Serializable {
         return minSourceIndex == 0 && minWeight == 0;
     }
 
+    /**
+     * @param source the name of a data source, or null
+     * @return the position of the source in the configured list of data sources,
+     * or {@link #NO_SOURCE} if the source is null
+     */
+    public static int getSourceIndex(final String source) {
+        return null == source ? NO_SOURCE : indexForSource(source);
+    }
+
     private static int indexForSource(final String source) {
         Integer index = sourceToIndex.get(source);
         Preconditions.checkNotNull(index, "data source '" + source + "' does not exist");
@@ -125,18 +140,37 @@ public class Filter implements Predicate<Note>, Serializable {
 
     @Override
     public boolean test(final Note note) {
-        Integer sourceIndex = getSourceIndexFor(note);
-        Float weight = Note.getWeight(note);
-
-        if (null == sourceIndex || null == weight) return false;
-
-        // The weight criterion includes the minimum; if the minimum is 0.25,
-        // items with a value of 0.25 and greater will be visible.
-        return sourceIndex >= minSourceIndex && weight >= minWeight;
+        return test(note.getSourceIndex(), note.getWeightValue());
     }
 
-    private Integer getSourceIndexFor(final Note note) {
-        String source = Note.getSource(note);
-        return null == source ? null : indexForSource(source);
+    /**
+     * Tests the filter against precomputed note properties
+     *
+     * @param sourceIndex the index of a note's source, or {@link #NO_SOURCE}
+     * @param weight      the weight of a note, or NaN if it has none
+     * @return whether a note with the given source and weight is visible
+     */
+    public boolean test(final int sourceIndex, final float weight) {
+        // The weight criterion includes the minimum; if the minimum is 0.25,
+        // items with a value of 0.25 and greater will be visible. A missing weight (NaN) fails any comparison.
+        return NO_SOURCE != sourceIndex && sourceIndex >= minSourceIndex && weight >= minWeight;
+    }
+
+    /**
+     * Tests the filter against each of a sequence of notes
+     *
+     * @param notes the notes to test
+     * @return the positions, in iteration order, of the notes which are visible
+     */
+    public BitSet testAll(final Iterable<Note> notes) {
+        BitSet visible = new BitSet();
+        int i = 0;
+        for (Note note : notes) {
+            if (test(note.getSourceIndex(), note.getWeightValue())) {
+                visible.set(i);
+            }
+            i++;
+        }
+        return visible;
     }
 }
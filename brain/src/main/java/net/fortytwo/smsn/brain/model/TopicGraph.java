@@ -18,6 +18,11 @@ public interface TopicGraph {
 
     Iterable<Note> getAllNotes();
 
+    /**
+     * @return all notes which have a priority, found without visiting any other notes
+     */
+    Iterable<Note> getNotesWithPriority();
+
     Optional<Note> getNoteById(AtomId id);
 
     List<Note> getNotesByAcronym(String acronym, Filter filter);
@@ -26,6 +31,18 @@ public interface TopicGraph {
 
     List<Note> getNotesByTitleQuery(String value, Filter filter);
 
+    /**
+     * @param note a note in this graph
+     * @return the number of children of the note, regardless of visibility
+     */
+    int getNumberOfChildren(Note note);
+
+    /**
+     * @param note a note in this graph
+     * @return the number of lists in which the note appears as a child, regardless of visibility
+     */
+    int getNumberOfParents(Note note);
+
     AtomId idOf(Note a);
 
     String iriOf(Note a);
@@ -58,14 +75,60 @@ public interface TopicGraph {
 
     long getLastUpdate();
 
+    /**
+     * @return a number which increases whenever the graph is changed through this object,
+     * so that results derived from the graph can be discarded when they are out of date
+     */
+    long getVersion();
+
     void begin();
 
     void commit();
 
     void rollback();
 
+    /**
+     * Ends a transaction in which the graph has only been read, such as that of a worker thread.
+     * Unlike {@link #commit()}, this is not recorded as a commit
+     */
+    void endReadTransaction();
+
     TopicGraph createFilteredGraph(Filter filter);
 
+    /**
+     * Registers a listener for changes to notes in this graph
+     *
+     * @param listener a listener to be notified of changes
+     */
+    void addChangeListener(ChangeListener listener);
+
+    /**
+     * A listener for those changes to notes which affect their classification or ranking
+     */
+    interface ChangeListener {
+        /**
+         * Called when a note is created, or when its title, alias or list of children changes
+         */
+        void noteChanged(Note note);
+
+        /**
+         * Called before a note is removed from the graph, while it can still be read
+         */
+        void noteRemoved(Note note);
+
+        /**
+         * Called when the priority or weight of a note changes
+         */
+        default void priorityChanged(Note note) {
+        }
+
+        /**
+         * Called after a transaction is rolled back, so that anything derived from its changes can be discarded
+         */
+        default void rolledBack() {
+        }
+    }
+
     interface IORunnable {
         void run();
     }
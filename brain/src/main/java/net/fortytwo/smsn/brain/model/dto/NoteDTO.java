@@ -5,9 +5,11 @@ import net.fortytwo.smsn.brain.AtomId;
 import net.fortytwo.smsn.brain.model.entities.ListNode;
 import net.fortytwo.smsn.brain.model.entities.Note;
 import net.fortytwo.smsn.brain.model.entities.Topic;
+import net.fortytwo.smsn.brain.util.ListDiff;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
 
@@ -88,6 +90,11 @@ public class NoteDTO implements Note {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public void editChildren(List<ListDiff.Edit<Note>> script) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public Collection<ListNode<Note>> getFirstOf() {
         throw new UnsupportedOperationException();
@@ -2,11 +2,14 @@ package net.fortytwo.smsn.brain.model.entities;
 
 import net.fortytwo.smsn.SemanticSynchrony;
 import net.fortytwo.smsn.brain.AtomId;
+import net.fortytwo.smsn.brain.model.Filter;
 import net.fortytwo.smsn.brain.model.Property;
 import net.fortytwo.smsn.brain.model.Role;
+import net.fortytwo.smsn.brain.util.ListDiff;
 
 import java.util.Collection;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
 
@@ -121,10 +124,34 @@ public interface Note extends Entity {
 
     void deleteChildAt(int position);
 
+    /**
+     * Edits the children of this note in a single pass, rather than through a series of insertions and deletions
+     *
+     * @param script an edit script over the current children, in order.
+     *               Any children beyond the end of the script are kept.
+     */
+    void editChildren(List<ListDiff.Edit<Note>> script);
+
     Collection<ListNode<Note>> getFirstOf();
 
     Note getSubject(ListNode<Note> notes);
 
+    /**
+     * @return the position of this note's source among the configured data sources,
+     * or {@link Filter#NO_SOURCE} if the note has no source
+     */
+    default int getSourceIndex() {
+        return Filter.getSourceIndex(getSource(this));
+    }
+
+    /**
+     * @return the weight of this note as a primitive value, or NaN if the note has no weight
+     */
+    default float getWeightValue() {
+        Float weight = getWeight(this);
+        return null == weight ? Float.NaN : weight;
+    }
+
     static AtomId getId(Note note) {
         return new AtomId(note.getProperty(SemanticSynchrony.PropertyKeys.ID));
     }
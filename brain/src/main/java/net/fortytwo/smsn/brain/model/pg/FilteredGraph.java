@@ -0,0 +1,547 @@
+package net.fortytwo.smsn.brain.model.pg;
+
+import net.fortytwo.smsn.SemanticSynchrony;
+import net.fortytwo.smsn.brain.model.Filter;
+import org.apache.commons.configuration2.Configuration;
+import org.apache.tinkerpop.gremlin.process.computer.GraphComputer;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.Property;
+import org.apache.tinkerpop.gremlin.structure.Transaction;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.VertexProperty;
+import org.apache.tinkerpop.gremlin.structure.util.ElementHelper;
+import org.apache.tinkerpop.gremlin.structure.util.StringFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A read-only view of the property graph of a topic graph, as seen through a filter.
+ * It contains the same notes, lists and properties as {@link PGTopicGraph#copyGraph(Filter)},
+ * but these are computed from the underlying graph as they are read, rather than copied in advance.
+ * Visible notes are included along with their lists of children,
+ * while invisible notes appear only as children of visible notes, with their titles redacted.
+ * Unlike a copy, the view presents children in whatever form they are stored in,
+ * and does not add a weight or creation time to redacted notes.
+ */
+public class FilteredGraph implements Graph {
+
+    private static final String REDACTED_VALUE = "";
+
+    // properties of visible notes which are included in the view; all others are omitted
+    private static final Set<String> NOTE_KEYS = new HashSet<>(Arrays.asList(
+            SemanticSynchrony.PropertyKeys.ID,
+            SemanticSynchrony.PropertyKeys.SOURCE,
+            SemanticSynchrony.PropertyKeys.TITLE,
+            SemanticSynchrony.PropertyKeys.WEIGHT,
+            SemanticSynchrony.PropertyKeys.SHORTCUT,
+            SemanticSynchrony.PropertyKeys.PRIORITY,
+            SemanticSynchrony.PropertyKeys.ALIAS,
+            SemanticSynchrony.PropertyKeys.CREATED));
+
+    // properties of invisible notes which survive redaction, in addition to a blank title
+    private static final Set<String> REDACTED_NOTE_KEYS = new HashSet<>(Arrays.asList(
+            SemanticSynchrony.PropertyKeys.ID,
+            SemanticSynchrony.PropertyKeys.SOURCE));
+
+    private final PGTopicGraph topicGraph;
+    private final Graph base;
+    private final Filter filter;
+
+    public FilteredGraph(final PGTopicGraph topicGraph, final Filter filter) {
+        this.topicGraph = topicGraph;
+        this.base = topicGraph.getPropertyGraph();
+        this.filter = filter;
+    }
+
+    @Override
+    public Iterator<Vertex> vertices(final Object... vertexIds) {
+        if (vertexIds.length > 0) {
+            return stream(base.vertices(unwrap(vertexIds)))
+                    .filter(this::isIncluded).map(this::wrap).iterator();
+        }
+
+        // each invisible note is included once, although it may be the child of more than one visible note
+        Set<Object> redacted = new HashSet<>();
+        return visibleNotes().flatMap(note -> {
+            List<Vertex> vertices = new ArrayList<>();
+            vertices.add(new FilteredVertex(note, false));
+            forEachChild(note, list -> vertices.add(new FilteredVertex(list, false)), child -> {
+                if (!isVisible(child) && redacted.add(child.id())) {
+                    vertices.add(new FilteredVertex(child, true));
+                }
+            });
+            return vertices.stream();
+        }).iterator();
+    }
+
+    @Override
+    public Iterator<Edge> edges(final Object... edgeIds) {
+        if (edgeIds.length > 0) {
+            return stream(base.edges(unwrap(edgeIds)))
+                    .filter(this::isIncluded).map(e -> (Edge) new FilteredEdge(e)).iterator();
+        }
+
+        return visibleNotes().flatMap(note -> {
+            List<Edge> edges = new ArrayList<>();
+            note.edges(Direction.OUT, SemanticSynchrony.EdgeLabels.NOTES, SemanticSynchrony.EdgeLabels.CHILD)
+                    .forEachRemaining(e -> edges.add(new FilteredEdge(e)));
+            forEachChild(note, list -> list.edges(Direction.OUT,
+                    SemanticSynchrony.EdgeLabels.FIRST, SemanticSynchrony.EdgeLabels.REST)
+                    .forEachRemaining(e -> edges.add(new FilteredEdge(e))), child -> {});
+            return edges.stream();
+        }).iterator();
+    }
+
+    @Override
+    public Features features() {
+        return base.features();
+    }
+
+    @Override
+    public Variables variables() {
+        return base.variables();
+    }
+
+    @Override
+    public Configuration configuration() {
+        return base.configuration();
+    }
+
+    @Override
+    public Vertex addVertex(final Object... keyValues) {
+        throw readOnly();
+    }
+
+    @Override
+    public <C extends GraphComputer> C compute(final Class<C> graphComputerClass) {
+        throw Graph.Exceptions.graphComputerNotSupported();
+    }
+
+    @Override
+    public GraphComputer compute() {
+        throw Graph.Exceptions.graphComputerNotSupported();
+    }
+
+    @Override
+    public Transaction tx() {
+        throw Graph.Exceptions.transactionsNotSupported();
+    }
+
+    @Override
+    public void close() {
+        // the underlying graph belongs to the topic graph, and is not closed with the view
+    }
+
+    @Override
+    public String toString() {
+        return StringFactory.graphString(this, "filtered " + base);
+    }
+
+    private Stream<Vertex> visibleNotes() {
+        return stream(base.vertices()).filter(this::isVisible);
+    }
+
+    private boolean isNote(final Vertex vertex) {
+        return SemanticSynchrony.VertexLabels.NOTE.equals(vertex.label());
+    }
+
+    private boolean isList(final Vertex vertex) {
+        return SemanticSynchrony.VertexLabels.LIST.equals(vertex.label());
+    }
+
+    private boolean isVisible(final Vertex vertex) {
+        return isNote(vertex) && filter.test(topicGraph.asNote(vertex));
+    }
+
+    private boolean isIncluded(final Vertex vertex) {
+        if (isNote(vertex)) {
+            return isVisible(vertex) || hasVisibleParent(vertex);
+        } else if (isList(vertex)) {
+            Vertex owner = ownerOfList(vertex);
+            return null != owner && isVisible(owner);
+        } else {
+            return false;
+        }
+    }
+
+    private boolean isIncluded(final Edge edge) {
+        switch (edge.label()) {
+            case SemanticSynchrony.EdgeLabels.NOTES:
+            case SemanticSynchrony.EdgeLabels.CHILD:
+                return isVisible(edge.outVertex());
+            case SemanticSynchrony.EdgeLabels.FIRST:
+            case SemanticSynchrony.EdgeLabels.REST:
+                return isIncluded(edge.outVertex());
+            default:
+                return false;
+        }
+    }
+
+    private boolean hasVisibleParent(final Vertex note) {
+        Iterator<Edge> parents = note.edges(Direction.IN, SemanticSynchrony.EdgeLabels.CHILD);
+        while (parents.hasNext()) {
+            if (isVisible(parents.next().outVertex())) {
+                return true;
+            }
+        }
+
+        Iterator<Edge> lists = note.edges(Direction.IN, SemanticSynchrony.EdgeLabels.FIRST);
+        while (lists.hasNext()) {
+            Vertex owner = ownerOfList(lists.next().outVertex());
+            if (null != owner && isVisible(owner)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // finds the note, if any, whose children begin with the list containing the given list vertex
+    private Vertex ownerOfList(final Vertex list) {
+        Vertex head = list;
+        Iterator<Edge> previous;
+        while ((previous = head.edges(Direction.IN, SemanticSynchrony.EdgeLabels.REST)).hasNext()) {
+            head = previous.next().outVertex();
+        }
+
+        Iterator<Edge> owner = head.edges(Direction.IN, SemanticSynchrony.EdgeLabels.NOTES);
+        return owner.hasNext() ? owner.next().outVertex() : null;
+    }
+
+    // visits the list vertices, if the children are stored as a list, and the children of a note
+    private void forEachChild(final Vertex note, final Consumer<Vertex> listConsumer,
+                              final Consumer<Vertex> childConsumer) {
+        Iterator<Vertex> heads = note.vertices(Direction.OUT, SemanticSynchrony.EdgeLabels.NOTES);
+        Vertex list = heads.hasNext() ? heads.next() : null;
+        while (null != list) {
+            listConsumer.accept(list);
+            Iterator<Vertex> first = list.vertices(Direction.OUT, SemanticSynchrony.EdgeLabels.FIRST);
+            if (first.hasNext()) {
+                childConsumer.accept(first.next());
+            }
+            Iterator<Vertex> rest = list.vertices(Direction.OUT, SemanticSynchrony.EdgeLabels.REST);
+            list = rest.hasNext() ? rest.next() : null;
+        }
+
+        note.vertices(Direction.OUT, SemanticSynchrony.EdgeLabels.CHILD).forEachRemaining(childConsumer);
+    }
+
+    private Vertex wrap(final Vertex vertex) {
+        return new FilteredVertex(vertex, isNote(vertex) && !isVisible(vertex));
+    }
+
+    private static Object[] unwrap(final Object[] ids) {
+        Object[] unwrapped = new Object[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            unwrapped[i] = ids[i] instanceof Element ? ((Element) ids[i]).id() : ids[i];
+        }
+        return unwrapped;
+    }
+
+    private static <T> Stream<T> stream(final Iterator<T> iterator) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false);
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("filtered graph is read-only");
+    }
+
+    private class FilteredVertex implements Vertex {
+        private final Vertex vertex;
+        private final boolean redacted;
+
+        private FilteredVertex(final Vertex vertex, final boolean redacted) {
+            this.vertex = vertex;
+            this.redacted = redacted;
+        }
+
+        @Override
+        public Object id() {
+            return vertex.id();
+        }
+
+        @Override
+        public String label() {
+            return vertex.label();
+        }
+
+        @Override
+        public Graph graph() {
+            return FilteredGraph.this;
+        }
+
+        @Override
+        public Iterator<Edge> edges(final Direction direction, final String... edgeLabels) {
+            return stream(vertex.edges(direction, edgeLabels))
+                    .filter(FilteredGraph.this::isIncluded).map(e -> (Edge) new FilteredEdge(e)).iterator();
+        }
+
+        @Override
+        public Iterator<Vertex> vertices(final Direction direction, final String... edgeLabels) {
+            return stream(edges(direction, edgeLabels)).map(e -> {
+                Vertex out = e.outVertex();
+                return Direction.IN == direction || (Direction.BOTH == direction && !out.equals(this))
+                        ? out : e.inVertex();
+            }).iterator();
+        }
+
+        @Override
+        public <V> Iterator<VertexProperty<V>> properties(final String... propertyKeys) {
+            List<VertexProperty<V>> properties = new ArrayList<>();
+            if (redacted) {
+                Iterator<VertexProperty<V>> unredacted = vertex.properties(propertyKeys);
+                while (unredacted.hasNext()) {
+                    VertexProperty<V> p = unredacted.next();
+                    if (REDACTED_NOTE_KEYS.contains(p.key())) {
+                        properties.add(new FilteredVertexProperty<>(this, p.id(), p.key(), p.value()));
+                    }
+                }
+                if (0 == propertyKeys.length
+                        || Arrays.asList(propertyKeys).contains(SemanticSynchrony.PropertyKeys.TITLE)) {
+                    @SuppressWarnings("unchecked")
+                    V title = (V) REDACTED_VALUE;
+                    properties.add(new FilteredVertexProperty<>(
+                            this, vertex.id() + "-" + SemanticSynchrony.PropertyKeys.TITLE,
+                            SemanticSynchrony.PropertyKeys.TITLE, title));
+                }
+            } else {
+                boolean isNote = isNote(vertex);
+                Iterator<VertexProperty<V>> all = vertex.properties(propertyKeys);
+                while (all.hasNext()) {
+                    VertexProperty<V> p = all.next();
+                    if (!isNote || NOTE_KEYS.contains(p.key())) {
+                        properties.add(new FilteredVertexProperty<>(this, p.id(), p.key(), p.value()));
+                    }
+                }
+            }
+            return properties.iterator();
+        }
+
+        @Override
+        public <V> VertexProperty<V> property(final VertexProperty.Cardinality cardinality,
+                                              final String key,
+                                              final V value,
+                                              final Object... keyValues) {
+            throw readOnly();
+        }
+
+        @Override
+        public Edge addEdge(final String label, final Vertex inVertex, final Object... keyValues) {
+            throw readOnly();
+        }
+
+        @Override
+        public void remove() {
+            throw readOnly();
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            return ElementHelper.areEqual(this, other);
+        }
+
+        @Override
+        public int hashCode() {
+            return ElementHelper.hashCode(this);
+        }
+
+        @Override
+        public String toString() {
+            return StringFactory.vertexString(this);
+        }
+    }
+
+    private class FilteredEdge implements Edge {
+        private final Edge edge;
+
+        private FilteredEdge(final Edge edge) {
+            this.edge = edge;
+        }
+
+        @Override
+        public Object id() {
+            return edge.id();
+        }
+
+        @Override
+        public String label() {
+            return edge.label();
+        }
+
+        @Override
+        public Graph graph() {
+            return FilteredGraph.this;
+        }
+
+        @Override
+        public Iterator<Vertex> vertices(final Direction direction) {
+            return stream(edge.vertices(direction)).map(FilteredGraph.this::wrap).iterator();
+        }
+
+        @Override
+        public <V> Iterator<Property<V>> properties(final String... propertyKeys) {
+            return stream(edge.<V>properties(propertyKeys))
+                    .map(p -> (Property<V>) new FilteredProperty<>(this, p.key(), p.value())).iterator();
+        }
+
+        @Override
+        public <V> Property<V> property(final String key, final V value) {
+            throw readOnly();
+        }
+
+        @Override
+        public void remove() {
+            throw readOnly();
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            return ElementHelper.areEqual(this, other);
+        }
+
+        @Override
+        public int hashCode() {
+            return ElementHelper.hashCode(this);
+        }
+
+        @Override
+        public String toString() {
+            return StringFactory.edgeString(this);
+        }
+    }
+
+    private static class FilteredProperty<V> implements Property<V> {
+        private final Element element;
+        private final String key;
+        private final V value;
+
+        private FilteredProperty(final Element element, final String key, final V value) {
+            this.element = element;
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public String key() {
+            return key;
+        }
+
+        @Override
+        public V value() {
+            return value;
+        }
+
+        @Override
+        public boolean isPresent() {
+            return true;
+        }
+
+        @Override
+        public Element element() {
+            return element;
+        }
+
+        @Override
+        public void remove() {
+            throw readOnly();
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            return ElementHelper.areEqual(this, other);
+        }
+
+        @Override
+        public int hashCode() {
+            return ElementHelper.hashCode(this);
+        }
+
+        @Override
+        public String toString() {
+            return StringFactory.propertyString(this);
+        }
+    }
+
+    private static class FilteredVertexProperty<V> implements VertexProperty<V> {
+        private final Vertex vertex;
+        private final Object id;
+        private final String key;
+        private final V value;
+
+        private FilteredVertexProperty(final Vertex vertex, final Object id, final String key, final V value) {
+            this.vertex = vertex;
+            this.id = id;
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public Object id() {
+            return id;
+        }
+
+        @Override
+        public String key() {
+            return key;
+        }
+
+        @Override
+        public V value() {
+            return value;
+        }
+
+        @Override
+        public boolean isPresent() {
+            return true;
+        }
+
+        @Override
+        public Vertex element() {
+            return vertex;
+        }
+
+        @Override
+        public <U> Property<U> property(final String key, final U value) {
+            throw readOnly();
+        }
+
+        @Override
+        public <U> Iterator<Property<U>> properties(final String... propertyKeys) {
+            return Collections.emptyIterator();
+        }
+
+        @Override
+        public void remove() {
+            throw readOnly();
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            return ElementHelper.areEqual(this, other);
+        }
+
+        @Override
+        public int hashCode() {
+            return ElementHelper.hashCode((Element) this);
+        }
+
+        @Override
+        public String toString() {
+            return StringFactory.propertyString(this);
+        }
+    }
+}
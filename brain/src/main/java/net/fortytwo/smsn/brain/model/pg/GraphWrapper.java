@@ -2,21 +2,45 @@ package net.fortytwo.smsn.brain.model.pg;
 
 import net.fortytwo.smsn.SemanticSynchrony;
 import net.fortytwo.smsn.brain.AtomId;
+import net.fortytwo.smsn.brain.metrics.Metrics;
 import org.apache.tinkerpop.gremlin.structure.Graph;
 import org.apache.tinkerpop.gremlin.structure.T;
 import org.apache.tinkerpop.gremlin.structure.Vertex;
 import org.apache.tinkerpop.gremlin.structure.VertexProperty;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public abstract class GraphWrapper {
 
+    /**
+     * The keys whose presence on note vertices is indexed,
+     * so that the few notes which have a value can be found without a scan of all vertices
+     */
+    protected static final List<String> NOTE_EXISTENCE_KEYS
+            = Collections.singletonList(SemanticSynchrony.PropertyKeys.PRIORITY);
+
     protected final Graph graph;
 
+    private final Metrics metrics = Metrics.getInstance();
+
     private final Map<String, IndexWrapper> indices = new HashMap<>();
 
+    // a hash index of note vertices by id, consulted before the (comparatively expensive) id index.
+    // Entries are written through on creation and on id updates, read through on a miss,
+    // and validated against the vertex on every hit, so a stale entry costs only a fallback to the id index.
+    private final Map<String, Vertex> noteVerticesById = new ConcurrentHashMap<>();
+
+    // note vertices whose index entries are to be rebuilt at the end of a bulk load, each mapped to whether it was
+    // created during the load (and so has no entries to remove), or null if indices are updated immediately.
+    // Other vertices, such as list nodes, are short-lived and are always indexed immediately
+    private Map<Vertex, Boolean> deferredVertices;
+
     protected GraphWrapper(Graph graph) {
         this.graph = graph;
 
@@ -34,6 +58,32 @@ public abstract class GraphWrapper {
 
     protected abstract void updateIndex(Vertex updatedVertex, String key, Object value);
 
+    /**
+     * @return all note vertices, found through an index rather than a scan of all vertices
+     * (most of which may be list nodes rather than notes)
+     */
+    public abstract Iterator<Vertex> getNoteVertices();
+
+    /**
+     * @param key one of {@link #NOTE_EXISTENCE_KEYS}
+     * @return all note vertices which have a value for the given key, found through an index
+     */
+    public abstract Iterator<Vertex> getNoteVerticesHavingProperty(String key);
+
+    /**
+     * Adds a note vertex to, or removes it from, the index of all notes.
+     * Backends which index vertex labels natively need not do anything.
+     */
+    protected void updateNoteIndex(final Vertex vertex, final boolean present) {
+    }
+
+    /**
+     * Adds a note vertex to, or removes it from, the index of notes having a value for one of
+     * {@link #NOTE_EXISTENCE_KEYS}. Backends which maintain such indices natively need not do anything.
+     */
+    protected void updateExistenceIndex(final Vertex vertex, final String key, final boolean present) {
+    }
+
     public abstract void begin();
 
     public abstract void commit();
@@ -48,16 +98,122 @@ public abstract class GraphWrapper {
         vertex.property(SemanticSynchrony.PropertyKeys.ID, getNonNullId(id).value);
         // TODO: use auto-indexing
         updateIndex(vertex, SemanticSynchrony.PropertyKeys.ID);
+        if (isDeferred(vertex)) {
+            deferredVertices.put(vertex, true);
+        }
+        Metrics.countVertices(1);
 
         return vertex;
     }
 
+    public void removeVertex(final Vertex vertex) {
+        VertexProperty<String> id = vertex.property(SemanticSynchrony.PropertyKeys.ID);
+        if (id.isPresent()) {
+            noteVerticesById.remove(id.value(), vertex);
+        }
+
+        if (null != deferredVertices) {
+            deferredVertices.remove(vertex);
+        }
+
+        for (IndexWrapper index : indices.values()) {
+            index.remove(vertex, index.key);
+        }
+        if (isNoteVertex(vertex)) {
+            for (String key : NOTE_EXISTENCE_KEYS) {
+                updateExistenceIndex(vertex, key, false);
+            }
+            updateNoteIndex(vertex, false);
+        }
+
+        vertex.remove();
+    }
+
+    /**
+     * Defers index updates to note vertices until the end of a bulk load,
+     * when the indices are rebuilt in a single pass.
+     * Until then, newly added notes can be found by id, but not by title, acronym or shortcut.
+     */
+    public synchronized void beginBulkLoad() {
+        if (null == deferredVertices) {
+            deferredVertices = new LinkedHashMap<>();
+        }
+    }
+
+    /**
+     * Ends a bulk load, adding every vertex changed since it began to each index.
+     *
+     * @param batchSize the number of vertices to index per transaction, or 0 to index all vertices in the current
+     *                  transaction
+     */
+    public synchronized void finishBulkLoad(final int batchSize) {
+        if (null == deferredVertices) {
+            return;
+        }
+
+        Map<Vertex, Boolean> vertices = deferredVertices;
+        deferredVertices = null;
+
+        Map<String, Map<Vertex, Object>> valuesByKey = new HashMap<>();
+        int count = 0;
+        for (Map.Entry<Vertex, Boolean> e : vertices.entrySet()) {
+            Vertex vertex = e.getKey();
+            for (IndexWrapper index : indices.values()) {
+                VertexProperty property = vertex.property(index.key);
+                if (property.isPresent()) {
+                    valuesByKey.computeIfAbsent(index.key, k -> new HashMap<>()).put(vertex, property.value());
+                } else if (!e.getValue()) {
+                    updateIndex(vertex, index.key, null);
+                }
+            }
+
+            if (batchSize > 0 && 0 == ++count % batchSize) {
+                addAllToIndices(valuesByKey);
+                commit();
+                begin();
+            }
+        }
+        addAllToIndices(valuesByKey);
+    }
+
+    /**
+     * Ends a bulk load which has failed, once the current transaction has been rolled back.
+     * Vertices committed before the failure remain in the graph, and are indexed as by {@link #finishBulkLoad(int)},
+     * while those which were rolled back are skipped.
+     *
+     * @param batchSize the number of vertices to index per transaction, or 0 to index all vertices in the current
+     *                  transaction
+     */
+    public synchronized void cancelBulkLoad(final int batchSize) {
+        if (null == deferredVertices) {
+            return;
+        }
+
+        deferredVertices.keySet().removeIf(vertex -> !graph.vertices(vertex.id()).hasNext());
+        finishBulkLoad(batchSize);
+    }
+
     public Graph getGraph() {
         return graph;
     }
 
     public Vertex getVertexById(final AtomId id) {
-        return getVertexByKeyValue(SemanticSynchrony.PropertyKeys.ID, id.value);
+        Vertex vertex = noteVerticesById.get(id.value);
+        if (null != vertex) {
+            if (hasId(vertex, id.value)) {
+                metrics.increment("index.idCache.hits");
+                Metrics.countVertices(1);
+                return vertex;
+            }
+            noteVerticesById.remove(id.value, vertex);
+        }
+        metrics.increment("index.idCache.misses");
+
+        vertex = getVertexByKeyValue(SemanticSynchrony.PropertyKeys.ID, id.value);
+        if (null != vertex && isNoteVertex(vertex)) {
+            noteVerticesById.put(id.value, vertex);
+        }
+        return vertex;
     }
 
     public Iterator<Sortable<Vertex, Float>> getVerticesByTitle(final String term) {
@@ -89,7 +245,49 @@ public abstract class GraphWrapper {
         VertexProperty property = vertex.property(key);
         Object value = property.isPresent() ? property.value() : null;
 
-        updateIndex(vertex, key, value);
+        if (null != value && key.equals(SemanticSynchrony.PropertyKeys.ID) && isNoteVertex(vertex)) {
+            noteVerticesById.put((String) value, vertex);
+            // notes which were added to the graph directly, e.g. by a GraphML import, are indexed with their ids
+            updateNoteIndex(vertex, true);
+        }
+
+        if (NOTE_EXISTENCE_KEYS.contains(key)) {
+            if (isNoteVertex(vertex)) {
+                updateExistenceIndex(vertex, key, null != value);
+            }
+            return;
+        }
+
+        if (isDeferred(vertex)) {
+            deferredVertices.putIfAbsent(vertex, false);
+        } else {
+            updateIndex(vertex, key, value);
+        }
+    }
+
+    /**
+     * Drops all cached id-to-vertex mappings, e.g. after a rollback has invalidated newly created vertices
+     */
+    protected void clearVertexCache() {
+        noteVerticesById.clear();
+    }
+
+    private boolean isDeferred(final Vertex vertex) {
+        return null != deferredVertices && isNoteVertex(vertex);
+    }
+
+    private void addAllToIndices(final Map<String, Map<Vertex, Object>> valuesByKey) {
+        valuesByKey.forEach((key, valuesByVertex) -> indices.get(key).addAll(valuesByVertex));
+        valuesByKey.clear();
+    }
+
+    private boolean isNoteVertex(final Vertex vertex) {
+        return SemanticSynchrony.VertexLabels.NOTE.equals(vertex.label());
+    }
+
+    private boolean hasId(final Vertex vertex, final String id) {
+        VertexProperty<String> property = vertex.property(SemanticSynchrony.PropertyKeys.ID);
+        return property.isPresent() && id.equals(property.value());
     }
 
     private Iterator<Sortable<Vertex, Float>> getFromIndex(final String key, final String value) {
@@ -101,6 +299,8 @@ public abstract class GraphWrapper {
     private Vertex getVertexByKeyValue(String key, String value) {
         Iterator<Sortable<Vertex, Float>> vertices = getFromIndex(key, value);
         if (vertices.hasNext()) {
+            metrics.increment("index." + key + ".hits");
+            Metrics.countVertices(1);
             Vertex next = vertices.next().getEntity();
             if (vertices.hasNext()) {
                 SemanticSynchrony.getLogger().warning("multiple vertices with " + key + " '" + value + "'");
@@ -108,11 +308,13 @@ public abstract class GraphWrapper {
 
             return next;
         } else {
+            metrics.increment("index." + key + ".misses");
             return null;
         }
     }
 
     private Iterator<Sortable<Vertex, Float>> getVerticesByKeyValue(String key, String value) {
+        metrics.increment("index." + key + ".queries");
         return getFromIndex(key, value);
     }
 }
@@ -3,6 +3,7 @@ package net.fortytwo.smsn.brain.model.pg;
 import org.apache.tinkerpop.gremlin.structure.Vertex;
 
 import java.util.Iterator;
+import java.util.Map;
 
 public abstract class IndexWrapper {
     protected final String key;
@@ -16,4 +17,12 @@ public abstract class IndexWrapper {
     public abstract void add(final Vertex vertex, final String key, final Object value);
 
     public abstract void remove(final Vertex vertex, final String key);
+
+    /**
+     * Adds many vertices at once, e.g. at the end of a bulk load.
+     * Indices which can do this more cheaply than one vertex at a time override this method.
+     */
+    public void addAll(final Map<Vertex, Object> valuesByVertex) {
+        valuesByVertex.forEach((vertex, value) -> add(vertex, key, value));
+    }
 }
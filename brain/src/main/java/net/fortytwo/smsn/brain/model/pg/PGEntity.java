@@ -2,6 +2,7 @@ package net.fortytwo.smsn.brain.model.pg;
 
 import com.google.common.base.Preconditions;
 import net.fortytwo.smsn.brain.error.InvalidGraphException;
+import net.fortytwo.smsn.brain.metrics.Metrics;
 import org.apache.tinkerpop.gremlin.structure.Direction;
 import org.apache.tinkerpop.gremlin.structure.Edge;
 import org.apache.tinkerpop.gremlin.structure.Vertex;
@@ -48,7 +49,7 @@ interface PGEntity {
     }
 
     private static <T> boolean setProperty(final Vertex vertex, String name, T value) {
-        Object previousValue = vertex.property(name);
+        Object previousValue = getOptionalProperty(vertex, name);
 
         if (null == value) {
             if (null == previousValue) {
@@ -101,7 +102,7 @@ interface PGEntity {
 
     static void forAllVertices(final Vertex vertex,
                                          final String label, final Direction direction, final Consumer<Vertex> consumer) {
-        vertex.vertices(direction, label).forEachRemaining(consumer);
+        forEachAdjacentVertex(vertex, label, direction, consumer);
     }
 
     private static Vertex getAtMostOneVertex(final Vertex vertex, final String label, final Direction direction) {
@@ -130,6 +131,7 @@ interface PGEntity {
             return null;
         }
         Edge result = iter.next();
+        Metrics.countEdges(1);
         if (iter.hasNext()) {
             throw new InvalidGraphException("vertex " + toString(vertex)
                     + " has more than one '" + label + "' " + direction + " edge");
@@ -147,7 +149,11 @@ interface PGEntity {
     }
 
     static void forEachAdjacentVertex(Vertex vertex, final String label, Direction direction, Consumer<Vertex> consumer) {
-        vertex.vertices(direction, label).forEachRemaining(consumer);
+        vertex.vertices(direction, label).forEachRemaining(v -> {
+            Metrics.countEdges(1);
+            Metrics.countVertices(1);
+            consumer.accept(v);
+        });
     }
 
     static boolean hasAdjacentVertex(Vertex vertex, final String label, Direction direction) {
@@ -158,6 +164,7 @@ interface PGEntity {
         final Mutable<Boolean> changed = new Mutable<>(false);
         vertex.edges(direction, label).forEachRemaining(
                 edge -> {
+                    Metrics.countEdges(1);
                     edge.remove();
                     changed.value = true;
                 });
@@ -177,6 +184,7 @@ interface PGEntity {
     }
 
     private static Vertex getVertex(final Edge edge, final Direction direction) {
+        Metrics.countVertices(1);
         switch (direction) {
             case OUT:
                 return edge.outVertex();
@@ -3,15 +3,20 @@ package net.fortytwo.smsn.brain.model.pg;
 import net.fortytwo.smsn.SemanticSynchrony;
 import net.fortytwo.smsn.brain.AtomId;
 import net.fortytwo.smsn.brain.error.InvalidGraphException;
+import net.fortytwo.smsn.brain.metrics.Metrics;
 import net.fortytwo.smsn.brain.model.Property;
 import net.fortytwo.smsn.brain.model.entities.ListNode;
 import net.fortytwo.smsn.brain.model.entities.Note;
 import net.fortytwo.smsn.brain.model.entities.Topic;
+import net.fortytwo.smsn.brain.util.ListDiff;
 import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Edge;
 import org.apache.tinkerpop.gremlin.structure.Vertex;
 import org.apache.tinkerpop.gremlin.structure.VertexProperty;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,6 +41,9 @@ public abstract class PGNote implements PGEntity, Note {
         return PGEntity.hashCode(asVertex());
     }
 
+    // the initial spacing between the ordinals of children stored as edges
+    private static final long ORDINAL_GAP = 1L << 20;
+
     private static final Map<String, Consumer<PGNote>> setterTriggersByPropertyKey;
 
     static {
@@ -44,12 +52,60 @@ public abstract class PGNote implements PGEntity, Note {
         setterTriggersByPropertyKey.put(SemanticSynchrony.PropertyKeys.ID, PGNote::idUpdated);
         setterTriggersByPropertyKey.put(SemanticSynchrony.PropertyKeys.TITLE, PGNote::titleUpdated);
         setterTriggersByPropertyKey.put(SemanticSynchrony.PropertyKeys.SHORTCUT, PGNote::shortcutUpdated);
+        setterTriggersByPropertyKey.put(SemanticSynchrony.PropertyKeys.ALIAS, PGNote::aliasUpdated);
+        setterTriggersByPropertyKey.put(SemanticSynchrony.PropertyKeys.PRIORITY, PGNote::priorityUpdated);
+        setterTriggersByPropertyKey.put(SemanticSynchrony.PropertyKeys.WEIGHT, PGNote::priorityUpdated);
+    }
+
+    // the properties read by every filter, cached on the (shared) wrapper and guarded by its lock.
+    // The cache holds as of the graph version at which it was filled, so that it does not outlive a rollback
+    private volatile long filterCacheVersion = -1;
+    private int sourceIndex;
+    private float weight;
+
+    // the child edges of the note in order of ordinal, as of the graph version at which they were read.
+    // The list is replaced rather than modified, so that it may be shared by concurrent readers
+    private volatile SortedChildEdges sortedChildEdges;
+
+    private static class SortedChildEdges {
+        private final long version;
+        private final List<Edge> edges;
+
+        private SortedChildEdges(final long version, final List<Edge> edges) {
+            this.version = version;
+            this.edges = Collections.unmodifiableList(edges);
+        }
     }
 
     public PGNote(final Vertex vertex) {
         this.vertex = vertex;
     }
 
+    @Override
+    public int getSourceIndex() {
+        validateFilterCache();
+        return sourceIndex;
+    }
+
+    @Override
+    public float getWeightValue() {
+        validateFilterCache();
+        return weight;
+    }
+
+    private void validateFilterCache() {
+        long version = getGraph().getVersion();
+        if (filterCacheVersion != version) {
+            synchronized (this) {
+                if (filterCacheVersion != version) {
+                    sourceIndex = Note.super.getSourceIndex();
+                    weight = Note.super.getWeightValue();
+                    filterCacheVersion = version;
+                }
+            }
+        }
+    }
+
     @Override
     public Topic getTopic() {
         return PGEntity.getExactlyOneEntity(asVertex(), SemanticSynchrony.EdgeLabels.TOPIC, Direction.OUT, v -> getGraph().asTopic(v));
@@ -62,59 +118,312 @@ public abstract class PGNote implements PGEntity, Note {
 
     @Override
     public ListNode<Note> getChildren() {
-        return PGEntity.getAtMostOneEntity(asVertex(), SemanticSynchrony.EdgeLabels.NOTES, Direction.OUT, v -> getGraph().asListOfNotes(v));
+        ListNode<Note> list = PGEntity.getAtMostOneEntity(asVertex(), SemanticSynchrony.EdgeLabels.NOTES, Direction.OUT, v -> getGraph().asListOfNotes(v));
+        return null == list && getGraph().childEdgesMayExist() ? PGOrderedChildList.forNote(this) : list;
     }
 
     @Override
     public void setChildren(ListNode<Note> children) {
-        removeAllChildren();
+        List<Note> elements = ListNode.toJavaList(children);
+
+        if (getGraph().isChildrenAsEdges()) {
+            // a linked list which is passed in merely carries the new children
+            if (children instanceof PGListNode) {
+                deleteList(children);
+            }
+            removeAllChildren();
+
+            for (int i = 0; i < elements.size(); i++) {
+                addChildEdge(elements.get(i), i * ORDINAL_GAP);
+            }
+        } else {
+            ListNode<Note> list = null == children || children instanceof PGListNode
+                    ? children : toLinkedList(elements);
+            removeAllChildren();
+
+            setChildrenInternal(list);
+        }
 
-        setChildrenInternal(children);
+        elements.forEach(getGraph()::parentsUpdated);
+        getGraph().childrenUpdated(this);
     }
 
     @Override
     public void forFirstOf(Consumer<ListNode<Note>> consumer) {
         PGEntity.forEachAdjacentVertex(this.asVertex(), SemanticSynchrony.EdgeLabels.FIRST, Direction.IN,
                 vertex -> consumer.accept(getGraph().asListOfNotes(vertex)));
+        if (getGraph().childEdgesMayExist()) {
+            asVertex().edges(Direction.IN, SemanticSynchrony.EdgeLabels.CHILD).forEachRemaining(edge -> {
+                Metrics.countEdges(1);
+                consumer.accept(PGOrderedChildList.forEdge((PGNote) getGraph().asNote(edge.outVertex()), edge));
+            });
+        }
     }
 
     @Override
     public void addChildAt(final Note child, int position) {
-        // create a list node for the note and insert it
-        ListNode<Note> list = getGraph().createListOfNotes(child);
-        if (0 == position) {
-            list.setRest(getChildren());
-            setChildrenInternal(list);
+        migrateChildren();
+
+        List<Edge> edges = null;
+        if (getGraph().isChildrenAsEdges()) {
+            edges = addChildEdgeAt(child, position);
         } else {
-            ListNode<Note> prev = getChildren();
-            for (int i = 1; i < position; i++) {
-                prev = prev.getRest();
+            // create a list node for the note and insert it
+            ListNode<Note> list = getGraph().createListOfNotes(child);
+            if (0 == position) {
+                list.setRest(getChildren());
+                setChildrenInternal(list);
+            } else {
+                ListNode<Note> prev = getChildren();
+                for (int i = 1; i < position; i++) {
+                    prev = prev.getRest();
+                }
+
+                list.setRest(prev.getRest());
+                prev.setRest(list);
             }
+        }
 
-            list.setRest(prev.getRest());
-            prev.setRest(list);
+        getGraph().childrenUpdated(this);
+        getGraph().parentsUpdated(child);
+        if (null != edges) {
+            setSortedChildEdges(edges);
         }
     }
 
     @Override
     public void deleteChildAt(int position) {
-        ListNode<Note> list = getChildren();
+        migrateChildren();
+
+        Note child;
+        List<Edge> edges = null;
+        if (getGraph().isChildrenAsEdges()) {
+            edges = new ArrayList<>(getSortedChildEdges());
+            if (position < 0 || position >= edges.size()) {
+                ListNode.indexOutOfBounds();
+            }
+            Edge edge = edges.remove(position);
+            child = getGraph().asNote(edge.inVertex());
+            edge.remove();
+        } else {
+            ListNode<Note> list = getChildren();
 
-        // remove the note's list node
-        if (0 == position) {
-            setChildrenInternal(list.getRest());
+            // remove the note's list node
+            if (0 == position) {
+                child = list.getFirst();
+                setChildrenInternal(list.getRest());
 
-            deleteEntity(list);
+                deleteEntity(list);
+            } else {
+                ListNode<Note> prev = list;
+                for (int i = 1; i < position; i++) {
+                    prev = prev.getRest();
+                }
+
+                ListNode<Note> l = prev.getRest();
+                child = l.getFirst();
+                prev.setRest(l.getRest());
+                deleteEntity(l);
+            }
+        }
+
+        getGraph().childrenUpdated(this);
+        getGraph().parentsUpdated(child);
+        if (null != edges) {
+            setSortedChildEdges(edges);
+        }
+    }
+
+    @Override
+    public void editChildren(final List<ListDiff.Edit<Note>> script) {
+        migrateChildren();
+
+        List<Edge> sorted = null;
+        if (getGraph().isChildrenAsEdges()) {
+            List<Edge> edges = getSortedChildEdges();
+            List<Object> result = new ArrayList<>(edges.size() + script.size());
+            int i = 0;
+            for (ListDiff.Edit<Note> edit : script) {
+                switch (edit.getOperation()) {
+                    case Keep:
+                        result.add(edges.get(i++));
+                        break;
+                    case Delete:
+                        Edge edge = edges.get(i++);
+                        getGraph().parentsUpdated(getGraph().asNote(edge.inVertex()));
+                        edge.remove();
+                        break;
+                    case Insert:
+                        result.add(edit.getValue());
+                        getGraph().parentsUpdated(edit.getValue());
+                        break;
+                }
+            }
+            result.addAll(edges.subList(i, edges.size()));
+
+            // space the children out again, leaving the ordinals of kept children alone where they are unchanged
+            sorted = new ArrayList<>(result.size());
+            for (int j = 0; j < result.size(); j++) {
+                Object o = result.get(j);
+                long ordinal = j * ORDINAL_GAP;
+                if (o instanceof Edge) {
+                    if (PGOrderedChildList.getOrdinal((Edge) o) != ordinal) {
+                        ((Edge) o).property(SemanticSynchrony.PropertyKeys.ORDINAL, ordinal);
+                    }
+                    sorted.add((Edge) o);
+                } else {
+                    sorted.add(addChildEdge((Note) o, ordinal));
+                }
+            }
         } else {
-            ListNode<Note> prev = list;
-            for (int i = 1; i < position; i++) {
-                prev = prev.getRest();
+            ListNode<Note> prev = null;
+            ListNode<Note> cur = getChildren();
+            for (ListDiff.Edit<Note> edit : script) {
+                switch (edit.getOperation()) {
+                    case Keep:
+                        prev = cur;
+                        cur = cur.getRest();
+                        break;
+                    case Delete:
+                        ListNode<Note> rest = cur.getRest();
+                        getGraph().parentsUpdated(cur.getFirst());
+                        if (null == prev) {
+                            setChildrenInternal(rest);
+                        } else {
+                            prev.setRest(rest);
+                        }
+                        deleteEntity(cur);
+                        cur = rest;
+                        break;
+                    case Insert:
+                        ListNode<Note> list = getGraph().createListOfNotes(edit.getValue());
+                        list.setRest(cur);
+                        if (null == prev) {
+                            setChildrenInternal(list);
+                        } else {
+                            prev.setRest(list);
+                        }
+                        getGraph().parentsUpdated(edit.getValue());
+                        prev = list;
+                        break;
+                }
             }
+        }
+
+        getGraph().childrenUpdated(this);
+        if (null != sorted) {
+            setSortedChildEdges(sorted);
+        }
+    }
+
+    /**
+     * @return the child edges of this note, in order of ordinal. The list may not be modified
+     */
+    List<Edge> getSortedChildEdges() {
+        long version = getGraph().getVersion();
+        SortedChildEdges sorted = sortedChildEdges;
+        if (null == sorted || sorted.version != version) {
+            sorted = new SortedChildEdges(version, PGOrderedChildList.getSortedEdges(asVertex()));
+            sortedChildEdges = sorted;
+        }
+        return sorted.edges;
+    }
+
+    /**
+     * @return the child of this note at the given position, where children are stored as ordered edges
+     */
+    Note getChild(final int position) {
+        return getGraph().asNote(getSortedChildEdges().get(position).inVertex());
+    }
+
+    /**
+     * Replaces the child of this note at the given position, where children are stored as ordered edges
+     */
+    void replaceChildAt(final int position, final Note child) {
+        List<Edge> edges = new ArrayList<>(getSortedChildEdges());
+        Edge old = edges.get(position);
+        Note oldChild = getGraph().asNote(old.inVertex());
+        edges.set(position, addChildEdge(child, PGOrderedChildList.getOrdinal(old)));
+        old.remove();
+
+        getGraph().childrenUpdated(this);
+        getGraph().parentsUpdated(oldChild);
+        getGraph().parentsUpdated(child);
+        setSortedChildEdges(edges);
+    }
+
+    // keeps the edges as changed by this note, once the change has advanced the graph version,
+    // so that they need not be read and sorted again
+    private void setSortedChildEdges(final List<Edge> edges) {
+        sortedChildEdges = new SortedChildEdges(getGraph().getVersion(), edges);
+    }
+
+    /**
+     * Converts this note's children to the storage mode of the graph, if they are stored otherwise.
+     *
+     * @return whether the children were converted
+     */
+    boolean migrateChildren() {
+        boolean asEdges = getGraph().isChildrenAsEdges();
+        String otherLabel = asEdges ? SemanticSynchrony.EdgeLabels.NOTES : SemanticSynchrony.EdgeLabels.CHILD;
+        if (!PGEntity.hasAdjacentVertex(asVertex(), otherLabel, Direction.OUT)) {
+            return false;
+        }
+
+        List<Note> elements = ListNode.toJavaList(getChildren());
+        removeAllChildren();
+        if (asEdges) {
+            for (int i = 0; i < elements.size(); i++) {
+                addChildEdge(elements.get(i), i * ORDINAL_GAP);
+            }
+        } else {
+            setChildrenInternal(toLinkedList(elements));
+        }
+        sortedChildEdges = null;
+
+        return true;
+    }
+
+    // adds a child edge, returning the child edges as they are afterwards
+    private List<Edge> addChildEdgeAt(final Note child, final int position) {
+        List<Edge> edges = new ArrayList<>(getSortedChildEdges());
+        if (position < 0 || position > edges.size()) {
+            ListNode.indexOutOfBounds();
+        }
 
-            ListNode<Note> l = prev.getRest();
-            prev.setRest(l.getRest());
-            deleteEntity(l);
+        // choose an ordinal between those of the neighboring children, so that no other edge needs to change
+        long ordinal;
+        if (edges.isEmpty()) {
+            ordinal = 0;
+        } else if (position == edges.size()) {
+            ordinal = PGOrderedChildList.getOrdinal(edges.get(position - 1)) + ORDINAL_GAP;
+        } else if (0 == position) {
+            ordinal = PGOrderedChildList.getOrdinal(edges.get(0)) - ORDINAL_GAP;
+        } else {
+            long before = PGOrderedChildList.getOrdinal(edges.get(position - 1));
+            long after = PGOrderedChildList.getOrdinal(edges.get(position));
+            if (after - before < 2) {
+                // the gap is used up; space all of the children out again
+                for (int i = 0; i < edges.size(); i++) {
+                    edges.get(i).property(SemanticSynchrony.PropertyKeys.ORDINAL, i * ORDINAL_GAP);
+                }
+                before = (position - 1) * ORDINAL_GAP;
+                after = position * ORDINAL_GAP;
+            }
+            ordinal = before + (after - before) / 2;
         }
+
+        edges.add(position, addChildEdge(child, ordinal));
+        return edges;
+    }
+
+    private Edge addChildEdge(final Note child, final long ordinal) {
+        return asVertex().addEdge(SemanticSynchrony.EdgeLabels.CHILD, ((PGNote) child).asVertex(),
+                SemanticSynchrony.PropertyKeys.ORDINAL, ordinal);
+    }
+
+    private ListNode<Note> toLinkedList(final List<Note> elements) {
+        return elements.isEmpty() ? null : getGraph().createListOfNotes(elements.toArray(new Note[elements.size()]));
     }
 
     private void setChildrenInternal(ListNode<Note> children) {
@@ -127,6 +436,18 @@ public abstract class PGNote implements PGEntity, Note {
 
     private void removeAllChildren() {
         ListNode<Note> cur = getChildren();
+        while (null != cur) {
+            getGraph().parentsUpdated(cur.getFirst());
+            cur = cur.getRest();
+        }
+
+        ListNode<Note> list = PGEntity.getAtMostOneEntity(asVertex(), SemanticSynchrony.EdgeLabels.NOTES, Direction.OUT, v -> getGraph().asListOfNotes(v));
+        deleteList(list);
+        PGEntity.removeEdge(asVertex(), SemanticSynchrony.EdgeLabels.CHILD, Direction.OUT);
+    }
+
+    private void deleteList(final ListNode<Note> list) {
+        ListNode<Note> cur = list;
         while (null != cur) {
             ListNode<Note> rest = cur.getRest();
             deleteEntity(cur);
@@ -137,14 +458,17 @@ public abstract class PGNote implements PGEntity, Note {
     @Override
     public Collection<ListNode<Note>> getFirstOf() {
         List<ListNode<Note>> result = new java.util.LinkedList<>();
-        PGEntity.forAllVertices(asVertex(), SemanticSynchrony.EdgeLabels.FIRST, Direction.IN,
-                vertex -> result.add(getGraph().asListOfNotes(vertex)));
+        forFirstOf(result::add);
 
         return result;
     }
 
     @Override
     public Note getSubject(ListNode<Note> notes) {
+        if (notes instanceof PGOrderedChildList) {
+            return ((PGOrderedChildList) notes).getSubject();
+        }
+
         PGEntity entity = (PGEntity) notes;
         return PGEntity.getAtMostOneEntity(entity.asVertex(), SemanticSynchrony.EdgeLabels.NOTES, Direction.IN,
                 vertex -> getGraph().asNote(vertex));
@@ -152,7 +476,7 @@ public abstract class PGNote implements PGEntity, Note {
 
     @Override
     public void destroy() {
-        PGEntity.destroyInternal(asVertex());
+        getGraph().removeVertex(asVertex());
     }
 
     private void deleteEntity(final ListNode<Note> l) {
@@ -171,8 +495,8 @@ public abstract class PGNote implements PGEntity, Note {
 
         if (null != acronym) {
             vertex.property(SemanticSynchrony.PropertyKeys.ACRONYM, acronym);
-            getGraph().updateIndex(this, SemanticSynchrony.PropertyKeys.ACRONYM);
         }
+        getGraph().updateIndex(this, SemanticSynchrony.PropertyKeys.ACRONYM);
     }
 
     private String valueToAcronym(final String value) {
@@ -210,12 +534,21 @@ public abstract class PGNote implements PGEntity, Note {
     private void titleUpdated() {
         getGraph().updateIndex(this, SemanticSynchrony.PropertyKeys.TITLE);
         updateAcronym();
+        getGraph().noteChanged(this);
+    }
+
+    private void aliasUpdated() {
+        getGraph().noteChanged(this);
     }
 
     private void shortcutUpdated() {
         getGraph().updateIndex(this, SemanticSynchrony.PropertyKeys.SHORTCUT);
     }
 
+    private void priorityUpdated() {
+        getGraph().priorityChanged(this);
+    }
+
     private <V> Property<Note, V> getPropertyForKey(final String key) {
         Property<Note, V> property = (Property<Note, V>) Note.propertiesByKey.get(key);
         if (null == property) {
@@ -265,13 +598,26 @@ public abstract class PGNote implements PGEntity, Note {
             internalValue = value;
         }
 
-        PGEntity.setOptionalProperty(asVertex(), property.getKey(), internalValue);
+        boolean changed;
+        if (isFilterProperty(property.getKey())) {
+            synchronized (this) {
+                changed = PGEntity.setOptionalProperty(asVertex(), property.getKey(), internalValue);
+                filterCacheVersion = -1;
+            }
+        } else {
+            changed = PGEntity.setOptionalProperty(asVertex(), property.getKey(), internalValue);
+        }
+        // indices and other derived state need no update if the value has not changed
         Consumer<PGNote> trigger = setterTriggersByPropertyKey.get(property.getKey());
-        if (null != trigger) {
+        if (changed && null != trigger) {
             trigger.accept(this);
         }
     }
 
+    private static boolean isFilterProperty(final String key) {
+        return key.equals(SemanticSynchrony.PropertyKeys.SOURCE) || key.equals(SemanticSynchrony.PropertyKeys.WEIGHT);
+    }
+
     @Override
     public String toString() {
         AtomId id;
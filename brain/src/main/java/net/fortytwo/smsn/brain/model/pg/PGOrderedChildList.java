@@ -0,0 +1,174 @@
+package net.fortytwo.smsn.brain.model.pg;
+
+import net.fortytwo.smsn.SemanticSynchrony;
+import net.fortytwo.smsn.brain.metrics.Metrics;
+import net.fortytwo.smsn.brain.model.entities.ListNode;
+import net.fortytwo.smsn.brain.model.entities.Note;
+import net.fortytwo.smsn.brain.util.ListDiff;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A list-shaped view of the children of a note which are stored as ordered edges, rather than as a linked list
+ * of vertices. Each node of the view is a position among the parent's child edges, in order of ordinal;
+ * the sorted edges are kept by the parent, so that walking the list does not sort them again.
+ * Changes made through the view are applied to the parent note, and are seen by every view of the same children.
+ */
+class PGOrderedChildList implements ListNode<Note> {
+
+    private static final Comparator<Edge> byOrdinal = Comparator.comparingLong(PGOrderedChildList::getOrdinal);
+
+    private final PGNote parent;
+    private final int index;
+
+    private PGOrderedChildList(final PGNote parent, final int index) {
+        this.parent = parent;
+        this.index = index;
+    }
+
+    /**
+     * @return a view of the ordered children of the given note, or null if it has none
+     */
+    static PGOrderedChildList forNote(final PGNote parent) {
+        return parent.getSortedChildEdges().isEmpty() ? null : new PGOrderedChildList(parent, 0);
+    }
+
+    /**
+     * @return a view positioned at the given child edge
+     */
+    static PGOrderedChildList forEdge(final PGNote parent, final Edge edge) {
+        return new PGOrderedChildList(parent, parent.getSortedChildEdges().indexOf(edge));
+    }
+
+    static List<Edge> getSortedEdges(final Vertex parent) {
+        List<Edge> edges = new ArrayList<>();
+        parent.edges(Direction.OUT, SemanticSynchrony.EdgeLabels.CHILD).forEachRemaining(edges::add);
+        Metrics.countEdges(edges.size());
+        edges.sort(byOrdinal);
+        return edges;
+    }
+
+    static long getOrdinal(final Edge edge) {
+        return edge.<Long>value(SemanticSynchrony.PropertyKeys.ORDINAL);
+    }
+
+    /**
+     * @return the note whose children these are, if this is the head of the list, otherwise null
+     */
+    Note getSubject() {
+        return 0 == index ? parent : null;
+    }
+
+    @Override
+    public Note getFirst() {
+        return parent.getGraph().asNote(getEdge().inVertex());
+    }
+
+    @Override
+    public void setFirst(final Note first) {
+        parent.replaceChildAt(index, first);
+    }
+
+    @Override
+    public ListNode<Note> getRest() {
+        return index + 1 < parent.getSortedChildEdges().size() ? new PGOrderedChildList(parent, index + 1) : null;
+    }
+
+    /**
+     * Replaces every child after this position with the elements of the given list
+     */
+    @Override
+    public void setRest(final ListNode<Note> rest) {
+        // read the new elements first, as they may be a view of these same children
+        List<Note> elements = ListNode.toJavaList(rest);
+        int size = parent.getSortedChildEdges().size();
+
+        List<ListDiff.Edit<Note>> script = new ArrayList<>(size + elements.size());
+        for (int i = 0; i < size; i++) {
+            script.add(new ListDiff.Edit<>(i <= index ? ListDiff.Operation.Keep : ListDiff.Operation.Delete,
+                    parent.getChild(i)));
+        }
+        for (Note element : elements) {
+            script.add(new ListDiff.Edit<>(ListDiff.Operation.Insert, element));
+        }
+        parent.editChildren(script);
+    }
+
+    @Override
+    public ListNode<Note> getRestOf() {
+        return index > 0 ? new PGOrderedChildList(parent, index - 1) : null;
+    }
+
+    @Override
+    public int length() {
+        return parent.getSortedChildEdges().size() - index;
+    }
+
+    @Override
+    public Note get(final int i) {
+        List<Edge> edges = parent.getSortedChildEdges();
+        if (i < 0 || index + i >= edges.size()) {
+            ListNode.indexOutOfBounds();
+        }
+
+        return parent.getGraph().asNote(edges.get(index + i).inVertex());
+    }
+
+    /**
+     * Inserts a child at the given position relative to this one
+     *
+     * @return the node at this position, which holds the new child if it was inserted at position 0
+     */
+    @Override
+    public ListNode<Note> add(final int i, final Note toAdd) {
+        if (i < 0 || i > length()) {
+            ListNode.indexOutOfBounds();
+        }
+
+        parent.addChildAt(toAdd, index + i);
+        return this;
+    }
+
+    /**
+     * Removes the child at the given position relative to this one
+     *
+     * @return the node at this position, or null if the last child was removed from it
+     */
+    @Override
+    public ListNode<Note> remove(final int i) {
+        if (i < 0 || i >= length()) {
+            ListNode.indexOutOfBounds();
+        }
+
+        parent.deleteChildAt(index + i);
+        return index < parent.getSortedChildEdges().size() ? this : null;
+    }
+
+    /**
+     * Removes the child at this position, leaving the note itself in place
+     */
+    @Override
+    public void destroy() {
+        parent.deleteChildAt(index);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return other instanceof PGOrderedChildList
+                && ((PGOrderedChildList) other).getEdge().equals(getEdge());
+    }
+
+    @Override
+    public int hashCode() {
+        return getEdge().hashCode();
+    }
+
+    private Edge getEdge() {
+        return parent.getSortedChildEdges().get(index);
+    }
+}
@@ -47,6 +47,6 @@ public abstract class PGTopic implements PGEntity, Topic {
     @Override
     public void destroy() {
         // nothing else to do; a topic owns no other entities
-        PGEntity.destroyInternal(asVertex());
+        getGraph().removeVertex(asVertex());
     }
 }
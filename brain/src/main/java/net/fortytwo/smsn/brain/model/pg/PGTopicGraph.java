@@ -1,8 +1,10 @@
 package net.fortytwo.smsn.brain.model.pg;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterators;
 import net.fortytwo.smsn.SemanticSynchrony;
 import net.fortytwo.smsn.brain.AtomId;
+import net.fortytwo.smsn.brain.metrics.Metrics;
 import net.fortytwo.smsn.brain.model.Filter;
 import net.fortytwo.smsn.brain.model.Role;
 import net.fortytwo.smsn.brain.model.TopicGraph;
@@ -15,7 +17,7 @@ import net.fortytwo.smsn.brain.model.entities.Page;
 import net.fortytwo.smsn.brain.model.entities.Topic;
 import net.fortytwo.smsn.brain.model.pg.tg.TinkerGraphWrapper;
 import org.apache.tinkerpop.gremlin.structure.Direction;
-import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Edge;
 import org.apache.tinkerpop.gremlin.structure.Graph;
 import org.apache.tinkerpop.gremlin.structure.Vertex;
 import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
@@ -25,9 +27,14 @@ import java.util.Date;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -43,15 +50,101 @@ public class PGTopicGraph implements TopicGraph {
 
     private long lastUpdate;
 
+    // advanced by every change, including changes which are later rolled back
+    private final AtomicLong version = new AtomicLong();
+
+    // the maximum number of wrappers in each of the caches below
+    private static final int MAX_CACHED_WRAPPERS = 100000;
+
+    // note and topic wrappers by vertex id, so that repeated traversals don't allocate a new wrapper per visit.
+    // Entries are dropped when their vertices are removed, and altogether on rollback, as ids may be reused.
+    // A cache which outgrows MAX_CACHED_WRAPPERS is also cleared, so that a traversal of a large graph
+    // doesn't hold on to a wrapper for every vertex it has visited.
+    private final Map<Object, Note> notesById = new ConcurrentHashMap<>();
+    private final Map<Object, Topic> topicsById = new ConcurrentHashMap<>();
+
+    private final List<ChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+
+    private boolean childrenAsEdges = SemanticSynchrony.getConfiguration().isChildrenAsEdges();
+
+    // whether any note may have children stored as ordered edges. If not, linked children are read without
+    // also looking for child edges
+    private volatile boolean childEdgesMayExist;
+
+    // raw (unfiltered) numbers of children and parents, by note vertex id.
+    // Entries are invalidated by the structural setters of PGNote, and dropped altogether on rollback;
+    // a count computed while the graph was changing is not kept (see getCount).
+    private final Map<Object, Integer> numberOfChildrenById = new ConcurrentHashMap<>();
+    private final Map<Object, Integer> numberOfParentsById = new ConcurrentHashMap<>();
+
     public PGTopicGraph(final GraphWrapper wrapper) {
         this.wrapper = wrapper;
         this.propertyGraph = wrapper.getGraph();
+
+        // a one-time check, which finds child edges left behind by a switch back to linked children
+        childEdgesMayExist = childrenAsEdges || hasChildEdges();
     }
 
     public Graph getPropertyGraph() {
         return propertyGraph;
     }
 
+    /**
+     * @return whether children are written as ordered edges from each note,
+     * as opposed to a linked list of vertices
+     */
+    public boolean isChildrenAsEdges() {
+        return childrenAsEdges;
+    }
+
+    /**
+     * Sets the storage mode for children. Notes whose children are stored in the other mode are still readable,
+     * and are converted when their children are next modified, or by a call to {@link #migrateChildren()}.
+     */
+    public void setChildrenAsEdges(final boolean childrenAsEdges) {
+        this.childrenAsEdges = childrenAsEdges;
+        if (childrenAsEdges) {
+            childEdgesMayExist = true;
+        }
+    }
+
+    /**
+     * @return whether any note may have children stored as ordered edges, whatever the current storage mode
+     */
+    boolean childEdgesMayExist() {
+        return childEdgesMayExist;
+    }
+
+    /**
+     * Converts the children of all notes to the current storage mode
+     *
+     * @return the number of notes whose children were converted
+     */
+    public int migrateChildren() {
+        List<Note> notes = new LinkedList<>();
+        getAllNotes().forEach(notes::add);
+
+        int count = 0;
+        for (Note note : notes) {
+            if (((PGNote) note).migrateChildren()) {
+                count++;
+            }
+        }
+
+        if (count > 0) {
+            notifyOfUpdate();
+        }
+        if (!childrenAsEdges) {
+            childEdgesMayExist = false;
+        }
+        return count;
+    }
+
+    private boolean hasChildEdges() {
+        // stop at the first child edge, rather than visiting every edge in the graph
+        return propertyGraph.traversal().E().hasLabel(SemanticSynchrony.EdgeLabels.CHILD).limit(1).hasNext();
+    }
+
     public AtomId idOf(final Note a) {
         return Note.getId(a);
     }
@@ -70,6 +163,11 @@ public class PGTopicGraph implements TopicGraph {
         return lastUpdate;
     }
 
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
     @Override
     public void begin() {
         wrapper.begin();
@@ -77,12 +175,29 @@ public class PGTopicGraph implements TopicGraph {
 
     @Override
     public void commit() {
+        long before = System.nanoTime();
+        wrapper.commit();
+        Metrics.getInstance().getHistogram("transaction.commit").record(System.nanoTime() - before);
+    }
+
+    @Override
+    public void endReadTransaction() {
         wrapper.commit();
     }
 
     @Override
     public void rollback() {
+        long before = System.nanoTime();
         wrapper.rollback();
+        Metrics.getInstance().getHistogram("transaction.rollback").record(System.nanoTime() - before);
+        version.incrementAndGet();
+        notesById.clear();
+        topicsById.clear();
+        numberOfChildrenById.clear();
+        numberOfParentsById.clear();
+        for (ChangeListener listener : changeListeners) {
+            listener.rolledBack();
+        }
     }
 
     @Override
@@ -90,9 +205,30 @@ public class PGTopicGraph implements TopicGraph {
         return copyGraph(filter);
     }
 
+    @Override
+    public void addChangeListener(final ChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    void noteChanged(final Note note) {
+        version.incrementAndGet();
+        for (ChangeListener listener : changeListeners) {
+            listener.noteChanged(note);
+        }
+    }
+
+    void priorityChanged(final Note note) {
+        version.incrementAndGet();
+        updateIndex(note, SemanticSynchrony.PropertyKeys.PRIORITY);
+        for (ChangeListener listener : changeListeners) {
+            listener.priorityChanged(note);
+        }
+    }
+
     @Override
     public void notifyOfUpdate() {
         this.lastUpdate = System.currentTimeMillis();
+        version.incrementAndGet();
     }
 
     @Override
@@ -102,6 +238,57 @@ public class PGTopicGraph implements TopicGraph {
         return null == v ? Optional.empty() : Optional.of(asNote(v));
     }
 
+    @Override
+    public int getNumberOfChildren(final Note note) {
+        return getCount(numberOfChildrenById, note, n -> {
+            ListNode<Note> children = n.getChildren();
+            return null == children ? 0 : children.length();
+        });
+    }
+
+    @Override
+    public int getNumberOfParents(final Note note) {
+        return getCount(numberOfParentsById, note, n -> {
+            Iterator<Edge> edges = ((PGNote) n).asVertex().edges(Direction.IN,
+                    SemanticSynchrony.EdgeLabels.FIRST, SemanticSynchrony.EdgeLabels.CHILD);
+            int count = 0;
+            for (; edges.hasNext(); edges.next()) count++;
+            Metrics.countEdges(count);
+            return count;
+        });
+    }
+
+    void childrenUpdated(final Note note) {
+        // the version is advanced before the count is invalidated; see getCount
+        version.incrementAndGet();
+        numberOfChildrenById.remove(idOfVertex(note));
+        noteChanged(note);
+    }
+
+    void parentsUpdated(final Note note) {
+        version.incrementAndGet();
+        numberOfParentsById.remove(idOfVertex(note));
+    }
+
+    // A count is kept only if the graph did not change while it was computed. Writers advance the version
+    // before invalidating a count, so a stale count stored by a concurrent reader is either removed by the writer
+    // or, if the writer got there first, by the reader itself
+    private int getCount(final Map<Object, Integer> countsById,
+                         final Note note,
+                         final ToIntFunction<Note> counter) {
+        Object id = idOfVertex(note);
+        Integer count = countsById.get(id);
+        if (null == count) {
+            long before = version.get();
+            count = counter.applyAsInt(note);
+            countsById.put(id, count);
+            if (version.get() != before) {
+                countsById.remove(id, count);
+            }
+        }
+        return count;
+    }
+
     @Override
     public ListNode<Link> toList(final Link... elements) {
         return createListOfEntities(SemanticSynchrony.VertexLabels.LIST, this::asListOfLinks, elements);
@@ -157,7 +344,9 @@ public class PGTopicGraph implements TopicGraph {
 
     @Override
     public Note createNote(final AtomId id) {
-        return createEntity(id, SemanticSynchrony.VertexLabels.NOTE, this::asNote);
+        Note note = createEntity(id, SemanticSynchrony.VertexLabels.NOTE, this::asNote);
+        noteChanged(note);
+        return note;
     }
 
     @Override
@@ -187,12 +376,12 @@ public class PGTopicGraph implements TopicGraph {
     public Topic asTopic(final Vertex vertex) {
         Preconditions.checkNotNull(vertex, "vertex");
 
-        return new PGTopic(vertex) {
+        return getOrCreateWrapper(topicsById, vertex, v -> new PGTopic(v) {
             @Override
             public PGTopicGraph getGraph() {
                 return PGTopicGraph.this;
             }
-        };
+        });
     }
 
     public Link asLink(final Vertex vertex) {
@@ -220,12 +409,27 @@ public class PGTopicGraph implements TopicGraph {
     public Note asNote(final Vertex vertex) {
         Preconditions.checkNotNull(vertex, "vertex");
 
-        return new PGNote(vertex) {
+        return getOrCreateWrapper(notesById, vertex, v -> new PGNote(v) {
             @Override
             public PGTopicGraph getGraph() {
                 return PGTopicGraph.this;
             }
-        };
+        });
+    }
+
+    private <T> T getOrCreateWrapper(final Map<Object, T> cache,
+                                     final Vertex vertex,
+                                     final Function<Vertex, T> constructor) {
+        // check before computing; a cache hit should not contend for a lock
+        T wrapper = cache.get(vertex.id());
+        if (null == wrapper) {
+            if (cache.size() >= MAX_CACHED_WRAPPERS) {
+                // wrappers are cheap to recreate, so start over rather than track which were used least recently
+                cache.clear();
+            }
+            wrapper = cache.computeIfAbsent(vertex.id(), id -> constructor.apply(vertex));
+        }
+        return wrapper;
     }
 
     public <T extends Entity> ListNode<T> asEntityList(final Vertex vertex, final Function<Vertex, T> constructor) {
@@ -277,9 +481,8 @@ public class PGTopicGraph implements TopicGraph {
 
         List<Vertex> toRemove = new LinkedList<>();
 
-        propertyGraph.vertices().forEachRemaining(v -> {
-            if (isNoteVertex(v)
-                    && !v.edges(Direction.IN).hasNext()
+        wrapper.getNoteVertices().forEachRemaining(v -> {
+            if (!v.edges(Direction.IN).hasNext()
                     && !v.edges(Direction.OUT).hasNext()) {
                 if (filter.test(asNote(v))) {
                     toRemove.add(v);
@@ -288,7 +491,7 @@ public class PGTopicGraph implements TopicGraph {
         });
 
         // note: we assume from the above that there are no dependent vertices (i.e. list nodes) to remove first
-        toRemove.forEach(Element::remove);
+        toRemove.forEach(this::removeVertex);
 
         notifyOfUpdate();
     }
@@ -299,22 +502,88 @@ public class PGTopicGraph implements TopicGraph {
         updateIndex(note, SemanticSynchrony.PropertyKeys.TITLE);
         updateIndex(note, SemanticSynchrony.PropertyKeys.ACRONYM);
         updateIndex(note, SemanticSynchrony.PropertyKeys.SHORTCUT);
+        updateIndex(note, SemanticSynchrony.PropertyKeys.PRIORITY);
+    }
+
+    /**
+     * Adds notes which were written to the property graph directly, rather than through this object,
+     * to all indices. This requires a scan of all vertices.
+     */
+    public void reindexAllNotes() {
+        List<Note> notes = new LinkedList<>();
+        asFilteredStream(propertyGraph.vertices(), this::isNoteVertex).map(this::asNote).forEach(notes::add);
+        notes.forEach(this::reindex);
+    }
+
+    /**
+     * Defers index updates until {@link #finishBulkLoad(int)}, so that a large number of new notes
+     * can be indexed in a single pass rather than one property at a time
+     */
+    public void beginBulkLoad() {
+        wrapper.beginBulkLoad();
+    }
+
+    /**
+     * Indexes all notes changed since {@link #beginBulkLoad()}
+     *
+     * @param batchSize the number of notes to index per transaction, or 0 for no intermediate commits
+     */
+    public void finishBulkLoad(final int batchSize) {
+        wrapper.finishBulkLoad(batchSize);
+    }
+
+    /**
+     * Ends a failed bulk load, after the current transaction has been rolled back.
+     * Notes which were committed before the failure are indexed, so that they can be found as usual
+     *
+     * @param batchSize the number of notes to index per transaction, or 0 for no intermediate commits
+     */
+    public void cancelBulkLoad(final int batchSize) {
+        wrapper.cancelBulkLoad(batchSize);
     }
 
     void updateIndex(final Note note, final String key) {
         wrapper.updateIndex(((PGNote) note).asVertex(), key);
     }
 
+    void removeVertex(final Vertex vertex) {
+        version.incrementAndGet();
+        if (isNoteVertex(vertex)) {
+            Note note = asNote(vertex);
+            for (ChangeListener listener : changeListeners) {
+                listener.noteRemoved(note);
+            }
+        }
+
+        if (vertex.edges(Direction.IN,
+                SemanticSynchrony.EdgeLabels.FIRST, SemanticSynchrony.EdgeLabels.CHILD).hasNext()) {
+            // the lists which contain the vertex are about to lose an element; this is rare enough not to track
+            numberOfChildrenById.clear();
+        }
+        numberOfChildrenById.remove(vertex.id());
+        numberOfParentsById.remove(vertex.id());
+        notesById.remove(vertex.id());
+        topicsById.remove(vertex.id());
+
+        wrapper.removeVertex(vertex);
+        // advance the version again, so that nothing cached by the listeners while the edges of the vertex
+        // still existed remains valid
+        version.incrementAndGet();
+    }
+
     /**
      * @return an Iterable of all notes in the knowledge base, as opposed to all vertices
      * (many of which are list nodes rather than notes)
      */
     @Override
     public Iterable<Note> getAllNotes() {
-        return () -> asFilteredStream(
-                getPropertyGraph().vertices(),
-                this::isNoteVertex)
-                .map(this::asNote).iterator();
+        return () -> Iterators.transform(wrapper.getNoteVertices(), this::asNote);
+    }
+
+    @Override
+    public Iterable<Note> getNotesWithPriority() {
+        return () -> Iterators.transform(
+                wrapper.getNoteVerticesHavingProperty(SemanticSynchrony.PropertyKeys.PRIORITY), this::asNote);
     }
 
     @Override
@@ -355,19 +624,28 @@ public class PGTopicGraph implements TopicGraph {
         return head;
     }
 
+    private Object idOfVertex(final Note note) {
+        return ((PGNote) note).asVertex().id();
+    }
+
     private boolean isNoteVertex(final Vertex v) {
         String label = v.label();
         return null != label && label.equals(SemanticSynchrony.VertexLabels.NOTE);
     }
 
+    /**
+     * Copies the notes visible through a filter, together with their children, into a new in-memory graph.
+     * Use {@link #createFilteredView(Filter)} instead if the filtered graph is only to be read.
+     */
     public PGTopicGraph copyGraph(final Filter filter) {
         GraphWrapper newWrapper = new TinkerGraphWrapper(TinkerGraph.open());
         PGTopicGraph newGraph = new PGTopicGraph(newWrapper);
+        newGraph.setChildrenAsEdges(childrenAsEdges);
 
         for (Note original : getAllNotes()) {
             if (filter.test(original)) {
                 PGNote newNote = findOrCopy(original, filter, newGraph);
-                PGListNode<Note> children = (PGListNode<Note>) original.getChildren();
+                ListNode<Note> children = original.getChildren();
                 if (null != children) {
                     newNote.setChildren(copyNoteList(children, filter, newGraph));
                 }
@@ -377,6 +655,14 @@ public class PGTopicGraph implements TopicGraph {
         return newGraph;
     }
 
+    /**
+     * @return a read-only view of the property graph, containing what {@link #copyGraph(Filter)} would copy,
+     * without copying it
+     */
+    public Graph createFilteredView(final Filter filter) {
+        return new FilteredGraph(this, filter);
+    }
+
     private <T> T createEntity(final AtomId id, final String label, final Function<Vertex, T> constructor) {
         Vertex vertex = wrapper.createVertex(id, label);
 
@@ -436,8 +722,8 @@ public class PGTopicGraph implements TopicGraph {
         return newNote;
     }
 
-    private ListNode<Note> copyNoteList(final PGListNode<Note> original, final Filter filter, final PGTopicGraph newGraph) {
-        PGListNode<Note> originalCur = original;
+    private ListNode<Note> copyNoteList(final ListNode<Note> original, final Filter filter, final PGTopicGraph newGraph) {
+        ListNode<Note> originalCur = original;
         PGListNode<Note> newHead = null, newCur, newPrev = null;
         while (null != originalCur) {
             Note originalFirst = originalCur.getFirst();
@@ -451,7 +737,7 @@ public class PGTopicGraph implements TopicGraph {
             }
 
             newPrev = newCur;
-            originalCur = (PGListNode<Note>) originalCur.getRest();
+            originalCur = originalCur.getRest();
         }
 
         return newHead;
@@ -9,13 +9,17 @@ import org.apache.tinkerpop.gremlin.neo4j.structure.Neo4jGraph;
 import org.apache.tinkerpop.gremlin.structure.Graph;
 import org.apache.tinkerpop.gremlin.structure.Vertex;
 import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
 import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Result;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.graphdb.factory.GraphDatabaseFactory;
 import org.neo4j.graphdb.factory.GraphDatabaseSettings;
 import org.neo4j.graphdb.index.Index;
 import org.neo4j.graphdb.index.IndexHits;
 import org.neo4j.graphdb.index.IndexManager;
+import org.neo4j.graphdb.schema.IndexDefinition;
+import org.neo4j.graphdb.schema.Schema;
 import org.neo4j.helpers.collection.MapUtil;
 import org.neo4j.tinkerpop.api.impl.Neo4jGraphAPIImpl;
 
@@ -29,12 +33,16 @@ public class Neo4jGraphWrapper extends GraphWrapper {
         return key + "-index";
     }
 
+    private static final Label NOTE_LABEL = Label.label(SemanticSynchrony.VertexLabels.NOTE);
+
     public Neo4jGraphWrapper(final Neo4jGraph graph) {
         super(graph);
+        createSchemaIndices();
     }
 
     public Neo4jGraphWrapper(File dataDir) {
         super(createGraph(dataDir));
+        createSchemaIndices();
     }
 
     @Override
@@ -47,6 +55,22 @@ public class Neo4jGraphWrapper extends GraphWrapper {
         }
     }
 
+    @Override
+    public Iterator<Vertex> getNoteVertices() {
+        // vertex labels are Neo4j labels, which the label scan store finds without touching other nodes
+        graph.tx().readWrite();
+        return Iterators.transform(getGraphDatabaseService().findNodes(NOTE_LABEL), this::nodeToVertex);
+    }
+
+    @Override
+    public Iterator<Vertex> getNoteVerticesHavingProperty(final String key) {
+        // answered from the schema index on the key, once it has been populated
+        graph.tx().readWrite();
+        Result result = getGraphDatabaseService().execute(
+                "MATCH (n:`" + NOTE_LABEL.name() + "`) WHERE exists(n.`" + key + "`) RETURN n");
+        return Iterators.transform(result.<Node>columnAs("n"), this::nodeToVertex);
+    }
+
     @Override
     public void begin() {
         graph.tx().readWrite();
@@ -60,6 +84,7 @@ public class Neo4jGraphWrapper extends GraphWrapper {
     @Override
     public void rollback() {
         graph.tx().rollback();
+        clearVertexCache();
     }
 
     @Override
@@ -117,6 +142,35 @@ public class Neo4jGraphWrapper extends GraphWrapper {
         }
     }
 
+    private void createSchemaIndices() {
+        GraphDatabaseService graphDb = getGraphDatabaseService();
+        try (Transaction tx = graphDb.beginTx()) {
+            Schema schema = graphDb.schema();
+            for (String key : NOTE_EXISTENCE_KEYS) {
+                if (!hasSchemaIndex(schema, key)) {
+                    schema.indexFor(NOTE_LABEL).on(key).create();
+                    SemanticSynchrony.getLogger().fine("created Neo4j schema index on '" + key + "'");
+                }
+            }
+            tx.success();
+        }
+    }
+
+    private boolean hasSchemaIndex(final Schema schema, final String key) {
+        for (IndexDefinition index : schema.getIndexes(NOTE_LABEL)) {
+            for (String indexedKey : index.getPropertyKeys()) {
+                if (indexedKey.equals(key)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private Vertex nodeToVertex(final Node node) {
+        return getNeo4jGraph().vertices(node.getId()).next();
+    }
+
     private Neo4jGraph getNeo4jGraph() {
         return (Neo4jGraph) graph;
     }
@@ -159,10 +213,6 @@ public class Neo4jGraphWrapper extends GraphWrapper {
             return Iterators.transform(hits, node -> new Sortable<>(nodeToVertex(node), hits.currentScore()));
         }
 
-        private Vertex nodeToVertex(final Node node) {
-            return getNeo4jGraph().vertices(node.getId()).next();
-        }
-
         private Node asNode(final Vertex vertex) {
             Node node = getGraphDatabaseService().getNodeById((Long) vertex.id());
             if (null == node) throw new IllegalArgumentException();
@@ -0,0 +1,327 @@
+package net.fortytwo.smsn.brain.model.pg.tg;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * An in-memory full-text index which maps lowercased tokens to posting lists of documents.
+ * Queries support a subset of the Lucene query syntax: plain terms (combined with OR by default),
+ * the AND and OR operators, wildcard terms such as <code>Arth*</code> or <code>*dent</code>,
+ * and quoted phrases.
+ * Results are scored using TF-IDF with a length norm, much like Lucene's classic similarity.
+ * The cost of a query is proportional to the number of matching documents
+ * (plus the size of the term dictionary for non-prefix wildcards), not to the number of documents indexed.
+ *
+ * @param <D> the document type, e.g. a vertex
+ */
+class InvertedIndex<D> {
+
+    private static final String AND = "AND", OR = "OR";
+
+    // term -> document -> positions of the term in the document
+    private final Map<String, Map<D, List<Integer>>> postings = new HashMap<>();
+    // sorted term dictionary, for prefix queries
+    private final NavigableSet<String> terms = new TreeSet<>();
+    // document -> indexed tokens, for removal
+    private final Map<D, String[]> tokensByDocument = new HashMap<>();
+
+    public synchronized void put(final D document, final String value) {
+        putInternal(document, value);
+    }
+
+    /**
+     * Adds or replaces many documents at once, holding the lock only once
+     *
+     * @param valuesByDocument the text of each document. Values other than strings are indexed by their string form
+     */
+    public synchronized void putAll(final Map<D, ?> valuesByDocument) {
+        valuesByDocument.forEach((document, value) -> putInternal(document, value.toString()));
+    }
+
+    private void putInternal(final D document, final String value) {
+        remove(document);
+
+        String[] tokens = tokenize(value);
+        if (0 == tokens.length) {
+            return;
+        }
+
+        tokensByDocument.put(document, tokens);
+        for (int i = 0; i < tokens.length; i++) {
+            String token = tokens[i];
+            Map<D, List<Integer>> posting = postings.get(token);
+            if (null == posting) {
+                posting = new HashMap<>();
+                postings.put(token, posting);
+                terms.add(token);
+            }
+            posting.computeIfAbsent(document, d -> new ArrayList<>(1)).add(i);
+        }
+    }
+
+    public synchronized void remove(final D document) {
+        String[] tokens = tokensByDocument.remove(document);
+        if (null == tokens) {
+            return;
+        }
+
+        for (String token : tokens) {
+            Map<D, List<Integer>> posting = postings.get(token);
+            if (null != posting) {
+                posting.remove(document);
+                if (posting.isEmpty()) {
+                    postings.remove(token);
+                    terms.remove(token);
+                }
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return tokensByDocument.size();
+    }
+
+    /**
+     * @param query a query in the supported subset of the Lucene syntax
+     * @return all matching documents, together with their scores
+     */
+    public synchronized Map<D, Float> search(final String query) {
+        Map<D, Float> result = new HashMap<>();
+
+        // AND binds more tightly than OR, which is also the default operator
+        for (List<String> conjunction : parse(query)) {
+            Map<D, Float> matches = null;
+            for (String clause : conjunction) {
+                Map<D, Float> clauseMatches = matchClause(clause);
+                matches = null == matches ? clauseMatches : intersect(matches, clauseMatches);
+                if (matches.isEmpty()) break;
+            }
+
+            if (null != matches) {
+                matches.forEach((document, score) -> result.merge(document, score, Float::sum));
+            }
+        }
+
+        return result;
+    }
+
+    static String[] tokenize(final String value) {
+        if (null == value) {
+            return new String[]{};
+        }
+
+        List<String> tokens = new LinkedList<>();
+        StringBuilder sb = new StringBuilder();
+        for (char c : value.toLowerCase().toCharArray()) {
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(c);
+            } else if (sb.length() > 0) {
+                tokens.add(sb.toString());
+                sb.setLength(0);
+            }
+        }
+        if (sb.length() > 0) {
+            tokens.add(sb.toString());
+        }
+
+        return tokens.toArray(new String[tokens.size()]);
+    }
+
+    // splits a query into a disjunction of conjunctions of clauses, where a clause is a term, a wildcard term,
+    // or a quoted phrase
+    private static List<List<String>> parse(final String query) {
+        List<List<String>> disjunction = new LinkedList<>();
+        List<String> conjunction = new LinkedList<>();
+        boolean and = false;
+
+        for (String clause : splitClauses(query)) {
+            if (clause.equals(AND)) {
+                and = true;
+            } else if (clause.equals(OR)) {
+                and = false;
+            } else {
+                if (!and && !conjunction.isEmpty()) {
+                    disjunction.add(conjunction);
+                    conjunction = new LinkedList<>();
+                }
+                conjunction.add(clause);
+                and = false;
+            }
+        }
+        if (!conjunction.isEmpty()) {
+            disjunction.add(conjunction);
+        }
+
+        return disjunction;
+    }
+
+    private static List<String> splitClauses(final String query) {
+        List<String> clauses = new LinkedList<>();
+        StringBuilder sb = new StringBuilder();
+        boolean quoted = false;
+        for (char c : query.toCharArray()) {
+            if ('"' == c) {
+                if (quoted) {
+                    // keep the leading quote as a marker for phrases
+                    clauses.add(sb.toString());
+                    sb.setLength(0);
+                } else {
+                    addClause(sb, clauses);
+                    sb.append('"');
+                }
+                quoted = !quoted;
+            } else if (!quoted && (Character.isWhitespace(c) || '(' == c || ')' == c)) {
+                addClause(sb, clauses);
+            } else {
+                sb.append(c);
+            }
+        }
+        addClause(sb, clauses);
+
+        return clauses;
+    }
+
+    private static void addClause(final StringBuilder sb, final List<String> clauses) {
+        if (sb.length() > 0) {
+            clauses.add(sb.toString());
+            sb.setLength(0);
+        }
+    }
+
+    private Map<D, Float> matchClause(final String clause) {
+        if (clause.startsWith("\"")) {
+            return matchPhrase(tokenize(clause));
+        } else if (clause.indexOf('*') >= 0 || clause.indexOf('?') >= 0) {
+            return matchWildcard(clause.toLowerCase());
+        } else {
+            // a term which the tokenizer breaks apart, such as "moth-eaten", is treated as a phrase
+            return matchPhrase(tokenize(clause));
+        }
+    }
+
+    private Map<D, Float> matchPhrase(final String[] tokens) {
+        if (0 == tokens.length) {
+            return new HashMap<>();
+        }
+
+        Map<D, Float> result = matchTerm(tokens[0]);
+        for (int i = 1; i < tokens.length && !result.isEmpty(); i++) {
+            result = intersect(result, matchTerm(tokens[i]));
+        }
+
+        if (tokens.length > 1) {
+            result.keySet().removeIf(document -> !containsPhrase(document, tokens));
+        }
+
+        return result;
+    }
+
+    private boolean containsPhrase(final D document, final String[] phrase) {
+        for (int start : postings.get(phrase[0]).get(document)) {
+            boolean match = true;
+            for (int i = 1; i < phrase.length; i++) {
+                List<Integer> positions = postings.get(phrase[i]).get(document);
+                if (!positions.contains(start + i)) {
+                    match = false;
+                    break;
+                }
+            }
+            if (match) return true;
+        }
+
+        return false;
+    }
+
+    private Map<D, Float> matchWildcard(final String pattern) {
+        Iterable<String> matchingTerms;
+
+        int firstWildcard = firstWildcardIndex(pattern);
+        if (firstWildcard == pattern.length() - 1 && pattern.endsWith("*")) {
+            // a simple prefix query; use the sorted term dictionary
+            String prefix = pattern.substring(0, firstWildcard);
+            matchingTerms = prefix.isEmpty()
+                    ? terms
+                    : terms.subSet(prefix, true, prefix + Character.MAX_VALUE, false);
+        } else {
+            Pattern regex = toRegex(pattern);
+            List<String> matched = new LinkedList<>();
+            for (String term : terms) {
+                if (regex.matcher(term).matches()) {
+                    matched.add(term);
+                }
+            }
+            matchingTerms = matched;
+        }
+
+        Map<D, Float> result = new HashMap<>();
+        for (String term : matchingTerms) {
+            matchTerm(term).forEach((document, score) -> result.merge(document, score, Float::sum));
+        }
+        return result;
+    }
+
+    private Map<D, Float> matchTerm(final String term) {
+        Map<D, List<Integer>> posting = postings.get(term);
+        if (null == posting) {
+            return new HashMap<>();
+        }
+
+        float idf = idf(posting.size());
+        Map<D, Float> result = new HashMap<>();
+        for (Map.Entry<D, List<Integer>> e : posting.entrySet()) {
+            float tf = (float) Math.sqrt(e.getValue().size());
+            float norm = (float) (1.0 / Math.sqrt(tokensByDocument.get(e.getKey()).length));
+            result.put(e.getKey(), tf * idf * idf * norm);
+        }
+
+        return result;
+    }
+
+    private float idf(final int documentFrequency) {
+        return (float) (1.0 + Math.log((double) tokensByDocument.size() / (documentFrequency + 1)));
+    }
+
+    private Map<D, Float> intersect(final Map<D, Float> first, final Map<D, Float> second) {
+        Map<D, Float> smaller = first.size() <= second.size() ? first : second;
+        Map<D, Float> larger = smaller == first ? second : first;
+
+        Map<D, Float> result = new HashMap<>();
+        for (Map.Entry<D, Float> e : smaller.entrySet()) {
+            Float other = larger.get(e.getKey());
+            if (null != other) {
+                result.put(e.getKey(), e.getValue() + other);
+            }
+        }
+
+        return result;
+    }
+
+    private static int firstWildcardIndex(final String pattern) {
+        int star = pattern.indexOf('*'), question = pattern.indexOf('?');
+        return star < 0 ? question : question < 0 ? star : Math.min(star, question);
+    }
+
+    private static Pattern toRegex(final String pattern) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : pattern.toCharArray()) {
+            switch (c) {
+                case '*':
+                    sb.append(".*");
+                    break;
+                case '?':
+                    sb.append('.');
+                    break;
+                default:
+                    sb.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+
+        return Pattern.compile(sb.toString());
+    }
+}
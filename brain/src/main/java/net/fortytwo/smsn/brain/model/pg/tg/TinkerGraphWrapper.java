@@ -1,22 +1,54 @@
 package net.fortytwo.smsn.brain.model.pg.tg;
 
 import com.google.common.collect.Iterators;
+import net.fortytwo.smsn.SemanticSynchrony;
 import net.fortytwo.smsn.brain.model.pg.GraphWrapper;
 import net.fortytwo.smsn.brain.model.pg.IndexWrapper;
 import net.fortytwo.smsn.brain.model.pg.Sortable;
 import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.VertexProperty;
 import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class TinkerGraphWrapper extends GraphWrapper {
+
+    // TinkerGraph indexes property values, but neither labels nor the mere presence of a property,
+    // so these are kept in memory alongside the graph
+    private final Set<Vertex> noteVertices = ConcurrentHashMap.newKeySet();
+    private final Map<String, Set<Vertex>> noteVerticesByKey = new ConcurrentHashMap<>();
+
     public TinkerGraphWrapper(TinkerGraph graph) {
         super(graph);
+
+        // notes which are already in the graph, e.g. if it has been read from a file.
+        // The full-text indices are kept in memory, so they are filled in bulk from the same pass
+        Map<Vertex, Object> titles = new HashMap<>();
+        Map<Vertex, Object> acronyms = new HashMap<>();
+        graph.vertices().forEachRemaining(vertex -> {
+            if (SemanticSynchrony.VertexLabels.NOTE.equals(vertex.label())) {
+                updateNoteIndex(vertex, true);
+                for (String key : NOTE_EXISTENCE_KEYS) {
+                    if (vertex.property(key).isPresent()) {
+                        updateExistenceIndex(vertex, key, true);
+                    }
+                }
+                addValue(vertex, SemanticSynchrony.PropertyKeys.TITLE, titles);
+                addValue(vertex, SemanticSynchrony.PropertyKeys.ACRONYM, acronyms);
+            }
+        });
+        getIndex(SemanticSynchrony.PropertyKeys.TITLE).addAll(titles);
+        getIndex(SemanticSynchrony.PropertyKeys.ACRONYM).addAll(acronyms);
     }
 
     @Override
     protected IndexWrapper createFullTextIndex(String key) {
-        return new TinkerIndexWrapper(key);
+        return new TinkerFullTextIndexWrapper(key);
     }
 
     @Override
@@ -30,7 +62,44 @@ public class TinkerGraphWrapper extends GraphWrapper {
 
     @Override
     protected void updateIndex(Vertex updatedVertex, String key, Object value) {
-        // do nothing
+        IndexWrapper index = getIndex(key);
+        if (null == value) {
+            index.remove(updatedVertex, key);
+        } else {
+            index.add(updatedVertex, key, value);
+        }
+    }
+
+    @Override
+    public Iterator<Vertex> getNoteVertices() {
+        return noteVertices.iterator();
+    }
+
+    @Override
+    public Iterator<Vertex> getNoteVerticesHavingProperty(String key) {
+        Set<Vertex> vertices = noteVerticesByKey.get(key);
+        return null == vertices ? Collections.emptyIterator() : vertices.iterator();
+    }
+
+    @Override
+    protected void updateNoteIndex(Vertex vertex, boolean present) {
+        if (present) {
+            noteVertices.add(vertex);
+        } else {
+            noteVertices.remove(vertex);
+        }
+    }
+
+    @Override
+    protected void updateExistenceIndex(Vertex vertex, String key, boolean present) {
+        if (present) {
+            noteVerticesByKey.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(vertex);
+        } else {
+            Set<Vertex> vertices = noteVerticesByKey.get(key);
+            if (null != vertices) {
+                vertices.remove(vertex);
+            }
+        }
     }
 
     @Override
@@ -53,6 +122,13 @@ public class TinkerGraphWrapper extends GraphWrapper {
         // do nothing
     }
 
+    private static void addValue(final Vertex vertex, final String key, final Map<Vertex, Object> valuesByVertex) {
+        VertexProperty<Object> property = vertex.property(key);
+        if (property.isPresent()) {
+            valuesByVertex.put(vertex, property.value());
+        }
+    }
+
     private boolean hasVertexIndex(final String key) {
         return ((TinkerGraph) graph).getIndexedKeys(Vertex.class).contains(key);
     }
@@ -83,4 +159,33 @@ public class TinkerGraphWrapper extends GraphWrapper {
             // do nothing
         }
     }
+
+    private class TinkerFullTextIndexWrapper extends IndexWrapper {
+        private final InvertedIndex<Vertex> index = new InvertedIndex<>();
+
+        public TinkerFullTextIndexWrapper(String key) {
+            super(key);
+        }
+
+        @Override
+        public Iterator<Sortable<Vertex, Float>> get(String value) {
+            Map<Vertex, Float> hits = index.search(value);
+            return Iterators.transform(hits.entrySet().iterator(), e -> new Sortable<>(e.getKey(), e.getValue()));
+        }
+
+        @Override
+        public void add(Vertex vertex, String key, Object value) {
+            index.put(vertex, value.toString());
+        }
+
+        @Override
+        public void addAll(Map<Vertex, Object> valuesByVertex) {
+            index.putAll(valuesByVertex);
+        }
+
+        @Override
+        public void remove(Vertex vertex, String key) {
+            index.remove(vertex);
+        }
+    }
 }
@@ -23,6 +23,7 @@ import net.fortytwo.smsn.brain.model.entities.TreeNode;
 import net.fortytwo.smsn.brain.util.ListDiff;
 import org.parboiled.common.Preconditions;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -30,8 +31,6 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
-import java.util.Queue;
 import java.util.Set;
 import java.util.function.Predicate;
 import java.util.logging.Logger;
@@ -81,7 +80,7 @@ public class TreeViews {
             brain.getActivityLog().logView(root);
         }
 
-        return viewInternal(root, height, filter, style, true, null);
+        return viewInternal(root, height, filter, style, true, null, new Adjacency(filter));
     }
 
     public TreeNode<Link> customView(final Iterable<Note> notes,
@@ -90,10 +89,11 @@ public class TreeViews {
         checkFilterArg(filter);
 
         TreeNode<Link> n = createTreeNode();
+        Adjacency adjacency = new Adjacency(filter);
 
         for (Note a : notes) {
             if (filter.test(a)) {
-                n.addChild(viewInternal(a, 0, filter, ViewStyle.Basic.Forward.getStyle(), true, null));
+                n.addChild(viewInternal(a, 0, filter, ViewStyle.Basic.Forward.getStyle(), true, null, adjacency));
             }
         }
 
@@ -110,23 +110,25 @@ public class TreeViews {
      * @param filter a collection of criteria for notes and links.
      *               Notes and links which do not meet the criteria are not to be affected by the update.
      * @param style  the adjacency style of the view
+     * @return the applied plan of the update, which counts the changes made to the graph
      * @throws InvalidUpdateException if the update cannot be performed as specified
      */
-    public void update(final TreeNode<Link> root,
-                       final int height,
-                       final Filter filter,
-                       final ViewStyle style) {
+    public UpdatePlan update(final TreeNode<Link> root,
+                             final int height,
+                             final Filter filter,
+                             final ViewStyle style) {
 
         checkRootArg(root);
         checkHeightArg(height, 0);
         checkFilterArg(filter);
         checkStyleArg(style, true);
 
-        Map<AtomId, Note> cache = createCache();
+        // nothing is written until the changes for the whole tree are known
+        UpdatePlan plan = new UpdatePlan(brain, filter);
+        planNote(root, height, filter, style, plan);
+        plan.apply();
 
-        updateInternal(root, height, filter, style, cache);
-
-        brain.getTopicGraph().notifyOfUpdate();
+        return plan;
     }
 
     /**
@@ -172,8 +174,9 @@ public class TreeViews {
                 throw new IllegalStateException("unexpected query type: " + queryType);
         }
 
+        Adjacency adjacency = new Adjacency(filter);
         results.stream().filter(filter).forEachOrdered(a -> {
-            TreeNode<Link> n = viewInternal(a, height - 1, filter, style, true, null);
+            TreeNode<Link> n = viewInternal(a, height - 1, filter, style, true, null, adjacency);
             result.addChild(n);
         });
 
@@ -217,16 +220,8 @@ public class TreeViews {
         TreeNode<Link> result = createTreeNode();
         result.getValue().setLabel("priority queue with up to " + maxResults + " results");
 
-        Queue<Note> queue = priorities.getQueue();
-        int i = 0;
-        for (Note a : queue) {
-            if (filter.test(a)) {
-                result.addChild(toTreeNode(a, true, true));
-
-                if (++i >= maxResults) {
-                    break;
-                }
-            }
+        for (Note a : priorities.getTopNotes(maxResults, filter)) {
+            result.addChild(toTreeNode(a, true, true));
         }
 
         return result;
@@ -279,10 +274,6 @@ public class TreeViews {
         if (null != cache) cache.put(Note.getId(note), note);
     }
 
-    private final Comparator<TreeNode<Link>> compareById = (a, b) -> null == getId(a)
-            ? (null == getId(b) ? 0 : -1)
-            : (null == getId(b) ? 1 : getId(a).value.compareTo(getId(b).value));
-
     private final Comparator<TreeNode<Link>> compareByProperties = (a, b) -> {
         int cmp = getWeight(b).compareTo(getWeight(a));
 
@@ -293,60 +284,52 @@ public class TreeViews {
         return cmp;
     };
 
-    private int countChildren(final Note root,
-                              final Filter filter,
-                              final ViewStyle style) {
-        // If the note is invisible, we can't see whether it has children.
-        if (!filter.test(root)) {
-            return 0;
-        }
-
-        // If the note is visible, we can see its children (although we will not be able to read the titles of any
-        // children which are themselves invisible).
-        int count = 0;
-        for (Note ignored : style.getLinked(root, filter)) count++;
-        return count;
-    }
-
     private TreeNode<Link> viewInternal(final Note root,
                                         final int height,
                                         final Filter filter,
                                         final ViewStyle style,
                                         final boolean getProperties,
-                                        final Map<AtomId, Note> cache) {
+                                        final Map<AtomId, Note> cache,
+                                        final Adjacency adjacency) {
         Preconditions.checkNotNull(root);
 
-        TreeNode<Link> note = toTreeNode(root, filter.test(root), getProperties);
+        boolean isVisible = filter.test(root);
+        TreeNode<Link> note = toTreeNode(root, isVisible, getProperties);
 
         if (height > 0) {
-            for (Note target : style.getLinked(root, filter)) {
-                if (filter.test(target)) {
-                    addToCache(target, cache);
-                    TreeNode<Link> cn = viewInternal(target, height - 1, filter, style, getProperties, cache);
-                    note.addChild(cn);
-                }
+            for (Note target : adjacency.getLinked(root, style)) {
+                addToCache(target, cache);
+                TreeNode<Link> cn = viewInternal(target, height - 1, filter, style, getProperties, cache, adjacency);
+                note.addChild(cn);
             }
         }
 
-        // note: some duplicated work
-        note.setNumberOfChildren(countChildren(root, filter, style));
-        note.setNumberOfParents(countChildren(root, filter, style.getInverse()));
+        // If the note is invisible, we can't see whether it has children.
+        // If the note is visible, we can see its children (although we will not be able to read the titles of any
+        // children which are themselves invisible).
+        note.setNumberOfChildren(isVisible ? adjacency.getLinked(root, style).size() : 0);
+        note.setNumberOfParents(isVisible ? adjacency.getLinked(root, style.getInverse()).size() : 0);
 
         return note;
     }
 
-    private void updateInternal(final TreeNode<Link> rootNode,
-                                final int height,
-                                final Filter filter,
-                                final ViewStyle style,
-                                final Map<AtomId, Note> cache) {
+    private void planNote(final TreeNode<Link> rootNode,
+                          final int height,
+                          final Filter filter,
+                          final ViewStyle style,
+                          final UpdatePlan plan) {
+
+        if (null == getId(rootNode)) {
+            throw new InvalidUpdateException("note has no id");
+        }
 
-        Note rootNote = getRequiredNoteForNode(rootNode, cache);
+        // a note which does not exist is created, but without default properties
+        UpdatePlan.NotePlan notePlan = plan.getPlan(getId(rootNode), false);
 
         // we are pre-ordered w.r.t. setting of properties
-        setNoteProperties(rootNode, rootNote);
+        planProperties(rootNode, notePlan, plan);
 
-        updateChildren(rootNode, rootNote, height, filter, style, cache);
+        planChildren(rootNode, notePlan, height, filter, style, plan);
     }
 
     public static <T> int indexOfNthVisible(final ListNode<T> list, final int position, final Predicate<T> filter) {
@@ -363,89 +346,96 @@ public class TreeViews {
         return index;
     }
 
-    private void addNoteAt(final Note parent, final Note child, final int position, final Filter filter) {
-        parent.addChildAt(child, indexOfNthVisible(parent.getChildren(), position, filter));
-    }
-
-    private void removeNoteAt(final Note parent, final int position, final Filter filter) {
-        parent.deleteChildAt(indexOfNthVisible(parent.getChildren(), position, filter));
-    }
-
-    private void updateChildren(final TreeNode<Link> rootNode,
-                                final Note rootNote,
-                                final int height,
-                                final Filter filter,
-                                final ViewStyle style,
-                                final Map<AtomId, Note> cache) {
+    private void planChildren(final TreeNode<Link> rootNode,
+                              final UpdatePlan.NotePlan notePlan,
+                              final int height,
+                              final Filter filter,
+                              final ViewStyle style,
+                              final UpdatePlan plan) {
 
-        if (0 >= height || !filter.test(rootNote)) {
+        if (0 >= height || !plan.isVisible(notePlan.getId())) {
             return;
         }
 
         Set<AtomId> childrenAdded = new HashSet<>();
         Set<AtomId> childrenCreated = new HashSet<>();
 
-        ListDiff.DiffEditor<TreeNode<Link>> editor = new ListDiff.DiffEditor<TreeNode<Link>>() {
-            @Override
-            public void add(final int position,
-                            final TreeNode<Link> node) {
-                if (!style.addOnUpdate()) {
-                    return;
-                }
-
-                Note note = getNoteForNode(node, filter, childrenCreated, cache);
-
-                addNoteAt(rootNote, note, position, filter);
-
-                childrenAdded.add(Note.getId(note));
-
-                // log this activity
-                if (null != brain.getActivityLog()) {
-                    brain.getActivityLog().logLink(rootNote, note);
-                }
+        List<AtomId> current = plan.getChildren(notePlan);
+        List<AtomId> before = new ArrayList<>(current.size());
+        for (AtomId id : current) {
+            if (plan.isVisible(id)) {
+                before.add(id);
+            }
+        }
+        List<TreeNode<Link>> afterNodes = toJavaList(rootNode.getChildren());
+        List<AtomId> after = new ArrayList<>(afterNodes.size());
+        for (TreeNode<Link> n : afterNodes) {
+            after.add(getId(n));
+        }
+        List<ListDiff.Edit<AtomId>> diff = ListDiff.shortestEditScript(before, after, UpdatePlan.compareIds);
+
+        // apply the diff of visible children to the list of all children. Each run of invisible children is copied
+        // before the edit which follows it, so invisible children keep their places among the visible ones,
+        // and a new child goes immediately before the next visible child, or at the very end if there is none
+        List<AtomId> result = new ArrayList<>(current.size() + after.size());
+        int i = 0, j = 0;
+        boolean changed = false;
+        for (ListDiff.Edit<AtomId> edit : diff) {
+            while (i < current.size() && !plan.isVisible(current.get(i))) {
+                result.add(current.get(i++));
             }
 
-            @Override
-            public void delete(final int position,
-                               final TreeNode<Link> note) throws InvalidGraphException {
-                if (!style.deleteOnUpdate()) {
-                    return;
-                }
-
-                removeNoteAt(rootNote, position, filter);
-
-                // log this activity
-                if (null != brain.getActivityLog()) {
-                    Note a = getNoteById(getId(note), cache);
-                    if (null != a) {
-                        brain.getActivityLog().logUnlink(rootNote, a);
+            switch (edit.getOperation()) {
+                case Keep:
+                    result.add(current.get(i++));
+                    j++;
+                    break;
+                case Delete:
+                    if (style.deleteOnUpdate()) {
+                        changed = true;
+                    } else {
+                        result.add(current.get(i));
                     }
-                }
+                    i++;
+                    break;
+                case Insert:
+                    TreeNode<Link> node = afterNodes.get(j++);
+                    if (style.addOnUpdate()) {
+                        AtomId id = getId(node);
+                        if (null == id || !plan.exists(id)) {
+                            if (null == id) {
+                                id = SemanticSynchrony.createRandomId();
+                                setId(node, id);
+                            }
+                            plan.getPlan(id, true);
+                            childrenCreated.add(id);
+                        }
+                        result.add(id);
+                        changed = true;
+
+                        childrenAdded.add(id);
+                    }
+                    break;
             }
-        };
-
-        List<TreeNode<Link>> before = toJavaList(viewInternal(rootNote, 1, filter, style, false, cache).getChildren());
-        List<TreeNode<Link>> after = toJavaList(rootNode.getChildren());
-        List<TreeNode<Link>> lcs = ListDiff.longestCommonSubsequence(before, after, compareById);
+        }
+        result.addAll(current.subList(i, current.size()));
 
-        // we are pre-ordered w.r.t. updating lists of children
-        ListDiff.applyDiff(before, after, lcs, compareById, editor);
+        if (changed) {
+            plan.setChildren(notePlan, result);
+        }
 
-        for (TreeNode<Link> n : toJavaList(rootNode.getChildren())) {
+        for (TreeNode<Link> n : afterNodes) {
             // upon adding children:
             // for a child which is a newly created note, also add grandchildren to one level, possibly recursively
             // if a new child is a new note, only update the child, not the grandchildren
             // if a child is not new, update both the child and the grandchildren with decreasing height
-            int h = null == getId(rootNode)
-                    ? height - 1
-                    : childrenCreated.contains(getId(n))
+            int h = childrenCreated.contains(getId(n))
                     ? 1
                     : childrenAdded.contains(getId(n))
                     ? 0
                     : height - 1;
 
-            // TODO: verify that this can result in multiple log events per call to update()
-            updateInternal(n, h, filter, style, cache);
+            planNote(n, h, filter, style, plan);
         }
     }
 
@@ -454,79 +444,9 @@ public class TreeViews {
         return ListNode.toJavaList(list);
     }
 
-    private Map<AtomId, Note> createCache() {
-        return new HashMap<>();
-    }
-
-    // avoids unnecessary (and costly) index lookups by using a cache of already-retrieved notes
-    private Note getNoteById(final AtomId id, final Map<AtomId, Note> cache) {
-        Note note = cache.get(id);
-        if (null == note) {
-            Optional<Note> opt = brain.getTopicGraph().getNoteById(id);
-            if (opt.isPresent()) {
-                note = opt.get();
-                cache.put(id, note);
-            }
-        }
-
-        return note;
-    }
-
-    // retrieve or create an note for the node
-    // notes are only created if they appear under a parent which is also an note
-    private Note getNoteForNode(final TreeNode<Link> node,
-                                final Filter filter,
-                                final Set<AtomId> created,
-                                final Map<AtomId, Note> cache) {
-
-        AtomId id = getId(node);
-        Note note = null == id ? null : getNoteById(id, cache);
-
-        if (null == note) {
-            note = createNote(getId(node), filter);
-            created.add(Note.getId(note));
-            cache.put(Note.getId(note), note);
-        }
-        if (null == getId(node)) {
-            setId(node, Note.getId(note));
-        }
-
-        return note;
-    }
-
-    private Note getRequiredNoteForNode(final TreeNode<Link> node, final Map<AtomId, Note> cache) {
-        if (null == getId(node)) {
-            throw new InvalidUpdateException("note has no id");
-        }
-
-        AtomId id = getId(node);
-        Note note = getNoteById(id, cache);
-        if (null == note) {
-            note = brain.getTopicGraph().createNote(id);
-            //throw new InvalidUpdateException("no such note: " + getId(node));
-        }
-
-        return note;
-    }
-
-    private Note createNote(final AtomId id,
-                            final Filter filter) {
-        Note a = brain.getTopicGraph().createNoteWithProperties(filter, id);
-        String source = filter.getDefaultSource();
-        if (null != source) {
-            Note.setSource(a, source);
-        }
-
-        if (null != brain.getActivityLog()) {
-            brain.getActivityLog().logCreate(a);
-        }
-
-        return a;
-    }
-
     private boolean isAdjacent(final Note a, final boolean includeChildren, final boolean includeParents) {
-        return (includeChildren && null != a.getChildren())
-                || (includeParents && a.getFirstOf().size() > 0);
+        return (includeChildren && brain.getTopicGraph().getNumberOfChildren(a) > 0)
+                || (includeParents && brain.getTopicGraph().getNumberOfParents(a) > 0);
     }
 
     private TreeNode<Link> findNotes(final Filter filter,
@@ -539,10 +459,11 @@ public class TreeViews {
         }
 
         TreeNode<Link> result = createTreeNode();
+        Adjacency adjacency = new Adjacency(filter);
 
         for (Note a : brain.getTopicGraph().getAllNotes()) {
             if (filter.test(a) && !isAdjacent(a, includeChildren, includeParents)) {
-                TreeNode<Link> n = viewInternal(a, height, filter, style, true, null);
+                TreeNode<Link> n = viewInternal(a, height, filter, style, true, null, adjacency);
                 result.addChild(n);
             }
         }
@@ -562,36 +483,32 @@ public class TreeViews {
         node.setChildren(ListNodeDTO.fromArray(array));
     }
 
-    private void setNoteProperties(final TreeNode<Link> fromNode,
-                                   final Note toNote)
+    private void planProperties(final TreeNode<Link> fromNode,
+                                final UpdatePlan.NotePlan toNote,
+                                final UpdatePlan plan)
             throws InvalidGraphException, InvalidUpdateException {
 
         for (String key : Note.propertiesByKey.keySet()) {
-            setNoteProperty(fromNode, toNote, key);
-        }
-
-        if (null != brain.getActivityLog()) {
-            brain.getActivityLog().logSetProperties(toNote);
+            // the id of the note is fixed by the node
+            if (!key.equals(SemanticSynchrony.PropertyKeys.ID)) {
+                planProperty(fromNode, toNote, key, plan);
+            }
         }
     }
 
-    private <T> void setNoteProperty(
-            final TreeNode<Link> fromNode, final Note toNote, final String key) {
+    private <T> void planProperty(final TreeNode<Link> fromNode,
+                                  final UpdatePlan.NotePlan toNote,
+                                  final String key,
+                                  final UpdatePlan plan) {
 
         Page page = fromNode.getValue().getPage();
-        Property<Note, T> noteProp = (Property<Note, T>) Note.propertiesByKey.get(key);
         Property<Page, T> pageProp = (Property<Page, T>) Page.propertiesByKey.get(key);
         T value = null;
         if (null == pageProp) {
-            switch (key) {
-                case SemanticSynchrony.PropertyKeys.TITLE:
-                    value = (T) fromNode.getValue().getLabel();
-                    break;
-                case SemanticSynchrony.PropertyKeys.ID:
-                    value = (T) fromNode.getValue().getTarget().getId().value;
-                    break;
-                default:
-                    throw new InvalidUpdateException("no such property: " + key);
+            if (key.equals(SemanticSynchrony.PropertyKeys.TITLE)) {
+                value = (T) fromNode.getValue().getLabel();
+            } else {
+                throw new InvalidUpdateException("no such property: " + key);
             }
         } else {
             if (null != page) {
@@ -603,7 +520,7 @@ public class TreeViews {
             if (value.equals(WikiFormat.CLEARME)) {
                 value = null;
             }
-            noteProp.getSetter().accept(toNote, value);
+            plan.setProperty(toNote, key, value);
         }
     }
 
@@ -792,6 +709,40 @@ public class TreeViews {
         return node;
     }
 
+    // memoizes the visible notes adjacent to each note in the course of a single request,
+    // so that no list of children or set of parents is traversed more than once per view
+    private class Adjacency {
+        private final Filter filter;
+        private final Map<Note, List<Note>> forward = new HashMap<>();
+        private final Map<Note, List<Note>> backward = new HashMap<>();
+
+        private Adjacency(final Filter filter) {
+            this.filter = filter;
+        }
+
+        private List<Note> getLinked(final Note root, final ViewStyle style) {
+            boolean isForward = style.getDirection().equals(ViewStyle.Direction.Forward);
+            Map<Note, List<Note>> memo = isForward ? forward : backward;
+
+            List<Note> linked = memo.get(root);
+            if (null == linked) {
+                // the raw degree is cached by the graph, and spares us a traversal in the common case of a leaf
+                int degree = isForward
+                        ? brain.getTopicGraph().getNumberOfChildren(root)
+                        : brain.getTopicGraph().getNumberOfParents(root);
+                linked = new LinkedList<>();
+                if (degree > 0) {
+                    for (Note target : style.getLinked(root, filter)) {
+                        linked.add(target);
+                    }
+                }
+                memo.put(root, linked);
+            }
+
+            return linked;
+        }
+    }
+
     // TODO: switch to a true linked-list model so that we won't have to create temporary collections for iteration
     // TODO: see also BrainGraph.toList
     public static Iterable<Note> toFilteredIterable(final ListNode<Note> list, final Filter filter) {
@@ -0,0 +1,363 @@
+package net.fortytwo.smsn.brain.query;
+
+import net.fortytwo.smsn.SemanticSynchrony;
+import net.fortytwo.smsn.brain.ActivityLog;
+import net.fortytwo.smsn.brain.AtomId;
+import net.fortytwo.smsn.brain.Brain;
+import net.fortytwo.smsn.brain.model.Filter;
+import net.fortytwo.smsn.brain.model.Property;
+import net.fortytwo.smsn.brain.model.TopicGraph;
+import net.fortytwo.smsn.brain.model.entities.ListNode;
+import net.fortytwo.smsn.brain.model.entities.Note;
+import net.fortytwo.smsn.brain.util.ListDiff;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The set of writes which an update makes to the graph.
+ * A plan is computed for the whole of an incoming tree before anything is written,
+ * and holds only what differs from the graph: properties which already have the given values,
+ * and children which are already in place, are not written at all.
+ * The plan is then applied in a single batch: notes are created first, then properties are set,
+ * and finally lists of children are rewritten, each in a single pass.
+ */
+public class UpdatePlan {
+
+    static final Comparator<AtomId> compareIds = (a, b) -> null == a
+            ? (null == b ? 0 : -1)
+            : (null == b ? 1 : a.value.compareTo(b.value));
+
+    private final Brain brain;
+    private final Filter filter;
+
+    // planned changes, in the order in which notes were first encountered
+    private final Map<AtomId, NotePlan> plansById = new LinkedHashMap<>();
+    // avoids unnecessary (and costly) index lookups by caching already-retrieved notes
+    private final Map<AtomId, Note> notesById = new HashMap<>();
+
+    private int notesCreated;
+    private int notesChanged;
+    private int propertiesSet;
+    private int childrenInserted;
+    private int childrenDeleted;
+    private boolean applied;
+
+    UpdatePlan(final Brain brain, final Filter filter) {
+        this.brain = brain;
+        this.filter = filter;
+    }
+
+    /**
+     * @return the number of notes created by the update
+     */
+    public int getNotesCreated() {
+        return notesCreated;
+    }
+
+    /**
+     * @return the number of pre-existing notes whose properties were changed by the update
+     */
+    public int getNotesChanged() {
+        return notesChanged;
+    }
+
+    /**
+     * @return the number of property values written, including those of new notes
+     */
+    public int getPropertiesSet() {
+        return propertiesSet;
+    }
+
+    /**
+     * @return the number of children added to notes
+     */
+    public int getChildrenInserted() {
+        return childrenInserted;
+    }
+
+    /**
+     * @return the number of children removed from notes
+     */
+    public int getChildrenDeleted() {
+        return childrenDeleted;
+    }
+
+    /**
+     * @return whether applying the plan changed the graph
+     */
+    public boolean hasChanges() {
+        return notesCreated + propertiesSet + childrenInserted + childrenDeleted > 0;
+    }
+
+    /**
+     * @return a summary of the changes made by the update
+     */
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        json.put("notesCreated", notesCreated);
+        json.put("notesChanged", notesChanged);
+        json.put("propertiesSet", propertiesSet);
+        json.put("childrenInserted", childrenInserted);
+        json.put("childrenDeleted", childrenDeleted);
+        return json;
+    }
+
+    boolean exists(final AtomId id) {
+        return plansById.containsKey(id) || null != getNote(id);
+    }
+
+    /**
+     * Finds the plan for a note, planning the creation of the note if it does not already exist
+     *
+     * @param withProperties whether a new note receives the default creation time, source and weight,
+     *                       as opposed to no properties other than its id
+     */
+    NotePlan getPlan(final AtomId id, final boolean withProperties) {
+        NotePlan plan = plansById.get(id);
+        if (null == plan) {
+            Note note = getNote(id);
+            plan = null == note ? new NotePlan(id, withProperties) : new NotePlan(id, note);
+            if (null == note && withProperties) {
+                String source = filter.getDefaultSource();
+                if (null != source) {
+                    plan.properties.put(SemanticSynchrony.PropertyKeys.SOURCE, source);
+                }
+                plan.properties.put(SemanticSynchrony.PropertyKeys.WEIGHT, filter.getDefaultWeight());
+            }
+            plansById.put(id, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * Plans a property value for a note, unless the note already has that value.
+     * Of several values planned for the same property, the last one wins.
+     */
+    <T> void setProperty(final NotePlan plan, final String key, final T value) {
+        if (plan.isNew) {
+            plan.properties.put(key, value);
+            return;
+        }
+
+        Property<Note, T> property = (Property<Note, T>) Note.propertiesByKey.get(key);
+        T current = property.getGetter().apply(plan.note);
+        // clearing a property which has a default value restores the default
+        if (Objects.equals(null == value ? property.getDefaultValue() : value, current)) {
+            plan.properties.remove(key);
+        } else {
+            plan.properties.put(key, value);
+        }
+    }
+
+    /**
+     * @return the planned children of a note, including those which are not visible
+     */
+    List<AtomId> getChildren(final NotePlan plan) {
+        if (null != plan.children) {
+            return plan.children;
+        }
+
+        List<AtomId> ids = new ArrayList<>();
+        for (Note child : getOriginalChildren(plan)) {
+            ids.add(Note.getId(child));
+        }
+        return ids;
+    }
+
+    void setChildren(final NotePlan plan, final List<AtomId> children) {
+        plan.children = children;
+    }
+
+    /**
+     * @return whether a note, with any planned changes to its source and weight, is visible through the filter
+     */
+    boolean isVisible(final AtomId id) {
+        NotePlan plan = plansById.get(id);
+        if (null == plan) {
+            Note note = getNote(id);
+            return null != note && filter.test(note);
+        }
+
+        if (!plan.isNew
+                && !plan.properties.containsKey(SemanticSynchrony.PropertyKeys.SOURCE)
+                && !plan.properties.containsKey(SemanticSynchrony.PropertyKeys.WEIGHT)) {
+            return filter.test(plan.note);
+        }
+
+        String source = (String) plan.getValue(SemanticSynchrony.PropertyKeys.SOURCE);
+        Float weight = (Float) plan.getValue(SemanticSynchrony.PropertyKeys.WEIGHT);
+        return filter.test(Filter.getSourceIndex(source), weight);
+    }
+
+    /**
+     * Writes all planned changes to the graph. A plan may be applied only once.
+     */
+    void apply() {
+        if (applied) {
+            throw new IllegalStateException("update has already been applied");
+        }
+        applied = true;
+
+        TopicGraph graph = brain.getTopicGraph();
+        ActivityLog log = brain.getActivityLog();
+
+        // create notes first, so that they are available as children
+        for (NotePlan plan : plansById.values()) {
+            if (plan.isNew) {
+                plan.note = plan.withProperties
+                        ? graph.createNoteWithProperties(filter, plan.id)
+                        : graph.createNote(plan.id);
+                notesById.put(plan.id, plan.note);
+                notesCreated++;
+
+                if (null != log && plan.withProperties) {
+                    log.logCreate(plan.note);
+                }
+            }
+        }
+
+        for (NotePlan plan : plansById.values()) {
+            if (!plan.properties.isEmpty()) {
+                for (Map.Entry<String, Object> e : plan.properties.entrySet()) {
+                    Property<Note, Object> property = (Property<Note, Object>) Note.propertiesByKey.get(e.getKey());
+                    property.getSetter().accept(plan.note, e.getValue());
+                }
+                propertiesSet += plan.properties.size();
+                if (!plan.isNew) {
+                    notesChanged++;
+                }
+
+                if (null != log) {
+                    log.logSetProperties(plan.note);
+                }
+            }
+        }
+
+        for (NotePlan plan : plansById.values()) {
+            if (null != plan.children) {
+                applyChildren(plan, log);
+            }
+        }
+
+        if (hasChanges()) {
+            graph.notifyOfUpdate();
+        }
+    }
+
+    private void applyChildren(final NotePlan plan, final ActivityLog log) {
+        // a note may have been planned more than once, so its children are diffed only in their final state
+        List<Note> before = getOriginalChildren(plan);
+        List<AtomId> beforeIds = new ArrayList<>(before.size());
+        for (Note child : before) {
+            beforeIds.add(Note.getId(child));
+        }
+
+        List<ListDiff.Edit<AtomId>> diff = ListDiff.shortestEditScript(beforeIds, plan.children, compareIds);
+        List<ListDiff.Edit<Note>> script = new ArrayList<>(diff.size());
+        boolean changed = false;
+        int i = 0;
+        for (ListDiff.Edit<AtomId> edit : diff) {
+            switch (edit.getOperation()) {
+                case Keep:
+                    script.add(new ListDiff.Edit<>(ListDiff.Operation.Keep, before.get(i++)));
+                    break;
+                case Delete:
+                    Note deleted = before.get(i++);
+                    script.add(new ListDiff.Edit<>(ListDiff.Operation.Delete, deleted));
+                    childrenDeleted++;
+                    changed = true;
+                    if (null != log) {
+                        log.logUnlink(plan.note, deleted);
+                    }
+                    break;
+                case Insert:
+                    Note inserted = getNote(edit.getValue());
+                    script.add(new ListDiff.Edit<>(ListDiff.Operation.Insert, inserted));
+                    childrenInserted++;
+                    changed = true;
+                    if (null != log) {
+                        log.logLink(plan.note, inserted);
+                    }
+                    break;
+            }
+        }
+
+        // rewrite the list of children in a single pass
+        if (changed) {
+            plan.note.editChildren(script);
+        }
+    }
+
+    private List<Note> getOriginalChildren(final NotePlan plan) {
+        if (null == plan.originalChildren) {
+            if (plan.isNew) {
+                plan.originalChildren = Collections.emptyList();
+            } else {
+                plan.originalChildren = ListNode.toJavaList(plan.note.getChildren());
+                for (Note child : plan.originalChildren) {
+                    notesById.put(Note.getId(child), child);
+                }
+            }
+        }
+        return plan.originalChildren;
+    }
+
+    private Note getNote(final AtomId id) {
+        Note note = notesById.get(id);
+        if (null == note) {
+            Optional<Note> opt = brain.getTopicGraph().getNoteById(id);
+            if (opt.isPresent()) {
+                note = opt.get();
+                notesById.put(id, note);
+            }
+        }
+        return note;
+    }
+
+    /**
+     * The planned changes to a single note
+     */
+    static class NotePlan {
+        private final AtomId id;
+        private final boolean isNew;
+        private final boolean withProperties;
+        private final Map<String, Object> properties = new LinkedHashMap<>();
+        private Note note;
+        private List<Note> originalChildren;
+        private List<AtomId> children;
+
+        private NotePlan(final AtomId id, final Note note) {
+            this.id = id;
+            this.note = note;
+            this.isNew = false;
+            this.withProperties = false;
+        }
+
+        private NotePlan(final AtomId id, final boolean withProperties) {
+            this.id = id;
+            this.isNew = true;
+            this.withProperties = withProperties;
+        }
+
+        AtomId getId() {
+            return id;
+        }
+
+        private Object getValue(final String key) {
+            Property<Note, ?> property = Note.propertiesByKey.get(key);
+            Object value = properties.containsKey(key)
+                    ? properties.get(key)
+                    : null == note ? null : property.getGetter().apply(note);
+            return null == value ? property.getDefaultValue() : value;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package net.fortytwo.smsn.brain.query;
+
+import net.fortytwo.smsn.brain.io.json.JsonText;
+import net.fortytwo.smsn.brain.metrics.Metrics;
+import net.fortytwo.smsn.brain.model.Filter;
+import net.fortytwo.smsn.brain.model.TopicGraph;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded, least-recently-used cache of views and search results, in their serialized JSON form,
+ * so that a repeated request skips both the traversal of the graph and the printing of the tree.
+ * Entries are valid only for the version of the graph at which they were computed;
+ * the whole cache is discarded as soon as the graph changes.
+ */
+public class ViewCache {
+
+    private final TopicGraph graph;
+    private final int capacity;
+
+    private final Map<List<Object>, JsonText> entries;
+    private long version;
+
+    /**
+     * @param graph    the graph from which views are computed
+     * @param capacity the maximum number of cached views. If 0, nothing is cached
+     */
+    public ViewCache(final TopicGraph graph, final int capacity) {
+        this.graph = graph;
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<List<Object>, JsonText>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<List<Object>, JsonText> eldest) {
+                return size() > capacity;
+            }
+        };
+        this.version = graph.getVersion();
+    }
+
+    /**
+     * Creates a key for a view
+     *
+     * @param kind       the kind of request, e.g. a view or a particular type of search
+     * @param subject    the root id of a view, or the query of a search
+     * @param height     the height of the view
+     * @param filter     the filter applied to the view
+     * @param style      the adjacency style of the view
+     * @param parameters any other parameters which affect the result, such as a title length cutoff
+     * @return a key which is equal to any other key created from equal arguments
+     */
+    public static List<Object> createKey(final String kind,
+                                         final String subject,
+                                         final int height,
+                                         final Filter filter,
+                                         final ViewStyle style,
+                                         final Object... parameters) {
+        Object[] key = new Object[9 + parameters.length];
+        key[0] = kind;
+        key[1] = subject;
+        key[2] = height;
+        key[3] = filter.getMinWeight();
+        key[4] = filter.getDefaultWeight();
+        key[5] = filter.getMinSource();
+        key[6] = filter.getDefaultSource();
+        key[7] = style.getName();
+        key[8] = parameters.length;
+        System.arraycopy(parameters, 0, key, 9, parameters.length);
+        return Arrays.asList(key);
+    }
+
+    /**
+     * @return the cached view for the given key, or null if there is none for the current version of the graph
+     */
+    public synchronized JsonText get(final List<Object> key) {
+        if (0 == capacity) {
+            return null;
+        }
+
+        checkVersion();
+        JsonText json = entries.get(key);
+        Metrics.getInstance().increment(null == json ? "viewCache.misses" : "viewCache.hits");
+        return json;
+    }
+
+    /**
+     * Caches a view. The view must have been computed from the current version of the graph,
+     * and must not be modified afterwards.
+     */
+    public synchronized void put(final List<Object> key, final JsonText json) {
+        if (0 == capacity) {
+            return;
+        }
+
+        checkVersion();
+        entries.put(key, json);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void checkVersion() {
+        long current = graph.getVersion();
+        if (current != version) {
+            entries.clear();
+            version = current;
+        }
+    }
+}
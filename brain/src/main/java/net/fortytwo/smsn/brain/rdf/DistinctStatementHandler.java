@@ -0,0 +1,153 @@
+package net.fortytwo.smsn.brain.rdf;
+
+import org.openrdf.model.Statement;
+import org.openrdf.model.Value;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+
+/**
+ * An RDF handler which passes each distinct statement on to another handler, exactly once, as it arrives.
+ * Rather than the statements themselves, only a 64-bit fingerprint of each statement is kept,
+ * in an open-addressing hash table, so that memory use is small and fixed per statement.
+ * Two distinct statements could in principle share a fingerprint, in which case the second would be dropped;
+ * for a graph of ten million statements, the chance of this is on the order of one in a million.
+ */
+public class DistinctStatementHandler implements RDFHandler {
+
+    private static final int INITIAL_CAPACITY = 1 << 16;
+
+    // zero marks an empty slot, so a fingerprint of zero is stored separately
+    private static final long EMPTY = 0;
+
+    private final RDFHandler handler;
+
+    private long[] fingerprints = new long[INITIAL_CAPACITY];
+    private int size;
+    private boolean hasZero;
+    private long duplicates;
+
+    public DistinctStatementHandler(final RDFHandler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * @return the number of distinct statements seen so far
+     */
+    public long getNumberOfStatements() {
+        return size + (hasZero ? 1 : 0);
+    }
+
+    /**
+     * @return the number of statements dropped as duplicates so far
+     */
+    public long getNumberOfDuplicates() {
+        return duplicates;
+    }
+
+    @Override
+    public void startRDF() throws RDFHandlerException {
+        handler.startRDF();
+    }
+
+    @Override
+    public void endRDF() throws RDFHandlerException {
+        handler.endRDF();
+    }
+
+    @Override
+    public void handleNamespace(final String prefix, final String uri) throws RDFHandlerException {
+        handler.handleNamespace(prefix, uri);
+    }
+
+    @Override
+    public void handleStatement(final Statement statement) throws RDFHandlerException {
+        if (add(fingerprint(statement))) {
+            handler.handleStatement(statement);
+        } else {
+            duplicates++;
+        }
+    }
+
+    @Override
+    public void handleComment(final String comment) throws RDFHandlerException {
+        handler.handleComment(comment);
+    }
+
+    private boolean add(final long fingerprint) {
+        if (EMPTY == fingerprint) {
+            if (hasZero) {
+                return false;
+            }
+            hasZero = true;
+            return true;
+        }
+
+        // keep the table at most half full
+        if (2 * (size + 1) > fingerprints.length) {
+            grow();
+        }
+
+        if (insert(fingerprints, fingerprint)) {
+            size++;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    private void grow() {
+        long[] larger = new long[fingerprints.length * 2];
+        for (long f : fingerprints) {
+            if (EMPTY != f) {
+                insert(larger, f);
+            }
+        }
+        fingerprints = larger;
+    }
+
+    private static boolean insert(final long[] table, final long fingerprint) {
+        int mask = table.length - 1;
+        int i = (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+        while (EMPTY != table[i]) {
+            if (fingerprint == table[i]) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        table[i] = fingerprint;
+        return true;
+    }
+
+    private static long fingerprint(final Statement statement) {
+        long h = 0xcbf29ce484222325L;
+        h = hash(h, statement.getSubject());
+        h = hash(h, statement.getPredicate());
+        h = hash(h, statement.getObject());
+        h = hash(h, statement.getContext());
+        return mix(h);
+    }
+
+    // FNV-1a over the characters of the value, followed by a separator
+    private static long hash(long h, final Value value) {
+        if (null != value) {
+            String s = value.toString();
+            for (int i = 0; i < s.length(); i++) {
+                h ^= s.charAt(i);
+                h *= 0x100000001b3L;
+            }
+        }
+        h ^= 0xffff;
+        h *= 0x100000001b3L;
+        return h;
+    }
+
+    // a final avalanche step, so that every bit of the fingerprint depends on every character
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
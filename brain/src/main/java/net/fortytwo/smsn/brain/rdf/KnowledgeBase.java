@@ -1,6 +1,5 @@
 package net.fortytwo.smsn.brain.rdf;
 
-import info.aduna.iteration.CloseableIteration;
 import net.fortytwo.smsn.SemanticSynchrony;
 import net.fortytwo.smsn.brain.AtomId;
 import net.fortytwo.smsn.brain.model.Filter;
@@ -10,24 +9,28 @@ import net.fortytwo.smsn.brain.model.entities.ListNode;
 import net.fortytwo.smsn.brain.rdf.classes.*;
 import net.fortytwo.smsn.brain.rdf.classes.Date;
 import net.fortytwo.smsn.brain.rdf.classes.collections.*;
-import org.openrdf.model.Statement;
 import org.openrdf.model.ValueFactory;
 import org.openrdf.model.impl.SimpleValueFactory;
 import org.openrdf.rio.RDFFormat;
 import org.openrdf.rio.RDFHandler;
 import org.openrdf.rio.RDFHandlerException;
 import org.openrdf.rio.Rio;
-import org.openrdf.sail.Sail;
-import org.openrdf.sail.SailConnection;
 import org.openrdf.sail.SailException;
-import org.openrdf.sail.memory.MemoryStore;
 
 import java.io.OutputStream;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 
 /**
- * An inference layer for an Extend-o-Brain graph, supporting automatic classification of notes and exporting to RDF
+ * An inference layer for an Extend-o-Brain graph, supporting automatic classification of notes and exporting to RDF.
+ * Notes may be classified all at once, or incrementally as they change.
  */
 public class KnowledgeBase {
 
@@ -35,14 +38,43 @@ public class KnowledgeBase {
 
     private final Map<Class<? extends NoteClass>, NoteClass> classes;
 
+    // the list of entries of a note is replaced rather than modified once published, so that readers need not
+    // wait for inference; the in-scores of published entries are still adjusted as evidence is given or retracted
     private final Map<Note, List<NoteClassEntry>> noteClassifications;
 
+    // the class entries of other notes for which each note last gave evidence, so that it can be retracted
+    private final Map<Note, List<NoteClassEntry>> evidenceBySubject;
+
+    // notes whose title, alias or children have changed since they were last classified
+    private final Set<Note> changedNotes = ConcurrentHashMap.newKeySet();
+    private final Set<Note> removedNotes = ConcurrentHashMap.newKeySet();
+
+    // the number of times a note may be re-scored in a single incremental pass, which bounds the propagation
+    // of changes around cycles; a note which reaches the limit is left for the next pass
+    private static final int MAX_RESCORES_PER_PASS = 3;
+
     private ValueFactory valueFactory = SimpleValueFactory.getInstance();
 
     public KnowledgeBase(final TopicGraph topicGraph) {
         this.topicGraph = topicGraph;
-        this.noteClassifications = new HashMap<>();
+        this.noteClassifications = new ConcurrentHashMap<>();
+        this.evidenceBySubject = new HashMap<>();
         this.classes = new HashMap<>();
+
+        topicGraph.addChangeListener(new TopicGraph.ChangeListener() {
+            @Override
+            public void noteChanged(final Note note) {
+                changedNotes.add(note);
+            }
+
+            @Override
+            public void noteRemoved(final Note note) {
+                changedNotes.remove(note);
+                removedNotes.add(note);
+                // parents will lose a member
+                forEachParent(note, changedNotes::add);
+            }
+        });
     }
 
     /**
@@ -57,6 +89,8 @@ public class KnowledgeBase {
     // note: graph and vocabulary are not affected by this operation
     public synchronized void reset() {
         noteClassifications.clear();
+        evidenceBySubject.clear();
+        removedNotes.clear();
     }
 
     /**
@@ -150,15 +184,13 @@ public class KnowledgeBase {
             for (int i = 0; i < totalSteps; i++) {
                 try {
                     SemanticSynchrony.getLogger().info("performing warm-up inference step #" + (i + 1) + "/" + totalSteps);
-                    inferClasses(null, null);
+                    inferAllClasses();
                 } catch (RDFHandlerException e) {
                     SemanticSynchrony.getLogger().log(Level.WARNING, "error in warm-up inference", e);
                 }
             }
             SemanticSynchrony.getLogger().info("completed warm-up inference");
 
-            long lastUpdate = topicGraph.getLastUpdate();
-
             while (true) {
                 try {
                     Thread.sleep(interval);
@@ -166,16 +198,13 @@ public class KnowledgeBase {
                     break;
                 }
 
-                // only repeat the inference step if there have been updates in the meantime
-                long u = topicGraph.getLastUpdate();
-                if (u > lastUpdate) {
+                // only re-score the notes which have changed in the meantime, and those which depend on them
+                if (hasChanges()) {
                     try {
-                        SemanticSynchrony.getLogger().info("performing class inference");
-                        inferClasses(null, null);
+                        inferChangedClasses();
                     } catch (RDFHandlerException e) {
                         SemanticSynchrony.getLogger().log(Level.WARNING, "class inference failed. Will keep trying", e);
                     }
-                    lastUpdate = u;
                 }
             }
         }).start();
@@ -322,233 +351,506 @@ public class KnowledgeBase {
     public synchronized void inferClasses(final RDFHandler handler, final Filter filter) throws RDFHandlerException {
         long startTime = System.currentTimeMillis();
 
-        RDFizationContext context = new RDFizationContext(topicGraph, handler, valueFactory);
+        // every note is about to be re-scored
+        changedNotes.clear();
+        removeDeletedNotes();
 
-        // class entries are sorted in descending order based on out-score rather than total score so as to avoid
-        // feedback -- see match().  The final score for a class and note is the sum of out-score and in-score.
-        Comparator outScoreDescending = Collections.reverseOrder();
-        Comparator totalScoreDescending = new NoteClassificationComparator();
+        RDFizationContext context = new RDFizationContext(topicGraph, handler, valueFactory);
 
         // classify or re-classify each note
         for (Note subject : topicGraph.getAllNotes()) {
-            context.setSubject(subject);
+            List<NoteClassEntry> evidence = new java.util.LinkedList<>();
+            classify(subject, context, handler, filter, evidence, true);
+            setEvidence(subject, evidence);
 
-            String value = Note.getTitle(subject);
-            String alias = Note.getAlias(subject);
+            // augment relevant in-scores of member notes
+            for (NoteClassEntry e : evidence) {
+                e.futureInScore += 1;
+            }
+        }
 
-            List<NoteClassEntry> oldEntries = noteClassifications.get(subject);
-            List<NoteClassEntry> newEntries = new java.util.LinkedList<>();
+        // update all in-scores, globally, and clear future in-scores in preparation for the next iteration
+        for (List<NoteClassEntry> l : noteClassifications.values()) {
+            for (NoteClassEntry e : l) {
+                e.inScore = e.futureInScore;
+                e.futureInScore = 0;
+            }
+        }
 
-            for (NoteClass clazz : classes.values()) {
-                /* DO NOT REMOVE
-                if (subject.asVertex().getId().equals("0rYY9z0") && clazz.name.equals("person")) {// && null != handler) {
-                    System.out.println("break point here");
-                }//*/
+        long typed = noteClassifications.size();
+        long total = countNotes();
 
-                List<NoteClassEntry> evidenceEntries = new java.util.LinkedList<>();
+        long endTime = System.currentTimeMillis();
+        SemanticSynchrony.getLogger().info("classified " + typed + " of " + total + " notes ("
+                + (total - typed) + " remaining) in " + (endTime - startTime) + "ms");
+    }
 
-                Collection<RdfizationCallback> callbacks = null == handler
-                        ? null : new java.util.LinkedList();
+    /**
+     * Performs SmSn type inference on the knowledge base, without generating RDF,
+     * using as many threads as are given by the inferenceThreads setting of the configuration
+     *
+     * @throws org.openrdf.rio.RDFHandlerException if a downstream error occurs
+     */
+    public void inferAllClasses() throws RDFHandlerException {
+        int threads = SemanticSynchrony.getConfiguration().getInferenceThreads();
+        if (threads > 1) {
+            inferClassesInParallel(threads);
+        } else {
+            inferClasses(null, null);
+        }
+    }
 
-                NoteCollectionMemory memory = clazz.isCollectionClass()
-                        ? new NoteCollectionMemory(Note.getId(subject))
-                        : null;
+    /**
+     * Performs SmSn type inference on the knowledge base using multiple threads, without generating RDF.
+     * Unlike inferClasses, which sees the classifications of notes already visited in the same pass,
+     * each note is scored against the classifications of the previous pass.
+     * Notes are scored in parallel, after which in-scores are merged in a single deterministic step,
+     * so that the result does not depend on the number of threads.
+     *
+     * @param parallelism the number of threads to use
+     */
+    public synchronized void inferClassesInParallel(final int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
 
-                if (null != clazz.valueRegex) {
-                    if (null == value || !clazz.valueRegex.matcher(value).matches()) {
-                        continue;
+        long startTime = System.currentTimeMillis();
+
+        // every note is about to be re-scored
+        changedNotes.clear();
+        removeDeletedNotes();
+
+        List<Note> subjects = new ArrayList<>();
+        topicGraph.getAllNotes().forEach(subjects::add);
+
+        Map<Note, List<NoteClassEntry>> nextClassifications = new ConcurrentHashMap<>();
+        Map<Note, List<NoteClassEntry>> nextEvidence = new ConcurrentHashMap<>();
+
+        // use more partitions than threads, so that a partition of unusually large notes does not hold up the pass
+        int partitions = Math.min(subjects.size(), parallelism * 4);
+        List<Callable<Void>> tasks = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            List<Note> partition = subjects.subList(
+                    i * subjects.size() / partitions, (i + 1) * subjects.size() / partitions);
+            tasks.add(() -> {
+                // transactions are bound to threads, so each worker reads within a transaction of its own
+                topicGraph.begin();
+                try {
+                    RDFizationContext context = new RDFizationContext(topicGraph, null, valueFactory);
+                    for (Note subject : partition) {
+                        List<NoteClassEntry> evidence = new java.util.LinkedList<>();
+                        List<NoteClassEntry> entries = classify(subject, context, null, null, evidence, false);
+                        if (entries.size() > 0) {
+                            nextClassifications.put(subject, entries);
+                        }
+                        if (evidence.size() > 0) {
+                            nextEvidence.put(subject, evidence);
+                        }
                     }
+                } finally {
+                    topicGraph.endReadTransaction();
                 }
+                return null;
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            for (Future<Void> f : executor.invokeAll(tasks)) {
+                f.get();
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException("class inference failed", e);
+        } finally {
+            executor.shutdownNow();
+        }
 
-                if (null != clazz.aliasRegex) {
-                    if (null == alias || !clazz.aliasRegex.matcher(alias).matches()) {
-                        continue;
+        // each note gave evidence for the entries of the previous pass; find their successors, where the same
+        // member notes still have the same classes
+        Map<NoteClassEntry, NoteClassEntry> successors = new IdentityHashMap<>();
+        for (Map.Entry<Note, List<NoteClassEntry>> e : nextClassifications.entrySet()) {
+            List<NoteClassEntry> oldEntries = noteClassifications.get(e.getKey());
+            if (null != oldEntries) {
+                for (NoteClassEntry oldEntry : oldEntries) {
+                    for (NoteClassEntry newEntry : e.getValue()) {
+                        if (newEntry.getInferredClass() == oldEntry.getInferredClass()) {
+                            successors.put(oldEntry, newEntry);
+                            break;
+                        }
                     }
                 }
+            }
+        }
 
-                // out-score is the number of ways in which the member regex of the note matches
-                // out-score is not affected by the value or alias regex, as these are considered necessary
-                // but not sufficient for classification
-                int outScore = 0;
-
-                if (null != clazz.memberRegex) {
-                    ListNode<Note> cur = subject.getChildren();
-                    Note first = null;
-                    int eli = 0;
-                    NoteReqex.El el = null;
-                    NoteReqex.Modifier mod = null;
-                    boolean advanceInput = true;
-                    boolean advanceRegex = true;
-                    boolean matched;
-                    boolean fail = false;
-
-                    // break out on failure or exhaustion of the regex
-                    while (!fail) {
-                        if (advanceRegex) {
-                            if (clazz.memberRegex.getElements().size() > eli) {
-                                el = clazz.memberRegex.getElements().get(eli++);
-                                mod = el.getModifier();
-                            } else {
-                                // we need to have exhausted the input
-                                if (null != cur) {
-                                    fail = true;
-                                }
+        // merge in-scores, in a fixed order
+        evidenceBySubject.clear();
+        for (Note subject : subjects) {
+            List<NoteClassEntry> evidence = nextEvidence.get(subject);
+            if (null != evidence) {
+                List<NoteClassEntry> merged = new java.util.LinkedList<>();
+                for (NoteClassEntry e : evidence) {
+                    NoteClassEntry successor = successors.get(e);
+                    if (null != successor) {
+                        successor.inScore += 1;
+                        merged.add(successor);
+                    }
+                }
+                setEvidence(subject, merged);
+            }
+        }
 
-                                break;
-                            }
+        noteClassifications.keySet().retainAll(nextClassifications.keySet());
+        noteClassifications.putAll(nextClassifications);
 
-                            advanceRegex = false;
-                        }
+        long endTime = System.currentTimeMillis();
+        SemanticSynchrony.getLogger().info("classified " + nextClassifications.size() + " of " + subjects.size()
+                + " notes using " + parallelism + " threads in " + (endTime - startTime) + "ms");
+    }
 
-                        if (advanceInput) {
-                            if (null == cur) {
-                                // we have exhausted the input
-                                if (NoteReqex.Modifier.One == mod || NoteReqex.Modifier.OneOrMore == mod) {
-                                    // additional input is required by the regex; fail
-                                    fail = true;
-                                    break;
-                                } else {
-                                    // try to exhaust the regex without further input
-                                    advanceRegex = true;
-                                    advanceInput = false;
-                                    continue;
-                                }
-                            } else {
-                                first = cur.getFirst();
-                                cur = cur.getRest();
-                                advanceInput = false;
-                            }
-                        }
+    /**
+     * @return whether any notes have changed since they were last classified
+     */
+    public boolean hasChanges() {
+        return !changedNotes.isEmpty() || !removedNotes.isEmpty();
+    }
 
-                        MatchResult matchResult = match(first, el, evidenceEntries, memory, context, callbacks, filter);
+    /**
+     * Re-scores only those notes whose title, alias or children have changed since they were last classified,
+     * as well as any parents whose classification may depend on them, transitively.
+     * Rather than being recomputed globally, in-scores are updated in place:
+     * each re-scored note retracts the evidence it last gave, and adds its new evidence.
+     *
+     * @return the number of notes which were re-scored
+     * @throws org.openrdf.rio.RDFHandlerException if a downstream error occurs
+     */
+    public synchronized int inferChangedClasses() throws RDFHandlerException {
+        long startTime = System.currentTimeMillis();
 
-                        // assign points per matched input element (rather than only per regex element)
-                        switch (matchResult) {
-                            case Unsupported:
-                                // Assign a point only if the regex element matches a specific class, not a wildcard,
-                                // and the current element has not been marked to score as a wildcard.
-                                // Particularly significant elements may score extra points.
-                                outScore += el.getWeight();
-                                break;
-                            case Supported:
-                                // Members supported by internal evidence (i.e. having non-zero out-scores)
-                                // in turn support the parent more strongly than members which merely satisfy
-                                // the property constraints.
-                                outScore += el.getWeight() * 2;
-                                break;
-                            case Unclassified: // fall through
-                            case NoMatch:
-                                break;
+        removeDeletedNotes();
+
+        Set<Note> queue = new LinkedHashSet<>(changedNotes);
+        changedNotes.removeAll(queue);
+
+        RDFizationContext context = new RDFizationContext(topicGraph, null, valueFactory);
+        Map<Note, Integer> timesScored = new HashMap<>();
+        int count = 0;
+
+        while (!queue.isEmpty()) {
+            Iterator<Note> iter = queue.iterator();
+            Note subject = iter.next();
+            iter.remove();
+
+            if (timesScored.merge(subject, 1, Integer::sum) > MAX_RESCORES_PER_PASS) {
+                changedNotes.add(subject);
+                continue;
+            }
+
+            Map<Class<? extends NoteClass>, Boolean> before = summarize(noteClassifications.get(subject));
+            List<NoteClassEntry> evidence = new java.util.LinkedList<>();
+            List<NoteClassEntry> newEntries;
+            try {
+                newEntries = classify(subject, context, null, null, evidence, true);
+            } catch (RuntimeException e) {
+                // the note may no longer exist, e.g. if the transaction which created it was rolled back
+                SemanticSynchrony.getLogger().log(Level.WARNING, "failed to classify note", e);
+                continue;
+            }
+            count++;
+
+            retractEvidence(subject);
+            for (NoteClassEntry e : evidence) {
+                e.inScore += 1;
+            }
+            setEvidence(subject, evidence);
+
+            // parents match against the classes of a note, and are more strongly supported by its out-score
+            if (!summarize(newEntries).equals(before)) {
+                forEachParent(subject, queue::add);
+            }
+        }
+
+        long endTime = System.currentTimeMillis();
+        SemanticSynchrony.getLogger().info("re-scored " + count + " changed notes in " + (endTime - startTime) + "ms");
+        return count;
+    }
+
+    private void removeDeletedNotes() {
+        Set<Note> removed = new HashSet<>(removedNotes);
+        removedNotes.removeAll(removed);
+
+        for (Note note : removed) {
+            retractEvidence(note);
+            noteClassifications.remove(note);
+        }
+    }
+
+    private void setEvidence(final Note subject, final List<NoteClassEntry> evidence) {
+        if (evidence.isEmpty()) {
+            evidenceBySubject.remove(subject);
+        } else {
+            evidenceBySubject.put(subject, evidence);
+        }
+    }
+
+    private void retractEvidence(final Note subject) {
+        List<NoteClassEntry> evidence = evidenceBySubject.remove(subject);
+        if (null != evidence) {
+            for (NoteClassEntry e : evidence) {
+                e.inScore = Math.max(0, e.inScore - 1);
+            }
+        }
+    }
+
+    // the classes of a note, and whether each is supported by internal evidence
+    private Map<Class<? extends NoteClass>, Boolean> summarize(final List<NoteClassEntry> entries) {
+        Map<Class<? extends NoteClass>, Boolean> summary = new HashMap<>();
+        if (null != entries) {
+            for (NoteClassEntry e : entries) {
+                summary.put(e.getInferredClass(), e.getOutScore() > 0);
+            }
+        }
+        return summary;
+    }
+
+    private void forEachParent(final Note note, final Consumer<Note> consumer) {
+        note.forFirstOf(list -> {
+            ListNode<Note> cur = list;
+            while (null != cur.getRestOf()) {
+                cur = cur.getRestOf();
+            }
+
+            Note parent = note.getSubject(cur);
+            if (null != parent) {
+                consumer.accept(parent);
+            }
+        });
+    }
+
+    /*
+    Classifies a single note, collecting the class entries of its members for which it gives evidence.
+    If inPlace is true, the note's existing entries are updated and its classification replaced;
+    otherwise, new entries are returned and no shared state is modified, so that notes may be classified concurrently.
+     */
+    private List<NoteClassEntry> classify(final Note subject,
+                                          final RDFizationContext context,
+                                          final RDFHandler handler,
+                                          final Filter filter,
+                                          final List<NoteClassEntry> evidence,
+                                          final boolean inPlace) throws RDFHandlerException {
+        // class entries are sorted in descending order based on out-score rather than total score so as to avoid
+        // feedback -- see match().  The final score for a class and note is the sum of out-score and in-score.
+        Comparator outScoreDescending = Collections.reverseOrder();
+        Comparator totalScoreDescending = new NoteClassificationComparator();
+
+        context.setSubject(subject);
+
+        String value = Note.getTitle(subject);
+        String alias = Note.getAlias(subject);
+
+        List<NoteClassEntry> oldEntries = inPlace ? noteClassifications.get(subject) : null;
+        List<NoteClassEntry> newEntries = new java.util.LinkedList<>();
+
+        for (NoteClass clazz : classes.values()) {
+            /* DO NOT REMOVE
+            if (subject.asVertex().getId().equals("0rYY9z0") && clazz.name.equals("person")) {// && null != handler) {
+                System.out.println("break point here");
+            }//*/
+
+            List<NoteClassEntry> evidenceEntries = new java.util.LinkedList<>();
+
+            Collection<RdfizationCallback> callbacks = null == handler
+                    ? null : new java.util.LinkedList();
+
+            NoteCollectionMemory memory = clazz.isCollectionClass()
+                    ? new NoteCollectionMemory(Note.getId(subject))
+                    : null;
+
+            if (null != clazz.valueRegex) {
+                if (null == value || !clazz.valueRegex.matcher(value).matches()) {
+                    continue;
+                }
+            }
+
+            if (null != clazz.aliasRegex) {
+                if (null == alias || !clazz.aliasRegex.matcher(alias).matches()) {
+                    continue;
+                }
+            }
+
+            // out-score is the number of ways in which the member regex of the note matches
+            // out-score is not affected by the value or alias regex, as these are considered necessary
+            // but not sufficient for classification
+            int outScore = 0;
+
+            if (null != clazz.memberRegex) {
+                ListNode<Note> cur = subject.getChildren();
+                Note first = null;
+                int eli = 0;
+                NoteReqex.El el = null;
+                NoteReqex.Modifier mod = null;
+                boolean advanceInput = true;
+                boolean advanceRegex = true;
+                boolean matched;
+                boolean fail = false;
+
+                // break out on failure or exhaustion of the regex
+                while (!fail) {
+                    if (advanceRegex) {
+                        if (clazz.memberRegex.getElements().size() > eli) {
+                            el = clazz.memberRegex.getElements().get(eli++);
+                            mod = el.getModifier();
+                        } else {
+                            // we need to have exhausted the input
+                            if (null != cur) {
+                                fail = true;
+                            }
+
+                            break;
                         }
 
-                        matched = matchResult != MatchResult.NoMatch;
+                        advanceRegex = false;
+                    }
 
-                        switch (mod) {
-                            case ZeroOrOne:
-                                if (matched) {
-                                    advanceRegex = true;
-                                    advanceInput = true;
-                                } else {
-                                    advanceRegex = true;
-                                }
-                                break;
-                            case ZeroOrMore:
-                                if (matched) {
-                                    advanceInput = true;
-                                } else {
-                                    advanceRegex = true;
-                                }
-                                break;
-                            case One:
-                                if (matched) {
-                                    advanceRegex = true;
-                                    advanceInput = true;
-                                } else {
-                                    fail = true;
-                                }
-                                break;
-                            case OneOrMore:
-                                if (matched) {
-                                    mod = NoteReqex.Modifier.ZeroOrMore;
-                                    advanceInput = true;
-                                } else {
-                                    fail = true;
-                                }
+                    if (advanceInput) {
+                        if (null == cur) {
+                            // we have exhausted the input
+                            if (NoteReqex.Modifier.One == mod || NoteReqex.Modifier.OneOrMore == mod) {
+                                // additional input is required by the regex; fail
+                                fail = true;
                                 break;
+                            } else {
+                                // try to exhaust the regex without further input
+                                advanceRegex = true;
+                                advanceInput = false;
+                                continue;
+                            }
+                        } else {
+                            first = cur.getFirst();
+                            cur = cur.getRest();
+                            advanceInput = false;
                         }
                     }
 
-                    if (fail) {
-                        continue;
+                    MatchResult matchResult = match(first, el, evidenceEntries, memory, context, callbacks, filter);
+
+                    // assign points per matched input element (rather than only per regex element)
+                    switch (matchResult) {
+                        case Unsupported:
+                            // Assign a point only if the regex element matches a specific class, not a wildcard,
+                            // and the current element has not been marked to score as a wildcard.
+                            // Particularly significant elements may score extra points.
+                            outScore += el.getWeight();
+                            break;
+                        case Supported:
+                            // Members supported by internal evidence (i.e. having non-zero out-scores)
+                            // in turn support the parent more strongly than members which merely satisfy
+                            // the property constraints.
+                            outScore += el.getWeight() * 2;
+                            break;
+                        case Unclassified: // fall through
+                        case NoMatch:
+                            break;
                     }
-                }
 
-                // at this point, we have classified the note
-
-                // update or create the note's entry for this class.
-                // It is necessary to preserve an existing entry, if any, for the sake of the in-score
-                NoteClassEntry classEntry = null;
-                if (null != oldEntries) {
-                    for (NoteClassEntry e : oldEntries) {
-                        if (e.getInferredClass() == clazz.getClass()) {
-                            e.outScore = outScore;
-                            e.memory = memory;
-                            classEntry = e;
+                    matched = matchResult != MatchResult.NoMatch;
+
+                    switch (mod) {
+                        case ZeroOrOne:
+                            if (matched) {
+                                advanceRegex = true;
+                                advanceInput = true;
+                            } else {
+                                advanceRegex = true;
+                            }
+                            break;
+                        case ZeroOrMore:
+                            if (matched) {
+                                advanceInput = true;
+                            } else {
+                                advanceRegex = true;
+                            }
+                            break;
+                        case One:
+                            if (matched) {
+                                advanceRegex = true;
+                                advanceInput = true;
+                            } else {
+                                fail = true;
+                            }
+                            break;
+                        case OneOrMore:
+                            if (matched) {
+                                mod = NoteReqex.Modifier.ZeroOrMore;
+                                advanceInput = true;
+                            } else {
+                                fail = true;
+                            }
                             break;
-                        }
                     }
                 }
-                if (null == classEntry) {
-                    classEntry = new NoteClassEntry(clazz.getClass(), outScore, memory);
+
+                if (fail) {
+                    continue;
                 }
-                classEntry.callbacks = callbacks;
-                newEntries.add(classEntry);
+            }
 
-                // augment relevant in-scores of member notes
-                for (NoteClassEntry e : evidenceEntries) {
-                    e.futureInScore += 1;
+            // at this point, we have classified the note
+
+            // update or create the note's entry for this class.
+            // It is necessary to preserve an existing entry, if any, for the sake of the in-score
+            NoteClassEntry classEntry = null;
+            if (null != oldEntries) {
+                for (NoteClassEntry e : oldEntries) {
+                    if (e.getInferredClass() == clazz.getClass()) {
+                        e.outScore = outScore;
+                        e.memory = memory;
+                        classEntry = e;
+                        break;
+                    }
                 }
             }
+            if (null == classEntry) {
+                classEntry = new NoteClassEntry(clazz.getClass(), outScore, memory);
+            }
+            classEntry.callbacks = callbacks;
+            newEntries.add(classEntry);
+
+            // the note gives evidence for the matched classes of its members
+            evidence.addAll(evidenceEntries);
+        }
+
+        Collections.sort(newEntries, outScoreDescending);
 
-            // remove old classification (if any) and replace with the new one (if any)
-            noteClassifications.remove(subject);
+        // replace the old classification (if any) with the new one (if any)
+        if (inPlace) {
             if (newEntries.size() > 0) {
-                Collections.sort(newEntries, outScoreDescending);
                 noteClassifications.put(subject, newEntries);
+            } else {
+                noteClassifications.remove(subject);
             }
+        }
 
-            // perform rdfization, choosing at most one classification
-            if (null != handler && (null == filter || filter.test(subject))) {
-                if (newEntries.size() > 0) {
-                    List<NoteClassEntry> helper = new java.util.LinkedList<>();
-                    helper.addAll(newEntries);
-                    Collections.sort(helper, totalScoreDescending);
-                    NoteClassEntry best = helper.get(0);
-                    if (best.isNonTrivial()) {
-                        NoteClass clazz = classes.get(best.getInferredClass());
-                        clazz.toRDF(subject, context);
-                        best.callbacks.forEach(RdfizationCallback::execute);
-                    }
+        // perform rdfization, choosing at most one classification
+        if (null != handler && (null == filter || filter.test(subject))) {
+            if (newEntries.size() > 0) {
+                List<NoteClassEntry> helper = new java.util.LinkedList<>();
+                helper.addAll(newEntries);
+                Collections.sort(helper, totalScoreDescending);
+                NoteClassEntry best = helper.get(0);
+                if (best.isNonTrivial()) {
+                    NoteClass clazz = classes.get(best.getInferredClass());
+                    clazz.toRDF(subject, context);
+                    best.callbacks.forEach(RdfizationCallback::execute);
                 }
             }
         }
 
-        // update all in-scores, globally, and clear future in-scores in preparation for the next iteration
-        for (List<NoteClassEntry> l : noteClassifications.values()) {
-            for (NoteClassEntry e : l) {
-                e.inScore = e.futureInScore;
-                e.futureInScore = 0;
-                // also clear callbacks to free memory
-                e.callbacks = null;
-            }
+        // clear callbacks to free memory
+        for (NoteClassEntry e : newEntries) {
+            e.callbacks = null;
         }
 
-        long typed = noteClassifications.size();
-        long total = countNotes();
-
-        long endTime = System.currentTimeMillis();
-        SemanticSynchrony.getLogger().info("classified " + typed + " of " + total + " notes ("
-                + (total - typed) + " remaining) in " + (endTime - startTime) + "ms");
+        return newEntries;
     }
 
     private long countNotes() {
@@ -603,50 +905,30 @@ public class KnowledgeBase {
         }
     }
 
+    /**
+     * Infers classes and writes the resulting RDF statements to a stream as they are generated.
+     * Duplicate statements are dropped by fingerprint, so the graph is never held in memory.
+     *
+     * @param out    the stream to which to write
+     * @param format the RDF format in which to write
+     * @param filter an optional filter for generated results; see inferClasses
+     * @throws RDFHandlerException if RDF generation or writing fails
+     */
     public void exportRDF(final OutputStream out,
                           final RDFFormat format,
                           final Filter filter) throws SailException, RDFHandlerException {
         SemanticSynchrony.getLogger().info("exporting RDF in format " + format);
-        long startTime, endTime;
-        Sail dedupSail = new MemoryStore();
-        dedupSail.initialize();
-        try {
-            SailConnection sc = dedupSail.getConnection();
-            try {
-                sc.begin();
-
-                startTime = System.currentTimeMillis();
-                RDFHandler h0 = new SailAdder(sc);
-                h0.startRDF();
-
-                inferClasses(h0, filter);
-
-                h0.endRDF();
-                endTime = System.currentTimeMillis();
-                SemanticSynchrony.getLogger().info("inferred classes and generated RDF in " + (endTime - startTime) + "ms");
+        long startTime = System.currentTimeMillis();
 
-                sc.commit();
-                sc.begin();
+        DistinctStatementHandler h = new DistinctStatementHandler(Rio.createWriter(format, out));
+        h.startRDF();
+        inferClasses(h, filter);
+        h.endRDF();
 
-                startTime = System.currentTimeMillis();
-                RDFHandler h = Rio.createWriter(format, out);
-                h.startRDF();
-                try (CloseableIteration<? extends Statement, SailException> iter
-                             = sc.getStatements(null, null, null, false)) {
-                    while (iter.hasNext()) {
-                        h.handleStatement(iter.next());
-                    }
-                }
-                h.endRDF();
-                endTime = System.currentTimeMillis();
-                SemanticSynchrony.getLogger().info("wrote triples to disk in " + (endTime - startTime) + "ms");
-            } finally {
-                sc.rollback();
-                sc.close();
-            }
-        } finally {
-            dedupSail.shutDown();
-        }
+        long endTime = System.currentTimeMillis();
+        SemanticSynchrony.getLogger().info("inferred classes and wrote " + h.getNumberOfStatements()
+                + " triples (" + h.getNumberOfDuplicates() + " duplicates dropped) in "
+                + (endTime - startTime) + "ms");
     }
 
     private static class NoteClassificationComparator implements Comparator<NoteClassEntry> {
@@ -660,43 +942,6 @@ public class KnowledgeBase {
         }
     }
 
-    private static class SailAdder implements RDFHandler {
-        private final SailConnection sc;
-
-        private SailAdder(SailConnection sc) {
-            this.sc = sc;
-        }
-
-        @Override
-        public void startRDF() throws RDFHandlerException {
-        }
-
-        @Override
-        public void endRDF() throws RDFHandlerException {
-        }
-
-        @Override
-        public void handleNamespace(String s, String s2) throws RDFHandlerException {
-        }
-
-        @Override
-        public void handleStatement(Statement statement) throws RDFHandlerException {
-            try {
-                sc.addStatement(
-                        statement.getSubject(),
-                        statement.getPredicate(),
-                        statement.getObject(),
-                        statement.getContext());
-            } catch (SailException e) {
-                throw new RDFHandlerException(e);
-            }
-        }
-
-        @Override
-        public void handleComment(String s) throws RDFHandlerException {
-        }
-    }
-
     public class NoteClassEntry implements Comparable<NoteClassEntry> {
         private final Class<? extends NoteClass> inferredClass;
         private int outScore;
@@ -1,12 +1,14 @@
 package net.fortytwo.smsn.brain.util;
 
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
 
 /**
- * Note: the LCS algorithm is probably not optimal in the sense of minimizing vertex and edge churn
+ * Differences between lists, as a shortest edit script (using Myers' algorithm).
+ * Note: an edit script is probably not optimal in the sense of minimizing vertex and edge churn
  * e.g. ab to ba destroys one vertex and one edge, and creates one vertex and one edge.
  * A better algorithm would use a swap operation, merely deleting one edge and creating one edge.
  */
@@ -22,97 +24,174 @@ public class ListDiff {
         return result;
     }
 
-    public static String toString(List<String> l) {
-        StringBuilder sb = new StringBuilder();
-        l.forEach(sb::append);
-
-        return sb.toString();
+    public static class StringComparator implements Comparator<String> {
+        public int compare(String a, String b) {
+            return a.compareTo(b);
+        }
     }
 
-    public static <T> List<T> longestCommonSubsequence(List<T> a, List<T> b, Comparator<T> comp) {
-        int[][] lengths = new int[a.size() + 1][b.size() + 1];
-
-        // row 0 and column 0 are initialized to 0 already
-        for (int i = 0; i < a.size(); i++)
-            for (int j = 0; j < b.size(); j++)
-                if (0 == comp.compare(a.get(i), b.get(j)))
-                    lengths[i + 1][j + 1] = lengths[i][j] + 1;
-                else
-                    lengths[i + 1][j + 1] =
-                            Math.max(lengths[i + 1][j], lengths[i][j + 1]);
-
-        // read the substring out from the matrix
-        List<T> result = new LinkedList<>();
-        for (int x = a.size(), y = b.size();
-             x != 0 && y != 0; ) {
-            if (lengths[x][y] == lengths[x - 1][y])
-                x--;
-            else if (lengths[x][y] == lengths[x][y - 1])
-                y--;
-            else {
-                assert 0 == comp.compare(a.get(x - 1), b.get(y - 1));
-                result.add(a.get(x - 1));
-                x--;
-                y--;
-            }
-        }
+    public enum Operation {Keep, Delete, Insert}
 
-        Collections.reverse(result);
+    /**
+     * A single step of an edit script: an element of the first sequence to keep or delete,
+     * or an element of the second sequence to insert
+     */
+    public static class Edit<T> {
+        private final Operation operation;
+        private final T value;
 
-        return result;
-    }
+        public Edit(final Operation operation, final T value) {
+            this.operation = operation;
+            this.value = value;
+        }
 
-    public static class StringComparator implements Comparator<String> {
-        public int compare(String a, String b) {
-            return a.compareTo(b);
+        public Operation getOperation() {
+            return operation;
+        }
+
+        public T getValue() {
+            return value;
         }
     }
 
-    public static <T> void applyDiff(final List<T> a,
-                                     final List<T> b,
-                                     final List<T> l,
-                                     final Comparator<T> cmp,
-                                     final DiffEditor<T> ed) {
-        int acur = 0;
-        int bcur = 0;
-        int lcur = 0;
-        int ecur = 0;
-
-        while (lcur < l.size()) {
-            if (0 != cmp.compare(l.get(lcur), a.get(acur))) {
-                // absent in the subsequence but present in the original
-                ed.delete(ecur, a.get(acur));
-                acur++;
-            } else if (0 != cmp.compare(l.get(lcur), b.get(bcur))) {
-                // absent in the subsequence but present in the second sequence
-                ed.add(ecur, b.get(bcur));
-                bcur++;
-                ecur++;
+    /**
+     * Finds a shortest edit script which transforms one sequence into another,
+     * using Myers' linear-space O((N+M)D) algorithm, where D is the number of differences.
+     * This requires neither a quadratic table nor random access to the input lists.
+     *
+     * @param a   the original sequence
+     * @param b   the new sequence
+     * @param cmp a comparator which finds two elements to be equal if and only if they are interchangeable
+     * @return the edit script, in order: every element of a is either kept or deleted,
+     * and every element of b which is not kept is inserted
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> List<Edit<T>> shortestEditScript(final List<T> a, final List<T> b, final Comparator<T> cmp) {
+        Object[] aa = a.toArray();
+        Object[] ba = b.toArray();
+
+        boolean[] keepA = new boolean[aa.length];
+        boolean[] keepB = new boolean[ba.length];
+        findCommon(aa, 0, aa.length, ba, 0, ba.length, (Comparator<Object>) cmp, keepA, keepB);
+
+        List<Edit<T>> script = new ArrayList<>(aa.length + ba.length);
+        int i = 0, j = 0;
+        while (i < aa.length || j < ba.length) {
+            if (i < aa.length && !keepA[i]) {
+                script.add(new Edit<>(Operation.Delete, (T) aa[i++]));
+            } else if (j < ba.length && !keepB[j]) {
+                script.add(new Edit<>(Operation.Insert, (T) ba[j++]));
             } else {
-                lcur++;
-                acur++;
-                bcur++;
-                ecur++;
+                // the next kept elements of either sequence are matched with each other
+                script.add(new Edit<>(Operation.Keep, (T) aa[i++]));
+                j++;
             }
         }
 
-        int aleftover = a.size() - acur;
-        int bleftover = b.size() - bcur;
+        return script;
+    }
 
-        for (int i = 0; i < aleftover; i++) {
-            ed.delete(ecur, a.get(acur));
-            acur++;
+    // marks the elements of a[aLo..aHi) and b[bLo..bHi) which belong to a longest common subsequence
+    private static void findCommon(final Object[] a, int aLo, int aHi,
+                                   final Object[] b, int bLo, int bHi,
+                                   final Comparator<Object> cmp,
+                                   final boolean[] keepA, final boolean[] keepB) {
+        // common prefix and suffix, which are all that differ in the typical case of a few local edits
+        while (aLo < aHi && bLo < bHi && 0 == cmp.compare(a[aLo], b[bLo])) {
+            keepA[aLo++] = true;
+            keepB[bLo++] = true;
         }
-        for (int i = 0; i < bleftover; i++) {
-            ed.add(ecur, b.get(bcur));
-            bcur++;
-            ecur++;
+        while (aLo < aHi && bLo < bHi && 0 == cmp.compare(a[aHi - 1], b[bHi - 1])) {
+            keepA[--aHi] = true;
+            keepB[--bHi] = true;
+        }
+
+        int n = aHi - aLo, m = bHi - bLo;
+        if (0 == n || 0 == m) {
+            return;
         }
-    }
 
-    public interface DiffEditor<T> {
-        void add(int position, T letter);
+        // find the middle snake, searching forward from the start and backward from the end at the same time
+        int maxD = (n + m + 1) / 2;
+        int offset = maxD;
+        int[] forward = new int[2 * maxD + 2];
+        int[] backward = new int[2 * maxD + 2];
+        Arrays.fill(forward, -1);
+        Arrays.fill(backward, -1);
+        forward[offset + 1] = 0;
+        backward[offset + 1] = 0;
+        int delta = n - m;
+        // if the difference in length is odd, the paths will first overlap on a forward step
+        boolean checkOnForward = 0 != delta % 2;
+        int k1Start = 0, k1End = 0, k2Start = 0, k2End = 0;
+
+        for (int d = 0; d < maxD; d++) {
+            for (int k1 = -d + k1Start; k1 <= d - k1End; k1 += 2) {
+                int k1Offset = offset + k1;
+                int x1 = k1 == -d || (k1 != d && forward[k1Offset - 1] < forward[k1Offset + 1])
+                        ? forward[k1Offset + 1]
+                        : forward[k1Offset - 1] + 1;
+                int y1 = x1 - k1;
+                while (x1 < n && y1 < m && 0 == cmp.compare(a[aLo + x1], b[bLo + y1])) {
+                    x1++;
+                    y1++;
+                }
+                forward[k1Offset] = x1;
+                if (x1 > n) {
+                    // ran off the right of the graph
+                    k1End += 2;
+                } else if (y1 > m) {
+                    // ran off the bottom of the graph
+                    k1Start += 2;
+                } else if (checkOnForward) {
+                    int k2Offset = offset + delta - k1;
+                    if (k2Offset >= 0 && k2Offset < backward.length && -1 != backward[k2Offset]) {
+                        if (x1 >= n - backward[k2Offset]) {
+                            split(a, aLo, aHi, b, bLo, bHi, x1, y1, cmp, keepA, keepB);
+                            return;
+                        }
+                    }
+                }
+            }
+
+            for (int k2 = -d + k2Start; k2 <= d - k2End; k2 += 2) {
+                int k2Offset = offset + k2;
+                int x2 = k2 == -d || (k2 != d && backward[k2Offset - 1] < backward[k2Offset + 1])
+                        ? backward[k2Offset + 1]
+                        : backward[k2Offset - 1] + 1;
+                int y2 = x2 - k2;
+                while (x2 < n && y2 < m && 0 == cmp.compare(a[aHi - x2 - 1], b[bHi - y2 - 1])) {
+                    x2++;
+                    y2++;
+                }
+                backward[k2Offset] = x2;
+                if (x2 > n) {
+                    k2End += 2;
+                } else if (y2 > m) {
+                    k2Start += 2;
+                } else if (!checkOnForward) {
+                    int k1Offset = offset + delta - k2;
+                    if (k1Offset >= 0 && k1Offset < forward.length && -1 != forward[k1Offset]) {
+                        int x1 = forward[k1Offset];
+                        int y1 = offset + x1 - k1Offset;
+                        if (x1 >= n - x2) {
+                            split(a, aLo, aHi, b, bLo, bHi, x1, y1, cmp, keepA, keepB);
+                            return;
+                        }
+                    }
+                }
+            }
+        }
+
+        // the sequences have nothing in common
+    }
 
-        void delete(int position, T letter);
+    private static void split(final Object[] a, int aLo, int aHi,
+                              final Object[] b, int bLo, int bHi,
+                              final int x, final int y,
+                              final Comparator<Object> cmp,
+                              final boolean[] keepA, final boolean[] keepB) {
+        findCommon(a, aLo, aLo + x, b, bLo, bLo + y, cmp, keepA, keepB);
+        findCommon(a, aLo + x, aHi, b, bLo + y, bHi, cmp, keepA, keepB);
     }
 }
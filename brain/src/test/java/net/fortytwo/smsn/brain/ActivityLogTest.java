@@ -0,0 +1,139 @@
+package net.fortytwo.smsn.brain;
+
+import net.fortytwo.smsn.brain.model.entities.Note;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ActivityLogTest extends BrainTestBase {
+
+    @Test
+    public void entriesAreWrittenAsTextAndBinary() throws Exception {
+        File file = new File(createTempDirectory(), "activity.log");
+        ActivityLog log = new ActivityLog(file, 1000, 0, 0);
+
+        Note arthur = createNote(ARTHUR_ID, "Arthur Dent");
+        Note ford = createNote(FORD_ID, "Ford Prefect");
+        log.logView(arthur);
+        log.logLink(arthur, ford);
+        log.logSetProperties(ford);
+        log.sync();
+
+        List<String> lines = Files.readAllLines(file.toPath());
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(1).endsWith("\tlink\t" + ARTHUR_ID.value + "\t" + FORD_ID.value));
+
+        List<ActivityLog.Entry> entries = new ArrayList<>();
+        ActivityLog.scan(ActivityLog.getBinaryFile(file), entries::add);
+        assertEquals(3, entries.size());
+        assertEquals(ActivityLog.Action.VIEW, entries.get(0).getAction());
+        assertEquals(ActivityLog.Action.LINK, entries.get(1).getAction());
+        assertEquals(2, entries.get(1).getNoteIds().length);
+        assertEquals(FORD_ID.value, entries.get(1).getNoteIds()[1]);
+        assertEquals(ActivityLog.Action.SET_PROPERTIES, entries.get(2).getAction());
+        assertEquals(lines.get(2), entries.get(2).getTimestamp() + "\tset-props\t" + FORD_ID.value);
+
+        log.shutDown();
+    }
+
+    @Test
+    public void concurrentEntriesAreAllKeptAcrossRotations() throws Exception {
+        File dir = createTempDirectory();
+        // a small maximum size forces many rotations
+        ActivityLog log = new ActivityLog(new File(dir, "activity.log"), 10, 10000, 0);
+
+        int threads = 4, entriesPerThread = 10000;
+        List<Note> notes = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            notes.add(createNoteWithTitle("note " + i));
+        }
+
+        List<Thread> producers = new ArrayList<>();
+        for (Note note : notes) {
+            Thread t = new Thread(() -> {
+                for (int i = 0; i < entriesPerThread; i++) {
+                    log.logView(note);
+                }
+            });
+            producers.add(t);
+            t.start();
+        }
+        for (Thread t : producers) {
+            t.join();
+        }
+        log.shutDown();
+
+        Map<String, Integer> countsById = new HashMap<>();
+        int binaryFiles = 0;
+        long lines = 0;
+        for (File f : dir.listFiles()) {
+            if (f.getName().endsWith(ActivityLog.BINARY_SUFFIX)) {
+                binaryFiles++;
+                ActivityLog.scan(f, e -> countsById.merge(e.getNoteIds()[0], 1, Integer::sum));
+            } else {
+                lines += Files.readAllLines(f.toPath()).size();
+            }
+        }
+
+        assertTrue(binaryFiles > 1);
+        assertEquals(threads * entriesPerThread, lines);
+        assertEquals(threads, countsById.size());
+        for (Note note : notes) {
+            assertEquals(entriesPerThread, (int) countsById.get(Note.getId(note).value));
+        }
+    }
+
+    @Test
+    public void everyAcceptedEntryIsWrittenAtShutDown() throws Exception {
+        File file = new File(createTempDirectory(), "activity.log");
+        ActivityLog log = new ActivityLog(file, 1000, 0, 0);
+        Note arthur = createNote(ARTHUR_ID, "Arthur Dent");
+
+        int threads = 4;
+        AtomicInteger accepted = new AtomicInteger(0);
+        List<Thread> producers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread t = new Thread(() -> {
+                try {
+                    while (true) {
+                        log.logView(arthur);
+                        accepted.incrementAndGet();
+                    }
+                } catch (IllegalStateException e) {
+                    // the log has been shut down
+                }
+            });
+            producers.add(t);
+            t.start();
+        }
+        while (accepted.get() < 10000) {
+            Thread.yield();
+        }
+        log.shutDown();
+        for (Thread t : producers) {
+            t.join();
+        }
+
+        try {
+            log.logView(arthur);
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        int[] scanned = {0};
+        ActivityLog.scan(ActivityLog.getBinaryFile(file), e -> scanned[0]++);
+        assertEquals(accepted.get(), scanned[0]);
+        assertEquals(accepted.get(), Files.readAllLines(file.toPath()).size());
+    }
+}
@@ -0,0 +1,208 @@
+package net.fortytwo.smsn.brain;
+
+import net.fortytwo.smsn.brain.model.entities.Note;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HistoryTest extends BrainTestBase {
+
+    @Test
+    public void visitsAreDedupedAndOrderedByRecency() throws Exception {
+        Note arthur = createNote(ARTHUR_ID, "Arthur Dent");
+        Note ford = createNote(FORD_ID, "Ford Prefect");
+        Note zaphod = createNote(ZAPHOD_ID, "Zaphod Beeblebrox");
+
+        History history = new History(topicGraph);
+        history.visit(ARTHUR_ID, 1000L);
+        history.visit(ARTHUR_ID, 2000L);
+        history.visit(FORD_ID, 3000L);
+        history.visit(ZAPHOD_ID, 4000L);
+        history.visit(ARTHUR_ID, 5000L);
+
+        assertEquals(Arrays.asList(ARTHUR_ID, ZAPHOD_ID, FORD_ID), history.getRecentVisits(10));
+        assertEquals(Arrays.asList(ARTHUR_ID, ZAPHOD_ID), history.getRecentVisits(2));
+        // repeated actions upon the same note count as a single visit
+        assertEquals(2, history.getNumberOfVisits(ARTHUR_ID));
+
+        assertEquals(Arrays.asList(arthur, zaphod, ford), toList(history.getHistory(10, filter)));
+        assertEquals(Arrays.asList(arthur, zaphod), toList(history.getHistory(2, filter)));
+    }
+
+    @Test
+    public void frequentVisitsOutrankRecentOnes() throws Exception {
+        Note arthur = createNote(ARTHUR_ID, "Arthur Dent");
+        Note ford = createNote(FORD_ID, "Ford Prefect");
+
+        long now = System.currentTimeMillis();
+        History history = new History(topicGraph);
+        for (int i = 0; i < 5; i++) {
+            history.visit(ARTHUR_ID, now - 10000 + 2 * i);
+            history.visit(ZAPHOD_ID, now - 10000 + 2 * i + 1);
+        }
+        history.visit(FORD_ID, now);
+
+        assertEquals(Arrays.asList(ford, arthur), toList(history.getHistory(10, filter, History.Ranking.Recency)));
+        assertEquals(Arrays.asList(arthur, ford), toList(history.getHistory(10, filter, History.Ranking.Frecency)));
+
+        // old visits decay
+        history = new History(topicGraph);
+        for (int i = 0; i < 3; i++) {
+            history.visit(ARTHUR_ID, now - 4 * History.FRECENCY_HALF_LIFE + i);
+            history.visit(ZAPHOD_ID, now - 4 * History.FRECENCY_HALF_LIFE + i);
+        }
+        history.visit(FORD_ID, now);
+        assertEquals(Arrays.asList(ford, arthur), toList(history.getHistory(10, filter, History.Ranking.Frecency)));
+    }
+
+    @Test
+    public void removedNotesAreDropped() throws Exception {
+        Note arthur = createNote(ARTHUR_ID, "Arthur Dent");
+        Note ford = createNote(FORD_ID, "Ford Prefect");
+
+        History history = new History(topicGraph);
+        history.visit(ARTHUR_ID);
+        history.visit(FORD_ID);
+        assertEquals(Arrays.asList(ford, arthur), toList(history.getHistory(10, filter)));
+
+        ford.destroy();
+        assertEquals(Arrays.asList(ARTHUR_ID), history.getRecentVisits(10));
+        assertEquals(Arrays.asList(arthur), toList(history.getHistory(10, filter)));
+    }
+
+    @Test
+    public void visitsSurviveReopening() throws Exception {
+        Note arthur = createNote(ARTHUR_ID, "Arthur Dent");
+        Note ford = createNote(FORD_ID, "Ford Prefect");
+        File file = new File(createTempDirectory(), "history.bin");
+
+        History history = new History(topicGraph, file);
+        history.visit(FORD_ID, 1000L);
+        history.visit(ARTHUR_ID, 2000L);
+        history.visit(FORD_ID, 3000L);
+
+        // a file may be used by only one history at a time
+        try {
+            new History(topicGraph, file);
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+        history.close();
+
+        history = new History(topicGraph, file);
+        assertEquals(Arrays.asList(FORD_ID, ARTHUR_ID), history.getRecentVisits(10));
+        assertEquals(2, history.getNumberOfVisits(FORD_ID));
+        assertEquals(Arrays.asList(ford, arthur), toList(history.getHistory(10, filter)));
+
+        // appends continue where the file left off
+        history.visit(ZAPHOD_ID, 4000L);
+        history.close();
+        history = new History(topicGraph, file);
+        assertEquals(Arrays.asList(ZAPHOD_ID, FORD_ID, ARTHUR_ID), history.getRecentVisits(10));
+        history.close();
+    }
+
+    @Test
+    public void historyFileIsChecked() throws Exception {
+        File file = new File(createTempDirectory(), "history.bin");
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write("not a history file".getBytes());
+        }
+
+        try {
+            new History(topicGraph, file);
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void concurrentVisitsAreAllRecorded() throws Exception {
+        File file = new File(createTempDirectory(), "history.bin");
+        History history = new History(topicGraph, file);
+
+        int threads = 4, visitsPerThread = 20000;
+        List<Thread> visitors = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < visitsPerThread; i++) {
+                    // alternate between two notes per thread, so that no visit is a repeat of the last
+                    history.visit(new AtomId("note" + offset + "x" + (i % 2)));
+                    history.visit(new AtomId("note" + offset + "x" + (i % 2 + 2)));
+                }
+            });
+            visitors.add(thread);
+            thread.start();
+        }
+        for (Thread thread : visitors) {
+            thread.join();
+        }
+
+        int total = 0;
+        for (AtomId id : history.getRecentVisits(History.CAPACITY)) {
+            total += history.getNumberOfVisits(id);
+        }
+        history.close();
+
+        // enough visits for the file to be compacted several times, without losing any of them
+        history = new History(topicGraph, file);
+        int replayed = 0;
+        for (AtomId id : history.getRecentVisits(History.CAPACITY)) {
+            replayed += history.getNumberOfVisits(id);
+        }
+        history.close();
+
+        assertEquals(16, history.getRecentVisits(History.CAPACITY).size());
+        assertEquals(total, replayed);
+        assertEquals(2 * threads * visitsPerThread, total);
+    }
+
+    @Test
+    public void fileIsCompactedWithoutLosingVisits() throws Exception {
+        Note arthur = createNote(ARTHUR_ID, "Arthur Dent");
+        Note ford = createNote(FORD_ID, "Ford Prefect");
+        Note zaphod = createNote(ZAPHOD_ID, "Zaphod Beeblebrox");
+        File file = new File(createTempDirectory(), "history.bin");
+
+        int visits = 10 * History.COMPACTION_THRESHOLD;
+        AtomId[] ids = {ARTHUR_ID, FORD_ID, ARTHUR_ID, ZAPHOD_ID};
+        long now = System.currentTimeMillis();
+        History history = new History(topicGraph, file);
+        for (int i = 0; i < visits; i++) {
+            history.visit(ids[i % ids.length], now - visits + i);
+        }
+        List<Note> byFrecency = toList(history.getHistory(10, filter, History.Ranking.Frecency));
+        assertEquals(Arrays.asList(arthur, zaphod, ford), byFrecency);
+        history.close();
+
+        // a record of each visit would take at least 22 bytes
+        assertTrue(file.length() < 22L * visits);
+
+        history = new History(topicGraph, file);
+        assertEquals(Arrays.asList(ZAPHOD_ID, ARTHUR_ID, FORD_ID), history.getRecentVisits(10));
+        assertEquals(visits / 2, history.getNumberOfVisits(ARTHUR_ID));
+        assertEquals(visits / 4, history.getNumberOfVisits(FORD_ID));
+        assertEquals(visits / 4, history.getNumberOfVisits(ZAPHOD_ID));
+        assertEquals(byFrecency, toList(history.getHistory(10, filter, History.Ranking.Frecency)));
+        history.close();
+    }
+
+    private List<Note> toList(final Iterable<Note> notes) {
+        List<Note> list = new ArrayList<>();
+        notes.forEach(list::add);
+        return list;
+    }
+}
@@ -0,0 +1,80 @@
+package net.fortytwo.smsn.brain;
+
+import net.fortytwo.smsn.brain.model.Filter;
+import net.fortytwo.smsn.brain.model.entities.Note;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class PrioritiesTest extends BrainTestBase {
+
+    @Test
+    public void notesAreOrderedByPriorityThenWeight() throws Exception {
+        Priorities priorities = brain.getPriorities();
+
+        Note low = createNoteWithTitle("low");
+        Note high = createNoteWithTitle("high");
+        Note heavy = createNoteWithTitle("heavy");
+        Note none = createNoteWithTitle("none");
+
+        Note.setPriority(low, 0.2f);
+        Note.setPriority(high, 0.8f);
+        Note.setPriority(heavy, 0.2f);
+        Note.setWeight(heavy, 1.0f);
+
+        assertEquals(Arrays.asList(high, heavy, low), priorities.getTopNotes(10, Filter.noFilter()));
+        assertEquals(Arrays.asList(high, heavy), priorities.getTopNotes(2, Filter.noFilter()));
+        assertEquals(3, priorities.size());
+
+        // changes to priority and weight are picked up as they are made
+        Note.setWeight(heavy, 0.1f);
+        Note.setPriority(none, 0.5f);
+        assertEquals(Arrays.asList(high, none, low, heavy), priorities.getTopNotes(10, Filter.noFilter()));
+
+        Note.setPriority(high, 0f);
+        none.destroy();
+        assertEquals(Arrays.asList(low, heavy), priorities.getTopNotes(10, Filter.noFilter()));
+        assertEquals(2, priorities.size());
+    }
+
+    @Test
+    public void queueIsRebuiltAfterRollback() throws Exception {
+        Priorities priorities = brain.getPriorities();
+
+        Note a = createNoteWithTitle("a");
+        Note b = createNoteWithTitle("b");
+        Note.setPriority(a, 0.1f);
+        Note.setPriority(b, 0.9f);
+        topicGraph.commit();
+
+        topicGraph.rollback();
+        // the queue is rebuilt in the background
+        long deadline = System.currentTimeMillis() + 10000;
+        while (priorities.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(Arrays.asList(b, a), priorities.getTopNotes(10, Filter.noFilter()));
+
+        // changes made after the rebuild are picked up as before
+        Note.setPriority(a, 1.0f);
+        assertEquals(Arrays.asList(a, b), priorities.getTopNotes(10, Filter.noFilter()));
+    }
+
+    @Test
+    public void filteredNotesAreSkipped() throws Exception {
+        Priorities priorities = brain.getPriorities();
+
+        Note a = createNoteWithTitle("a");
+        Note b = createNoteWithTitle("b");
+        Note.setPriority(a, 0.9f);
+        Note.setPriority(b, 0.1f);
+        Note.setWeight(a, 0.1f);
+
+        List<Note> top = priorities.getTopNotes(1, new Filter(0.25f, 0.5f, DefaultSources.PRIVATE, DefaultSources.PRIVATE));
+        assertEquals(Collections.singletonList(b), top);
+    }
+}
@@ -11,6 +11,7 @@ import net.fortytwo.smsn.brain.model.entities.Link;
 import net.fortytwo.smsn.brain.model.entities.ListNode;
 import net.fortytwo.smsn.brain.model.entities.TreeNode;
 import net.fortytwo.smsn.brain.query.TreeViews;
+import net.fortytwo.smsn.brain.query.UpdatePlan;
 import net.fortytwo.smsn.brain.query.ViewStyle;
 import org.json.JSONObject;
 import org.junit.Assert;
@@ -21,6 +22,7 @@ import java.util.List;
 import java.util.Optional;
 
 import static junit.framework.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 
 public class TreeViewsTest extends BrainTestBase {
@@ -446,6 +448,37 @@ public class TreeViewsTest extends BrainTestBase {
         assertEquals(2, child.getNumberOfChildren());
     }
 
+    @Test
+    public void countsReflectStructuralChanges() throws Exception {
+        Note parent = createNoteWithTitle("parent");
+        Note child1 = createNoteWithTitle("child 1");
+        Note child2 = createNoteWithTitle("child 2");
+
+        TreeNode<Link> view = queries.view(parent, 1, filter, viewStyle);
+        assertEquals(0, view.getNumberOfChildren());
+
+        parent.addChildAt(child1, 0);
+        parent.addChildAt(child2, 1);
+        parent.addChildAt(child1, 2);
+        view = queries.view(parent, 1, filter, viewStyle);
+        assertEquals(3, view.getNumberOfChildren());
+        assertEquals(2, view.getChildren().get(0).getNumberOfParents());
+        assertEquals(1, view.getChildren().get(1).getNumberOfParents());
+        assertEquals(3, topicGraph.getNumberOfChildren(parent));
+        assertEquals(2, topicGraph.getNumberOfParents(child1));
+
+        parent.deleteChildAt(0);
+        view = queries.view(parent, 1, filter, viewStyle);
+        assertEquals(2, view.getNumberOfChildren());
+        assertEquals(1, topicGraph.getNumberOfParents(child1));
+
+        parent.setChildren(topicGraph.createListOfNotes(child2));
+        view = queries.view(parent, 1, filter, viewStyle);
+        assertEquals(1, view.getNumberOfChildren());
+        assertEquals(0, topicGraph.getNumberOfParents(child1));
+        assertEquals(1, topicGraph.getNumberOfParents(child2));
+    }
+
     @Test
     public void invisibleNotesAreExcludedFromViews() throws Exception {
         Filter readFilter = new Filter(0f, 0.5f, DefaultSources.PUBLIC, DefaultSources.PUBLIC);
@@ -632,6 +665,46 @@ public class TreeViewsTest extends BrainTestBase {
         assertEquals("two", Note.getTitle(children.get(2)));
     }
 
+    @Test
+    public void onlyChangesAreWritten() throws Exception {
+        ViewStyle style = ViewStyle.Basic.Forward.getStyle();
+        Note root = createNote("wXu5g4v", "root");
+
+        String s = "" +
+                "* :N5KBOAq: one\n" +
+                "* :v8EuMtl: two\n";
+        TreeNode<Link> rootNode = parseToTree(s);
+        TreeViews.setId(rootNode, Note.getId(root));
+        UpdatePlan plan = queries.update(rootNode, 2, filter, style);
+        assertEquals(2, plan.getNotesCreated());
+        assertEquals(0, plan.getNotesChanged());
+        assertEquals(2, plan.getChildrenInserted());
+        assertEquals(0, plan.getChildrenDeleted());
+
+        // an identical update leaves the graph alone
+        long version = topicGraph.getVersion();
+        rootNode = parseToTree(s);
+        TreeViews.setId(rootNode, Note.getId(root));
+        plan = queries.update(rootNode, 2, filter, style);
+        assertFalse(plan.hasChanges());
+        assertEquals(0, plan.getPropertiesSet());
+        assertEquals(version, topicGraph.getVersion());
+
+        s = "" +
+                "* :v8EuMtl: two\n" +
+                "* :N5KBOAq: uno\n" +
+                "* three\n";
+        rootNode = parseToTree(s);
+        TreeViews.setId(rootNode, Note.getId(root));
+        plan = queries.update(rootNode, 2, filter, style);
+        assertEquals(1, plan.getNotesCreated());
+        assertEquals(1, plan.getNotesChanged());
+        assertEquals(1, plan.getChildrenDeleted());
+        assertEquals(2, plan.getChildrenInserted());
+        assertEquals(1, plan.toJson().getInt("notesChanged"));
+        assertNodesEqual(root, "two", "uno", "three");
+    }
+
     @Test
     public void testFindRootsAndIsolatedNotes() throws Exception {
         assertChildCount(0, queries.findRootNotes(filter, ViewStyle.Basic.Forward.getStyle(), 1));
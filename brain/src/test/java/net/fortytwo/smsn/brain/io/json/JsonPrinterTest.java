@@ -1,6 +1,7 @@
 package net.fortytwo.smsn.brain.io.json;
 
 import net.fortytwo.smsn.SemanticSynchrony;
+import net.fortytwo.smsn.brain.AtomId;
 import net.fortytwo.smsn.brain.io.wiki.WikiParser;
 import net.fortytwo.smsn.brain.model.dto.TreeNodeDTO;
 import net.fortytwo.smsn.brain.model.entities.Link;
@@ -96,4 +97,47 @@ public class JsonPrinterTest {
         assertEquals("Arthur Dent", j.getString(SemanticSynchrony.PropertyKeys.TITLE));
         assertEquals("12345", j.getString(SemanticSynchrony.PropertyKeys.TEXT));
     }
+
+    @Test
+    public void streamedOutputHasEveryField() throws Exception {
+        TreeNode<Link> tree = wikiParser.parse("" +
+                "* foo\n" +
+                "   * a \"quoted\" title which is rather long\n" +
+                "   * quux\n").getContent();
+        TreeNode<Link> bar = tree.getChildren().getFirst().getChildren().getFirst();
+        TreeViews.setId(bar, new AtomId("bar"));
+        TreeViews.setCreated(bar, 1234567890123L);
+        TreeViews.setWeight(bar, 0.75f);
+        TreeViews.setPriority(bar, 0.1f);
+        TreeViews.setSource(bar, "public");
+        TreeViews.setAlias(bar, "http://example.org/bar");
+        TreeViews.setShortcut(bar, "b");
+        TreeViews.setText(bar, "line one\n\tline two \u00e9");
+
+        int before = jsonPrinter.getTitleLengthCutoff();
+        try {
+            jsonPrinter.setTitleLengthCutoff(10);
+
+            JSONObject j = new JSONObject(jsonPrinter.toJsonText(tree).toJSONString());
+            JSONObject foo = j.getJSONArray(JsonFormat.Keys.CHILDREN).getJSONObject(0);
+            JSONArray children = foo.getJSONArray(JsonFormat.Keys.CHILDREN);
+            assertEquals(2, children.length());
+
+            JSONObject b = children.getJSONObject(0);
+            assertEquals("bar", b.getString(JsonFormat.Keys.ID));
+            assertEquals(1234567890123L, b.getLong(SemanticSynchrony.PropertyKeys.CREATED));
+            assertEquals(0.75, b.getDouble(SemanticSynchrony.PropertyKeys.WEIGHT), 1e-6);
+            assertEquals(0.1, b.getDouble(SemanticSynchrony.PropertyKeys.PRIORITY), 1e-6);
+            assertEquals("public", b.getString(SemanticSynchrony.PropertyKeys.SOURCE));
+            assertEquals("http://example.org/bar", b.getString(SemanticSynchrony.PropertyKeys.ALIAS));
+            assertEquals("b", b.getString(SemanticSynchrony.PropertyKeys.SHORTCUT));
+            assertEquals("line one\n\tline two \u00e9", b.getString(SemanticSynchrony.PropertyKeys.TEXT));
+            assertEquals("a \"quoted\"" + JsonFormat.TITLE_TRUNCATOR, b.getString(SemanticSynchrony.PropertyKeys.TITLE));
+
+            assertEquals("quux", children.getJSONObject(1).getString(SemanticSynchrony.PropertyKeys.TITLE));
+            assertNull(children.getJSONObject(1).opt(SemanticSynchrony.PropertyKeys.PRIORITY));
+        } finally {
+            jsonPrinter.setTitleLengthCutoff(before);
+        }
+    }
 }
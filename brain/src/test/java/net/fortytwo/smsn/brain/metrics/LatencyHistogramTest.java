@@ -0,0 +1,50 @@
+package net.fortytwo.smsn.brain.metrics;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketsCoverTheRangeOfLongWithoutGaps() {
+        for (long v : new long[]{0, 1, 31, 32, 33, 63, 64, 65, 1000, 123456789, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.indexOf(v);
+            assertTrue(LatencyHistogram.lowestValueOf(index) <= v);
+            if (Long.MAX_VALUE != v) {
+                assertTrue(LatencyHistogram.indexOf(v + 1) - index <= 1);
+            }
+        }
+        for (int i = 0; i < LatencyHistogram.indexOf(Long.MAX_VALUE); i++) {
+            assertEquals(i, LatencyHistogram.indexOf(LatencyHistogram.lowestValueOf(i)));
+        }
+    }
+
+    @Test
+    public void quantilesAreAccurateToAFewPercent() {
+        LatencyHistogram h = new LatencyHistogram();
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            // uniformly distributed between 1 and 101 milliseconds
+            h.record(1000000L + (long) (random.nextDouble() * 100000000L));
+        }
+
+        assertEquals(100000, h.getCount());
+        assertEquals(51e6, h.getMean(), 1e6);
+        assertEquals(51e6, h.getValueAtQuantile(0.5), 51e6 * 0.04);
+        assertEquals(91e6, h.getValueAtQuantile(0.9), 91e6 * 0.04);
+        assertEquals(100e6, h.getValueAtQuantile(0.99), 100e6 * 0.04);
+        assertTrue(h.getValueAtQuantile(1.0) <= h.getMax());
+    }
+
+    @Test
+    public void emptyHistogramHasNoValues() {
+        LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0, h.getCount());
+        assertEquals(0, h.getValueAtQuantile(0.99));
+        assertEquals(0.0, h.getMean(), 0.0);
+    }
+}
@@ -1,12 +1,24 @@
 package net.fortytwo.smsn.brain.model;
 
+import net.fortytwo.smsn.SemanticSynchrony;
 import net.fortytwo.smsn.brain.BrainTestBase;
 import net.fortytwo.smsn.brain.model.entities.Note;
+import net.fortytwo.smsn.brain.model.pg.PGTopicGraph;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
@@ -52,4 +64,53 @@ public class CreateFilteredGraphTest extends BrainTestBase {
         assertEquals(3, childList(childList(root).get(0)).size());
         assertNull(childList(root).get(3).getChildren());
     }
+
+    @Test
+    public void filteredViewMatchesFilteredCopy() throws Exception {
+        Note root = importNoteFromFile("io/wiki/wiki-example-4.txt");
+        Note.setTitle(root, "William James");
+
+        Filter publicFilter = new Filter(0f, 0.5f, DefaultSources.PERSONAL, DefaultSources.PERSONAL);
+        PGTopicGraph original = (PGTopicGraph) topicGraph;
+        Graph copy = original.copyGraph(publicFilter).getPropertyGraph();
+        Graph view = original.createFilteredView(publicFilter);
+
+        Set<String> notesInCopy = describeNotes(copy);
+        assertEquals(22, notesInCopy.size());
+        assertTrue(notesInCopy.contains(Note.getId(childList(root).get(3)).value + " \"\" "
+                + DefaultSources.PRIVATE));
+        assertEquals(notesInCopy, describeNotes(view));
+        assertEquals(countByLabel(copy.vertices()), countByLabel(view.vertices()));
+        assertEquals(countByLabel(copy.edges()), countByLabel(view.edges()));
+
+        // lookups by id agree with iteration
+        for (Iterator<Vertex> iter = view.vertices(); iter.hasNext(); ) {
+            assertTrue(view.vertices(iter.next().id()).hasNext());
+        }
+        for (Iterator<Edge> iter = view.edges(); iter.hasNext(); ) {
+            assertTrue(view.edges(iter.next().id()).hasNext());
+        }
+
+        // children of invisible notes are not included
+        String hiddenId = Note.getId(childList(childList(root).get(3)).get(0)).value;
+        assertFalse(describeNotes(view).stream().anyMatch(s -> s.startsWith(hiddenId)));
+    }
+
+    private Set<String> describeNotes(final Graph graph) {
+        Set<String> notes = new HashSet<>();
+        graph.vertices().forEachRemaining(v -> {
+            if (SemanticSynchrony.VertexLabels.NOTE.equals(v.label())) {
+                notes.add(v.value(SemanticSynchrony.PropertyKeys.ID) + " \""
+                        + v.value(SemanticSynchrony.PropertyKeys.TITLE) + "\" "
+                        + v.value(SemanticSynchrony.PropertyKeys.SOURCE));
+            }
+        });
+        return notes;
+    }
+
+    private Map<String, Integer> countByLabel(final Iterator<? extends Element> elements) {
+        Map<String, Integer> counts = new HashMap<>();
+        elements.forEachRemaining(e -> counts.merge(e.label(), 1, Integer::sum));
+        return counts;
+    }
 }
@@ -1,12 +1,18 @@
 package net.fortytwo.smsn.brain.model;
 
+import net.fortytwo.smsn.SemanticSynchrony;
 import net.fortytwo.smsn.brain.BrainTestBase;
 import net.fortytwo.smsn.brain.model.dto.NoteDTO;
 import net.fortytwo.smsn.brain.model.entities.Note;
+import net.fortytwo.smsn.brain.model.pg.PGNote;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -60,6 +66,53 @@ public class FilterTest extends BrainTestBase {
         assertTrue(filter.test(createNote(DefaultSources.UNIVERSAL, 1.0f)));
     }
 
+    @Test
+    public void changesToGraphNotesAreSeen() throws Exception {
+        Filter filter = new Filter(0.5f, 0.5f, DefaultSources.PUBLIC, DefaultSources.PUBLIC);
+        Note note = createNote();
+        Note.setSource(note, DefaultSources.UNIVERSAL);
+        Note.setWeight(note, 0.75f);
+        assertTrue(filter.test(note));
+
+        Note.setSource(note, DefaultSources.PRIVATE);
+        assertFalse(filter.test(note));
+        Note.setSource(note, DefaultSources.PUBLIC);
+        assertTrue(filter.test(note));
+        Note.setWeight(note, 0.25f);
+        assertFalse(filter.test(note));
+    }
+
+    @Test
+    public void cachedPropertiesDoNotOutliveRollback() throws Exception {
+        Filter filter = new Filter(0.5f, 0.5f, DefaultSources.PUBLIC, DefaultSources.PUBLIC);
+        Note note = createNote();
+        Note.setSource(note, DefaultSources.UNIVERSAL);
+        Note.setWeight(note, 0.75f);
+        assertTrue(filter.test(note));
+
+        // a rollback restores earlier values in the vertex, which the wrapper does not see being set
+        ((PGNote) note).asVertex().property(SemanticSynchrony.PropertyKeys.WEIGHT, 0.25f);
+        topicGraph.rollback();
+        assertFalse(filter.test(note));
+    }
+
+    @Test
+    public void batchTestMatchesSingleTests() throws Exception {
+        Filter filter = new Filter(0.5f, 0.5f, DefaultSources.PERSONAL, DefaultSources.PERSONAL);
+        List<Note> notes = Arrays.asList(
+                createNote(DefaultSources.UNIVERSAL, 0.5f),
+                createNote(DefaultSources.PRIVATE, 1.0f),
+                createNote(null, 1.0f),
+                createNote(DefaultSources.PUBLIC, (Float) null),
+                createNote(DefaultSources.PERSONAL, 0.75f));
+
+        BitSet visible = filter.testAll(notes);
+        for (int i = 0; i < notes.size(); i++) {
+            assertEquals(filter.test(notes.get(i)), visible.get(i));
+        }
+        assertEquals(2, visible.cardinality());
+    }
+
     private Note createNote(final String source, final Float weight) {
         Note note = NoteDTO.createNew();
         Note.setSource(note, source);
@@ -9,6 +9,8 @@ import org.junit.Test;
 import java.io.IOException;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 
 public class GetNotesByIdTest extends BrainTestBase {
 
@@ -69,4 +71,31 @@ public class GetNotesByIdTest extends BrainTestBase {
         }
         assertEquals(6, count);
     }
+
+    @Test
+    public void changedIdIsResolved() throws Exception {
+        Note note = createNote(new AtomId("oldId00"));
+        assertEquals(note, topicGraph.getNoteById(new AtomId("oldId00")).get());
+
+        Note.setId(note, new AtomId("newId00"));
+        assertEquals(note, topicGraph.getNoteById(new AtomId("newId00")).get());
+        assertFalse(topicGraph.getNoteById(new AtomId("oldId00")).isPresent());
+    }
+
+    @Test
+    public void destroyedNoteIsNotFound() throws Exception {
+        Note note = createNote(new AtomId("doomed0"));
+        assertEquals(note, topicGraph.getNoteById(new AtomId("doomed0")).get());
+
+        note.destroy();
+        assertFalse(topicGraph.getNoteById(new AtomId("doomed0")).isPresent());
+    }
+
+    @Test
+    public void wrappersAreReused() throws Exception {
+        Note note = createNote(new AtomId("reused0"));
+        assertSame(note, topicGraph.getNoteById(new AtomId("reused0")).get());
+        assertSame(topicGraph.getNoteById(new AtomId("reused0")).get(),
+                topicGraph.getNoteById(new AtomId("reused0")).get());
+    }
 }
@@ -0,0 +1,102 @@
+package net.fortytwo.smsn.brain.model.pg;
+
+import net.fortytwo.smsn.brain.BrainTestBase;
+import net.fortytwo.smsn.brain.model.TopicGraph;
+import net.fortytwo.smsn.brain.model.entities.Note;
+import net.fortytwo.smsn.brain.model.pg.tg.TinkerGraphWrapper;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NoteIndicesTest extends BrainTestBase {
+
+    @Test
+    public void allNotesAreFoundWithoutListNodes() {
+        Note arthur = createNote(ARTHUR_ID, "Arthur Dent");
+        Note ford = createNote(FORD_ID, "Ford Prefect");
+        Note zaphod = createNote(ZAPHOD_ID, "Zaphod Beeblebrox");
+        arthur.addChildAt(ford, 0);
+        arthur.addChildAt(zaphod, 1);
+        ford.addChildAt(zaphod, 0);
+
+        Set<Note> all = new HashSet<>();
+        topicGraph.getAllNotes().forEach(all::add);
+        assertEquals(3, all.size());
+        assertTrue(all.contains(arthur));
+        assertTrue(all.contains(ford));
+        assertTrue(all.contains(zaphod));
+    }
+
+    @Test
+    public void notesWithPriorityAreFound() {
+        Note arthur = createNote(ARTHUR_ID, "Arthur Dent");
+        Note ford = createNote(FORD_ID, "Ford Prefect");
+        createNote(ZAPHOD_ID, "Zaphod Beeblebrox");
+        assertEquals(0, countNotesWithPriority(topicGraph));
+
+        Note.setPriority(arthur, 0.5f);
+        Note.setPriority(ford, 1.0f);
+        assertEquals(2, countNotesWithPriority(topicGraph));
+
+        // a priority of zero is the default, and is not stored
+        Note.setPriority(arthur, 0f);
+        assertEquals(1, countNotesWithPriority(topicGraph));
+        assertEquals(FORD_ID, Note.getId(topicGraph.getNotesWithPriority().iterator().next()));
+
+        ford.destroy();
+        assertEquals(0, countNotesWithPriority(topicGraph));
+    }
+
+    @Test
+    public void notesInExistingGraphAreIndexed() {
+        Note arthur = createNote(ARTHUR_ID, "Arthur Dent");
+        Note ford = createNote(FORD_ID, "Ford Prefect");
+        arthur.addChildAt(ford, 0);
+        Note.setPriority(ford, 0.5f);
+
+        TopicGraph rewrapped = new PGTopicGraph(new TinkerGraphWrapper((TinkerGraph) graph));
+        assertEquals(2, countNotes(rewrapped));
+        assertEquals(1, countNotesWithPriority(rewrapped));
+    }
+
+    @Test
+    public void notesInExistingGraphAreSearchable() {
+        Note arthur = createNote(ARTHUR_ID, "Arthur Dent");
+        createNote(FORD_ID, "Ford Prefect");
+
+        TopicGraph rewrapped = new PGTopicGraph(new TinkerGraphWrapper((TinkerGraph) graph));
+        List<Note> byTitle = rewrapped.getNotesByTitleQuery("Arthur", filter);
+        assertEquals(1, byTitle.size());
+        assertEquals(Note.getId(arthur), Note.getId(byTitle.get(0)));
+        List<Note> byAcronym = rewrapped.getNotesByAcronym("ad", filter);
+        assertEquals(1, byAcronym.size());
+        assertEquals(Note.getId(arthur), Note.getId(byAcronym.get(0)));
+    }
+
+    @Test
+    public void isolatedNotesAreRemoved() {
+        Note arthur = createNote(ARTHUR_ID, "Arthur Dent");
+        Note ford = createNote(FORD_ID, "Ford Prefect");
+        createNote(ZAPHOD_ID, "Zaphod Beeblebrox");
+        arthur.addChildAt(ford, 0);
+
+        topicGraph.removeIsolatedNotes(filter);
+        assertEquals(2, countNotes());
+        assertFalse(topicGraph.getNoteById(ZAPHOD_ID).isPresent());
+    }
+
+    private int countNotesWithPriority(final TopicGraph graph) {
+        int count = 0;
+        for (Note ignored : graph.getNotesWithPriority()) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,135 @@
+package net.fortytwo.smsn.brain.model.pg;
+
+import net.fortytwo.smsn.brain.BrainTestBase;
+import net.fortytwo.smsn.brain.model.entities.Link;
+import net.fortytwo.smsn.brain.model.entities.ListNode;
+import net.fortytwo.smsn.brain.model.entities.Note;
+import net.fortytwo.smsn.brain.model.entities.TreeNode;
+import net.fortytwo.smsn.brain.query.ViewStyle;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class OrderedChildrenTest extends BrainTestBase {
+
+    @Test
+    public void childrenAreAddedAndRemovedInOrder() throws Exception {
+        ((PGTopicGraph) topicGraph).setChildrenAsEdges(true);
+
+        Note parent = createNoteWithTitle("parent");
+        Note a = createNoteWithTitle("a"), b = createNoteWithTitle("b"), c = createNoteWithTitle("c");
+        assertNull(parent.getChildren());
+
+        parent.addChildAt(b, 0);
+        parent.addChildAt(a, 0);
+        parent.addChildAt(c, 2);
+        assertEquals(Arrays.asList(a, b, c), ListNode.toJavaList(parent.getChildren()));
+
+        // repeatedly insert at the same position, using up the gap between ordinals
+        for (int i = 0; i < 30; i++) {
+            parent.addChildAt(createNoteWithTitle("x" + i), 1);
+        }
+        List<Note> children = ListNode.toJavaList(parent.getChildren());
+        assertEquals(33, children.size());
+        assertEquals(a, children.get(0));
+        assertEquals("x29", Note.getTitle(children.get(1)));
+        assertEquals("x0", Note.getTitle(children.get(30)));
+        assertEquals(b, children.get(31));
+        assertEquals(c, children.get(32));
+
+        for (int i = 0; i < 30; i++) {
+            parent.deleteChildAt(1);
+        }
+        parent.deleteChildAt(1);
+        assertEquals(Arrays.asList(a, c), ListNode.toJavaList(parent.getChildren()));
+
+        parent.setChildren(topicGraph.createListOfNotes(c, b, a));
+        assertEquals(Arrays.asList(c, b, a), ListNode.toJavaList(parent.getChildren()));
+    }
+
+    @Test
+    public void viewsAreTheSameInEitherMode() throws Exception {
+        Note parent = createNoteWithTitle("parent");
+        Note a = createNoteWithTitle("a"), b = createNoteWithTitle("b");
+        parent.addChildAt(a, 0);
+        parent.addChildAt(b, 1);
+        a.addChildAt(b, 0);
+
+        TreeNode<Link> forward = queries.view(parent, 2, filter, viewStyle);
+        TreeNode<Link> backward = queries.view(b, 2, filter, ViewStyle.Basic.Backward.getStyle());
+
+        ((PGTopicGraph) topicGraph).setChildrenAsEdges(true);
+        assertEquals(2, ((PGTopicGraph) topicGraph).migrateChildren());
+        assertEquals(0, ((PGTopicGraph) topicGraph).migrateChildren());
+
+        assertEquals(Arrays.asList(a, b), ListNode.toJavaList(parent.getChildren()));
+        assertEquals(2, b.getFirstOf().size());
+        assertEquals(toString(forward), toString(queries.view(parent, 2, filter, viewStyle)));
+        // the order of parents is not defined
+        assertEquals(backward.getNumberOfChildren(),
+                queries.view(b, 2, filter, ViewStyle.Basic.Backward.getStyle()).getNumberOfChildren());
+
+        // ...and back again
+        ((PGTopicGraph) topicGraph).setChildrenAsEdges(false);
+        assertEquals(2, ((PGTopicGraph) topicGraph).migrateChildren());
+        assertEquals(toString(forward), toString(queries.view(parent, 2, filter, viewStyle)));
+    }
+
+    @Test
+    public void childrenAreModifiedThroughTheListView() throws Exception {
+        ((PGTopicGraph) topicGraph).setChildrenAsEdges(true);
+
+        Note parent = createNoteWithTitle("parent");
+        Note a = createNoteWithTitle("a"), b = createNoteWithTitle("b"), c = createNoteWithTitle("c"),
+                d = createNoteWithTitle("d");
+        parent.addChildAt(a, 0);
+        parent.addChildAt(b, 1);
+
+        ListNode<Note> list = parent.getChildren();
+        list = list.add(2, c);
+        assertEquals(Arrays.asList(a, b, c), ListNode.toJavaList(parent.getChildren()));
+        list = list.add(0, d);
+        assertEquals(d, list.getFirst());
+        assertEquals(Arrays.asList(d, a, b, c), ListNode.toJavaList(parent.getChildren()));
+
+        list = list.remove(0);
+        assertEquals(a, list.getFirst());
+        list.getRest().setFirst(d);
+        assertEquals(Arrays.asList(a, d, c), ListNode.toJavaList(parent.getChildren()));
+        assertEquals(parent, d.getSubject(list));
+
+        // the new rest may be a view of the same children
+        list.setRest(list.getRest().getRest());
+        assertEquals(Arrays.asList(a, c), ListNode.toJavaList(parent.getChildren()));
+        Note other = createNoteWithTitle("other");
+        other.addChildAt(b, 0);
+        other.addChildAt(d, 1);
+        list.setRest(other.getChildren());
+        assertEquals(Arrays.asList(a, b, d), ListNode.toJavaList(parent.getChildren()));
+        assertEquals(Arrays.asList(b, d), ListNode.toJavaList(other.getChildren()));
+        assertEquals(2, b.getFirstOf().size());
+        assertEquals(0, c.getFirstOf().size());
+
+        list.getRest().destroy();
+        assertEquals(Arrays.asList(a, d), ListNode.toJavaList(parent.getChildren()));
+        assertEquals(2, topicGraph.getNumberOfChildren(parent));
+        assertNull(list.remove(1).getRest());
+        assertNull(list.remove(0));
+        assertNull(parent.getChildren());
+    }
+
+    private String toString(final TreeNode<Link> node) {
+        StringBuilder sb = new StringBuilder(node.getValue().getLabel());
+        sb.append("(").append(node.getNumberOfChildren()).append(",").append(node.getNumberOfParents()).append(")[");
+        if (null != node.getChildren()) {
+            for (TreeNode<Link> child : ListNode.toJavaList(node.getChildren())) {
+                sb.append(toString(child)).append(" ");
+            }
+        }
+        return sb.append("]").toString();
+    }
+}
@@ -0,0 +1,68 @@
+package net.fortytwo.smsn.brain.model.pg.tg;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class InvertedIndexTest {
+    private InvertedIndex<String> index;
+
+    @Before
+    public void setUp() {
+        index = new InvertedIndex<>();
+        index.put("arthur", "Arthur Dent");
+        index.put("flyer", "Random Frequent Flyer Dent");
+        index.put("arthurOnly", "Arthur");
+        index.put("towel", "Arthur's moth-eaten towel");
+    }
+
+    @Test
+    public void termsAreMatchedCaseInsensitively() {
+        assertEquals(3, index.search("ARTHUR").size());
+        assertEquals(2, index.search("dent").size());
+        assertEquals(0, index.search("Zaphod").size());
+    }
+
+    @Test
+    public void partialWordsMatchOnlyWithWildcards() {
+        assertEquals(0, index.search("Arth").size());
+        assertEquals(3, index.search("Arth*").size());
+        assertEquals(2, index.search("*dENT").size());
+        assertEquals(1, index.search("tow?l").size());
+    }
+
+    @Test
+    public void defaultOperatorIsOr() {
+        assertEquals(3, index.search("Arthur Beeblebrox").size());
+        assertEquals(4, index.search("Arthur OR Dent").size());
+        assertEquals(1, index.search("Arthur AND Dent").size());
+    }
+
+    @Test
+    public void phrasesRespectWordOrder() {
+        assertEquals(1, index.search("\"Arthur Dent\"").size());
+        assertEquals(0, index.search("\"Dent Arthur\"").size());
+        assertEquals(1, index.search("moth-eaten").size());
+    }
+
+    @Test
+    public void shorterMatchScoresHigher() {
+        Map<String, Float> hits = index.search("arthur");
+        assertTrue(hits.get("arthurOnly") > hits.get("arthur"));
+        assertTrue(hits.get("arthur") > hits.get("towel"));
+    }
+
+    @Test
+    public void removedDocumentsAreNotFound() {
+        index.remove("arthur");
+        assertEquals(1, index.search("dent").size());
+
+        index.put("flyer", "Frequent Flyer");
+        assertEquals(0, index.search("dent").size());
+        assertEquals(3, index.size());
+    }
+}
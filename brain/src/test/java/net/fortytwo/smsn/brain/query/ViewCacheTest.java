@@ -0,0 +1,70 @@
+package net.fortytwo.smsn.brain.query;
+
+import net.fortytwo.smsn.brain.BrainTestBase;
+import net.fortytwo.smsn.brain.io.json.JsonText;
+import net.fortytwo.smsn.brain.model.entities.Note;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ViewCacheTest extends BrainTestBase {
+    @Test
+    public void viewsAreCachedUntilTheGraphChanges() throws Exception {
+        Note note = createNoteWithTitle("one");
+        ViewCache cache = new ViewCache(topicGraph, 10);
+
+        List<Object> key = ViewCache.createKey("view", Note.getId(note).value, 2, filter, viewStyle);
+        assertNull(cache.get(key));
+
+        JsonText json = new JsonText("{}");
+        cache.put(key, json);
+        assertSame(json, cache.get(key));
+        assertSame(json, cache.get(ViewCache.createKey("view", Note.getId(note).value, 2, filter, viewStyle)));
+
+        Note.setTitle(note, "two");
+        assertNull(cache.get(key));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void keysDistinguishAllParameters() throws Exception {
+        List<Object> key = ViewCache.createKey("view", "abc", 2, filter, viewStyle);
+
+        assertNotEquals(key, ViewCache.createKey("FullText", "abc", 2, filter, viewStyle));
+        assertNotEquals(key, ViewCache.createKey("view", "abd", 2, filter, viewStyle));
+        assertNotEquals(key, ViewCache.createKey("view", "abc", 3, filter, viewStyle));
+        assertNotEquals(key, ViewCache.createKey("view", "abc", 2, filter, ViewStyle.Basic.Backward.getStyle()));
+        assertNotEquals(key, ViewCache.createKey("view", "abc", 2, filter, viewStyle, 100));
+    }
+
+    @Test
+    public void leastRecentlyUsedViewsAreEvicted() throws Exception {
+        ViewCache cache = new ViewCache(topicGraph, 2);
+        List<Object> a = ViewCache.createKey("view", "a", 1, filter, viewStyle);
+        List<Object> b = ViewCache.createKey("view", "b", 1, filter, viewStyle);
+        List<Object> c = ViewCache.createKey("view", "c", 1, filter, viewStyle);
+
+        cache.put(a, new JsonText("{}"));
+        cache.put(b, new JsonText("{}"));
+        cache.get(a);
+        cache.put(c, new JsonText("{}"));
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get(b));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void nothingIsCachedIfCapacityIsZero() throws Exception {
+        ViewCache cache = new ViewCache(topicGraph, 0);
+        List<Object> key = ViewCache.createKey("view", "a", 1, filter, viewStyle);
+
+        cache.put(key, new JsonText("{}"));
+        assertNull(cache.get(key));
+    }
+}
@@ -0,0 +1,60 @@
+package net.fortytwo.smsn.brain.rdf;
+
+import org.junit.Test;
+import org.openrdf.model.IRI;
+import org.openrdf.model.Statement;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.SimpleValueFactory;
+import org.openrdf.model.vocabulary.RDFS;
+import org.openrdf.rio.helpers.StatementCollector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class DistinctStatementHandlerTest {
+    private final ValueFactory vf = SimpleValueFactory.getInstance();
+
+    @Test
+    public void eachStatementIsPassedOnOnce() throws Exception {
+        List<Statement> received = new ArrayList<>();
+        DistinctStatementHandler handler = new DistinctStatementHandler(new StatementCollector(received));
+
+        IRI a = vf.createIRI("http://example.org/a");
+        IRI b = vf.createIRI("http://example.org/b");
+
+        handler.startRDF();
+        handler.handleStatement(vf.createStatement(a, RDFS.LABEL, vf.createLiteral("a")));
+        handler.handleStatement(vf.createStatement(a, RDFS.LABEL, vf.createLiteral("a")));
+        handler.handleStatement(vf.createStatement(a, RDFS.LABEL, vf.createLiteral("a", "en")));
+        handler.handleStatement(vf.createStatement(b, RDFS.LABEL, vf.createLiteral("a")));
+        handler.handleStatement(vf.createStatement(a, RDFS.SEEALSO, b));
+        handler.handleStatement(vf.createStatement(a, RDFS.SEEALSO, b, a));
+        handler.handleStatement(vf.createStatement(a, RDFS.SEEALSO, b));
+        handler.endRDF();
+
+        assertEquals(5, received.size());
+        assertEquals(5, handler.getNumberOfStatements());
+        assertEquals(2, handler.getNumberOfDuplicates());
+    }
+
+    @Test
+    public void manyStatementsAreDistinguished() throws Exception {
+        List<Statement> received = new ArrayList<>();
+        DistinctStatementHandler handler = new DistinctStatementHandler(new StatementCollector(received));
+        IRI subject = vf.createIRI("http://example.org/s");
+
+        // enough statements to grow the table several times
+        int total = 300000;
+        handler.startRDF();
+        for (int i = 0; i < total; i++) {
+            handler.handleStatement(vf.createStatement(subject, RDFS.LABEL, vf.createLiteral(i)));
+            handler.handleStatement(vf.createStatement(subject, RDFS.LABEL, vf.createLiteral(i / 2)));
+        }
+        handler.endRDF();
+
+        assertEquals(total, received.size());
+        assertEquals(total, handler.getNumberOfDuplicates());
+    }
+}
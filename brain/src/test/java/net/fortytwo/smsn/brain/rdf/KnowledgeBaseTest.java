@@ -60,10 +60,12 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -328,6 +330,79 @@ public class KnowledgeBaseTest extends BrainTestBase {
         assertFalse(t.getValueRegex().matcher("The Least Known Page on the Web").matches());
     }
 
+    @Test
+    public void changedNotesAreReclassified() throws Exception {
+        KnowledgeBase kb = new KnowledgeBase(topicGraph);
+        kb.addDefaultClasses();
+
+        Note page = createNoteWithTitle("Example");
+        kb.inferClasses(null, null);
+        assertFalse(kb.hasChanges());
+
+        Note.setTitle(page, "Example (web page)");
+        Note.setAlias(page, "http://example.org");
+        assertTrue(kb.hasChanges());
+        assertTrue(kb.inferChangedClasses() >= 1);
+        assertFalse(kb.hasChanges());
+        assertClassEquals("webpage", page, kb);
+
+        // nothing has changed since the last pass
+        assertEquals(0, kb.inferChangedClasses());
+    }
+
+    @Test
+    public void parallelInferenceDoesNotDependOnNumberOfThreads() throws Exception {
+        List<Note> notes = createRandomNotes(500, 5, new Random(42));
+        Note page = notes.get(0);
+        Note.setTitle(page, "Example (web page)");
+        Note.setAlias(page, "http://example.org");
+
+        KnowledgeBase single = new KnowledgeBase(topicGraph);
+        single.addDefaultClasses();
+        KnowledgeBase multiple = new KnowledgeBase(topicGraph);
+        multiple.addDefaultClasses();
+
+        for (int i = 0; i < 3; i++) {
+            single.inferClassesInParallel(1);
+            multiple.inferClassesInParallel(4);
+        }
+
+        assertClassEquals("webpage", page, multiple);
+        for (Note note : notes) {
+            assertEquals(describe(single.getClassInfo(note)), describe(multiple.getClassInfo(note)));
+        }
+    }
+
+    // a random forest of notes, whose titles match a variety of classes
+    private List<Note> createRandomNotes(final int numberOfNotes, final int maxChildren, final Random random) {
+        String[] titles = {"Arthur Dent", "Ford Prefect", "Trillian", "http://en.wikipedia.org/wiki/Towel_Day",
+                "\"Don't Panic\"", "Arthur Dent's quotes", "1979", "ISBN 0-330-25864-8",
+                "@inproceedings{adams1979}", "The Hitchhiker's Guide to the Galaxy"};
+
+        List<Note> notes = new ArrayList<>(numberOfNotes);
+        for (int i = 0; i < numberOfNotes; i++) {
+            notes.add(createNoteWithTitle(titles[random.nextInt(titles.length)] + " " + i));
+        }
+        for (Note parent : notes) {
+            int n = random.nextInt(maxChildren + 1);
+            for (int i = 0; i < n; i++) {
+                parent.addChildAt(notes.get(random.nextInt(notes.size())), i);
+            }
+        }
+        return notes;
+    }
+
+    private String describe(final List<KnowledgeBase.NoteClassEntry> entries) {
+        StringBuilder sb = new StringBuilder();
+        if (null != entries) {
+            for (KnowledgeBase.NoteClassEntry e : entries) {
+                sb.append(e.getInferredClassName()).append(" ")
+                        .append(e.getOutScore()).append("+").append(e.getInScore()).append(" ");
+            }
+        }
+        return sb.toString();
+    }
+
     @Ignore  // TODO: restore me
     @Test
     public void testInference() throws Exception {
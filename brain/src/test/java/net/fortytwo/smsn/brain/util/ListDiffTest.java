@@ -3,238 +3,88 @@ package net.fortytwo.smsn.brain.util;
 import org.junit.Test;
 
 import java.util.Comparator;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
 
 public class ListDiffTest {
     private final Comparator<String> cmp = new ListDiff.StringComparator();
 
-    private String findDiff(final String before,
-                            final String after) {
-        List<String> beforeList = ListDiff.toList(before);
-        List<String> afterList = ListDiff.toList(after);
-
-        List<String> lcs = ListDiff.longestCommonSubsequence(beforeList, afterList, cmp);
-        return ListDiff.toString(lcs);
-    }
-
-    private int additions;
-    private int removals;
-
-    private String applyDiff(final String before,
-                             final String after,
-                             final String diff) {
-        additions = 0;
-        removals = 0;
-
-        List<String> beforeList = ListDiff.toList(before);
-        List<String> afterList = ListDiff.toList(after);
-        List<String> diffList = ListDiff.toList(diff);
-
-        final List<String> work = new LinkedList<>();
-        work.addAll(beforeList);
-
-        ListDiff.DiffEditor<String> ed = new ListDiff.DiffEditor<String>() {
-            public void add(int position, String letter) {
-                //System.out.println("" + position + ": +" + letter);
-                work.add(position, letter);
-                additions++;
-            }
-
-            public void delete(int position, String letter) {
-                //System.out.println("" + position + ": -" + letter);
-                work.remove(position);
-                removals++;
-            }
-        };
-
-        Comparator<String> cmp = new ListDiff.StringComparator();
-        ListDiff.applyDiff(beforeList, afterList, diffList, cmp, ed);
-
-        return ListDiff.toString(work);
-    }
-
     @Test
-    public void testSubstitutionAtEndOfString() throws Exception {
-        String before = "atg";
-        String after = "aty";
-
-        String diff = findDiff(before, after);
-        assertEquals("at", diff);
-
-        assertEquals(after, applyDiff(before, after, diff));
-        assertEquals(1, additions);
-        assertEquals(1, removals);
+    public void editScriptTransformsFirstSequenceIntoSecond() throws Exception {
+        assertEditScript("", "");
+        assertEditScript("abcde", "");
+        assertEditScript("", "abcde");
+        assertEditScript("abcde", "abcde");
+        assertEditScript("abcde", "acde");
+        assertEditScript("abcde", "abc");
+        assertEditScript("abcde", "ace");
+        assertEditScript("atg", "aty");
+        assertEditScript("1", "2");
+        assertEditScript("abc", "df;lkfgjh");
+        assertEditScript("...X..", "...Y..");
+        assertEditScript("...XY..", "...YX..");
+        assertEditScript("...ABC..", "...CBA..");
+        assertEditScript("yeurytuwii", "26738");
+        assertEditScript("abcabba", "cbabac");
     }
 
     @Test
-    public void testAddAll() throws Exception {
-        String before = "";
-        String after = "abcde";
-
-        String diff = findDiff(before, after);
-        assertEquals("", diff);
-
-        assertEquals(after, applyDiff(before, after, diff));
-        assertEquals(5, additions);
-        assertEquals(0, removals);
-    }
-
-    @Test
-    public void testRemoveAll() throws Exception {
-        String before = "abcde";
-        String after = "";
-
-        String diff = findDiff(before, after);
-        assertEquals("", diff);
-
-        assertEquals(after, applyDiff(before, after, diff));
-        assertEquals(0, additions);
-        assertEquals(5, removals);
-    }
-
-    @Test
-    public void testTrivial() throws Exception {
-        String before = "";
-        String after = "";
-
-        String diff = findDiff(before, after);
-        assertEquals("", diff);
-
-        assertEquals(after, applyDiff(before, after, diff));
-        assertEquals(0, additions);
-        assertEquals(0, removals);
-    }
-
-    @Test
-    public void testNoDifference() throws Exception {
-        String before = "abcde";
-        String after = "abcde";
-
-        String diff = findDiff(before, after);
-        assertEquals("abcde", diff);
-
-        assertEquals(after, applyDiff(before, after, diff));
-        assertEquals(0, additions);
-        assertEquals(0, removals);
-    }
-
-    @Test
-    public void testSimpleRemoval() throws Exception {
-        String before = "abcde";
-        String after = "acde";
-
-        String diff = findDiff(before, after);
-        assertEquals("acde", diff);
-
-        assertEquals(after, applyDiff(before, after, diff));
-        assertEquals(0, additions);
-        assertEquals(1, removals);
-    }
-
-    @Test
-    public void testConsecutiveRemoval() throws Exception {
-        String before = "abcde";
-        String after = "abc";
-
-        String diff = findDiff(before, after);
-        assertEquals("abc", diff);
-
-        assertEquals(after, applyDiff(before, after, diff));
-        assertEquals(0, additions);
-        assertEquals(2, removals);
-    }
-
-    @Test
-    public void testNonconsecutiveRemoval() throws Exception {
-        String before = "abcde";
-        String after = "ace";
-
-        String diff = findDiff(before, after);
-        assertEquals("ace", diff);
-
-        assertEquals(after, applyDiff(before, after, diff));
-        assertEquals(0, additions);
-        assertEquals(2, removals);
-    }
-
-    @Test
-    public void testSimpleSubstitution() throws Exception {
-        String before = "...X..";
-        String after = "...Y..";
-
-        String diff = findDiff(before, after);
-        assertEquals(".....", diff);
-
-        assertEquals(after, applyDiff(before, after, diff));
-        assertEquals(1, additions);
-        assertEquals(1, removals);
-    }
-
-    @Test
-    public void testSwapAdjacent() throws Exception {
-        String before = "...XY..";
-        String after = "...YX..";
-
-        String diff = findDiff(before, after);
-        assertEquals("...X..", diff);
-
-        assertEquals(after, applyDiff(before, after, diff));
-        assertEquals(1, additions);
-        assertEquals(1, removals);
-    }
-
-    @Test
-    public void testReverse() throws Exception {
-        String before = "...ABC..";
-        String after = "...CBA..";
-
-        String diff = findDiff(before, after);
-        assertEquals("...A..", diff);
-
-        assertEquals(after, applyDiff(before, after, diff));
-        assertEquals(2, additions);
-        assertEquals(2, removals);
-    }
-
-    @Test
-    public void testNothingInCommonSameLength() throws Exception {
-        String before = "1";
-        String after = "2";
-
-        String diff = findDiff(before, after);
-        assertEquals("", diff);
-
-        assertEquals(after, applyDiff(before, after, diff));
-        assertEquals(1, additions);
-        assertEquals(1, removals);
-    }
-
-    @Test
-    public void testNothingInCommonFirstIsShorter() throws Exception {
-        String before = "abc";
-        String after = "df;lkfgjh";
-
-        String diff = findDiff(before, after);
-        assertEquals("", diff);
+    public void editScriptIsMinimal() throws Exception {
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            assertEditScript(randomString(random), randomString(random));
+        }
+    }
+
+    private String randomString(final Random random) {
+        StringBuilder sb = new StringBuilder();
+        int length = random.nextInt(30);
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + random.nextInt(4)));
+        }
+        return sb.toString();
+    }
+
+    // checks the result of an edit script, and that it has as few edits as the longest common subsequence allows
+    private void assertEditScript(final String before, final String after) {
+        List<ListDiff.Edit<String>> script
+                = ListDiff.shortestEditScript(ListDiff.toList(before), ListDiff.toList(after), cmp);
+
+        StringBuilder kept = new StringBuilder();
+        StringBuilder result = new StringBuilder();
+        StringBuilder original = new StringBuilder();
+        for (ListDiff.Edit<String> edit : script) {
+            switch (edit.getOperation()) {
+                case Keep:
+                    kept.append(edit.getValue());
+                    result.append(edit.getValue());
+                    original.append(edit.getValue());
+                    break;
+                case Delete:
+                    original.append(edit.getValue());
+                    break;
+                case Insert:
+                    result.append(edit.getValue());
+                    break;
+            }
+        }
 
-        assertEquals(after, applyDiff(before, after, diff));
-        assertEquals(9, additions);
-        assertEquals(3, removals);
+        assertEquals(before, original.toString());
+        assertEquals(after, result.toString());
+        assertEquals(lengthOfLongestCommonSubsequence(before, after), kept.length());
     }
 
-    @Test
-    public void testNothingInCommonFirstIsLonger() throws Exception {
-        String before = "yeurytuwii";
-        String after =  "26738";
-
-        String diff = findDiff(before, after);
-        assertEquals("", diff);
-
-        assertEquals(after, applyDiff(before, after, diff));
-        assertEquals(5, additions);
-        assertEquals(10, removals);
+    private int lengthOfLongestCommonSubsequence(final String a, final String b) {
+        int[][] lengths = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i < a.length(); i++) {
+            for (int j = 0; j < b.length(); j++) {
+                lengths[i + 1][j + 1] = a.charAt(i) == b.charAt(j)
+                        ? lengths[i][j] + 1
+                        : Math.max(lengths[i + 1][j], lengths[i][j + 1]);
+            }
+        }
+        return lengths[a.length()][b.length()];
     }
 }
@@ -0,0 +1,84 @@
+package net.fortytwo.smsn.benchmarks;
+
+import net.fortytwo.smsn.SemanticSynchrony;
+import net.fortytwo.smsn.brain.AtomId;
+import net.fortytwo.smsn.brain.model.Filter;
+import net.fortytwo.smsn.brain.model.entities.Note;
+import net.fortytwo.smsn.server.ActionContext;
+import net.fortytwo.smsn.server.SmSnScriptEngine;
+import net.fortytwo.smsn.server.actions.GetView;
+import net.fortytwo.smsn.server.actions.SetProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of a mix of concurrent reads (GetView) and writes (SetProperties),
+ * in a ratio of nine to one, performed as actions against the brain
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ActionLoadBenchmark extends BrainBenchmarkBase {
+
+    private final List<String> ids = new ArrayList<>();
+
+    @Override
+    protected void setUp() {
+        for (Note note : brain.getNotes()) {
+            ids.add(Note.getId(note).value);
+        }
+    }
+
+    /**
+     * A client of the brain, with its own source of randomly chosen notes
+     */
+    @State(Scope.Thread)
+    public static class Client {
+        private SmSnScriptEngine.ActionPerformer performer;
+        private Random random;
+
+        @Setup
+        public void create(final ActionLoadBenchmark benchmark) {
+            performer = new SmSnScriptEngine.ActionPerformer(benchmark.brain.getWrapper().getGraph());
+            random = new Random(Thread.currentThread().getId());
+        }
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(9)
+    public ActionContext read(final Client client) {
+        GetView action = new GetView();
+        action.setRoot(nextId(client));
+        action.setHeight(3);
+        action.setFilter(Filter.noFilter());
+        return client.performer.perform(action);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public ActionContext write(final Client client) {
+        SetProperties action = new SetProperties();
+        action.setId(new AtomId(nextId(client)));
+        action.setName(SemanticSynchrony.PropertyKeys.WEIGHT);
+        action.setValue(1.0 - client.random.nextDouble());
+        action.setFilter(Filter.noFilter());
+        return client.performer.perform(action);
+    }
+
+    private String nextId(final Client client) {
+        return ids.get(client.random.nextInt(ids.size()));
+    }
+}
@@ -0,0 +1,63 @@
+package net.fortytwo.smsn.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+
+/**
+ * Shared state of the benchmarks which run against a synthetic brain, on each graph backend
+ */
+@State(Scope.Benchmark)
+public abstract class BrainBenchmarkBase {
+
+    @Param({"TinkerGraph", "Neo4j"})
+    public SyntheticBrain.Backend backend;
+
+    @Param({"10000"})
+    public int numberOfNotes;
+
+    @Param({"10"})
+    public int maxChildren;
+
+    @Param({"30"})
+    public int meanTitleLength;
+
+    protected SyntheticBrain brain;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void createBrain() throws Exception {
+        brain = SyntheticBrain.create(backend, new SyntheticBrain.Settings()
+                .setNumberOfNotes(numberOfNotes)
+                .setMaxChildren(maxChildren)
+                .setMeanTitleLength(meanTitleLength));
+        setUp();
+    }
+
+    @TearDown(Level.Trial)
+    public void closeBrain() throws IOException {
+        tearDown();
+        brain.close();
+    }
+
+    // override in subclasses
+    protected void setUp() throws Exception {}
+
+    // override in subclasses
+    protected void tearDown() throws IOException {}
+
+    /**
+     * @return the next of a deterministic sequence of numbers between 0 (inclusive) and max (exclusive),
+     * which jumps around the range so that consecutive operations do not touch neighboring notes
+     */
+    protected int nextIndex(final int max) {
+        next = (next + 7919) % max;
+        return next;
+    }
+}
@@ -0,0 +1,55 @@
+package net.fortytwo.smsn.benchmarks;
+
+import net.fortytwo.smsn.SemanticSynchrony;
+import net.fortytwo.smsn.brain.model.Filter;
+import net.fortytwo.smsn.brain.model.entities.Note;
+import net.fortytwo.smsn.config.DataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-note cost of testing a filter against a fixed batch of notes, one note at a time and all at once.
+ * The filter admits only some sources, so that both the source and the weight of each note are read
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(FilterBenchmark.BATCH_SIZE)
+public class FilterBenchmark extends BrainBenchmarkBase {
+
+    static final int BATCH_SIZE = 1000;
+
+    private Filter filter;
+    private List<Note> notes;
+
+    @Override
+    protected void setUp() {
+        List<DataSource> sources = SemanticSynchrony.getConfiguration().getSources();
+        String minSource = sources.get(sources.size() / 2).getName();
+        filter = new Filter(0.25f, 0.5f, minSource, minSource);
+
+        notes = brain.getNotes().subList(0, Math.min(BATCH_SIZE, brain.getNotes().size()));
+    }
+
+    @Benchmark
+    public int single() {
+        int visible = 0;
+        for (Note note : notes) {
+            if (filter.test(note)) {
+                visible++;
+            }
+        }
+        return visible;
+    }
+
+    @Benchmark
+    public BitSet batch() {
+        return filter.testAll(notes);
+    }
+}
@@ -0,0 +1,35 @@
+package net.fortytwo.smsn.benchmarks;
+
+import net.fortytwo.smsn.brain.AtomId;
+import net.fortytwo.smsn.brain.model.entities.Note;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures id-to-note lookups. If lookups are constant-time, the cost per lookup stays flat as the brain grows;
+ * compare runs with e.g. -p numberOfNotes=1000,10000,100000
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GetNoteByIdBenchmark extends BrainBenchmarkBase {
+
+    private AtomId[] ids;
+
+    @Override
+    protected void setUp() {
+        ids = new AtomId[brain.getNotes().size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = Note.getId(brain.getNotes().get(i));
+        }
+    }
+
+    @Benchmark
+    public Optional<Note> getNoteById() {
+        return brain.getTopicGraph().getNoteById(ids[nextIndex(ids.length)]);
+    }
+}
@@ -0,0 +1,40 @@
+package net.fortytwo.smsn.benchmarks;
+
+import net.fortytwo.smsn.brain.rdf.KnowledgeBase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openrdf.rio.RDFHandlerException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures type inference over the whole brain, both from scratch
+ * and as an iteration which builds upon previous inference (as for InferTypes)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class InferClassesBenchmark extends BrainBenchmarkBase {
+
+    private KnowledgeBase knowledgeBase;
+
+    @Override
+    protected void setUp() throws Exception {
+        knowledgeBase = new KnowledgeBase(brain.getTopicGraph());
+        knowledgeBase.addDefaultClasses();
+    }
+
+    @Benchmark
+    public KnowledgeBase incremental() throws RDFHandlerException {
+        knowledgeBase.inferClasses(null, null);
+        return knowledgeBase;
+    }
+
+    @Benchmark
+    public KnowledgeBase fromScratch() throws RDFHandlerException {
+        knowledgeBase.reset();
+        knowledgeBase.inferClasses(null, null);
+        return knowledgeBase;
+    }
+}
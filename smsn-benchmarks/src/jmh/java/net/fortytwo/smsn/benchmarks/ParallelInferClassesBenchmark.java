@@ -0,0 +1,47 @@
+package net.fortytwo.smsn.benchmarks;
+
+import net.fortytwo.smsn.brain.rdf.KnowledgeBase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how a pass of parallel type inference over the whole brain scales with the number of threads
+ * (as for InferTypes, with the inferenceThreads setting).
+ * <p>
+ * Like the other benchmarks, this one runs by default against a brain of 10,000 notes, so that the whole suite
+ * completes in minutes on both backends. Scaling is best judged against a brain of 500,000 notes, e.g.
+ * <pre>
+ *   ./gradlew :smsn-benchmarks:jmhJar
+ *   java -jar smsn-benchmarks/build/libs/smsn-benchmarks-*-jmh.jar ParallelInferClassesBenchmark \
+ *       -p numberOfNotes=500000 -p backend=TinkerGraph
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParallelInferClassesBenchmark extends BrainBenchmarkBase {
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private KnowledgeBase knowledgeBase;
+
+    @Override
+    protected void setUp() throws Exception {
+        knowledgeBase = new KnowledgeBase(brain.getTopicGraph());
+        knowledgeBase.addDefaultClasses();
+
+        // the first pass classifies notes only by value and alias, so it is not representative
+        knowledgeBase.inferClassesInParallel(threads);
+    }
+
+    @Benchmark
+    public KnowledgeBase inferClassesInParallel() {
+        knowledgeBase.inferClassesInParallel(threads);
+        return knowledgeBase;
+    }
+}
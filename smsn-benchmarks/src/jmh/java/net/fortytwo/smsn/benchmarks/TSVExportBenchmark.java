@@ -0,0 +1,79 @@
+package net.fortytwo.smsn.benchmarks;
+
+import net.fortytwo.smsn.brain.io.NoteWriter;
+import net.fortytwo.smsn.brain.io.edges.EdgeWriter;
+import net.fortytwo.smsn.brain.io.vertices.VertexWriter;
+import net.fortytwo.smsn.brain.model.Filter;
+import net.fortytwo.smsn.brain.rdf.KnowledgeBase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures export to the vertex and edge TSV formats, both to a single file and to parallel partition files
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TSVExportBenchmark extends BrainBenchmarkBase {
+
+    @Param({"vertices", "edges"})
+    public String format;
+
+    @Param({"1", "4"})
+    public int partitions;
+
+    private File directory;
+    private KnowledgeBase knowledgeBase;
+
+    @Override
+    protected void setUp() throws IOException {
+        directory = Files.createTempDirectory("smsn-benchmark-tsv").toFile();
+        knowledgeBase = new KnowledgeBase(brain.getTopicGraph());
+    }
+
+    @Override
+    protected void tearDown() {
+        deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public void export() throws IOException {
+        NoteWriter writer = "edges".equals(format) ? new EdgeWriter() : new VertexWriter();
+        NoteWriter.Context context = new NoteWriter.Context();
+        context.setTopicGraph(brain.getTopicGraph());
+        context.setKnowledgeBase(knowledgeBase);
+        context.setFilter(Filter.noFilter());
+        context.setPartitions(partitions);
+
+        if (partitions > 1) {
+            context.setDestDirectory(new File(directory, "partitioned"));
+            writer.doWrite(context);
+        } else {
+            try (OutputStream out = new BufferedOutputStream(
+                    new FileOutputStream(new File(directory, "single.tsv")))) {
+                context.setDestStream(out);
+                writer.doWrite(context);
+            }
+        }
+    }
+
+    private static void deleteRecursively(final File file) {
+        File[] children = file.listFiles();
+        if (null != children) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
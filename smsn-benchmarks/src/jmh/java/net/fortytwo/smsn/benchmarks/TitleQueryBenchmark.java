@@ -0,0 +1,36 @@
+package net.fortytwo.smsn.benchmarks;
+
+import net.fortytwo.smsn.brain.model.Filter;
+import net.fortytwo.smsn.brain.model.entities.Note;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures full-text title search, for single words and for two-word phrases
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TitleQueryBenchmark extends BrainBenchmarkBase {
+
+    private final Filter filter = Filter.noFilter();
+
+    @Benchmark
+    public List<Note> singleWord() {
+        return brain.getTopicGraph().getNotesByTitleQuery(nextWord(), filter);
+    }
+
+    @Benchmark
+    public List<Note> twoWords() {
+        return brain.getTopicGraph().getNotesByTitleQuery(nextWord() + " " + nextWord(), filter);
+    }
+
+    private String nextWord() {
+        List<String> words = brain.getWords();
+        return words.get(nextIndex(words.size()));
+    }
+}
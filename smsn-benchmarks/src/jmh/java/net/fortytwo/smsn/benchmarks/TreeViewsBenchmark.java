@@ -0,0 +1,58 @@
+package net.fortytwo.smsn.benchmarks;
+
+import net.fortytwo.smsn.brain.model.Filter;
+import net.fortytwo.smsn.brain.model.entities.Link;
+import net.fortytwo.smsn.brain.model.entities.Note;
+import net.fortytwo.smsn.brain.model.entities.TreeNode;
+import net.fortytwo.smsn.brain.query.TreeViews;
+import net.fortytwo.smsn.brain.query.ViewStyle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the generation of views (as for GetView) and the application of edited views (as for UpdateView)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TreeViewsBenchmark extends BrainBenchmarkBase {
+
+    @Param({"1", "3", "5"})
+    public int height;
+
+    private final Filter filter = Filter.noFilter();
+    private final ViewStyle style = ViewStyle.Basic.Forward.getStyle();
+
+    private TreeViews queries;
+    private long updates;
+
+    @Override
+    protected void setUp() throws Exception {
+        queries = new TreeViews(brain.getBrain());
+    }
+
+    @Benchmark
+    public TreeNode<Link> view() {
+        return queries.view(nextRoot(), height, filter, style);
+    }
+
+    /**
+     * Retitles the root of a view of height 2, then writes back the whole view
+     */
+    @Benchmark
+    public void update() {
+        TreeNode<Link> tree = queries.view(nextRoot(), 2, filter, style);
+        TreeViews.setTitle(tree, "updated " + updates++);
+
+        queries.update(tree, 2, filter, style);
+        brain.getWrapper().commit();
+    }
+
+    private Note nextRoot() {
+        return brain.getNotes().get(nextIndex(brain.getNotes().size()));
+    }
+}
@@ -0,0 +1,89 @@
+package net.fortytwo.smsn.benchmarks;
+
+import net.fortytwo.smsn.brain.model.Filter;
+import net.fortytwo.smsn.brain.model.dto.ListNodeDTO;
+import net.fortytwo.smsn.brain.model.entities.Link;
+import net.fortytwo.smsn.brain.model.entities.ListNode;
+import net.fortytwo.smsn.brain.model.entities.Note;
+import net.fortytwo.smsn.brain.model.entities.TreeNode;
+import net.fortytwo.smsn.brain.query.TreeViews;
+import net.fortytwo.smsn.brain.query.ViewStyle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the application of an edited view of a note with many children, a few of which have been removed
+ * or moved (as for UpdateView). The note's original children are restored before each update
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UpdateChildrenBenchmark extends BrainBenchmarkBase {
+
+    @Param({"10", "1000", "10000"})
+    public int numberOfChildren;
+
+    private final Filter filter = Filter.noFilter();
+    private final ViewStyle style = ViewStyle.Basic.Forward.getStyle();
+
+    private TreeViews queries;
+    private Note parent;
+    private Note[] children;
+    private TreeNode<Link> tree;
+
+    @Override
+    protected void setUp() throws Exception {
+        queries = new TreeViews(brain.getBrain());
+
+        brain.getWrapper().begin();
+        parent = brain.getTopicGraph().createNoteWithProperties(filter, null);
+        Note.setTitle(parent, "parent");
+        children = new Note[numberOfChildren];
+        for (int i = 0; i < numberOfChildren; i++) {
+            children[i] = brain.getTopicGraph().createNoteWithProperties(filter, null);
+            Note.setTitle(children[i], "child " + i);
+        }
+        brain.getWrapper().commit();
+    }
+
+    @Setup(Level.Invocation)
+    public void editView() {
+        brain.getWrapper().begin();
+        parent.setChildren(brain.getTopicGraph().createListOfNotes(children));
+        brain.getWrapper().commit();
+
+        tree = queries.view(parent, 1, filter, style);
+        tree.setChildren(edit(ListNode.toJavaList(tree.getChildren())));
+    }
+
+    @Benchmark
+    public void update() {
+        queries.update(tree, 1, filter, style);
+        brain.getWrapper().commit();
+    }
+
+    // removes every tenth child, and moves the last child to the front
+    private static ListNode<TreeNode<Link>> edit(final List<TreeNode<Link>> children) {
+        List<TreeNode<Link>> edited = new ArrayList<>();
+        edited.add(children.get(children.size() - 1));
+        for (int i = 0; i < children.size() - 1; i++) {
+            if (0 != i % 10) {
+                edited.add(children.get(i));
+            }
+        }
+
+        ListNode<TreeNode<Link>> list = null;
+        for (int i = edited.size() - 1; i >= 0; i--) {
+            list = new ListNodeDTO<>(edited.get(i), list);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,138 @@
+package net.fortytwo.smsn.benchmarks;
+
+import net.fortytwo.smsn.SemanticSynchrony;
+import net.fortytwo.smsn.brain.io.NoteReader;
+import net.fortytwo.smsn.brain.io.NoteWriter;
+import net.fortytwo.smsn.brain.io.vcs.VCSReader;
+import net.fortytwo.smsn.brain.io.vcs.VCSWriter;
+import net.fortytwo.smsn.config.DataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures export to, and import from, the file-per-note (VCS) format.
+ * The configured data sources are redirected to a temporary directory for the duration of the benchmark.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class VCSBenchmark extends BrainBenchmarkBase {
+
+    private File directory;
+    private final List<String> originalLocations = new ArrayList<>();
+
+    @Override
+    protected void setUp() throws IOException {
+        directory = Files.createTempDirectory("smsn-benchmark-vcs").toFile();
+        for (DataSource source : SemanticSynchrony.getConfiguration().getSources()) {
+            originalLocations.add(source.getLocation());
+            File dir = new File(directory, source.getName());
+            dir.mkdirs();
+            source.setLocation(dir.getAbsolutePath());
+        }
+
+        // a first export, so that later exports find every file unchanged, and imports find every file
+        export();
+    }
+
+    @Override
+    protected void tearDown() {
+        List<DataSource> sources = SemanticSynchrony.getConfiguration().getSources();
+        for (int i = 0; i < sources.size(); i++) {
+            sources.get(i).setLocation(originalLocations.get(i));
+        }
+        originalLocations.clear();
+        deleteRecursively(directory);
+    }
+
+    /**
+     * The graph into which files are imported; a new, empty one for each import
+     */
+    @State(Scope.Thread)
+    public static class ImportTarget {
+        private SyntheticBrain target;
+
+        @Setup(Level.Invocation)
+        public void create(final VCSBenchmark benchmark) throws IOException {
+            target = SyntheticBrain.create(benchmark.backend, new SyntheticBrain.Settings().setNumberOfNotes(0));
+        }
+
+        @TearDown(Level.Invocation)
+        public void close() {
+            target.close();
+        }
+    }
+
+    /**
+     * Empties the data source directories before each export, so that every file is written again
+     */
+    @State(Scope.Thread)
+    public static class EmptySources {
+        @Setup(Level.Invocation)
+        public void empty(final VCSBenchmark benchmark) {
+            for (DataSource source : SemanticSynchrony.getConfiguration().getSources()) {
+                File[] files = new File(source.getLocation()).listFiles();
+                if (null != files) {
+                    for (File file : files) {
+                        deleteRecursively(file);
+                    }
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void exportAll(final EmptySources emptySources) throws IOException {
+        export();
+    }
+
+    /**
+     * Exports a brain in which nothing has changed since the last export, so that every file is compared
+     * but none is written
+     */
+    @Benchmark
+    public void exportUnchanged() throws IOException {
+        export();
+    }
+
+    @Benchmark
+    public void importAll(final ImportTarget target) throws IOException {
+        VCSReader reader = new VCSReader();
+        NoteReader.Context context = new NoteReader.Context();
+        context.setFormat(reader.getFormats().get(0));
+        context.setTopicGraph(target.target.getTopicGraph());
+        target.target.getWrapper().begin();
+        reader.doImport(context);
+        target.target.getWrapper().commit();
+    }
+
+    private void export() throws IOException {
+        NoteWriter.Context context = new NoteWriter.Context();
+        context.setTopicGraph(brain.getTopicGraph());
+        context.setDestDirectory(directory);
+        new VCSWriter().doWrite(context);
+    }
+
+    private static void deleteRecursively(final File file) {
+        File[] children = file.listFiles();
+        if (null != children) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,69 @@
+package net.fortytwo.smsn.benchmarks;
+
+import net.fortytwo.smsn.brain.io.vcs.FilePerNoteWriter;
+import net.fortytwo.smsn.brain.io.wiki.WikiParser;
+import net.fortytwo.smsn.brain.io.wiki.WikiPrinter;
+import net.fortytwo.smsn.brain.model.entities.Note;
+import net.fortytwo.smsn.brain.model.entities.Page;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the parsing of single pages in the wiki format used by the file-per-note (VCS) format.
+ * Pages are printed from a synthetic brain beforehand; parsing does not depend on the graph backend.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WikiParserBenchmark {
+
+    @Param({"1000"})
+    public int numberOfPages;
+
+    @Param({"10"})
+    public int maxChildren;
+
+    @Param({"0.1", "1.0"})
+    public double textProbability;
+
+    private final List<byte[]> pages = new ArrayList<>();
+    private int next;
+
+    @Setup(Level.Trial)
+    public void printPages() throws IOException {
+        SyntheticBrain brain = SyntheticBrain.create(SyntheticBrain.Backend.TinkerGraph, new SyntheticBrain.Settings()
+                .setNumberOfNotes(numberOfPages)
+                .setMaxChildren(maxChildren)
+                .setTextProbability(textProbability));
+        try {
+            for (Note note : brain.getNotes()) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                new WikiPrinter(out).print(FilePerNoteWriter.noteToPage(note));
+                pages.add(out.toByteArray());
+            }
+        } finally {
+            brain.close();
+        }
+    }
+
+    @Benchmark
+    public Page parse() throws IOException {
+        next = (next + 1) % pages.size();
+        // parsers are stateful, and are not reused
+        return new WikiParser().parse(new ByteArrayInputStream(pages.get(next)));
+    }
+}
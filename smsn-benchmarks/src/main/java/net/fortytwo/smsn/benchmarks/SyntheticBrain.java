@@ -0,0 +1,326 @@
+package net.fortytwo.smsn.benchmarks;
+
+import net.fortytwo.smsn.SemanticSynchrony;
+import net.fortytwo.smsn.brain.AtomId;
+import net.fortytwo.smsn.brain.Brain;
+import net.fortytwo.smsn.brain.model.Filter;
+import net.fortytwo.smsn.brain.model.entities.Note;
+import net.fortytwo.smsn.brain.model.pg.GraphWrapper;
+import net.fortytwo.smsn.brain.model.pg.PGTopicGraph;
+import net.fortytwo.smsn.brain.model.pg.neo4j.Neo4jGraphWrapper;
+import net.fortytwo.smsn.brain.model.pg.tg.TinkerGraphWrapper;
+import net.fortytwo.smsn.config.DataSource;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A randomly generated brain, for benchmarking.
+ * Brains are reproducible: the same settings and seed always give the same notes, ids, titles and structure,
+ * whichever graph backend is used.
+ */
+public class SyntheticBrain {
+
+    public enum Backend {TinkerGraph, Neo4j}
+
+    private static final String[] WORDS = {
+            "arthur", "dent", "ford", "prefect", "zaphod", "beeblebrox", "trillian", "marvin",
+            "towel", "day", "panic", "guide", "galaxy", "hitchhiker", "earth", "magrathea",
+            "vogon", "poetry", "babel", "fish", "deep", "thought", "answer", "question",
+            "life", "universe", "everything", "restaurant", "end", "heart", "gold", "improbability",
+            "drive", "slartibartfast", "fjords", "norway", "mice", "dolphins", "whale", "petunias",
+            "tea", "kettle", "bypass", "demolition", "planning", "office", "basement", "leopard",
+            "1979", "2001", "http://en.wikipedia.org/wiki/Towel_Day", "ISBN", "0-330-25864-8", "@inproceedings",
+            "Don't", "\"quoted\"", "caf\u00e9", "na\u00efve", "(parenthetical)", "[bracketed]", "#tag", "42"};
+
+    // commit in batches, so that a transactional backend never holds a whole brain in one transaction
+    private static final int NOTES_PER_TRANSACTION = 1000;
+
+    private static final int ID_ALPHABET_SIZE = 62;
+
+    private final Backend backend;
+    private final GraphWrapper wrapper;
+    private final PGTopicGraph topicGraph;
+    private final File dataDirectory;
+    private final List<Note> notes;
+    private final List<String> words;
+
+    private Brain brain;
+
+    /**
+     * The parameters of a synthetic brain. All have defaults.
+     */
+    public static class Settings {
+        private int numberOfNotes = 10000;
+        private int maxChildren = 10;
+        private int meanTitleLength = 30;
+        private int maxTitleLength = 200;
+        private double textProbability = 0.1;
+        private List<String> sources;
+        private long seed = 42;
+
+        public int getNumberOfNotes() {
+            return numberOfNotes;
+        }
+
+        public Settings setNumberOfNotes(int numberOfNotes) {
+            this.numberOfNotes = numberOfNotes;
+            return this;
+        }
+
+        public int getMaxChildren() {
+            return maxChildren;
+        }
+
+        /**
+         * @param maxChildren the maximum number of children of each note.
+         *                    The number of children is chosen uniformly between zero and this maximum
+         */
+        public Settings setMaxChildren(int maxChildren) {
+            this.maxChildren = maxChildren;
+            return this;
+        }
+
+        public int getMeanTitleLength() {
+            return meanTitleLength;
+        }
+
+        /**
+         * @param meanTitleLength the mean length of titles, in characters.
+         *                        Lengths are exponentially distributed, so that most titles are short
+         *                        but a few are long
+         */
+        public Settings setMeanTitleLength(int meanTitleLength) {
+            this.meanTitleLength = meanTitleLength;
+            return this;
+        }
+
+        public int getMaxTitleLength() {
+            return maxTitleLength;
+        }
+
+        public Settings setMaxTitleLength(int maxTitleLength) {
+            this.maxTitleLength = maxTitleLength;
+            return this;
+        }
+
+        public double getTextProbability() {
+            return textProbability;
+        }
+
+        /**
+         * @param textProbability the probability that a note has a page of text, in addition to its title
+         */
+        public Settings setTextProbability(double textProbability) {
+            this.textProbability = textProbability;
+            return this;
+        }
+
+        public List<String> getSources() {
+            return sources;
+        }
+
+        /**
+         * @param sources the names of the data sources among which notes are evenly distributed.
+         *                If null, all configured sources are used
+         */
+        public Settings setSources(List<String> sources) {
+            this.sources = sources;
+            return this;
+        }
+
+        public long getSeed() {
+            return seed;
+        }
+
+        public Settings setSeed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+    }
+
+    private SyntheticBrain(final Backend backend, final File dataDirectory) {
+        this.backend = backend;
+        this.dataDirectory = dataDirectory;
+        this.wrapper = Backend.Neo4j == backend
+                ? new Neo4jGraphWrapper(dataDirectory)
+                : new TinkerGraphWrapper(TinkerGraph.open());
+        this.topicGraph = new PGTopicGraph(wrapper);
+        this.notes = new ArrayList<>();
+        this.words = new ArrayList<>();
+        for (String word : WORDS) {
+            if (word.matches("[a-z]+")) {
+                words.add(word);
+            }
+        }
+    }
+
+    /**
+     * Generates a brain
+     *
+     * @param backend  the kind of graph in which to store the brain.
+     *                 A Neo4j brain is stored in a temporary directory, which is deleted by {@link #close()}
+     * @param settings the parameters of the brain
+     * @return a new brain, with all changes committed
+     */
+    public static SyntheticBrain create(final Backend backend, final Settings settings) throws IOException {
+        File dir = Backend.Neo4j == backend
+                ? Files.createTempDirectory("smsn-benchmark-neo4j").toFile()
+                : null;
+        SyntheticBrain brain = new SyntheticBrain(backend, dir);
+        brain.populate(settings);
+        return brain;
+    }
+
+    public Backend getBackend() {
+        return backend;
+    }
+
+    public PGTopicGraph getTopicGraph() {
+        return topicGraph;
+    }
+
+    public GraphWrapper getWrapper() {
+        return wrapper;
+    }
+
+    /**
+     * @return a Brain on top of the generated graph, without an activity log
+     */
+    public synchronized Brain getBrain() throws Brain.BrainException {
+        if (null == brain) {
+            String activityLog = SemanticSynchrony.getConfiguration().getActivityLog();
+            SemanticSynchrony.getConfiguration().setActivityLog(null);
+            try {
+                brain = new Brain(topicGraph);
+            } finally {
+                SemanticSynchrony.getConfiguration().setActivityLog(activityLog);
+            }
+        }
+        return brain;
+    }
+
+    /**
+     * @return all generated notes, in order of creation
+     */
+    public List<Note> getNotes() {
+        return notes;
+    }
+
+    /**
+     * @return the plain words from which titles are composed, which are suitable as title queries.
+     * In a brain of moderate size, each of them has many matches
+     */
+    public List<String> getWords() {
+        return words;
+    }
+
+    /**
+     * Shuts down the graph and deletes any files belonging to it
+     */
+    public void close() {
+        wrapper.shutdown();
+        if (null != dataDirectory) {
+            deleteRecursively(dataDirectory);
+        }
+    }
+
+    private void populate(final Settings settings) {
+        Random random = new Random(settings.getSeed());
+        List<String> sources = null == settings.getSources() ? configuredSources() : settings.getSources();
+        Filter filter = Filter.noFilter();
+
+        wrapper.begin();
+        for (int i = 0; i < settings.getNumberOfNotes(); i++) {
+            Note note = topicGraph.createNoteWithProperties(filter, createId(random));
+            Note.setTitle(note, createTitle(random, settings));
+            Note.setSource(note, sources.get(random.nextInt(sources.size())));
+            Note.setWeight(note, 0.5f);
+            Note.setCreated(note, 1200000000000L + i * 1000L);
+            if (random.nextDouble() < settings.getTextProbability()) {
+                Note.setText(note, createText(random, settings));
+            }
+            notes.add(note);
+
+            if (0 == (i + 1) % NOTES_PER_TRANSACTION) {
+                commit();
+            }
+        }
+        commit();
+
+        int count = 0;
+        for (Note parent : notes) {
+            int n = random.nextInt(settings.getMaxChildren() + 1);
+            for (int i = 0; i < n; i++) {
+                parent.addChildAt(notes.get(random.nextInt(notes.size())), i);
+            }
+
+            if (0 == ++count % NOTES_PER_TRANSACTION) {
+                commit();
+            }
+        }
+        commit();
+    }
+
+    private void commit() {
+        wrapper.commit();
+        wrapper.begin();
+    }
+
+    private AtomId createId(final Random random) {
+        char[] chars = new char[SemanticSynchrony.ID_DIGITS];
+        for (int i = 0; i < chars.length; i++) {
+            int n = random.nextInt(ID_ALPHABET_SIZE);
+            chars[i] = (char) (n < 26 ? 'A' + n : n < 52 ? 'a' + n - 26 : '0' + n - 52);
+        }
+        return new AtomId(new String(chars));
+    }
+
+    private String createTitle(final Random random, final Settings settings) {
+        double exponential = -Math.log(1 - random.nextDouble()) * settings.getMeanTitleLength();
+        int length = (int) Math.max(1, Math.min(settings.getMaxTitleLength(), Math.round(exponential)));
+
+        StringBuilder title = new StringBuilder();
+        while (title.length() < length) {
+            if (title.length() > 0) {
+                title.append(' ');
+            }
+            title.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return title.length() > settings.getMaxTitleLength()
+                ? title.substring(0, settings.getMaxTitleLength()).trim()
+                : title.toString();
+    }
+
+    private String createText(final Random random, final Settings settings) {
+        StringBuilder text = new StringBuilder();
+        int lines = 1 + random.nextInt(10);
+        for (int i = 0; i < lines; i++) {
+            text.append(createTitle(random, settings)).append('\n');
+        }
+        return text.toString().trim();
+    }
+
+    private static List<String> configuredSources() {
+        List<String> names = new ArrayList<>();
+        for (DataSource source : SemanticSynchrony.getConfiguration().getSources()) {
+            names.add(source.getName());
+        }
+        return names;
+    }
+
+    private static void deleteRecursively(final File file) {
+        File[] children = file.listFiles();
+        if (null != children) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,60 @@
+package net.fortytwo.smsn.benchmarks;
+
+import net.fortytwo.smsn.brain.model.entities.Note;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SyntheticBrainTest {
+
+    @Test
+    public void brainsAreReproducible() throws Exception {
+        SyntheticBrain.Settings settings = new SyntheticBrain.Settings().setNumberOfNotes(200).setSeed(7);
+        SyntheticBrain first = SyntheticBrain.create(SyntheticBrain.Backend.TinkerGraph, settings);
+        SyntheticBrain second = SyntheticBrain.create(SyntheticBrain.Backend.TinkerGraph, settings);
+        SyntheticBrain other = SyntheticBrain.create(SyntheticBrain.Backend.TinkerGraph, settings.setSeed(8));
+        try {
+            assertEquals(200, first.getNotes().size());
+            for (int i = 0; i < first.getNotes().size(); i++) {
+                Note a = first.getNotes().get(i), b = second.getNotes().get(i);
+                assertEquals(Note.getId(a), Note.getId(b));
+                assertEquals(Note.getTitle(a), Note.getTitle(b));
+                assertEquals(Note.getSource(a), Note.getSource(b));
+                assertEquals(first.getTopicGraph().getNumberOfChildren(a),
+                        second.getTopicGraph().getNumberOfChildren(b));
+            }
+
+            assertNotEquals(Note.getId(first.getNotes().get(0)), Note.getId(other.getNotes().get(0)));
+        } finally {
+            first.close();
+            second.close();
+            other.close();
+        }
+    }
+
+    @Test
+    public void settingsAreRespected() throws Exception {
+        SyntheticBrain brain = SyntheticBrain.create(SyntheticBrain.Backend.TinkerGraph, new SyntheticBrain.Settings()
+                .setNumberOfNotes(500)
+                .setMaxChildren(3)
+                .setMaxTitleLength(20)
+                .setSources(Arrays.asList("public", "universal")));
+        try {
+            Set<String> sources = new HashSet<>();
+            for (Note note : brain.getNotes()) {
+                assertTrue(Note.getTitle(note).length() <= 20);
+                assertTrue(brain.getTopicGraph().getNumberOfChildren(note) <= 3);
+                sources.add(Note.getSource(note));
+            }
+            assertEquals(new HashSet<>(Arrays.asList("public", "universal")), sources);
+        } finally {
+            brain.close();
+        }
+    }
+}
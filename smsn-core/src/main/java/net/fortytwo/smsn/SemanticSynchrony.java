@@ -30,6 +30,7 @@ public class SemanticSynchrony {
 
     public interface EdgeLabels {
         String
+                CHILD = "child",
                 CHILDREN = "children",
                 FIRST = "first",
                 NOTES = "notes",
@@ -48,6 +49,7 @@ public class SemanticSynchrony {
                 CREATED = "created",
                 ID = "idV",
                 LABEL = "label",
+                ORDINAL = "ordinal",
                 PRIORITY = "priority",
                 ROLE = "role",
                 SHORTCUT = "shortcut",
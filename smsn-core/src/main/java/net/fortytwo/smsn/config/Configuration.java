@@ -10,11 +10,20 @@ public class Configuration implements Serializable {
 
     private String version = "unknown";
     private String activityLog = "smsn-activity.tsv";
+    private long activityLogSyncInterval = 1000;
+    private long activityLogMaxSize = 64L * 1024 * 1024;
+    private long activityLogRotationInterval = 0;
+    private String historyFile;
+    private String metricsFile;
+    private long metricsDumpInterval = 60000;
+    private int viewCacheSize = 256;
+    private int inferenceThreads = 1;
     private Integer transactionBufferSize;
     private String thingNamespace = "http://example.org/things/";
     private AtomId brainstream;
     private Services services = new Services();
     private boolean verbose = false;
+    private boolean childrenAsEdges = false;
     private List<DataSource> sources = new LinkedList<>();
 
     public Services getServices() {
@@ -41,6 +50,70 @@ public class Configuration implements Serializable {
         this.activityLog = activityLog;
     }
 
+    public long getActivityLogSyncInterval() {
+        return activityLogSyncInterval;
+    }
+
+    public void setActivityLogSyncInterval(long activityLogSyncInterval) {
+        this.activityLogSyncInterval = activityLogSyncInterval;
+    }
+
+    public long getActivityLogMaxSize() {
+        return activityLogMaxSize;
+    }
+
+    public void setActivityLogMaxSize(long activityLogMaxSize) {
+        this.activityLogMaxSize = activityLogMaxSize;
+    }
+
+    public long getActivityLogRotationInterval() {
+        return activityLogRotationInterval;
+    }
+
+    public void setActivityLogRotationInterval(long activityLogRotationInterval) {
+        this.activityLogRotationInterval = activityLogRotationInterval;
+    }
+
+    public String getHistoryFile() {
+        return historyFile;
+    }
+
+    public void setHistoryFile(String historyFile) {
+        this.historyFile = historyFile;
+    }
+
+    public String getMetricsFile() {
+        return metricsFile;
+    }
+
+    public void setMetricsFile(String metricsFile) {
+        this.metricsFile = metricsFile;
+    }
+
+    public long getMetricsDumpInterval() {
+        return metricsDumpInterval;
+    }
+
+    public void setMetricsDumpInterval(long metricsDumpInterval) {
+        this.metricsDumpInterval = metricsDumpInterval;
+    }
+
+    public int getViewCacheSize() {
+        return viewCacheSize;
+    }
+
+    public void setViewCacheSize(int viewCacheSize) {
+        this.viewCacheSize = viewCacheSize;
+    }
+
+    public int getInferenceThreads() {
+        return inferenceThreads;
+    }
+
+    public void setInferenceThreads(int inferenceThreads) {
+        this.inferenceThreads = inferenceThreads;
+    }
+
     public Integer getTransactionBufferSize() {
         return transactionBufferSize;
     }
@@ -80,4 +153,12 @@ public class Configuration implements Serializable {
     public void setVerbose(boolean verbose) {
         this.verbose = verbose;
     }
+
+    public boolean isChildrenAsEdges() {
+        return childrenAsEdges;
+    }
+
+    public void setChildrenAsEdges(boolean childrenAsEdges) {
+        this.childrenAsEdges = childrenAsEdges;
+    }
 }
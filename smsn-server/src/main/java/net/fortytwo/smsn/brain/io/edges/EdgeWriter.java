@@ -1,18 +1,17 @@
 package net.fortytwo.smsn.brain.io.edges;
 
-import net.fortytwo.smsn.brain.io.NoteWriter;
 import net.fortytwo.smsn.brain.io.Format;
+import net.fortytwo.smsn.brain.io.tsv.TSVNoteWriter;
+import net.fortytwo.smsn.brain.io.tsv.TSVPrinter;
 import net.fortytwo.smsn.brain.model.entities.Note;
-import net.fortytwo.smsn.brain.model.TopicGraph;
 import net.fortytwo.smsn.brain.model.entities.ListNode;
 import net.fortytwo.smsn.brain.model.Filter;
 
 import java.io.IOException;
-import java.io.PrintStream;
 import java.util.Collections;
 import java.util.List;
 
-public class EdgeWriter extends NoteWriter {
+public class EdgeWriter extends TSVNoteWriter {
 
     @Override
     public List<Format> getFormats() {
@@ -20,31 +19,32 @@ public class EdgeWriter extends NoteWriter {
     }
 
     @Override
-    public void doWrite(Context context) throws IOException {
-        TopicGraph sourceGraph = context.getTopicGraph();
-        PrintStream p = new PrintStream(context.getDestStream());
-        Filter filter = context.getFilter();
+    protected String getHeader() {
+        return "from\tto";
+    }
 
-        p.println("from\tto");
+    @Override
+    protected void printNote(final Note fromNote, final Context context, final TSVPrinter p) throws IOException {
+        Filter filter = context.getFilter();
 
-        for (Note fromNote : sourceGraph.getAllNotes()) {
-            if (null != fromNote && filter.test(fromNote)) {
-                ListNode<Note> l = fromNote.getChildren();
-                while (null != l) {
-                    Note toNote = l.getFirst();
-                    if (filter.test(toNote)) {
-                        printEdge(p, fromNote, toNote);
+        if (null != fromNote && filter.test(fromNote)) {
+            // look up the id of the parent only once
+            String fromId = null;
+            ListNode<Note> l = fromNote.getChildren();
+            while (null != l) {
+                Note toNote = l.getFirst();
+                if (filter.test(toNote)) {
+                    if (null == fromId) {
+                        fromId = Note.getId(fromNote).value;
                     }
-                    l = l.getRest();
+                    printEdge(p, fromId, toNote);
                 }
+                l = l.getRest();
             }
         }
     }
 
-    private void printEdge(final PrintStream p, final Note fromNote, final Note toNote) {
-        p.print(Note.getId(fromNote));
-        p.print('\t');
-        p.print(Note.getId(toNote));
-        p.print('\n');
+    private void printEdge(final TSVPrinter p, final String fromId, final Note toNote) throws IOException {
+        p.print(fromId).tab().print(Note.getId(toNote).value).newline();
     }
 }
@@ -4,6 +4,7 @@ import net.fortytwo.smsn.brain.io.NoteWriter;
 import net.fortytwo.smsn.brain.io.Format;
 import net.fortytwo.smsn.brain.model.Filter;
 import net.fortytwo.smsn.brain.model.pg.PGTopicGraph;
+import org.apache.tinkerpop.gremlin.structure.Graph;
 
 import java.io.IOException;
 import java.util.Collections;
@@ -21,12 +22,12 @@ public class GraphMLWriter extends NoteWriter {
         if (!(context.getTopicGraph() instanceof PGTopicGraph)) throw new UnsupportedOperationException();
         PGTopicGraph originalGraph = (PGTopicGraph) context.getTopicGraph();
         Filter filter = context.getFilter();
-        PGTopicGraph newGraph = null == filter || filter.isTrivial()
-                ? originalGraph
-                : originalGraph.copyGraph(context.getFilter());
+        Graph graph = null == filter || filter.isTrivial()
+                ? originalGraph.getPropertyGraph()
+                : originalGraph.createFilteredView(filter);
 
         org.apache.tinkerpop.gremlin.structure.io.graphml.GraphMLWriter writer
                 = org.apache.tinkerpop.gremlin.structure.io.graphml.GraphMLWriter.build().normalize(true).create();
-        writer.writeGraph(context.getDestStream(), newGraph.getPropertyGraph());
+        writer.writeGraph(context.getDestStream(), graph);
     }
 }
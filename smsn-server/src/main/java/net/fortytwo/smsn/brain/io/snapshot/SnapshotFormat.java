@@ -0,0 +1,37 @@
+package net.fortytwo.smsn.brain.io.snapshot;
+
+import net.fortytwo.smsn.brain.io.Format;
+
+/**
+ * A compact binary image of all notes and their children, for fast startup.
+ * A snapshot consists of the following sections, in which all counts and indices are unsigned varints:
+ * <ol>
+ * <li>a header, consisting of the magic number and a format version</li>
+ * <li>a table of distinct strings, each a byte length followed by UTF-8 bytes</li>
+ * <li>the number of notes, followed by the index of each note's id in the string table</li>
+ * <li>one column per note property: the index of its key in the string table, its kind,
+ * and then one value per note</li>
+ * <li>the children of each note: a count followed by the position of each child among the notes</li>
+ * </ol>
+ */
+public class SnapshotFormat extends Format {
+    private static final SnapshotFormat instance = new SnapshotFormat();
+
+    static final byte[] MAGIC = {'S', 'm', 'S', 'n', 'S', 'n', 'a', 'p'};
+    static final int VERSION = 1;
+
+    // a column of string table indices, offset by one so that zero means that the note has no value
+    static final int STRING_COLUMN = 0;
+    // a column of presence bits, followed by the zigzag-encoded difference of each value from the previous one
+    static final int LONG_COLUMN = 1;
+    // a column of presence bits, followed by the four-byte representation of each value
+    static final int FLOAT_COLUMN = 2;
+
+    private SnapshotFormat() {
+        super("Snapshot", Type.FileBased, "snapshot");
+    }
+
+    public static SnapshotFormat getInstance() {
+        return instance;
+    }
+}
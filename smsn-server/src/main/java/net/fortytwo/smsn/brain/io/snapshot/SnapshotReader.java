@@ -0,0 +1,212 @@
+package net.fortytwo.smsn.brain.io.snapshot;
+
+import net.fortytwo.smsn.SemanticSynchrony;
+import net.fortytwo.smsn.brain.AtomId;
+import net.fortytwo.smsn.brain.io.Format;
+import net.fortytwo.smsn.brain.io.NoteReader;
+import net.fortytwo.smsn.brain.model.Property;
+import net.fortytwo.smsn.brain.model.TopicGraph;
+import net.fortytwo.smsn.brain.model.entities.Note;
+import net.fortytwo.smsn.brain.model.pg.PGTopicGraph;
+import org.apache.commons.io.IOUtils;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class SnapshotReader extends NoteReader {
+
+    @Override
+    public List<Format> getFormats() {
+        return Collections.singletonList(SnapshotFormat.getInstance());
+    }
+
+    @Override
+    protected void importInternal(Context context) throws IOException {
+        ByteBuffer buffer = toBuffer(context.getSourceStream());
+        TopicGraph graph = context.getTopicGraph();
+
+        // indices are rebuilt once all notes have been loaded, rather than as each property is set
+        PGTopicGraph bulkGraph = graph instanceof PGTopicGraph ? (PGTopicGraph) graph : null;
+        if (null != bulkGraph) {
+            bulkGraph.beginBulkLoad();
+        }
+
+        int batchSize = SemanticSynchrony.getConfiguration().getTransactionBufferSize();
+        try {
+            readSnapshot(buffer, graph);
+        } catch (IOException | RuntimeException e) {
+            if (null != bulkGraph) {
+                // notes are committed in batches as they are read, so those committed before the failure
+                // are kept and indexed, while the rest of the snapshot is rolled back
+                bulkGraph.rollback();
+                bulkGraph.cancelBulkLoad(batchSize);
+                bulkGraph.commit();
+            }
+            throw e;
+        }
+
+        if (null != bulkGraph) {
+            bulkGraph.finishBulkLoad(batchSize);
+        }
+    }
+
+    private void readSnapshot(final ByteBuffer buffer, final TopicGraph graph) throws IOException {
+        byte[] magic = new byte[SnapshotFormat.MAGIC.length];
+        int version;
+        try {
+            buffer.get(magic);
+            version = readInt(buffer);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("not a snapshot");
+        }
+        if (!Arrays.equals(SnapshotFormat.MAGIC, magic)) {
+            throw new IOException("not a snapshot");
+        }
+        if (SnapshotFormat.VERSION != version) {
+            throw new IOException("unsupported snapshot version: " + version);
+        }
+
+        try {
+            String[] strings = new String[readInt(buffer)];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = readString(buffer);
+            }
+
+            Note[] notes = readNotes(buffer, strings, graph);
+
+            int columns = readInt(buffer);
+            for (int i = 0; i < columns; i++) {
+                readColumn(buffer, strings, notes);
+            }
+
+            readChildren(buffer, notes, graph);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("snapshot is truncated or corrupt", e);
+        }
+    }
+
+    private Note[] readNotes(final ByteBuffer buffer, final String[] strings, final TopicGraph graph) {
+        // notes are only looked up by id if there are any notes to find
+        boolean merge = graph.getAllNotes().iterator().hasNext();
+
+        Note[] notes = new Note[readInt(buffer)];
+        for (int i = 0; i < notes.length; i++) {
+            AtomId id = new AtomId(strings[readInt(buffer)]);
+            notes[i] = merge
+                    ? graph.getNoteById(id).orElseGet(() -> graph.createNote(id))
+                    : graph.createNote(id);
+            checkAndCommit(graph);
+        }
+        return notes;
+    }
+
+    private void readColumn(final ByteBuffer buffer, final String[] strings, final Note[] notes) throws IOException {
+        String key = strings[readInt(buffer)];
+        int kind = readInt(buffer);
+        Property<Note, Object> property = (Property<Note, Object>) Note.propertiesByKey.get(key);
+        if (null == property) {
+            throw new IOException("unknown property in snapshot: " + key);
+        }
+
+        switch (kind) {
+            case SnapshotFormat.STRING_COLUMN:
+                for (Note note : notes) {
+                    int index = readInt(buffer);
+                    if (0 != index) {
+                        note.setProperty(key, property.getFromString().apply(strings[index - 1]));
+                    }
+                }
+                break;
+            case SnapshotFormat.LONG_COLUMN:
+            case SnapshotFormat.FLOAT_COLUMN:
+                byte[] present = new byte[(notes.length + 7) / 8];
+                buffer.get(present);
+                long previous = 0;
+                for (int i = 0; i < notes.length; i++) {
+                    if (0 == (present[i / 8] & (1 << (i % 8)))) {
+                        continue;
+                    }
+                    if (SnapshotFormat.LONG_COLUMN == kind) {
+                        long zigzag = readVarint(buffer);
+                        previous += (zigzag >>> 1) ^ -(zigzag & 1);
+                        notes[i].setProperty(key, previous);
+                    } else {
+                        notes[i].setProperty(key, buffer.getFloat());
+                    }
+                }
+                break;
+            default:
+                throw new IOException("unknown kind of column in snapshot: " + kind);
+        }
+    }
+
+    private void readChildren(final ByteBuffer buffer, final Note[] notes, final TopicGraph graph) {
+        for (Note note : notes) {
+            int count = readInt(buffer);
+            if (count > 0) {
+                Note[] children = new Note[count];
+                for (int i = 0; i < count; i++) {
+                    children[i] = notes[readInt(buffer)];
+                }
+                note.setChildren(graph.createListOfNotes(children));
+                checkAndCommit(graph);
+            }
+        }
+    }
+
+    // maps a file into memory, rather than copying it, where possible
+    private static ByteBuffer toBuffer(final InputStream sourceStream) throws IOException {
+        if (sourceStream instanceof FileInputStream) {
+            FileChannel channel = ((FileInputStream) sourceStream).getChannel();
+            long remaining = channel.size() - channel.position();
+            if (remaining > Integer.MAX_VALUE) {
+                throw new IOException("snapshot is too large to map: " + remaining + " bytes");
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, channel.position(), remaining);
+        } else {
+            return ByteBuffer.wrap(IOUtils.toByteArray(sourceStream));
+        }
+    }
+
+    private static String readString(final ByteBuffer buffer) {
+        int length = readInt(buffer);
+        if (buffer.hasArray()) {
+            String s = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                    StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            return s;
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static int readInt(final ByteBuffer buffer) {
+        long value = readVarint(buffer);
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IndexOutOfBoundsException("value out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    private static long readVarint(final ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (0 == (b & 0x80)) {
+                return value;
+            }
+        }
+        throw new IndexOutOfBoundsException("malformed varint");
+    }
+}
@@ -0,0 +1,165 @@
+package net.fortytwo.smsn.brain.io.snapshot;
+
+import net.fortytwo.smsn.SemanticSynchrony;
+import net.fortytwo.smsn.brain.io.Format;
+import net.fortytwo.smsn.brain.io.NoteWriter;
+import net.fortytwo.smsn.brain.model.Filter;
+import net.fortytwo.smsn.brain.model.Property;
+import net.fortytwo.smsn.brain.model.entities.ListNode;
+import net.fortytwo.smsn.brain.model.entities.Note;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SnapshotWriter extends NoteWriter {
+
+    @Override
+    public List<Format> getFormats() {
+        return Collections.singletonList(SnapshotFormat.getInstance());
+    }
+
+    @Override
+    public void doWrite(Context context) throws IOException {
+        Filter filter = context.getFilter();
+
+        List<Note> notes = new ArrayList<>();
+        Map<String, Integer> positionsById = new HashMap<>();
+        for (Note note : context.getTopicGraph().getAllNotes()) {
+            if (null == filter || filter.isTrivial() || filter.test(note)) {
+                positionsById.put(Note.getId(note).value, notes.size());
+                notes.add(note);
+            }
+        }
+
+        // the string table is written first, but is only complete once every note has been visited
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        writeVarint(body, notes.size());
+        for (Note note : notes) {
+            writeVarint(body, indexOf(Note.getId(note).value, strings));
+        }
+
+        List<Property<Note, ?>> columns = new ArrayList<>();
+        for (Property<Note, ?> property : Note.propertiesByKey.values()) {
+            if (!property.getKey().equals(SemanticSynchrony.PropertyKeys.ID)) {
+                columns.add(property);
+            }
+        }
+        writeVarint(body, columns.size());
+        for (Property<Note, ?> property : columns) {
+            writeColumn(property.getKey(), notes, strings, body);
+        }
+
+        List<Integer> children = new ArrayList<>();
+        for (Note note : notes) {
+            children.clear();
+            for (ListNode<Note> cur = note.getChildren(); null != cur; cur = cur.getRest()) {
+                // children which are excluded by the filter are dropped
+                Integer position = positionsById.get(Note.getId(cur.getFirst()).value);
+                if (null != position) {
+                    children.add(position);
+                }
+            }
+            writeVarint(body, children.size());
+            for (int position : children) {
+                writeVarint(body, position);
+            }
+        }
+
+        OutputStream out = new BufferedOutputStream(context.getDestStream());
+        out.write(SnapshotFormat.MAGIC);
+        writeVarint(out, SnapshotFormat.VERSION);
+        writeVarint(out, strings.size());
+        for (String s : strings.keySet()) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarint(out, bytes.length);
+            out.write(bytes);
+        }
+        body.writeTo(out);
+        out.flush();
+    }
+
+    private void writeColumn(final String key,
+                             final List<Note> notes,
+                             final Map<String, Integer> strings,
+                             final ByteArrayOutputStream out) throws IOException {
+        // stored values, as opposed to defaults, are written
+        Object[] values = new Object[notes.size()];
+        int kind = SnapshotFormat.STRING_COLUMN;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = notes.get(i).optProperty(key);
+            if (values[i] instanceof Long) {
+                kind = SnapshotFormat.LONG_COLUMN;
+            } else if (values[i] instanceof Float) {
+                kind = SnapshotFormat.FLOAT_COLUMN;
+            }
+        }
+
+        writeVarint(out, indexOf(key, strings));
+        writeVarint(out, kind);
+
+        if (SnapshotFormat.STRING_COLUMN == kind) {
+            for (Object value : values) {
+                writeVarint(out, null == value ? 0 : 1 + indexOf(value.toString(), strings));
+            }
+        } else {
+            BitSet present = new BitSet(values.length);
+            for (int i = 0; i < values.length; i++) {
+                if (null != values[i]) {
+                    present.set(i);
+                }
+            }
+            byte[] bits = present.toByteArray();
+            out.write(bits);
+            out.write(new byte[(values.length + 7) / 8 - bits.length]);
+
+            long previous = 0;
+            for (Object value : values) {
+                if (null == value) {
+                    continue;
+                }
+                if (SnapshotFormat.LONG_COLUMN == kind) {
+                    long l = ((Number) value).longValue();
+                    long delta = l - previous;
+                    writeVarint(out, (delta << 1) ^ (delta >> 63));
+                    previous = l;
+                } else {
+                    int f = Float.floatToIntBits(((Number) value).floatValue());
+                    out.write(f >>> 24);
+                    out.write(f >>> 16);
+                    out.write(f >>> 8);
+                    out.write(f);
+                }
+            }
+        }
+    }
+
+    private static int indexOf(final String s, final Map<String, Integer> strings) {
+        Integer index = strings.get(s);
+        if (null == index) {
+            index = strings.size();
+            strings.put(s, index);
+        }
+        return index;
+    }
+
+    private static void writeVarint(final OutputStream out, final long value) throws IOException {
+        long v = value;
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+}
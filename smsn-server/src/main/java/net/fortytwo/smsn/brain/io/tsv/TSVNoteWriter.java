@@ -0,0 +1,110 @@
+package net.fortytwo.smsn.brain.io.tsv;
+
+import net.fortytwo.smsn.brain.io.NoteWriter;
+import net.fortytwo.smsn.brain.model.TopicGraph;
+import net.fortytwo.smsn.brain.model.entities.Note;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A writer which prints one or more tab-separated rows per note, following a header.
+ * Output goes either to a single stream or, if more than one partition is requested,
+ * to a directory of partition files which are written in parallel.
+ * Only the first partition has a header, so that the files can simply be concatenated in order.
+ * Partitions see only committed data, so the graph should not have uncommitted changes when they are written.
+ */
+public abstract class TSVNoteWriter extends NoteWriter {
+
+    protected abstract String getHeader();
+
+    /**
+     * Prints the rows, if any, for a single note
+     */
+    protected abstract void printNote(Note note, Context context, TSVPrinter p) throws IOException;
+
+    @Override
+    public boolean isPartitionable() {
+        return true;
+    }
+
+    @Override
+    public void doWrite(final Context context) throws IOException {
+        if (context.getPartitions() > 1) {
+            writePartitions(context);
+        } else {
+            TSVPrinter p = new TSVPrinter(context.getDestStream());
+            p.print(getHeader()).newline();
+            for (Note note : context.getTopicGraph().getAllNotes()) {
+                printNote(note, context, p);
+            }
+            p.flush();
+        }
+    }
+
+    public static String getPartitionFileName(final int partition) {
+        return String.format("part-%05d.tsv", partition);
+    }
+
+    private void writePartitions(final Context context) throws IOException {
+        File dir = context.getDestDirectory();
+        createDirectoryIfNotExists(dir);
+
+        TopicGraph graph = context.getTopicGraph();
+        List<Note> notes = new ArrayList<>();
+        graph.getAllNotes().forEach(notes::add);
+
+        int partitions = context.getPartitions();
+        List<Callable<Void>> tasks = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            int partition = i;
+            List<Note> slice = notes.subList(i * notes.size() / partitions, (i + 1) * notes.size() / partitions);
+            tasks.add(() -> {
+                // transactions are bound to threads, so each worker reads within a transaction of its own,
+                // which it closes when done. Nothing is written to the graph, so this is cheap on every backend
+                graph.begin();
+                try (OutputStream out = new BufferedOutputStream(
+                        new FileOutputStream(new File(dir, getPartitionFileName(partition))))) {
+                    TSVPrinter p = new TSVPrinter(out);
+                    if (0 == partition) {
+                        p.print(getHeader()).newline();
+                    }
+                    for (Note note : slice) {
+                        printNote(note, context, p);
+                    }
+                    p.flush();
+                } finally {
+                    graph.endReadTransaction();
+                }
+                return null;
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(partitions,
+                Runtime.getRuntime().availableProcessors()));
+        try {
+            for (Future<Void> f : executor.invokeAll(tasks)) {
+                f.get();
+            }
+        } catch (InterruptedException e) {
+            throw new IOException("interrupted while writing partitions", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package net.fortytwo.smsn.brain.io.tsv;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A buffered printer for tab-separated values, encoding characters directly into a reusable byte buffer.
+ * Plain values are written as UTF-8, while escaped values are written as ASCII,
+ * with control and non-ASCII characters replaced by Java-style unicode escapes.
+ */
+public class TSVPrinter implements Flushable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final byte[] HEX_CHARS = "0123456789ABCDEF".getBytes();
+    private static final byte[] NULL = "null".getBytes();
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+
+    public TSVPrinter(final OutputStream out) {
+        this.out = out;
+    }
+
+    public TSVPrinter tab() throws IOException {
+        return write('\t');
+    }
+
+    public TSVPrinter newline() throws IOException {
+        return write('\n');
+    }
+
+    /**
+     * Writes a value as UTF-8, or the string "null" if the value is null
+     */
+    public TSVPrinter print(final CharSequence value) throws IOException {
+        if (null == value) {
+            return write(NULL);
+        }
+
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                write((byte) c);
+            } else if (c < 0x800) {
+                ensureCapacity(2);
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                ensureCapacity(4);
+                buffer[position++] = (byte) (0xF0 | (cp >> 18));
+                buffer[position++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (cp & 0x3F));
+            } else {
+                ensureCapacity(3);
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Writes a value with the same escaping as SemanticSynchrony.unicodeEscape, without creating an escaped copy
+     */
+    public TSVPrinter printEscaped(final CharSequence value) throws IOException {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 32 || c >= 127) {
+                ensureCapacity(6);
+                buffer[position++] = '\\';
+                buffer[position++] = 'u';
+                buffer[position++] = HEX_CHARS[(c >> 12) & 0xF];
+                buffer[position++] = HEX_CHARS[(c >> 8) & 0xF];
+                buffer[position++] = HEX_CHARS[(c >> 4) & 0xF];
+                buffer[position++] = HEX_CHARS[c & 0xF];
+            } else {
+                write((byte) c);
+            }
+        }
+        return this;
+    }
+
+    public TSVPrinter print(final long value) throws IOException {
+        if (Long.MIN_VALUE == value) {
+            return print(Long.toString(value));
+        }
+
+        long v = value;
+        if (v < 0) {
+            write('-');
+            v = -v;
+        }
+
+        // digits are produced in reverse, then written in order
+        ensureCapacity(19);
+        int start = position;
+        do {
+            buffer[position++] = (byte) ('0' + (v % 10));
+            v /= 10;
+        } while (v > 0);
+        for (int i = start, j = position - 1; i < j; i++, j--) {
+            byte b = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = b;
+        }
+        return this;
+    }
+
+    /**
+     * Writes a value as PrintStream would, i.e. as its string representation, or "null"
+     */
+    public TSVPrinter print(final Object value) throws IOException {
+        if (value instanceof Long || value instanceof Integer) {
+            return print(((Number) value).longValue());
+        } else {
+            return print(null == value ? null : value.toString());
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    private TSVPrinter write(final char c) throws IOException {
+        return write((byte) c);
+    }
+
+    private TSVPrinter write(final byte b) throws IOException {
+        if (position == buffer.length) {
+            drain();
+        }
+        buffer[position++] = b;
+        return this;
+    }
+
+    private TSVPrinter write(final byte[] bytes) throws IOException {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+        return this;
+    }
+
+    private void ensureCapacity(final int bytes) throws IOException {
+        if (position + bytes > buffer.length) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
@@ -17,17 +17,26 @@ import net.fortytwo.smsn.brain.model.entities.Topic;
 import net.fortytwo.smsn.brain.model.entities.TreeNode;
 import net.fortytwo.smsn.brain.query.TreeViews;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.BiConsumer;
 
 public abstract class FilePerNoteWriter extends NoteWriter {
 
+    private static final String TEMP_FILE_PREFIX = ".smsn-tmp-";
+
     public final FilePerNoteFormat format;
     private final BiConsumer<Note, OutputStream> printer;
 
@@ -43,42 +52,88 @@ public abstract class FilePerNoteWriter extends NoteWriter {
 
     @Override
     public void doWrite(Context context) throws IOException {
-        Map<String, File> dirs = initializeDirectories(true);
+        Map<String, File> dirs = initializeDirectories();
 
         timeAction("exported notes as individual files", () -> doExport(context.getTopicGraph(), dirs));
     }
 
-    private Map<String, File> initializeDirectories(boolean removeOldFiles) throws IOException {
+    private Map<String, File> initializeDirectories() throws IOException {
         Map<String, File> dirs = FilePerNoteFormat.directoriesBySource();
         for (File d : dirs.values()) {
             createDirectoryIfNotExists(d);
-            if (removeOldFiles) {
-                timeAction("cleaned directory " + d, () -> clearDirectoryOfSmSnData(d));
-            }
         }
         return dirs;
     }
 
-    private void clearDirectoryOfSmSnData(final File dir) {
-        for (File file : dir.listFiles()) {
-            if (format.isMatchingFile(file)) {
-                if (!file.delete()) {
-                    throw new IllegalStateException("failed to delete SmSn file " + file.getAbsolutePath());
-                }
-            }
-        }
-    }
-
+    // Rather than clearing and rewriting each directory, writes only those files whose content has changed,
+    // and removes only those files which no longer correspond to a materialized note.
     private void doExport(final TopicGraph graph, final Map<String, File> dirs) throws IOException {
+        Set<File> exportedFiles = new HashSet<>();
+        int written = 0;
+
         for (Note a : graph.getAllNotes()) {
             if (isMaterialized(a)) {
                 File dir = chooseDirectoryForNote(a, dirs);
                 File pageFile = new File(dir, fileNameFor(a));
-                try (OutputStream out = new FileOutputStream(pageFile)) {
-                    printer.accept(a, out);
+                exportedFiles.add(pageFile);
+                if (writeIfChanged(a, pageFile)) {
+                    written++;
+                }
+            }
+        }
+
+        int removed = 0;
+        for (File dir : dirs.values()) {
+            removed += removeStaleFiles(dir, exportedFiles);
+        }
+
+        logger.info("wrote " + written + " changed files and removed " + removed + " stale files ("
+                + (exportedFiles.size() - written) + " files unchanged)");
+    }
+
+    private boolean writeIfChanged(final Note note, final File pageFile) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        printer.accept(note, buffer);
+        byte[] content = buffer.toByteArray();
+
+        if (pageFile.exists()
+                && pageFile.length() == content.length
+                && Arrays.equals(content, Files.readAllBytes(pageFile.toPath()))) {
+            return false;
+        }
+
+        writeAtomically(pageFile, content);
+        return true;
+    }
+
+    // writes to a temporary file, then renames it over the target, so that a failed export never leaves
+    // a partially-written file behind
+    private void writeAtomically(final File file, final byte[] content) throws IOException {
+        Path tempFile = new File(file.getParentFile(), TEMP_FILE_PREFIX + file.getName()).toPath();
+        Files.write(tempFile, content);
+
+        try {
+            Files.move(tempFile, file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private int removeStaleFiles(final File dir, final Set<File> exportedFiles) {
+        int removed = 0;
+        for (File file : dir.listFiles()) {
+            // also clean up after any previous, interrupted export
+            boolean isStale = format.isMatchingFile(file)
+                    ? !exportedFiles.contains(file)
+                    : file.getName().startsWith(TEMP_FILE_PREFIX);
+            if (isStale) {
+                if (!file.delete()) {
+                    throw new IllegalStateException("failed to delete SmSn file " + file.getAbsolutePath());
                 }
+                removed++;
             }
         }
+        return removed;
     }
 
     private String fileNameFor(final Note a) {
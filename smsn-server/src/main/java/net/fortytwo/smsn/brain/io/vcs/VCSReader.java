@@ -18,20 +18,28 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 
 public class VCSReader extends NoteReader {
-    private final FilePerNoteFormat format = VCSWriter.FORMAT;
 
-    private final WikiParser reader;
+    // pages are parsed concurrently, but applied to the graph by a single writer
+    private static final int PARSER_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
 
-    public VCSReader() {
-        reader = new WikiParser();
-    }
+    // bounds the number of parsed pages held in memory while waiting to be applied
+    private static final int PARSED_PAGE_BUFFER_SIZE = 1024;
+
+    private final FilePerNoteFormat format = VCSWriter.FORMAT;
 
     @Override
     protected void importInternal(Context context) throws IOException {
@@ -50,49 +58,130 @@ public class VCSReader extends NoteReader {
         File dir = new File(location);
         assertDirectoryExists(dir);
 
+        File[] files = dir.listFiles(format::isMatchingFile);
+        if (null == files || 0 == files.length) {
+            return;
+        }
+
         Helper helper = new Helper(context);
 
-        File[] files = dir.listFiles();
-        if (null != files) {
-            for (File file : files) {
-                try {
-                    if (format.isMatchingFile(file)) {
-                        readPage(file, helper, dataSource);
-                    }
-                } catch (IOException e) {
-                    throw new IOException("failed to load file " + file.getAbsolutePath(), e);
+        BlockingQueue<ParsedPage> parsedPages = new ArrayBlockingQueue<>(PARSED_PAGE_BUFFER_SIZE);
+        AtomicInteger nextFile = new AtomicInteger(0);
+        AtomicLong parseNanos = new AtomicLong(0);
+        int threads = Math.min(PARSER_THREADS, files.length);
+        ExecutorService parsers = Executors.newFixedThreadPool(threads);
+
+        long before = System.nanoTime();
+        long applyNanos = 0;
+        try {
+            for (int i = 0; i < threads; i++) {
+                parsers.execute(() -> parseFiles(files, nextFile, parsedPages, parseNanos));
+            }
+
+            for (int i = 0; i < files.length; i++) {
+                ParsedPage parsed = takeParsedPage(parsedPages);
+                if (null != parsed.error) {
+                    throw parsed.error;
                 }
+
+                long beforeApply = System.nanoTime();
+                applyPage(parsed, helper, dataSource);
+                applyNanos += System.nanoTime() - beforeApply;
             }
+        } finally {
+            parsers.shutdownNow();
         }
-    }
 
-    private AtomId idFromFileName(final File file) {
-        String fileName = file.getName();
-        return new AtomId(fileName.substring(0, fileName.indexOf(".")));
+        logThroughput(dataSource, files.length, threads, System.nanoTime() - before, parseNanos.get(), applyNanos);
     }
 
-    private void readPage(final File file, final Helper helper, final DataSource source) throws IOException {
-        Page page;
+    private void parseFiles(final File[] files,
+                            final AtomicInteger nextFile,
+                            final BlockingQueue<ParsedPage> parsedPages,
+                            final AtomicLong parseNanos) {
+        // parsers are stateful, so each thread has its own
+        WikiParser parser = new WikiParser();
+
+        int i;
+        try {
+            while ((i = nextFile.getAndIncrement()) < files.length) {
+                long before = System.nanoTime();
+                ParsedPage parsed = parsePage(files[i], parser);
+                parseNanos.addAndGet(System.nanoTime() - before);
 
+                parsedPages.put(parsed);
+            }
+        } catch (InterruptedException e) {
+            // the writer has given up; stop parsing
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private ParsedPage parsePage(final File file, final WikiParser parser) {
+        ParsedPage parsed = new ParsedPage(file);
         try (InputStream in = new FileInputStream(file)) {
             try {
-                page = reader.parse(in);
+                parsed.page = parser.parse(in);
             } catch (IOException e) {
                 throw new IOException("parse error in VCS file " + file, e);
             }
-            AtomId rootId = idFromFileName(file);
-            Note root = helper.resolveNoteReference(rootId);
+        } catch (IOException | RuntimeException e) {
+            // report any failure to the writer, which would otherwise wait forever for this page
+            parsed.error = new IOException("failed to load file " + file.getAbsolutePath(), e);
+        }
+        return parsed;
+    }
 
-            for (TreeNode<Link> note : TreeViews.getChildrenAsList(page.getContent())) {
-                AtomId id = TreeViews.getId(note);
-//                Preconditions.checkNotNull(id);
-            }
-            page.setSource(source.getName());
-            helper.setNote(root);
-            helper.setPage(page);
-            helper.updateNote();
+    private ParsedPage takeParsedPage(final BlockingQueue<ParsedPage> parsedPages) throws IOException {
+        try {
+            return parsedPages.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for parsed pages");
+        }
+    }
+
+    private AtomId idFromFileName(final File file) {
+        String fileName = file.getName();
+        return new AtomId(fileName.substring(0, fileName.indexOf(".")));
+    }
+
+    private void applyPage(final ParsedPage parsed, final Helper helper, final DataSource source) {
+        Page page = parsed.page;
+        AtomId rootId = idFromFileName(parsed.file);
+        Note root = helper.resolveNoteReference(rootId);
+
+        page.setSource(source.getName());
+        helper.setNote(root);
+        helper.setPage(page);
+        helper.updateNote();
+
+        checkAndCommit(helper.context.getTopicGraph());
+    }
+
+    private void logThroughput(final DataSource dataSource,
+                               final int pages,
+                               final int threads,
+                               final long totalNanos,
+                               final long parseNanos,
+                               final long applyNanos) {
+        logger.info("read " + pages + " pages from source '" + dataSource.getName() + "' in "
+                + totalNanos / 1000000 + " ms (" + pagesPerSecond(pages, totalNanos) + " pages/s). "
+                + "Parsed on " + threads + " threads at " + pagesPerSecond(pages, parseNanos / threads)
+                + " pages/s; applied at " + pagesPerSecond(pages, applyNanos) + " pages/s");
+    }
+
+    private long pagesPerSecond(final int pages, final long nanos) {
+        return 0 == nanos ? 0 : pages * 1000000000L / nanos;
+    }
+
+    private static class ParsedPage {
+        private final File file;
+        private Page page;
+        private IOException error;
 
-            checkAndCommit(helper.context.getTopicGraph());
+        private ParsedPage(final File file) {
+            this.file = file;
         }
     }
 
@@ -1,21 +1,19 @@
 package net.fortytwo.smsn.brain.io.vertices;
 
 import com.google.common.base.Preconditions;
-import net.fortytwo.smsn.SemanticSynchrony;
-import net.fortytwo.smsn.brain.io.NoteWriter;
 import net.fortytwo.smsn.brain.io.Format;
+import net.fortytwo.smsn.brain.io.tsv.TSVNoteWriter;
+import net.fortytwo.smsn.brain.io.tsv.TSVPrinter;
 import net.fortytwo.smsn.brain.model.entities.Note;
-import net.fortytwo.smsn.brain.model.TopicGraph;
 import net.fortytwo.smsn.brain.model.Filter;
 import net.fortytwo.smsn.brain.rdf.KnowledgeBase;
 
 import java.io.IOException;
-import java.io.PrintStream;
 import java.util.Collections;
 import java.util.List;
 import java.util.logging.Logger;
 
-public class VertexWriter extends NoteWriter {
+public class VertexWriter extends TSVNoteWriter {
     private static final Logger logger = Logger.getLogger(VertexWriter.class.getName());
 
     @Override
@@ -25,77 +23,71 @@ public class VertexWriter extends NoteWriter {
 
     @Override
     public void doWrite(Context context) throws IOException {
+        Preconditions.checkNotNull(context.getFilter());
 
-        TopicGraph sourceGraph = context.getTopicGraph();
+        super.doWrite(context);
+    }
+
+    @Override
+    protected String getHeader() {
+        return "created\tid\tweight\tpriority\tsource\tclass\tout\tin\ttitle\talias\tshortcut\ttext";
+    }
+
+    @Override
+    protected void printNote(final Note a, final Context context, final TSVPrinter p) throws IOException {
         Filter filter = context.getFilter();
-        Preconditions.checkNotNull(filter);
         KnowledgeBase sourceKb = context.getKnowledgeBase();
-        PrintStream p = new PrintStream(context.getDestStream());
-
-        p.println("created\tid\tweight\tpriority\tsource\tclass\tout\tin\ttitle\talias\tshortcut\ttext");
-
-        for (Note a : sourceGraph.getAllNotes()) {
-            if (isTrueNote(a) && filter.test(a)) {
-                p.print(Note.getCreated(a));
-                p.print('\t');
-                p.print(Note.getId(a));
-                p.print('\t');
-                p.print(Note.getWeight(a));
-                p.print('\t');
-                p.print(Note.getPriority(a));
-                p.print('\t');
-                p.print(Note.getSource(a));
-                p.print('\t');
-
-                List<KnowledgeBase.NoteClassEntry> entries = sourceKb.getClassInfo(a);
-                if (null != entries && entries.size() > 0) {
-                    KnowledgeBase.NoteClassEntry e = entries.get(0);
-                    p.print(e.getInferredClassName());
-                    p.print('\t');
-                    p.print(e.getOutScore());
-                    p.print('\t');
-                    p.print(e.getInScore());
-                    p.print('\t');
-                } else {
-                    p.print("\t0\t0\t");
-                }
-
-                String title = Note.getTitle(a);
-                if (null == title) {
-                    logger.warning("note has null @title: " + Note.getId(a));
-                } else {
-                    p.print(escapeValue(title));
-                }
-                p.print('\t');
-
-                String alias = Note.getAlias(a);
-                if (null != alias) {
-                    p.print(escapeValue(alias));
-                }
-                p.print('\t');
-
-                String shortcut = Note.getShortcut(a);
-                if (null != shortcut) {
-                    p.print(escapeValue(shortcut));
-                }
-
-                String text = Note.getText(a);
-                if (null != text) {
-                    p.print(escapeValue(text));
-                }
-
-                p.print('\n');
-            }
+
+        // each property is looked up only once
+        Long created = Note.getCreated(a);
+        if (null == created || !filter.test(a)) {
+            return;
         }
-    }
 
-    private boolean isTrueNote(final Note a) {
-        return null != Note.getCreated(a);
-    }
+        String id = Note.getId(a).value;
+        p.print(created.longValue()).tab();
+        p.print(id).tab();
+        p.print(Note.getWeight(a)).tab();
+        p.print(Note.getPriority(a)).tab();
+        p.print(Note.getSource(a)).tab();
+
+        List<KnowledgeBase.NoteClassEntry> entries = sourceKb.getClassInfo(a);
+        if (null != entries && entries.size() > 0) {
+            KnowledgeBase.NoteClassEntry e = entries.get(0);
+            p.print(e.getInferredClassName()).tab();
+            p.print(e.getOutScore()).tab();
+            p.print(e.getInScore()).tab();
+        } else {
+            p.tab().print(0).tab().print(0).tab();
+        }
+
+        // Note: quote characters (") need to be replaced, e.g. with underscores (_), if this data is imported into R.
+        // Otherwise, R becomes confused and skips rows.
+        String title = Note.getTitle(a);
+        if (null == title) {
+            logger.warning("note has null @title: " + id);
+        } else {
+            p.printEscaped(title);
+        }
+        p.tab();
+
+        String alias = Note.getAlias(a);
+        if (null != alias) {
+            p.printEscaped(alias);
+        }
+        p.tab();
+
+        String shortcut = Note.getShortcut(a);
+        if (null != shortcut) {
+            p.printEscaped(shortcut);
+        }
+        p.tab();
+
+        String text = Note.getText(a);
+        if (null != text) {
+            p.printEscaped(text);
+        }
 
-    // Note: quote characters (") need to be replaced, e.g. with underscores (_), if this data is imported into R.
-    // Otherwise, R becomes confused and skips rows.
-    private String escapeValue(final String value) {
-        return SemanticSynchrony.unicodeEscape(value);
+        p.newline();
     }
 }
@@ -9,6 +9,7 @@ import net.fortytwo.smsn.brain.Params;
 import net.fortytwo.smsn.brain.io.json.JsonParser;
 import net.fortytwo.smsn.brain.io.json.JsonPrinter;
 import net.fortytwo.smsn.brain.io.wiki.WikiParser;
+import net.fortytwo.smsn.brain.metrics.Metrics;
 import net.fortytwo.smsn.brain.model.Filter;
 import net.fortytwo.smsn.brain.model.TopicGraph;
 import net.fortytwo.smsn.brain.model.entities.Note;
@@ -19,6 +20,7 @@ import net.fortytwo.smsn.brain.model.pg.neo4j.Neo4jGraphWrapper;
 import net.fortytwo.smsn.brain.model.pg.PGTopicGraph;
 import net.fortytwo.smsn.brain.model.pg.tg.TinkerGraphWrapper;
 import net.fortytwo.smsn.brain.query.TreeViews;
+import net.fortytwo.smsn.config.Configuration;
 import net.fortytwo.smsn.server.errors.BadRequestException;
 import net.fortytwo.smsn.server.errors.RequestProcessingException;
 import org.apache.tinkerpop.gremlin.neo4j.structure.Neo4jGraph;
@@ -26,11 +28,13 @@ import org.apache.tinkerpop.gremlin.structure.Graph;
 import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
 import org.apache.tinkerpop.shaded.jackson.annotation.JsonIgnoreProperties;
 import org.apache.tinkerpop.shaded.jackson.annotation.JsonTypeInfo;
-import org.json.JSONObject;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -44,10 +48,9 @@ public abstract class Action {
 
     protected static final AtomId CREATE_NEW_NOTE = new AtomId("create-new-note");
 
-    private static final Map<Graph, Brain> brains = new HashMap<>();
-    private static final Map<Graph, GraphWrapper> wrappers = new HashMap<>();
-
-    private static final History history = new History();
+    // brains and wrappers are created once per graph and then only read, so lookups do not take a lock
+    private static final Map<Graph, Brain> brains = new ConcurrentHashMap<>();
+    private static final Map<Graph, GraphWrapper> wrappers = new ConcurrentHashMap<>();
 
     // override in subclasses
     protected void performTransaction(final ActionContext context)
@@ -57,31 +60,63 @@ public abstract class Action {
 
     protected abstract boolean doesWrite();
 
-    public synchronized static Brain getBrain(final GraphWrapper wrapper)
+    /**
+     * @return whether this action must run alone, with no concurrent reads or writes.
+     * By default, only actions which write to the graph do so
+     */
+    protected boolean needsExclusiveLane() {
+        return doesWrite();
+    }
+
+    public static Brain getBrain(final GraphWrapper wrapper)
             throws Brain.BrainException {
 
         Brain brain = brains.get(wrapper.getGraph());
 
         if (null == brain) {
-            logger.info("instantiating Extend-o-Brain with base graph " + wrapper.getGraph());
-            TopicGraph bg = new PGTopicGraph(wrapper);
-            brain = new Brain(bg);
-            brain.startBackgroundTasks();
-            brains.put(wrapper.getGraph(), brain);
+            try {
+                // only the first request for a given graph creates its brain; concurrent requests wait for it
+                brain = brains.computeIfAbsent(wrapper.getGraph(), g -> createBrain(wrapper));
+            } catch (BrainCreationException e) {
+                throw e.getCause();
+            }
         }
 
         return brain;
     }
 
-    public synchronized static GraphWrapper getWrapper(final Graph graph) {
+    public static GraphWrapper getWrapper(final Graph graph) {
         GraphWrapper wrapper = wrappers.get(graph);
 
-        if (null == wrapper) {
-            wrapper = wrap(graph);
-            wrappers.put(graph, wrapper);
+        return null == wrapper ? wrappers.computeIfAbsent(graph, Action::wrap) : wrapper;
+    }
+
+    private static Brain createBrain(final GraphWrapper wrapper) {
+        logger.info("instantiating Extend-o-Brain with base graph " + wrapper.getGraph());
+        TopicGraph bg = new PGTopicGraph(wrapper);
+        Brain brain;
+        try {
+            brain = new Brain(bg);
+        } catch (Brain.BrainException e) {
+            throw new BrainCreationException(e);
+        }
+        brain.startBackgroundTasks();
+
+        // the brain lives as long as the server, so its pending writes are flushed when the JVM exits
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                brain.close();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "failed to close brain", e);
+            }
+        }, "smsn-brain-shutdown"));
+
+        Configuration config = SemanticSynchrony.getConfiguration();
+        if (null != config.getMetricsFile()) {
+            Metrics.getInstance().startDumping(new File(config.getMetricsFile()), config.getMetricsDumpInterval());
         }
 
-        return wrapper;
+        return brain;
     }
 
     private static GraphWrapper wrap(final Graph graph) {
@@ -91,22 +126,31 @@ public abstract class Action {
     }
 
     public void handleRequest(final ActionContext context) {
+        String name = "action." + getClass().getSimpleName();
+        long vertices = Metrics.getVerticesTouched();
+        long edges = Metrics.getEdgesTouched();
 
-        long before = System.currentTimeMillis();
-        wrapTransactionAndExceptions(context);
-        long after = System.currentTimeMillis();
-
-        SemanticSynchrony.getLogger().log(Level.INFO, "completed " + getClass().getSimpleName()
-                + " action in " + (after - before) + " ms");
+        long before = System.nanoTime();
+        boolean success = false;
+        try {
+            wrapTransactionAndExceptions(context);
+            success = true;
+        } finally {
+            long elapsed = System.nanoTime() - before;
+            recordMetrics(name, elapsed, Metrics.getVerticesTouched() - vertices,
+                    Metrics.getEdgesTouched() - edges, success);
+
+            SemanticSynchrony.getLogger().log(Level.INFO, "completed " + getClass().getSimpleName()
+                    + " action in " + elapsed / 1000000 + " ms");
+        }
 
         logActivity(context);
     }
 
     protected void addView(final TreeNode<Link> view,
                            final ActionContext context) throws IOException {
-        JSONObject json = context.getJsonPrinter().toJson(view);
-
-        context.getMap().put(Params.VIEW, json);
+        // printed directly, rather than through a tree of JSON objects, as views may be large
+        context.getMap().put(Params.VIEW, context.getJsonPrinter().toJsonText(view));
     }
 
     public static ActionContext createContext(final Graph graph) {
@@ -121,32 +165,61 @@ public abstract class Action {
         return context;
     }
 
-    protected void addToHistory(final AtomId rootId) {
-        history.visit(rootId);
+    protected void addToHistory(final ActionContext context, final AtomId rootId) {
+        context.getBrain().getHistory().visit(rootId);
     }
 
-    protected Iterable<Note> getHistory(final TopicGraph graph,
-                                        final Filter filter) {
-        return history.getHistory(100, graph, filter);
+    protected Iterable<Note> getHistory(final ActionContext context,
+                                        final Filter filter,
+                                        final History.Ranking ranking) {
+        return context.getBrain().getHistory().getHistory(100, filter, ranking);
     }
 
     private void wrapTransactionAndExceptions(final ActionContext context) {
         setTitle(context, "[no title]");
 
+        // actions which do not modify the graph run side by side, each in its own transaction,
+        // while actions which do (or which otherwise need to run alone) are serialized through the brain's
+        // single write lane
+        Brain brain = context.getBrain();
+        Lock lane = needsExclusiveLane() ? brain.getWriteLane() : brain.getReadLane();
+        lane.lock();
         try {
-            TopicGraph.wrapInTransaction(context.getBrain().getTopicGraph(), () -> performTransaction(context));
+            TopicGraph.wrapInTransaction(brain.getTopicGraph(), () -> performTransaction(context));
         } catch (Exception e) {
             // Gremlin Server does not necessarily print the full stack trace,
             // so we print it here before propagating the exception.
             e.printStackTrace(System.err);
 
             throw new RequestProcessingException(e);
+        } finally {
+            if (doesWrite()) {
+                // not every change to the graph is seen by the topic graph, so mark the graph as updated
+                // before any reader can observe the new state
+                brain.getTopicGraph().notifyOfUpdate();
+            }
+            lane.unlock();
+        }
+    }
+
+    private static void recordMetrics(final String name,
+                                      final long elapsedNanos,
+                                      final long vertices,
+                                      final long edges,
+                                      final boolean success) {
+        Metrics metrics = Metrics.getInstance();
+        metrics.getHistogram(name).record(elapsedNanos);
+        metrics.add(name + ".vertices", vertices);
+        metrics.add(name + ".edges", edges);
+        if (!success) {
+            metrics.increment(name + ".errors");
         }
     }
 
     private void logActivity(final ActionContext context) {
         // Note: currently, all activities are logged, but the log is not immediately flushed
-        //       unless the transaction succeeds.
+        //       unless the transaction succeeds. Flushing only wakes the log's background writer,
+        //       so the request does not wait for the entries to reach the disk.
         if (null != context.getBrain().getActivityLog()) {
             context.getBrain().getActivityLog().flush();
         }
@@ -180,4 +253,16 @@ public abstract class Action {
         Preconditions.checkNotNull(object, "action is missing a required field");
         return object;
     }
+
+    // carries a checked exception out of a map computation
+    private static class BrainCreationException extends RuntimeException {
+        private BrainCreationException(final Brain.BrainException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized Brain.BrainException getCause() {
+            return (Brain.BrainException) super.getCause();
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package net.fortytwo.smsn.server.actions;
 
+import net.fortytwo.smsn.brain.History;
 import net.fortytwo.smsn.brain.model.entities.Note;
 import net.fortytwo.smsn.server.ActionContext;
 import net.fortytwo.smsn.server.errors.BadRequestException;
@@ -8,13 +9,22 @@ import net.fortytwo.smsn.server.errors.RequestProcessingException;
 import java.io.IOException;
 
 /**
- * A service for finding recently visited notes
+ * A service for finding recently or frequently visited notes
  */
 public class GetHistory extends FilteredAction {
 
+    private History.Ranking ranking = History.Ranking.Recency;
+
+    /**
+     * @param ranking the order of the notes: by most recent visit (the default), or by frecency
+     */
+    public void setRanking(History.Ranking ranking) {
+        this.ranking = ranking;
+    }
+
     @Override
     protected void performTransaction(final ActionContext context) throws RequestProcessingException, BadRequestException {
-        Iterable<Note> notes = getHistory(context.getBrain().getTopicGraph(), getFilter());
+        Iterable<Note> notes = getHistory(context, getFilter(), notNull(ranking));
 
         try {
             addView(context.getQueries().customView(notes, getFilter()), context);
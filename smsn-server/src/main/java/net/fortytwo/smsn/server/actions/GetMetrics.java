@@ -0,0 +1,30 @@
+package net.fortytwo.smsn.server.actions;
+
+import net.fortytwo.smsn.brain.Params;
+import net.fortytwo.smsn.brain.metrics.Metrics;
+import net.fortytwo.smsn.server.Action;
+import net.fortytwo.smsn.server.ActionContext;
+import net.fortytwo.smsn.server.errors.BadRequestException;
+import net.fortytwo.smsn.server.errors.RequestProcessingException;
+
+/**
+ * A service for retrieving request latencies, graph traversal counts and index statistics
+ */
+public class GetMetrics extends Action {
+
+    @Override
+    protected void performTransaction(final ActionContext context)
+            throws RequestProcessingException, BadRequestException {
+        context.getMap().put(Params.METRICS, Metrics.getInstance().toJson());
+    }
+
+    @Override
+    protected boolean doesRead() {
+        return false;
+    }
+
+    @Override
+    protected boolean doesWrite() {
+        return false;
+    }
+}
@@ -1,13 +1,18 @@
 package net.fortytwo.smsn.server.actions;
 
+import net.fortytwo.smsn.brain.Brain;
+import net.fortytwo.smsn.brain.Params;
+import net.fortytwo.smsn.brain.io.json.JsonText;
 import net.fortytwo.smsn.brain.model.entities.Link;
 import net.fortytwo.smsn.brain.model.entities.Note;
 import net.fortytwo.smsn.brain.model.entities.TreeNode;
+import net.fortytwo.smsn.brain.query.ViewCache;
 import net.fortytwo.smsn.server.ActionContext;
 import net.fortytwo.smsn.server.errors.BadRequestException;
 import net.fortytwo.smsn.server.errors.RequestProcessingException;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * A service for retrieving hierarchical views of Extend-o-Brain graphs
@@ -19,14 +24,25 @@ public class GetView extends RootedViewAction {
             throws RequestProcessingException, BadRequestException {
         super.performTransaction(context);
 
-        TreeNode<Link> tree = context.getQueries().view(getRoot(), height, getFilter(), style);
-        try {
-            addView(tree, context);
-        } catch (IOException e) {
-            throw new RequestProcessingException(e);
+        Brain brain = context.getBrain();
+        List<Object> key = ViewCache.createKey(
+                "view", Note.getId(getRoot()).value, height, getFilter(), style);
+        JsonText json = brain.getViewCache().get(key);
+        if (null == json) {
+            TreeNode<Link> tree = context.getQueries().view(getRoot(), height, getFilter(), style);
+            try {
+                json = context.getJsonPrinter().toJsonText(tree);
+            } catch (IOException e) {
+                throw new RequestProcessingException(e);
+            }
+            brain.getViewCache().put(key, json);
+        } else if (null != brain.getActivityLog()) {
+            // a cached view is still a view
+            brain.getActivityLog().logView(getRoot());
         }
+        context.getMap().put(Params.VIEW, json);
 
-        addToHistory(Note.getId(getRoot()));
+        addToHistory(context, Note.getId(getRoot()));
     }
 
     @Override
@@ -17,7 +17,7 @@ public class InferTypes extends Action {
         long timeBefore = System.currentTimeMillis();
 
         // note: multiple (typically four) invocations are required before the knowledge base is ready for RDF export
-        kb.inferClasses(null, null);
+        kb.inferAllClasses();
 
         long timeAfter = System.currentTimeMillis();
         logger.info("completed type inference in " + (timeAfter - timeBefore) + "ms");
@@ -1,13 +1,17 @@
 package net.fortytwo.smsn.server.actions;
 
+import net.fortytwo.smsn.brain.Params;
+import net.fortytwo.smsn.brain.io.json.JsonText;
 import net.fortytwo.smsn.brain.model.entities.Link;
 import net.fortytwo.smsn.brain.model.entities.TreeNode;
 import net.fortytwo.smsn.brain.query.TreeViews;
+import net.fortytwo.smsn.brain.query.ViewCache;
 import net.fortytwo.smsn.server.ActionContext;
 import net.fortytwo.smsn.server.errors.BadRequestException;
 import net.fortytwo.smsn.server.errors.RequestProcessingException;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * A service for executing keyword search over an Extend-o-Brain graph
@@ -70,7 +74,15 @@ public class Search extends BasicViewAction {
     }
 
     private void addSearchResults(final ActionContext params) throws IOException {
-        TreeNode<Link> tree = params.getQueries().search(getQueryType(), getQuery(), height, getFilter(), style);
-        addView(tree, params);
+        ViewCache cache = params.getBrain().getViewCache();
+        List<Object> key = ViewCache.createKey(
+                getQueryType().name(), getQuery(), height, getFilter(), style, titleCutoff);
+        JsonText json = cache.get(key);
+        if (null == json) {
+            TreeNode<Link> tree = params.getQueries().search(getQueryType(), getQuery(), height, getFilter(), style);
+            json = params.getJsonPrinter().toJsonText(tree);
+            cache.put(key, json);
+        }
+        params.getMap().put(Params.VIEW, json);
     }
 }
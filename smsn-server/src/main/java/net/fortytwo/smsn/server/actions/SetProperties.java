@@ -129,7 +129,6 @@ public class SetProperties extends FilteredAction {
                 break;
             case SemanticSynchrony.PropertyKeys.PRIORITY:
                 Note.setPriority(root, toFloat(value));
-                context.getBrain().getPriorities().updatePriority(root);
                 break;
             case SemanticSynchrony.PropertyKeys.SHORTCUT:
                 // first remove this shortcut from any note(s) currently holding it; shortcuts are inverse functional
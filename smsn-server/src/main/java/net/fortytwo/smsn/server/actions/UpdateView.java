@@ -6,6 +6,7 @@ import net.fortytwo.smsn.brain.model.entities.Link;
 import net.fortytwo.smsn.brain.model.entities.Note;
 import net.fortytwo.smsn.brain.model.entities.TreeNode;
 import net.fortytwo.smsn.brain.query.TreeViews;
+import net.fortytwo.smsn.brain.query.UpdatePlan;
 import net.fortytwo.smsn.server.ActionContext;
 import net.fortytwo.smsn.server.errors.BadRequestException;
 import net.fortytwo.smsn.server.errors.RequestProcessingException;
@@ -58,7 +59,8 @@ public class UpdateView extends RootedViewAction {
         TreeViews.setId(view, Note.getId(getRoot()));
 
         // Apply the update
-        context.getQueries().update(view, height, getFilter(), style);
+        UpdatePlan plan = context.getQueries().update(view, height, getFilter(), style);
+        context.getMap().put(Params.CHANGES, plan.toJson());
 
         TopicGraph graph = context.getBrain().getTopicGraph();
         // TODO: produce an appropriate view (e.g. a search) if the root is null
@@ -19,6 +19,8 @@ public class WriteGraph extends IOAction {
     // note: may be null
     private AtomId rootId;
 
+    private int partitions = 1;
+
     private AtomId getRootId() {
         return rootId;
     }
@@ -27,6 +29,10 @@ public class WriteGraph extends IOAction {
         this.rootId = rootId;
     }
 
+    public void setPartitions(int partitions) {
+        this.partitions = partitions;
+    }
+
     @Override
     protected void performTransaction(final ActionContext params) throws RequestProcessingException, BadRequestException {
 
@@ -39,7 +45,12 @@ public class WriteGraph extends IOAction {
         NoteWriter writer = Format.getWriter(getFormat());
 
         try {
-            if (getFormat().getType().equals(Format.Type.FileBased)) {
+            if (partitions > 1 && writer.isPartitionable()) {
+                // the file names a directory of partition files
+                context.setPartitions(partitions);
+                context.setDestDirectory(getFile());
+                writer.doWrite(context);
+            } else if (getFormat().getType().equals(Format.Type.FileBased)) {
                 try (OutputStream destStream = new FileOutputStream(getFile())) {
                     context.setDestStream(destStream);
                     writer.doWrite(context);
@@ -63,4 +74,12 @@ public class WriteGraph extends IOAction {
     protected boolean doesWrite() {
         return false;
     }
+
+    @Override
+    protected boolean needsExclusiveLane() {
+        // exports take the write lane, so that no change is committed while one is in progress
+        // (partitions are written by other threads, which see only committed data),
+        // and so that no two exports write the same files at once
+        return true;
+    }
 }
@@ -0,0 +1,230 @@
+package net.fortytwo.smsn.brain.io.snapshot;
+
+import net.fortytwo.smsn.brain.Brain;
+import net.fortytwo.smsn.brain.BrainTestBase;
+import net.fortytwo.smsn.brain.io.Format;
+import net.fortytwo.smsn.brain.io.NoteReader;
+import net.fortytwo.smsn.brain.io.NoteWriter;
+import net.fortytwo.smsn.brain.model.Filter;
+import net.fortytwo.smsn.brain.model.Role;
+import net.fortytwo.smsn.brain.model.TopicGraph;
+import net.fortytwo.smsn.brain.model.entities.Note;
+import net.fortytwo.smsn.brain.model.pg.PGTopicGraph;
+import net.fortytwo.smsn.brain.model.pg.tg.TinkerGraphWrapper;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class SnapshotFormatTest extends BrainTestBase {
+
+    @Test
+    public void formatIsRegistered() {
+        Format format = Format.getFormat("snapshot");
+        assertEquals(SnapshotFormat.getInstance(), format);
+        assertEquals(SnapshotReader.class, Format.getReader(format).getClass());
+        assertEquals(SnapshotWriter.class, Format.getWriter(format).getClass());
+    }
+
+    @Test
+    public void notesAndChildrenSurviveRoundTrip() throws Exception {
+        createExampleNotes();
+
+        TopicGraph copy = readSnapshot(writeSnapshot());
+        assertEquals(3, countNotes(copy));
+
+        Note arthur = copy.getNoteById(ARTHUR_ID).get();
+        assertEquals("Arthur Dent", Note.getTitle(arthur));
+        assertEquals("he's a jerk.\nA complete kneebiter.", Note.getText(arthur));
+        assertEquals("http://example.org/arthur", Note.getAlias(arthur));
+        assertEquals("ad", Note.getShortcut(arthur));
+        assertEquals(0.75f, Note.getWeight(arthur), 0f);
+        assertEquals(0.5f, Note.getPriority(arthur), 0f);
+        assertEquals(Role.Relation, Note.getRole(arthur));
+        assertEquals("public", Note.getSource(arthur));
+        assertEquals(1000L, (long) Note.getCreated(arthur));
+
+        List<Note> children = childList(arthur);
+        assertEquals(2, children.size());
+        assertEquals(FORD_ID, Note.getId(children.get(0)));
+        assertEquals(ZAPHOD_ID, Note.getId(children.get(1)));
+
+        Note zaphod = copy.getNoteById(ZAPHOD_ID).get();
+        assertEquals(1, childList(zaphod).size());
+        assertEquals(ARTHUR_ID, Note.getId(childList(zaphod).get(0)));
+        assertNull(Note.getText(zaphod));
+        assertNull(Note.getShortcut(zaphod));
+        assertEquals(500L, (long) Note.getCreated(zaphod));
+    }
+
+    @Test
+    public void indicesAreRebuiltAfterLoading() throws Exception {
+        createExampleNotes();
+
+        TopicGraph copy = readSnapshot(writeSnapshot());
+
+        List<Note> results = copy.getNotesByTitleQuery("Dent", filter);
+        assertEquals(1, results.size());
+        assertEquals(ARTHUR_ID, Note.getId(results.get(0)));
+        assertEquals(1, copy.getNotesByAcronym("zb", filter).size());
+        assertEquals(1, copy.getNotesByShortcut("ad", filter).size());
+
+        // changes after the load are indexed as usual
+        Note.setTitle(copy.getNoteById(FORD_ID).get(), "Ford Dent");
+        assertEquals(2, copy.getNotesByTitleQuery("Dent", filter).size());
+    }
+
+    @Test
+    public void fileIsReadThroughMemoryMap() throws Exception {
+        createExampleNotes();
+
+        File file = File.createTempFile("smsn-testing-", ".snapshot");
+        file.deleteOnExit();
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(writeSnapshot());
+        }
+
+        TopicGraph copy = createEmptyGraph();
+        Brain copyBrain = new Brain(copy);
+        new SnapshotReader().doImport(file, SnapshotFormat.getInstance(), copyBrain);
+
+        assertEquals(3, countNotes(copy));
+        assertEquals(2, childList(copy.getNoteById(ARTHUR_ID).get()).size());
+        assertEquals(1, copy.getNotesByTitleQuery("Beeblebrox", filter).size());
+    }
+
+    @Test
+    public void existingNotesAreUpdated() throws Exception {
+        createExampleNotes();
+        byte[] snapshot = writeSnapshot();
+
+        TopicGraph copy = createEmptyGraph();
+        Note arthur = copy.createNote(ARTHUR_ID);
+        Note.setTitle(arthur, "Arthur Philip Dent");
+
+        NoteReader.Context context = createContext(copy, snapshot);
+        new SnapshotReader().doImport(context);
+
+        assertEquals(3, countNotes(copy));
+        assertEquals("Arthur Dent", Note.getTitle(copy.getNoteById(ARTHUR_ID).get()));
+        assertEquals(0, copy.getNotesByTitleQuery("Philip", filter).size());
+    }
+
+    @Test
+    public void filteredNotesAreOmitted() throws Exception {
+        createExampleNotes();
+        filter = new Filter(0.6f, 0.6f, "private", null);
+
+        TopicGraph copy = readSnapshot(writeSnapshot());
+        assertEquals(1, countNotes(copy));
+        assertEquals(0, childList(copy.getNoteById(ARTHUR_ID).get()).size());
+    }
+
+    @Test
+    public void corruptSnapshotIsRejected() throws Exception {
+        createExampleNotes();
+        byte[] snapshot = writeSnapshot();
+
+        byte[] truncated = new byte[snapshot.length / 2];
+        System.arraycopy(snapshot, 0, truncated, 0, truncated.length);
+        try {
+            readSnapshot(truncated);
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+
+        try {
+            readSnapshot("not a snapshot".getBytes());
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void notesLoadedBeforeAFailureAreIndexed() throws Exception {
+        createExampleNotes();
+        byte[] snapshot = writeSnapshot();
+
+        // cut off the end of the list of children, so that all notes and properties have been read
+        byte[] truncated = new byte[snapshot.length - 2];
+        System.arraycopy(snapshot, 0, truncated, 0, truncated.length);
+        TopicGraph copy = createEmptyGraph();
+        try {
+            new SnapshotReader().doImport(createContext(copy, truncated));
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+
+        assertEquals(3, countNotes(copy));
+        List<Note> results = copy.getNotesByTitleQuery("Dent", filter);
+        assertEquals(1, results.size());
+        assertEquals(ARTHUR_ID, Note.getId(results.get(0)));
+        assertEquals(1, copy.getNotesByShortcut("ad", filter).size());
+    }
+
+    private void createExampleNotes() {
+        Note arthur = createNote(ARTHUR_ID, "Arthur Dent");
+        Note.setText(arthur, "he's a jerk.\nA complete kneebiter.");
+        Note.setAlias(arthur, "http://example.org/arthur");
+        Note.setShortcut(arthur, "ad");
+        Note.setWeight(arthur, 0.75f);
+        Note.setPriority(arthur, 0.5f);
+        Note.setRole(arthur, Role.Relation);
+        Note.setSource(arthur, "public");
+        Note.setCreated(arthur, 1000L);
+
+        Note ford = createNote(FORD_ID, "Ford Prefect");
+        Note.setSource(ford, "public");
+        Note.setCreated(ford, 2000L);
+
+        Note zaphod = createNote(ZAPHOD_ID, "Zaphod Beeblebrox");
+        Note.setSource(zaphod, "universal");
+        Note.setCreated(zaphod, 500L);
+
+        arthur.addChildAt(ford, 0);
+        arthur.addChildAt(zaphod, 1);
+        zaphod.addChildAt(arthur, 0);
+    }
+
+    private byte[] writeSnapshot() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        NoteWriter.Context context = new NoteWriter.Context();
+        context.setTopicGraph(topicGraph);
+        context.setFilter(filter);
+        context.setFormat(SnapshotFormat.getInstance());
+        context.setDestStream(out);
+        new SnapshotWriter().doWrite(context);
+        return out.toByteArray();
+    }
+
+    private TopicGraph readSnapshot(final byte[] snapshot) throws IOException {
+        TopicGraph copy = createEmptyGraph();
+        new SnapshotReader().doImport(createContext(copy, snapshot));
+        return copy;
+    }
+
+    private NoteReader.Context createContext(final TopicGraph destGraph, final byte[] snapshot) {
+        NoteReader.Context context = new NoteReader.Context();
+        context.setTopicGraph(destGraph);
+        context.setFormat(SnapshotFormat.getInstance());
+        context.setSourceStream(new ByteArrayInputStream(snapshot));
+        return context;
+    }
+
+    private TopicGraph createEmptyGraph() {
+        return new PGTopicGraph(new TinkerGraphWrapper(TinkerGraph.open()));
+    }
+}
@@ -0,0 +1,53 @@
+package net.fortytwo.smsn.brain.io.tsv;
+
+import net.fortytwo.smsn.SemanticSynchrony;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+public class TSVPrinterTest {
+
+    @Test
+    public void valuesArePrintedAsByPrintStream() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TSVPrinter p = new TSVPrinter(out);
+        p.print(0).tab().print(-42).tab().print(Long.MAX_VALUE).tab().print(Long.MIN_VALUE).tab()
+                .print((Object) 0.5f).tab().print((Object) null).tab().print((CharSequence) null).newline();
+        p.flush();
+
+        assertEquals("0\t-42\t" + Long.MAX_VALUE + "\t" + Long.MIN_VALUE + "\t0.5\tnull\tnull\n",
+                new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void plainValuesAreEncodedAsUtf8() throws Exception {
+        String value = "cheval \u00e0 phynances \u2603 \ud83d\ude00";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TSVPrinter p = new TSVPrinter(out);
+        p.print(value);
+        p.flush();
+
+        assertEquals(value, new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void escapedValuesMatchUnicodeEscape() throws Exception {
+        StringBuilder sb = new StringBuilder("the number ");
+        sb.append((char) 4).append((char) 2).append("...").append((char) 127).append((char) 1008).append('\t');
+        // long enough to fill the buffer several times
+        for (int i = 0; i < 20000; i++) {
+            sb.append("\u00e0b");
+        }
+        String value = sb.toString();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TSVPrinter p = new TSVPrinter(out);
+        p.printEscaped(value);
+        p.flush();
+
+        assertEquals(SemanticSynchrony.unicodeEscape(value), new String(out.toByteArray(), StandardCharsets.US_ASCII));
+    }
+}
@@ -30,6 +30,7 @@ import java.util.List;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 public class VCSWriterTest extends BrainTestBase {
@@ -115,6 +116,38 @@ public class VCSWriterTest extends BrainTestBase {
         assertEquals("* :" + zaphodId.value + ": ", lines.get(8));
     }
 
+    @Test
+    public void onlyChangedAndRemovedNotesAffectFiles() throws Exception {
+        Note arthur = createNote(ARTHUR_ID, "Arthur Dent");
+        Note.setSource(arthur, DefaultSources.PUBLIC);
+        Note ford = createNote(FORD_ID, "Ford Prefect");
+        Note.setSource(ford, DefaultSources.PUBLIC);
+        Note zaphod = createNote(ZAPHOD_ID, "Zaphod Beeblebrox");
+        Note.setSource(zaphod, DefaultSources.PUBLIC);
+
+        File dir = createVCSTestDirectory();
+        doExport(dir);
+        File publicDir = new File(dir, "public");
+        File arthurFile = new File(publicDir, ARTHUR_ID.value + ".smsn");
+        File fordFile = new File(publicDir, FORD_ID.value + ".smsn");
+        File zaphodFile = new File(publicDir, ZAPHOD_ID.value + ".smsn");
+        assertEquals(3, publicDir.listFiles().length);
+
+        long past = System.currentTimeMillis() - 100000;
+        assertTrue(arthurFile.setLastModified(past));
+        assertTrue(fordFile.setLastModified(past));
+
+        Note.setTitle(ford, "Ford Prefect (character)");
+        zaphod.destroy();
+        doExport(dir);
+
+        assertEquals(2, publicDir.listFiles().length);
+        assertEquals(past / 1000, arthurFile.lastModified() / 1000);
+        assertTrue(fordFile.lastModified() / 1000 > past / 1000);
+        assertEquals("@title Ford Prefect (character)", readLines(fordFile).get(1));
+        assertFalse(zaphodFile.exists());
+    }
+
     private Map.Entry<String, String> readPropertyLine(final String line) {
         Map<String, String> map = new HashMap<>();
         int atIndex = line.indexOf('@');
@@ -138,9 +171,12 @@ public class VCSWriterTest extends BrainTestBase {
     }
 
     private File doExport() throws IOException {
+        return doExport(createVCSTestDirectory());
+    }
+
+    private File doExport(final File dir) throws IOException {
         VCSWriter writer = new VCSWriter();
 
-        File dir = createVCSTestDirectory();
         NoteWriter.Context context = new NoteWriter.Context();
         context.setDestDirectory(dir);
         context.setTopicGraph(topicGraph);
@@ -8,6 +8,7 @@ import net.fortytwo.smsn.server.ActionContext;
 import net.fortytwo.smsn.server.SmSnScriptEngine;
 import net.fortytwo.smsn.server.SmSnScriptEngineFactory;
 import org.json.JSONObject;
+import org.json.JSONString;
 
 import java.io.IOException;
 
@@ -27,6 +28,6 @@ public abstract class ActionTestBase extends BrainTestBase {
     }
 
     protected JSONObject getView(final ActionContext context) {
-        return (JSONObject) context.getMap().get(Params.VIEW);
+        return new JSONObject(((JSONString) context.getMap().get(Params.VIEW)).toJSONString());
     }
 }
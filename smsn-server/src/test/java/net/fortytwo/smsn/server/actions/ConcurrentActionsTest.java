@@ -0,0 +1,108 @@
+package net.fortytwo.smsn.server.actions;
+
+import net.fortytwo.smsn.SemanticSynchrony;
+import net.fortytwo.smsn.brain.Brain;
+import net.fortytwo.smsn.brain.model.entities.Note;
+import net.fortytwo.smsn.server.Action;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentActionsTest extends ActionTestBase {
+
+    @Test
+    public void readsAndWritesMayBeInterleavedAcrossThreads() throws Exception {
+        List<Note> notes = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            notes.add(createNoteWithTitle("note " + i));
+        }
+
+        int threads = 4, iterations = 50;
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            workers.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < iterations; i++) {
+                        Note note = notes.get((thread + i) % notes.size());
+                        if (0 == i % 2) {
+                            perform(getView(note));
+                        } else {
+                            perform(setTitle(note, "note " + thread + "." + i));
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }));
+        }
+
+        workers.forEach(Thread::start);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertNull(failure.get());
+        for (Note note : notes) {
+            assertTrue(Note.getTitle(note).startsWith("note "));
+        }
+    }
+
+    @Test
+    public void writesWaitForReaders() throws Exception {
+        Note note = createNoteWithTitle("before");
+        Brain brain = Action.getBrain(Action.getWrapper(graph));
+
+        CountDownLatch written = new CountDownLatch(1);
+        brain.getReadLane().lock();
+        try {
+            // a reader on another thread is not held up
+            CountDownLatch read = new CountDownLatch(1);
+            new Thread(() -> {
+                perform(getView(note));
+                read.countDown();
+            }).start();
+            assertTrue(read.await(10, TimeUnit.SECONDS));
+
+            new Thread(() -> {
+                perform(setTitle(note, "after"));
+                written.countDown();
+            }).start();
+
+            assertFalse(written.await(200, TimeUnit.MILLISECONDS));
+            assertEquals("before", Note.getTitle(note));
+        } finally {
+            brain.getReadLane().unlock();
+        }
+
+        assertTrue(written.await(10, TimeUnit.SECONDS));
+        assertEquals("after", Note.getTitle(note));
+    }
+
+    private GetView getView(final Note root) {
+        GetView action = new GetView();
+        action.setRoot(Note.getId(root).value);
+        action.setHeight(2);
+        action.setFilter(filter);
+        return action;
+    }
+
+    private SetProperties setTitle(final Note note, final String title) {
+        SetProperties action = new SetProperties();
+        action.setId(Note.getId(note));
+        action.setName(SemanticSynchrony.PropertyKeys.TITLE);
+        action.setValue(title);
+        action.setFilter(filter);
+        return action;
+    }
+}
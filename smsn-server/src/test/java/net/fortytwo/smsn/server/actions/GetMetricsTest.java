@@ -0,0 +1,35 @@
+package net.fortytwo.smsn.server.actions;
+
+import net.fortytwo.smsn.brain.Params;
+import net.fortytwo.smsn.brain.model.entities.Note;
+import net.fortytwo.smsn.server.ActionContext;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+public class GetMetricsTest extends ActionTestBase {
+
+    @Test
+    public void actionLatenciesAndTraversalsAreReported() throws Exception {
+        Note note = createNoteWithTitle("one");
+
+        GetView getView = new GetView();
+        getView.setRoot(Note.getId(note).value);
+        getView.setHeight(2);
+        getView.setFilter(filter);
+        perform(getView);
+
+        ActionContext context = perform(new GetMetrics());
+        JSONObject metrics = (JSONObject) context.getMap().get(Params.METRICS);
+
+        JSONObject histogram = metrics.getJSONObject("histograms").getJSONObject("action.GetView");
+        assertTrue(histogram.getLong("count") >= 1);
+        assertTrue(histogram.getDouble("max") > 0);
+        assertTrue(metrics.getJSONObject("histograms").has("transaction.commit"));
+
+        JSONObject counters = metrics.getJSONObject("counters");
+        assertTrue(counters.getLong("action.GetView.vertices") > 0);
+        assertTrue(counters.optLong("index.idCache.hits") + counters.optLong("index.idCache.misses") > 0);
+    }
+}
@@ -0,0 +1,32 @@
+package net.fortytwo.smsn.server.actions;
+
+import net.fortytwo.smsn.brain.model.pg.PGTopicGraph;
+import net.fortytwo.smsn.server.Action;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WriteGraphTest extends ActionTestBase {
+
+    @Test
+    public void exportDoesNotAdvanceTheVersion() throws Exception {
+        createNote(ARTHUR_ID, "Arthur Dent");
+        createNote(FORD_ID, "Ford Prefect");
+        PGTopicGraph topicGraph = (PGTopicGraph) Action.getBrain(Action.getWrapper(graph)).getTopicGraph();
+        long version = topicGraph.getVersion();
+
+        File file = new File(createTempDirectory(), "vertices.tsv");
+        WriteGraph action = new WriteGraph();
+        action.setFormat("vertices");
+        action.setFile(file.getAbsolutePath());
+        action.setFilter(filter);
+        perform(action);
+
+        assertTrue(file.length() > 0);
+        // an export only reads the graph, so nothing cached from it is invalidated
+        assertEquals(version, topicGraph.getVersion());
+    }
+}